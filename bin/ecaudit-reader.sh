@@ -0,0 +1,15 @@
+#!/bin/bash
+#
+# Decode binary audit segments written by the ecAudit binary logger.
+#
+# The ecAudit jar file and the Cassandra libraries are located using CASSANDRA_HOME,
+# or the installation directory of Cassandra if CASSANDRA_HOME is not set.
+#
+
+if [ -z "${CASSANDRA_HOME}" ]; then
+ CASSANDRA_HOME=/usr/share/cassandra
+fi
+
+CLASSPATH="${CASSANDRA_HOME}/*:${CASSANDRA_HOME}/lib/*"
+
+exec java ${JVM_OPTS} -cp "${CLASSPATH}" com.ericsson.bss.cassandra.ecaudit.logger.binary.BinaryAuditReader "$@"
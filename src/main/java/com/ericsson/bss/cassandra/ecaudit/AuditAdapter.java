@@ -19,9 +19,7 @@ import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.cassandra.cql3.BatchQueryOptions;
 import org.apache.cassandra.cql3.CQLStatement;
@@ -52,7 +50,7 @@ public class AuditAdapter
     private final Auditor auditor;
     private final AuditEntryBuilderFactory entryBuilderFactory;
 
-    private final Map<MD5Digest, String> idQueryCache = new ConcurrentHashMap<>();
+    private final PreparedStatementCache preparedTemplates;
 
     /**
      * Constructor, see {@link AuditAdapterFactory#getInstance()}
@@ -65,9 +63,25 @@ public class AuditAdapter
      *            the audit entry builder factory to use
      */
     AuditAdapter(Auditor auditor, AuditEntryBuilderFactory entryBuilderFactory)
+    {
+        this(auditor, entryBuilderFactory, PreparedStatementCache.create(PreparedStatementCache.DEFAULT_MAX_MEMORY));
+    }
+
+    /**
+     * Constructor, see {@link AuditAdapterFactory#getInstance()}
+     *
+     * @param auditor
+     *            the auditor to use
+     * @param entryBuilderFactory
+     *            the audit entry builder factory to use
+     * @param preparedTemplates
+     *            the cache to hold templates of prepared statements in
+     */
+    AuditAdapter(Auditor auditor, AuditEntryBuilderFactory entryBuilderFactory, PreparedStatementCache preparedTemplates)
     {
         this.auditor = auditor;
         this.entryBuilderFactory = entryBuilderFactory;
+        this.preparedTemplates = preparedTemplates;
     }
 
     /**
@@ -82,14 +96,21 @@ public class AuditAdapter
      */
     public void auditRegular(String operation, ClientState state, Status status)
     {
-        AuditEntry logEntry = entryBuilderFactory.createEntryBuilder(operation, state)
+        AuditEntry.Builder builder = entryBuilderFactory.createEntryBuilder(operation, state)
                 .client(state.getRemoteAddress().getAddress())
-                .user(state.getUser().getName())
+                .user(state.getUser().getName());
+        if (!auditor.isAuditRequired(builder.build()))
+        {
+            return;
+        }
+
+        AuditEntry logEntry = builder
                 .operation(new SimpleAuditOperation(operation))
                 .status(status)
+                .timestamp(System.currentTimeMillis())
                 .build();
 
-        auditor.audit(logEntry);
+        auditor.log(logEntry);
     }
 
     /**
@@ -108,14 +129,23 @@ public class AuditAdapter
      */
     public void auditPrepared(MD5Digest id, CQLStatement statement, ClientState state, QueryOptions options, Status status)
     {
-        AuditEntry logEntry = entryBuilderFactory.createEntryBuilder(statement)
+        AuditEntry template = getPreparedTemplate(id, statement);
+        AuditEntry.Builder builder = AuditEntry.newBuilder()
+                .basedOn(template)
                 .client(state.getRemoteAddress().getAddress())
-                .user(state.getUser().getName())
-                .operation(new PreparedAuditOperation(idQueryCache.get(id), options))
+                .user(state.getUser().getName());
+        if (!auditor.isAuditRequired(builder.build()))
+        {
+            return;
+        }
+
+        AuditEntry logEntry = builder
+                .operation(new PreparedAuditOperation(template.getOperation().getOperationString(), options))
                 .status(status)
+                .timestamp(System.currentTimeMillis())
                 .build();
 
-        auditor.audit(logEntry);
+        auditor.log(logEntry);
     }
 
     /**
@@ -138,18 +168,22 @@ public class AuditAdapter
                 .client(state.getRemoteAddress().getAddress())
                 .user(state.getUser().getName())
                 .batch(uuid)
-                .status(status);
+                .status(status)
+                .timestamp(System.currentTimeMillis());
 
         if (status == Status.FAILED)
         {
-            String failedBatchStatement = String.format(BATCH_FAILURE, uuid.toString());
-            auditor.audit(builder.operation(new SimpleAuditOperation(failedBatchStatement)).build());
+            if (auditor.isAuditRequired(builder.build()))
+            {
+                String failedBatchStatement = String.format(BATCH_FAILURE, uuid.toString());
+                auditor.log(builder.operation(new SimpleAuditOperation(failedBatchStatement)).build());
+            }
         }
         else
         {
             for (AuditEntry entry : getBatchOperations(builder, statement, state, options))
             {
-                auditor.audit(entry);
+                auditor.log(entry);
             }
         }
     }
@@ -171,26 +205,78 @@ public class AuditAdapter
                 .user(username)
                 .status(status)
                 .operation(status == Status.ATTEMPT ? AUTHENTICATION_ATTEMPT : AUTHENTICATION_FAILED)
+                .timestamp(System.currentTimeMillis())
                 .build();
 
         auditor.audit(logEntry);
     }
 
     /**
-     * Map a prepared statement id to a raw query string.
+     * Map a prepared statement id to a raw query string and precompute the permissions and resource of the statement,
+     * so that they don't have to be resolved on each execution.
      *
      * @param id
      *            the id of the prepared statement
      * @param query
      *            the query string
+     * @param statement
+     *            the prepared statement, or null if the statement is not available
+     */
+    public void mapIdToStatement(MD5Digest id, String query, CQLStatement statement)
+    {
+        preparedTemplates.put(id, statement != null
+                                  ? createPreparedTemplate(query, statement)
+                                  : AuditEntry.newBuilder().operation(new SimpleAuditOperation(query)).build());
+    }
+
+    /**
+     * Forget a prepared statement which is no longer known by Cassandra.
+     *
+     * @param id
+     *            the id of the prepared statement
      */
-    public void mapIdToQuery(MD5Digest id, String query)
+    public void unmapId(MD5Digest id)
     {
-        idQueryCache.put(id, query);
+        preparedTemplates.remove(id);
     }
 
     /**
-     * Get all the audit entries for a batch
+     * Get the template of a prepared statement, resolving permissions and resource if that wasn't possible when the
+     * statement was prepared.
+     *
+     * @param id
+     *            the id of the prepared statement
+     * @param statement
+     *            the prepared statement
+     * @return an entry holding the permissions, resource and query string of the statement
+     */
+    private AuditEntry getPreparedTemplate(MD5Digest id, CQLStatement statement)
+    {
+        AuditEntry template = preparedTemplates.get(id);
+        if (template != null && template.getPermissions() != null)
+        {
+            return template;
+        }
+
+        if (template == null)
+        {
+            return createPreparedTemplate(null, statement);
+        }
+
+        AuditEntry resolvedTemplate = createPreparedTemplate(template.getOperation().getOperationString(), statement);
+        preparedTemplates.put(id, resolvedTemplate);
+        return resolvedTemplate;
+    }
+
+    private AuditEntry createPreparedTemplate(String query, CQLStatement statement)
+    {
+        return entryBuilderFactory.createEntryBuilder(statement)
+                                  .operation(new SimpleAuditOperation(query))
+                                  .build();
+    }
+
+    /**
+     * Get the audit entries for the statements of a batch which are to be audited
      *
      * @param builder
      *            the prepared audit entry builder
@@ -212,18 +298,30 @@ public class AuditAdapter
             if(queryOrId instanceof MD5Digest)
             {
                 builder = entryBuilderFactory.updateBatchEntryBuilder(builder, batchStatement.getStatements().get(statementIndex));
-                builder = builder.operation(new PreparedAuditOperation(idQueryCache.get(queryOrId), options.forStatement(statementIndex)));
-                batchOperations.add(builder.build());
+                if (auditor.isAuditRequired(builder.build()))
+                {
+                    builder = builder.operation(new PreparedAuditOperation(getPreparedQuery((MD5Digest) queryOrId), options.forStatement(statementIndex)));
+                    batchOperations.add(builder.build());
+                }
             }
             else
             {
                 builder = entryBuilderFactory.updateBatchEntryBuilder(builder, queryOrId.toString(), state);
-                builder.operation(new SimpleAuditOperation(queryOrId.toString()));
-                batchOperations.add(builder.build());
+                if (auditor.isAuditRequired(builder.build()))
+                {
+                    builder.operation(new SimpleAuditOperation(queryOrId.toString()));
+                    batchOperations.add(builder.build());
+                }
             }
             statementIndex++;
         }
 
         return batchOperations;
     }
+
+    private String getPreparedQuery(MD5Digest id)
+    {
+        AuditEntry template = preparedTemplates.get(id);
+        return template != null ? template.getOperation().getOperationString() : null;
+    }
 }
@@ -15,6 +15,8 @@
 //**********************************************************************
 package com.ericsson.bss.cassandra.ecaudit;
 
+import java.io.File;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,10 +26,18 @@ import com.ericsson.bss.cassandra.ecaudit.facade.DefaultAuditor;
 import com.ericsson.bss.cassandra.ecaudit.filter.AuditFilter;
 import com.ericsson.bss.cassandra.ecaudit.filter.DefaultAuditFilter;
 import com.ericsson.bss.cassandra.ecaudit.filter.role.RoleAuditFilter;
+import com.ericsson.bss.cassandra.ecaudit.filter.yaml.AuditYamlConfigurationLoader;
 import com.ericsson.bss.cassandra.ecaudit.filter.yaml.YamlAuditFilter;
 import com.ericsson.bss.cassandra.ecaudit.filter.yamlandrole.YamlAndRoleAuditFilter;
+import com.ericsson.bss.cassandra.ecaudit.logger.AsyncAuditLogger;
+import com.ericsson.bss.cassandra.ecaudit.logger.AuditLogFormat;
 import com.ericsson.bss.cassandra.ecaudit.logger.AuditLogger;
+import com.ericsson.bss.cassandra.ecaudit.logger.OverflowPolicy;
 import com.ericsson.bss.cassandra.ecaudit.logger.Slf4jAuditLogger;
+import com.ericsson.bss.cassandra.ecaudit.logger.binary.BinaryAuditLogger;
+import com.ericsson.bss.cassandra.ecaudit.logger.binary.FsyncPolicy;
+import com.ericsson.bss.cassandra.ecaudit.logger.binary.SegmentCompression;
+import com.ericsson.bss.cassandra.ecaudit.logger.binary.ShardedAuditLogger;
 import com.ericsson.bss.cassandra.ecaudit.obfuscator.PasswordObfuscator;
 import org.apache.cassandra.exceptions.ConfigurationException;
 
@@ -44,6 +54,42 @@ public class AuditAdapterFactory
     public static final String FILTER_TYPE_YAML_AND_ROLE = "YAML_AND_ROLE";
     public static final String FILTER_TYPE_NONE = "NONE";
 
+    public static final String YAML_RELOAD_INTERVAL_PROPERTY_NAME = "ecaudit.yaml_reload_interval_in_ms";
+    private static final long DEFAULT_YAML_RELOAD_INTERVAL_IN_MS = 10000;
+
+    public static final String LOGGER_TYPE_PROPERTY_NAME = "ecaudit.logger_type";
+    public static final String LOGGER_TYPE_SLF4J = "SLF4J";
+    public static final String LOGGER_TYPE_BINARY = "BINARY";
+
+    public static final String BINARY_LOGGER_DIRECTORY_PROPERTY_NAME = "ecaudit.binary_logger.directory";
+    public static final String BINARY_LOGGER_SEGMENT_SIZE_PROPERTY_NAME = "ecaudit.binary_logger.segment_size_in_mb";
+    public static final String BINARY_LOGGER_FSYNC_PROPERTY_NAME = "ecaudit.binary_logger.fsync";
+    public static final String BINARY_LOGGER_FSYNC_PERIOD_PROPERTY_NAME = "ecaudit.binary_logger.fsync_period_in_ms";
+    public static final String BINARY_LOGGER_COMPRESSION_PROPERTY_NAME = "ecaudit.binary_logger.compression";
+    public static final String BINARY_LOGGER_COMPRESSION_THREADS_PROPERTY_NAME = "ecaudit.binary_logger.compression_threads";
+    public static final String BINARY_LOGGER_SHARDS_PROPERTY_NAME = "ecaudit.binary_logger.shards";
+    public static final String BINARY_LOGGER_INDEX_INTERVAL_PROPERTY_NAME = "ecaudit.binary_logger.index_interval";
+    private static final int DEFAULT_BINARY_LOGGER_SEGMENT_SIZE_IN_MB = 64;
+    private static final int DEFAULT_BINARY_LOGGER_COMPRESSION_THREADS = 1;
+    private static final int DEFAULT_BINARY_LOGGER_SHARDS = 1;
+    private static final int DEFAULT_BINARY_LOGGER_INDEX_INTERVAL = 1024;
+    private static final long DEFAULT_BINARY_LOGGER_FSYNC_PERIOD_IN_MS = 1000;
+
+    public static final String ASYNC_LOGGER_PROPERTY_NAME = "ecaudit.async_logger";
+    public static final String ASYNC_LOGGER_BUFFER_SIZE_PROPERTY_NAME = "ecaudit.async_logger.buffer_size";
+    public static final String ASYNC_LOGGER_THREADS_PROPERTY_NAME = "ecaudit.async_logger.threads";
+    public static final String ASYNC_LOGGER_OVERFLOW_POLICY_PROPERTY_NAME = "ecaudit.async_logger.overflow_policy";
+    public static final String ASYNC_LOGGER_BLOCK_TIMEOUT_PROPERTY_NAME = "ecaudit.async_logger.block_timeout_in_ms";
+    public static final String ASYNC_LOGGER_SPILL_DIRECTORY_PROPERTY_NAME = "ecaudit.async_logger.spill_directory";
+    private static final int DEFAULT_ASYNC_LOGGER_BUFFER_SIZE = 65536;
+    private static final int DEFAULT_ASYNC_LOGGER_THREADS = 1;
+    private static final long DEFAULT_ASYNC_LOGGER_BLOCK_TIMEOUT_IN_MS = 0;
+
+    public static final String CLASSIFICATION_CACHE_SIZE_PROPERTY_NAME = "ecaudit.classification_cache_size_in_mb";
+    private static final long DEFAULT_CLASSIFICATION_CACHE_SIZE_IN_MB = 10;
+
+    public static final String PREPARED_CACHE_SIZE_PROPERTY_NAME = "ecaudit.prepared_cache_size_in_mb";
+
     private volatile static AuditAdapter AUDIT_ADAPTER_INSTANCE = null;
 
     /**
@@ -60,18 +106,238 @@ public class AuditAdapterFactory
             return AUDIT_ADAPTER_INSTANCE;
         }
 
-        AuditLogger logger = new Slf4jAuditLogger();
+        AuditLogger logger = createLogger();
         PasswordObfuscator obfuscator = new PasswordObfuscator();
 
         AuditFilter filter = createFilter();
 
         Auditor auditor = new DefaultAuditor(logger, filter, obfuscator);
-        AuditEntryBuilderFactory entryBuilderFactory = new AuditEntryBuilderFactory();
-        AUDIT_ADAPTER_INSTANCE =  new AuditAdapter(auditor, entryBuilderFactory);
+        AuditEntryBuilderFactory entryBuilderFactory = createEntryBuilderFactory();
+        AUDIT_ADAPTER_INSTANCE =  new AuditAdapter(auditor, entryBuilderFactory, createPreparedStatementCache());
 
         return AUDIT_ADAPTER_INSTANCE;
     }
 
+    /**
+     * Construct an audit entry builder factory based on system properties.
+     *
+     * Classifications of unprepared statements are cached by default.
+     *
+     * @return a new audit entry builder factory
+     */
+    private static AuditEntryBuilderFactory createEntryBuilderFactory()
+    {
+        long cacheSizeInMb = Long.getLong(CLASSIFICATION_CACHE_SIZE_PROPERTY_NAME, DEFAULT_CLASSIFICATION_CACHE_SIZE_IN_MB);
+        if (cacheSizeInMb < 0)
+        {
+            throw new ConfigurationException(String.format("Audit classification cache size must not be negative, was %d MB", cacheSizeInMb));
+        }
+
+        LOG.info("Audit classification cache size: {} MB", cacheSizeInMb);
+        return new AuditEntryBuilderFactory(cacheSizeInMb * 1024 * 1024);
+    }
+
+    /**
+     * Construct the cache of prepared statement templates based on system properties.
+     *
+     * By default the cache is bounded to the same size as the prepared statement cache of Cassandra.
+     *
+     * @return a new prepared statement cache
+     */
+    private static PreparedStatementCache createPreparedStatementCache()
+    {
+        Long cacheSizeInMb = Long.getLong(PREPARED_CACHE_SIZE_PROPERTY_NAME);
+        long maxMemory = cacheSizeInMb != null ? cacheSizeInMb * 1024 * 1024 : PreparedStatementCache.DEFAULT_MAX_MEMORY;
+        if (maxMemory < 1)
+        {
+            throw new ConfigurationException(String.format("Audit prepared statement cache size must be positive, was %d bytes", maxMemory));
+        }
+
+        LOG.info("Audit prepared statement cache size: {} bytes", maxMemory);
+        return PreparedStatementCache.create(maxMemory);
+    }
+
+    /**
+     * Construct an audit logger based on system properties.
+     *
+     * A synchronous SLF4J logger will be created by default.
+     *
+     * @return a new audit logger
+     */
+    private AuditLogger createLogger()
+    {
+        AuditLogger logger = createLoggerBackend();
+
+        if (Boolean.getBoolean(ASYNC_LOGGER_PROPERTY_NAME))
+        {
+            LOG.info("Audit records written asynchronously");
+            int bufferSize = Integer.getInteger(ASYNC_LOGGER_BUFFER_SIZE_PROPERTY_NAME, DEFAULT_ASYNC_LOGGER_BUFFER_SIZE);
+            int threads = Integer.getInteger(ASYNC_LOGGER_THREADS_PROPERTY_NAME, DEFAULT_ASYNC_LOGGER_THREADS);
+            long blockTimeoutInMs = Long.getLong(ASYNC_LOGGER_BLOCK_TIMEOUT_PROPERTY_NAME, DEFAULT_ASYNC_LOGGER_BLOCK_TIMEOUT_IN_MS);
+            OverflowPolicy overflowPolicy = toOverflowPolicy();
+            logger = AsyncAuditLogger.newBuilder(logger)
+                                     .bufferSize(bufferSize)
+                                     .threads(threads)
+                                     .overflowPolicy(overflowPolicy)
+                                     .blockTimeoutMillis(blockTimeoutInMs)
+                                     .spillLogger(overflowPolicy == OverflowPolicy.SPILL ? createSpillLogger() : null)
+                                     .build();
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(logger::close, "AuditLoggerShutdown"));
+
+        return logger;
+    }
+
+    private AuditLogger createLoggerBackend()
+    {
+        String loggerType = System.getProperty(LOGGER_TYPE_PROPERTY_NAME, LOGGER_TYPE_SLF4J);
+
+        switch (loggerType)
+        {
+        case LOGGER_TYPE_SLF4J:
+            LOG.info("Audit records written with SLF4J");
+            return new Slf4jAuditLogger(createLogFormat());
+        case LOGGER_TYPE_BINARY:
+            LOG.info("Audit records written in binary segments");
+            File directory = new File(System.getProperty(BINARY_LOGGER_DIRECTORY_PROPERTY_NAME, defaultBinaryLoggerDirectory()));
+            int segmentSizeInMb = Integer.getInteger(BINARY_LOGGER_SEGMENT_SIZE_PROPERTY_NAME, DEFAULT_BINARY_LOGGER_SEGMENT_SIZE_IN_MB);
+            long fsyncPeriodInMs = Long.getLong(BINARY_LOGGER_FSYNC_PERIOD_PROPERTY_NAME, DEFAULT_BINARY_LOGGER_FSYNC_PERIOD_IN_MS);
+            int compressionThreads = Integer.getInteger(BINARY_LOGGER_COMPRESSION_THREADS_PROPERTY_NAME, DEFAULT_BINARY_LOGGER_COMPRESSION_THREADS);
+            int shards = Integer.getInteger(BINARY_LOGGER_SHARDS_PROPERTY_NAME, DEFAULT_BINARY_LOGGER_SHARDS);
+            int indexInterval = Integer.getInteger(BINARY_LOGGER_INDEX_INTERVAL_PROPERTY_NAME, DEFAULT_BINARY_LOGGER_INDEX_INTERVAL);
+            BinaryAuditLogger.Builder builder = BinaryAuditLogger.newBuilder(directory)
+                                                                 .segmentSize(toSegmentSize(segmentSizeInMb))
+                                                                 .fsyncPolicy(toFsyncPolicy())
+                                                                 .fsyncPeriodMillis(fsyncPeriodInMs)
+                                                                 .compression(toSegmentCompression())
+                                                                 .compressionThreads(compressionThreads)
+                                                                 .indexInterval(indexInterval);
+            if (indexInterval < 1)
+            {
+                throw new ConfigurationException(String.format("Audit index interval must be positive, was %d", indexInterval));
+            }
+            if (shards < 1)
+            {
+                throw new ConfigurationException(String.format("Number of audit shards must be positive, was %d", shards));
+            }
+            return shards > 1 ? new ShardedAuditLogger(builder, shards) : builder.build();
+        default:
+            LOG.error("Unrecognized audit logger type: {}", loggerType);
+            throw new ConfigurationException(String.format("Unrecognized audit logger type: %s", loggerType));
+        }
+    }
+
+    /**
+     * Construct the audit log format from the log_format template in the audit configuration file, if any.
+     *
+     * @return the configured log format, or the default log format
+     */
+    private static AuditLogFormat createLogFormat()
+    {
+        AuditYamlConfigurationLoader configurationLoader = AuditYamlConfigurationLoader.withSystemProperties();
+        if (!configurationLoader.configExists())
+        {
+            return AuditLogFormat.getDefault();
+        }
+
+        String template = configurationLoader.loadConfig().getLog_format();
+        if (template == null)
+        {
+            return AuditLogFormat.getDefault();
+        }
+
+        LOG.info("Audit log format: {}", template);
+        return AuditLogFormat.parse(template);
+    }
+
+    /**
+     * Construct a binary audit logger for records spilled by the asynchronous audit logger.
+     *
+     * @return a new binary audit logger
+     */
+    private static AuditLogger createSpillLogger()
+    {
+        File directory = new File(System.getProperty(ASYNC_LOGGER_SPILL_DIRECTORY_PROPERTY_NAME, defaultSpillDirectory()));
+        LOG.info("Audit records spilled to {} when asynchronous buffer is full", directory);
+        return BinaryAuditLogger.newBuilder(directory).build();
+    }
+
+    private static String defaultSpillDirectory()
+    {
+        return System.getProperty("cassandra.logdir", ".") + File.separator + "audit-spill";
+    }
+
+    private static OverflowPolicy toOverflowPolicy()
+    {
+        String overflowPolicy = System.getProperty(ASYNC_LOGGER_OVERFLOW_POLICY_PROPERTY_NAME, OverflowPolicy.BLOCK.name());
+        try
+        {
+            return OverflowPolicy.valueOf(overflowPolicy);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new ConfigurationException(String.format("Unrecognized audit overflow policy: %s", overflowPolicy), e);
+        }
+    }
+
+    private static String defaultBinaryLoggerDirectory()
+    {
+        return System.getProperty("cassandra.logdir", ".") + File.separator + "audit";
+    }
+
+    private static FsyncPolicy toFsyncPolicy()
+    {
+        String fsyncPolicy = System.getProperty(BINARY_LOGGER_FSYNC_PROPERTY_NAME, FsyncPolicy.NONE.name());
+        try
+        {
+            return FsyncPolicy.valueOf(fsyncPolicy);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new ConfigurationException(String.format("Unrecognized audit fsync policy: %s", fsyncPolicy), e);
+        }
+    }
+
+    private static SegmentCompression toSegmentCompression()
+    {
+        String compression = System.getProperty(BINARY_LOGGER_COMPRESSION_PROPERTY_NAME, SegmentCompression.NONE.name());
+        try
+        {
+            return SegmentCompression.valueOf(compression);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new ConfigurationException(String.format("Unrecognized audit segment compression: %s", compression), e);
+        }
+    }
+
+    private static int toSegmentSize(int segmentSizeInMb)
+    {
+        if (segmentSizeInMb < 1 || segmentSizeInMb > 2047)
+        {
+            throw new ConfigurationException(String.format("Audit segment size must be between 1 and 2047 MB, was %d", segmentSizeInMb));
+        }
+
+        return segmentSizeInMb * 1024 * 1024;
+    }
+
+    /**
+     * Construct a YAML based audit filter which reloads the whitelist when the configuration file changes.
+     *
+     * @return a new YAML based audit filter
+     */
+    private static YamlAuditFilter createYamlFilter()
+    {
+        long reloadInterval = Long.getLong(YAML_RELOAD_INTERVAL_PROPERTY_NAME, DEFAULT_YAML_RELOAD_INTERVAL_IN_MS);
+        if (reloadInterval < 0)
+        {
+            throw new ConfigurationException(String.format("Audit YAML reload interval must not be negative, was %d", reloadInterval));
+        }
+
+        return new YamlAuditFilter(reloadInterval);
+    }
+
     /**
      * Construct an audit filter based on a system property.
      *
@@ -87,13 +353,13 @@ public class AuditAdapterFactory
         {
         case FILTER_TYPE_YAML:
             LOG.info("Audit whitelist from YAML file");
-            return new YamlAuditFilter();
+            return createYamlFilter();
         case FILTER_TYPE_ROLE:
             LOG.info("Audit whitelist from ROLE options");
             return new RoleAuditFilter();
         case FILTER_TYPE_YAML_AND_ROLE:
             LOG.info("Audit whitelist from YAML file and ROLE options");
-            return new YamlAndRoleAuditFilter();
+            return new YamlAndRoleAuditFilter(createYamlFilter());
         case FILTER_TYPE_NONE:
             LOG.info("No audit whitelist");
             return new DefaultAuditFilter();
@@ -0,0 +1,295 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import org.apache.cassandra.auth.DataResource;
+import org.apache.cassandra.auth.IResource;
+import org.apache.cassandra.cql3.QueryProcessor;
+import org.apache.cassandra.metrics.CassandraMetricsRegistry;
+import org.apache.cassandra.service.MigrationListener;
+import org.apache.cassandra.service.MigrationManager;
+import org.apache.cassandra.utils.MD5Digest;
+
+/**
+ * Holds the audit template of each prepared statement, see {@link AuditAdapter#mapIdToStatement}.
+ *
+ * A template is kept for as long as Cassandra holds the prepared statement, since the query string of the statement
+ * can't be recovered from Cassandra once the template is gone. Templates of statements that Cassandra no longer has
+ * are removed when looked up by the query handler, and templates of statements on dropped keyspaces and tables are
+ * removed on schema changes.
+ *
+ * Once the estimated memory used by the templates exceeds a bound, the templates of statements which have been evicted
+ * from the prepared statement cache of Cassandra are removed first. If that is not enough, other templates are removed
+ * until three quarters of the bound are used, and the query string of those statements will be missing in the audit
+ * log. By default the bound is the same as for the prepared statement cache of Cassandra, which holds larger entries,
+ * so templates of statements held by Cassandra are normally kept.
+ *
+ * The number of entries and their estimated memory usage are exposed as MBeans of type PreparedStatementCache.
+ */
+class PreparedStatementCache
+{
+    private static final String GROUP_NAME = "com.ericsson.bss.cassandra.ecaudit";
+    private static final String TYPE_NAME = "PreparedStatementCache";
+
+    static final CassandraMetricsRegistry.MetricName ENTRIES = metricName("Entries");
+    static final CassandraMetricsRegistry.MetricName MEMORY_USAGE = metricName("MemoryUsage");
+
+    /**
+     * Same bound as used by Cassandra for its prepared statement cache.
+     */
+    static final long DEFAULT_MAX_MEMORY = Runtime.getRuntime().maxMemory() / 256;
+
+    // Estimated size of the map entry, digest, template and operation, excluding the query string
+    private static final int ENTRY_OVERHEAD = 256;
+
+    private static final Logger LOG = LoggerFactory.getLogger(PreparedStatementCache.class);
+
+    private final Map<MD5Digest, AuditEntry> templates = new ConcurrentHashMap<>();
+    private final AtomicLong memoryUsage = new AtomicLong();
+    private final long maxMemory;
+    private final long evictedMemory;
+    private final Predicate<MD5Digest> isPrepared;
+    private final Lock evictionLock = new ReentrantLock();
+
+    // Visible for testing
+    PreparedStatementCache(long maxMemory)
+    {
+        this(maxMemory, id -> QueryProcessor.instance.getPrepared(id) != null);
+    }
+
+    // Visible for testing
+    PreparedStatementCache(long maxMemory, Predicate<MD5Digest> isPrepared)
+    {
+        if (maxMemory < 1)
+        {
+            throw new IllegalArgumentException("Prepared statement cache size must be positive, was " + maxMemory);
+        }
+
+        this.maxMemory = maxMemory;
+        this.evictedMemory = maxMemory / 4 * 3;
+        this.isPrepared = isPrepared;
+    }
+
+    /**
+     * Create a new cache, register its metrics in the Cassandra metrics registry and drop templates of dropped
+     * keyspaces and tables on schema changes.
+     *
+     * Metrics of any previous instance are replaced.
+     *
+     * @param maxMemory the maximum estimated memory usage of the templates in bytes
+     * @return the new cache
+     */
+    static PreparedStatementCache create(long maxMemory)
+    {
+        PreparedStatementCache preparedStatementCache = new PreparedStatementCache(maxMemory);
+        preparedStatementCache.registerMetrics();
+        MigrationManager.instance.register(preparedStatementCache.new SchemaChangeListener());
+        return preparedStatementCache;
+    }
+
+    void put(MD5Digest id, AuditEntry template)
+    {
+        AuditEntry previous = templates.put(id, template);
+        memoryUsage.addAndGet(weigh(template) - (previous != null ? weigh(previous) : 0));
+
+        if (memoryUsage.get() > maxMemory)
+        {
+            evict(id);
+        }
+    }
+
+    AuditEntry get(MD5Digest id)
+    {
+        return templates.get(id);
+    }
+
+    void remove(MD5Digest id)
+    {
+        AuditEntry removed = templates.remove(id);
+        if (removed != null)
+        {
+            memoryUsage.addAndGet(-weigh(removed));
+        }
+    }
+
+    /**
+     * Remove templates of statements which Cassandra no longer has, and then other templates until the memory usage is
+     * at three quarters of the bound, so that the templates are not scanned again on the next put.
+     *
+     * Puts made by other threads during eviction are not blocked, they may exceed the bound until eviction is done.
+     *
+     * @param addedId the id of the template just added, which is kept
+     */
+    private void evict(MD5Digest addedId)
+    {
+        if (!evictionLock.tryLock())
+        {
+            return;
+        }
+
+        try
+        {
+            if (memoryUsage.get() <= maxMemory)
+            {
+                return;
+            }
+
+            templates.forEach((id, template) -> {
+                if (!isPrepared.test(id))
+                {
+                    remove(id, template);
+                }
+            });
+
+            int evicted = 0;
+            for (Map.Entry<MD5Digest, AuditEntry> entry : templates.entrySet())
+            {
+                if (memoryUsage.get() <= evictedMemory)
+                {
+                    break;
+                }
+                if (!entry.getKey().equals(addedId) && remove(entry.getKey(), entry.getValue()))
+                {
+                    evicted++;
+                }
+            }
+
+            if (evicted > 0)
+            {
+                LOG.debug("Removed {} templates of prepared statements to stay below the bound of {} bytes", evicted, maxMemory);
+            }
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    private boolean remove(MD5Digest id, AuditEntry template)
+    {
+        if (templates.remove(id, template))
+        {
+            memoryUsage.addAndGet(-weigh(template));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remove templates of statements on a keyspace.
+     *
+     * @param keyspace the keyspace
+     */
+    void removeKeyspace(String keyspace)
+    {
+        removeIf(resource -> !resource.isRootLevel() && resource.getKeyspace().equals(keyspace));
+    }
+
+    /**
+     * Remove templates of statements on a table.
+     *
+     * @param keyspace the keyspace of the table
+     * @param table    the table
+     */
+    void removeTable(String keyspace, String table)
+    {
+        removeIf(resource -> resource.isTableLevel() && resource.getKeyspace().equals(keyspace) && resource.getTable().equals(table));
+    }
+
+    long size()
+    {
+        return templates.size();
+    }
+
+    /**
+     * @return the estimated memory used by the cached templates in bytes
+     */
+    long memoryUsage()
+    {
+        return memoryUsage.get();
+    }
+
+    private void removeIf(Predicate<DataResource> predicate)
+    {
+        templates.forEach((id, template) -> {
+            IResource resource = template.getResource();
+            if (resource instanceof DataResource && predicate.test((DataResource) resource))
+            {
+                remove(id, template);
+            }
+        });
+    }
+
+    private static int weigh(AuditEntry template)
+    {
+        String query = template.getOperation().getOperationString();
+        return ENTRY_OVERHEAD + (query != null ? 2 * query.length() : 0);
+    }
+
+    private void registerMetrics()
+    {
+        register(ENTRIES, this::size);
+        register(MEMORY_USAGE, this::memoryUsage);
+    }
+
+    private static void register(CassandraMetricsRegistry.MetricName name, Gauge<Long> gauge)
+    {
+        CassandraMetricsRegistry.Metrics.remove(name);
+        CassandraMetricsRegistry.Metrics.register(name, gauge);
+    }
+
+    private static CassandraMetricsRegistry.MetricName metricName(String name)
+    {
+        return new CassandraMetricsRegistry.MetricName(GROUP_NAME, TYPE_NAME, name);
+    }
+
+    /**
+     * Removes templates of statements on dropped keyspaces, tables and views.
+     */
+    // Visible for testing
+    class SchemaChangeListener extends MigrationListener
+    {
+        @Override
+        public void onDropKeyspace(String ksName)
+        {
+            removeKeyspace(ksName);
+        }
+
+        @Override
+        public void onDropColumnFamily(String ksName, String cfName)
+        {
+            removeTable(ksName, cfName);
+        }
+
+        @Override
+        public void onDropView(String ksName, String viewName)
+        {
+            removeTable(ksName, viewName);
+        }
+    }
+}
@@ -34,13 +34,27 @@ final class AuditAuthKeyspace
     private static final String WHITELIST_TABLE_DESCRIPTION = "audit whitelist assigned to db roles";
     private static final int WHITELIST_TABLE_GC_GRACE_SECONDS = (int) TimeUnit.DAYS.toSeconds(90);
 
+    static final String WHITELIST_CHANGES_TABLE_NAME = "role_audit_whitelist_changes";
+    private static final String WHITELIST_CHANGES_TABLE_SCHEMA = "CREATE TABLE " + WHITELIST_CHANGES_TABLE_NAME + " ("
+                                                                 + "bucket bigint,"
+                                                                 + "changed_at timeuuid,"
+                                                                 + "role text,"
+                                                                 + "PRIMARY KEY(bucket, changed_at))";
+    private static final String WHITELIST_CHANGES_TABLE_DESCRIPTION = "recent changes of audit whitelists and passwords, polled by all nodes";
+    private static final int WHITELIST_CHANGES_TABLE_GC_GRACE_SECONDS = (int) TimeUnit.DAYS.toSeconds(1);
+
     private static final CFMetaData CREATE_ROLE_AUDIT_WHITELISTS =
     CFMetaData.compile(WHITELIST_TABLE_SCHEMA, AuthKeyspace.NAME)
               .comment(WHITELIST_TABLE_DESCRIPTION)
               .gcGraceSeconds(WHITELIST_TABLE_GC_GRACE_SECONDS);
 
+    private static final CFMetaData CREATE_ROLE_AUDIT_WHITELIST_CHANGES =
+    CFMetaData.compile(WHITELIST_CHANGES_TABLE_SCHEMA, AuthKeyspace.NAME)
+              .comment(WHITELIST_CHANGES_TABLE_DESCRIPTION)
+              .gcGraceSeconds(WHITELIST_CHANGES_TABLE_GC_GRACE_SECONDS);
+
     static KeyspaceMetadata metadata()
     {
-        return KeyspaceMetadata.create(AuthKeyspace.NAME, KeyspaceParams.simple(1), Tables.of(CREATE_ROLE_AUDIT_WHITELISTS));
+        return KeyspaceMetadata.create(AuthKeyspace.NAME, KeyspaceParams.simple(1), Tables.of(CREATE_ROLE_AUDIT_WHITELISTS, CREATE_ROLE_AUDIT_WHITELIST_CHANGES));
     }
 }
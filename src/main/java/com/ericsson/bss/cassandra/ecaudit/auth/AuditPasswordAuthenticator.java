@@ -20,6 +20,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,6 +37,9 @@ import org.apache.cassandra.exceptions.ConfigurationException;
 
 /**
  * A proxy for {@link PasswordAuthenticator} with audit logging.
+ *
+ * Credentials verified by the wrapped authenticator are recorded in the {@link CredentialsCache}, so that a repeated
+ * login with the same password is accepted without reading the roles table and checking the password hash again.
  */
 public class AuditPasswordAuthenticator implements IAuthenticator
 {
@@ -43,6 +47,7 @@ public class AuditPasswordAuthenticator implements IAuthenticator
 
     private IAuthenticator wrappedAuthenticator;
     private AuditAdapter auditAdapter;
+    private Supplier<CredentialsCache> credentialsCache;
 
     /**
      * Default constructor used by Cassandra.
@@ -51,14 +56,19 @@ public class AuditPasswordAuthenticator implements IAuthenticator
      */
     public AuditPasswordAuthenticator()
     {
-        this(new PasswordAuthenticator(), createDefault());
+        this(new PasswordAuthenticator(), createDefault(), CredentialsCache::getInstance);
     }
 
-    AuditPasswordAuthenticator(IAuthenticator authenticator, AuditAdapter adapter)
+    /**
+     * The credentials cache is supplied lazily since the authenticator is created before the configuration it is
+     * based on is available.
+     */
+    AuditPasswordAuthenticator(IAuthenticator authenticator, AuditAdapter adapter, Supplier<CredentialsCache> credentialsCache)
     {
         LOG.info("Auditing enabled on authenticator");
         this.wrappedAuthenticator = authenticator;
         this.auditAdapter = adapter;
+        this.credentialsCache = credentialsCache;
     }
 
     @Override
@@ -114,6 +124,7 @@ public class AuditPasswordAuthenticator implements IAuthenticator
         private SaslNegotiator saslNegotiator;
 
         private String decodedUsername;
+        private String decodedPassword;
 
         AuditPlainTextSaslAuthenticator(InetAddress clientAddress, SaslNegotiator saslNegotiator)
         {
@@ -124,7 +135,7 @@ public class AuditPasswordAuthenticator implements IAuthenticator
         @Override
         public byte[] evaluateResponse(byte[] clientResponse) throws AuthenticationException
         {
-            decodedUsername = decodeUserNameFromSasl(clientResponse);
+            decodeCredentialsFromSasl(clientResponse);
             return saslNegotiator.evaluateResponse(clientResponse);
         }
 
@@ -140,32 +151,51 @@ public class AuditPasswordAuthenticator implements IAuthenticator
             auditAdapter.auditAuth(decodedUsername, clientAddress, Status.ATTEMPT);
             try
             {
-                return saslNegotiator.getAuthenticatedUser();
+                return authenticate();
             }
             catch (RuntimeException e)
             {
                 auditAdapter.auditAuth(decodedUsername, clientAddress, Status.FAILED);
                 throw e;
             }
+            finally
+            {
+                decodedPassword = null;
+            }
+        }
+
+        private AuthenticatedUser authenticate()
+        {
+            CredentialsCache cache = credentialsCache.get();
+            if (cache.isVerified(decodedUsername, decodedPassword))
+            {
+                return new AuthenticatedUser(decodedUsername);
+            }
+
+            long stamp = cache.stamp();
+            AuthenticatedUser user = saslNegotiator.getAuthenticatedUser();
+            cache.markVerified(decodedUsername, decodedPassword, stamp);
+            return user;
         }
 
         /**
-         * Decoded the credentials so that we know what username was used in the authentication attempt.
+         * Decoded the credentials so that we know what username was used in the authentication attempt,
+         * and what password to look for in the credentials cache.
          *
          * @see PasswordAuthenticator original implementation
          */
-        private String decodeUserNameFromSasl(byte[] bytes) throws AuthenticationException
+        private void decodeCredentialsFromSasl(byte[] bytes) throws AuthenticationException
         {
-            boolean passConsumed = false;
+            byte[] pass = null;
             byte[] user = null;
             int end = bytes.length;
             for (int i = bytes.length - 1; i >= 0; i--)
             {
                 if (bytes[i] == 0 /* null */)
                 {
-                    if (!passConsumed)
+                    if (pass == null)
                     {
-                        passConsumed = true;
+                        pass = Arrays.copyOfRange(bytes, i + 1, end);
                     }
                     else if (user == null)
                     {
@@ -175,12 +205,17 @@ public class AuditPasswordAuthenticator implements IAuthenticator
                 }
             }
 
+            if (pass == null)
+            {
+                throw new AuthenticationException("Password must not be null");
+            }
             if (user == null)
             {
                 throw new AuthenticationException("Authentication ID must not be null");
             }
 
-            return new String(user, StandardCharsets.UTF_8);
+            decodedUsername = new String(user, StandardCharsets.UTF_8);
+            decodedPassword = new String(pass, StandardCharsets.UTF_8);
         }
     }
 
@@ -15,8 +15,10 @@
 //**********************************************************************
 package com.ericsson.bss.cassandra.ecaudit.auth;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.ImmutableSet;
 import org.slf4j.Logger;
@@ -28,6 +30,7 @@ import org.apache.cassandra.auth.IRoleManager;
 import org.apache.cassandra.auth.RoleOptions;
 import org.apache.cassandra.auth.RoleResource;
 import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.exceptions.RequestExecutionException;
 import org.apache.cassandra.exceptions.RequestValidationException;
 
@@ -38,16 +41,27 @@ import org.apache.cassandra.exceptions.RequestValidationException;
  * {@link CassandraRoleManager} for generic role management.
  *
  * An explicit permission check is enforced on ALTER statements. This makes it possible to grant whitelists from one role to another.
+ *
+ * Cached whitelists and whitelist decisions are invalidated whenever roles, role grants or whitelist options are changed.
+ * Cached credentials of a role are invalidated when its password is changed or when it is dropped.
+ *
+ * The audit white-list cache is filled in bulk when the role manager is set up, so that the first requests of each
+ * role after a restart don't have to read white-lists one role at a time.
+ * White-list and password changes made on other nodes are picked up by polling the changes recorded by all nodes.
  */
 public class AuditRoleManager extends CassandraRoleManager
 {
     private static final Logger LOG = LoggerFactory.getLogger(AuditRoleManager.class);
 
+    public static final String WHITELIST_CHANGE_POLL_INTERVAL_PROPERTY_NAME = "ecaudit.whitelist_change_poll_interval_in_ms";
+    private static final long DEFAULT_WHITELIST_CHANGE_POLL_INTERVAL_IN_MS = 5000;
+
     private final AuditWhitelistManager whitelistManager;
     private final PermissionChecker permissionChecker;
 
     private final Set<Option> supportedOptions;
     private final Set<Option> alterableOptions;
+    private final long whitelistChangePollIntervalInMs;
 
     /**
      * Default constructor.
@@ -61,6 +75,7 @@ public class AuditRoleManager extends CassandraRoleManager
 
         whitelistManager = new AuditWhitelistManager();
         permissionChecker = new PermissionChecker();
+        whitelistChangePollIntervalInMs = getWhitelistChangePollInterval();
 
         supportedOptions = DatabaseDescriptor.getAuthenticator().getClass() == AuditPasswordAuthenticator.class
                 ? ImmutableSet.of(Option.LOGIN, Option.SUPERUSER, Option.PASSWORD, Option.OPTIONS)
@@ -76,6 +91,57 @@ public class AuditRoleManager extends CassandraRoleManager
         super.setup();
 
         whitelistManager.setup();
+        warmUpWhitelistCache();
+        if (whitelistChangePollIntervalInMs > 0)
+        {
+            whitelistManager.startChangePoller(whitelistChangePollIntervalInMs, AuditRoleManager::invalidateChangedRole);
+        }
+    }
+
+    /**
+     * Get the interval between polls of white-list changes made on other nodes from system properties.
+     *
+     * @return the interval in milliseconds, or 0 if polling is disabled
+     */
+    // Visible for testing
+    static long getWhitelistChangePollInterval()
+    {
+        long intervalInMs = Long.getLong(WHITELIST_CHANGE_POLL_INTERVAL_PROPERTY_NAME, DEFAULT_WHITELIST_CHANGE_POLL_INTERVAL_IN_MS);
+        if (intervalInMs < 0)
+        {
+            throw new ConfigurationException(String.format("Audit whitelist change poll interval must not be negative, was %d", intervalInMs));
+        }
+        return intervalInMs;
+    }
+
+    /**
+     * Invalidate the cached white-lists and credentials of a role which has been changed on any node.
+     */
+    private static void invalidateChangedRole(RoleResource role)
+    {
+        AuditWhitelistCache.invalidateRole(role);
+        CredentialsCache.getInstance().invalidate(role.getRoleName());
+    }
+
+    private void warmUpWhitelistCache()
+    {
+        long start = System.nanoTime();
+        try
+        {
+            int entries = AuditWhitelistCache.warmUp(this::getAllRoles, this::getAllRoleWhitelists);
+            LOG.info("Loaded {} audit whitelists into cache in {} ms", entries, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        catch (RuntimeException e)
+        {
+            LOG.warn("Failed to warm up audit whitelist cache, whitelists will be loaded on demand", e);
+        }
+    }
+
+    private Map<RoleResource, Map<String, String>> getAllRoleWhitelists()
+    {
+        Map<RoleResource, Map<String, String>> roleWhitelists = new HashMap<>();
+        whitelistManager.getAllRoleWhitelists().forEach((roleName, whitelist) -> roleWhitelists.put(RoleResource.role(roleName), whitelist));
+        return roleWhitelists;
     }
 
     @Override
@@ -96,6 +162,7 @@ public class AuditRoleManager extends CassandraRoleManager
     {
         whitelistManager.createRoleWhitelist(performer, role, options);
         super.createRole(performer, role, options);
+        AuditWhitelistCache.invalidateRole(role);
     }
 
     @Override
@@ -104,6 +171,12 @@ public class AuditRoleManager extends CassandraRoleManager
         permissionChecker.checkAlterRoleAccess(performer, role, options);
         whitelistManager.alterRoleWhitelist(performer, role, options);
         super.alterRole(performer, role, options);
+        if (options.getPassword().isPresent())
+        {
+            CredentialsCache.getInstance().invalidate(role.getRoleName());
+            whitelistManager.recordPasswordChange(role);
+        }
+        AuditWhitelistCache.invalidateRole(role);
     }
 
     @Override
@@ -118,5 +191,23 @@ public class AuditRoleManager extends CassandraRoleManager
     {
         super.dropRole(performer, role);
         whitelistManager.dropRoleWhitelist(role.getRoleName());
+        CredentialsCache.getInstance().invalidate(role.getRoleName());
+        AuditWhitelistCache.invalidateRole(role);
+    }
+
+    @Override
+    public void grantRole(AuthenticatedUser performer, RoleResource role, RoleResource grantee)
+            throws RequestValidationException, RequestExecutionException
+    {
+        super.grantRole(performer, role, grantee);
+        WhitelistDecisionCache.invalidateAll();
+    }
+
+    @Override
+    public void revokeRole(AuthenticatedUser performer, RoleResource role, RoleResource revokee)
+            throws RequestValidationException, RequestExecutionException
+    {
+        super.revokeRole(performer, role, revokee);
+        WhitelistDecisionCache.invalidateAll();
     }
 }
@@ -15,9 +15,13 @@
 //**********************************************************************
 package com.ericsson.bss.cassandra.ecaudit.auth;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
@@ -27,9 +31,14 @@ import com.ericsson.bss.cassandra.ecaudit.auth.cache.DescriptorBridge;
 import org.apache.cassandra.auth.IResource;
 import org.apache.cassandra.auth.IRoleManager;
 import org.apache.cassandra.auth.RoleResource;
+import org.apache.cassandra.auth.Roles;
 import org.apache.cassandra.config.DatabaseDescriptor;
 
-public class AuditWhitelistCache extends AuthCache<RoleResource, Map<String, Set<IResource>>>
+/**
+ * Caches the compiled {@link WhitelistIndex} of each primary role, merging the audit white-lists of the role and all
+ * roles granted to it.
+ */
+public class AuditWhitelistCache extends AuthCache<RoleResource, WhitelistIndex>
 {
     private static final AuditWhitelistCache CACHE = new AuditWhitelistCache(DatabaseDescriptor.getRoleManager());
 
@@ -42,10 +51,22 @@ public class AuditWhitelistCache extends AuthCache<RoleResource, Map<String, Set
               DatabaseDescriptor::getRolesUpdateInterval,
               DescriptorBridge::setRolesCacheMaxEntries,
               DatabaseDescriptor::getRolesCacheMaxEntries,
-              (r) -> splitCustomOptions(roleManager.getCustomOptions(r)),
+              (r) -> loadWhitelist(r, Roles::getRoles, roleManager::getCustomOptions),
               () -> DatabaseDescriptor.getAuthenticator().requireAuthentication());
     }
 
+    private static WhitelistIndex loadWhitelist(RoleResource primaryRole,
+                                                Function<RoleResource, Set<RoleResource>> grantedRoles,
+                                                Function<RoleResource, Map<String, String>> customOptions)
+    {
+        WhitelistIndex.Builder builder = WhitelistIndex.newBuilder();
+        for (RoleResource role : grantedRoles.apply(primaryRole))
+        {
+            builder.addRole(role, splitCustomOptions(customOptions.apply(role)));
+        }
+        return builder.build();
+    }
+
     private static Map<String, Set<IResource>> splitCustomOptions(Map<String, String> customOptions)
     {
         return customOptions
@@ -54,18 +75,94 @@ public class AuditWhitelistCache extends AuthCache<RoleResource, Map<String, Set
                .collect(Collectors.toMap(Map.Entry::getKey, p -> ResourceFactory.toResourceSet(p.getValue())));
     }
 
+    @Override
+    public void invalidate()
+    {
+        super.invalidate();
+        WhitelistDecisionCache.invalidateAll();
+    }
+
+    @Override
+    public void invalidate(RoleResource role)
+    {
+        super.invalidate(role);
+        WhitelistDecisionCache.invalidateAll();
+    }
+
+    @Override
+    public void setValidity(int validityPeriod)
+    {
+        super.setValidity(validityPeriod);
+        WhitelistDecisionCache.invalidateAll();
+    }
+
+    /**
+     * Invalidate the cached white-lists which include the white-lists of a role, either because they belong to the
+     * role or because the role is granted to them.
+     *
+     * @param role the role with changed white-lists
+     */
+    public static void invalidateRole(RoleResource role)
+    {
+        CACHE.invalidateIf((primaryRole, whitelist) -> whitelist.isBasedOn(role));
+        WhitelistDecisionCache.invalidateAll();
+    }
+
+    /**
+     * Fill the cache with the white-lists of all roles, using white-list options loaded in bulk rather than reading the
+     * options of each role separately. This includes roles which only inherit white-lists through granted roles and
+     * roles without any white-lists. Nothing is loaded if the cache is disabled.
+     *
+     * @param rolesLoader       loads all roles
+     * @param roleOptionsLoader loads the white-list options of all roles with audit white-lists
+     * @return the number of white-lists added to the cache
+     */
+    public static int warmUp(Supplier<Set<RoleResource>> rolesLoader, Supplier<Map<RoleResource, Map<String, String>>> roleOptionsLoader)
+    {
+        if (!CACHE.isEnabled())
+        {
+            return 0;
+        }
+
+        Map<RoleResource, WhitelistIndex> whitelists = loadWhitelists(rolesLoader.get(), Roles::getRoles, roleOptionsLoader.get());
+        CACHE.putAll(whitelists);
+        return whitelists.size();
+    }
+
+    /**
+     * Compile the white-lists of roles from white-list options loaded in bulk.
+     *
+     * @param primaryRoles the roles to compile white-lists for
+     * @param grantedRoles the roles granted to a role, including the role itself
+     * @param roleOptions  the white-list options of all roles with audit white-lists, roles not in the map are
+     *                     considered to have no white-lists
+     * @return a map from role to its compiled white-list
+     */
+    // Visible for testing
+    static Map<RoleResource, WhitelistIndex> loadWhitelists(Set<RoleResource> primaryRoles,
+                                                            Function<RoleResource, Set<RoleResource>> grantedRoles,
+                                                            Map<RoleResource, Map<String, String>> roleOptions)
+    {
+        Map<RoleResource, WhitelistIndex> whitelists = new HashMap<>();
+        for (RoleResource primaryRole : primaryRoles)
+        {
+            whitelists.put(primaryRole, loadWhitelist(primaryRole, grantedRoles, role -> roleOptions.getOrDefault(role, Collections.emptyMap())));
+        }
+        return whitelists;
+    }
+
     /**
-     * Get all custom options immediately associated with the supplied role. The returned options may be cached if
-     * roles_validity_in_ms has a value greater than zero.
+     * Get the audit white-list of the supplied role, including white-lists of all roles granted to it (directly or
+     * indirectly). The returned white-list may be cached if roles_validity_in_ms has a value greater than zero.
      *
-     * @param role the Role
-     * @return map of all custom options associated with the role
+     * @param primaryRole the Role
+     * @return the compiled white-list of the role
      */
-    public static Map<String, Set<IResource>> getCustomOptions(RoleResource role)
+    public static WhitelistIndex getWhitelist(RoleResource primaryRole)
     {
         try
         {
-            return CACHE.get(role);
+            return CACHE.get(primaryRole);
         }
         catch (ExecutionException e)
         {
@@ -17,8 +17,10 @@ package com.ericsson.bss.cassandra.ecaudit.auth;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.ImmutableMap;
@@ -40,12 +42,15 @@ import org.apache.cassandra.exceptions.UnauthorizedException;
  * It provides an interface to manage white-lists via custom role options.
  * Only users with permission can manage white-lists.
  * It is possible to white-list access to all data and to authentication attempts on connections.
+ * White-lists may cover all operations or only operations requiring a specific permission, such as SELECT.
+ * Changes of white-lists are recorded, so that all nodes can invalidate their cached white-lists of the changed role.
  */
 public class AuditWhitelistManager
 {
     private static final String OPERATION_ALL = "ALL";
 
-    public static final String OPTION_AUDIT_WHITELIST_ALL = "audit_whitelist_for_all";
+    public static final String OPTION_AUDIT_WHITELIST_PREFIX = "audit_whitelist_for_";
+    public static final String OPTION_AUDIT_WHITELIST_ALL = OPTION_AUDIT_WHITELIST_PREFIX + "all";
 
     private final WhitelistDataAccess whitelistDataAccess;
     private final WhitelistOptionParser whitelistOptionParser;
@@ -68,6 +73,17 @@ public class AuditWhitelistManager
         whitelistDataAccess.setup();
     }
 
+    /**
+     * Start polling white-list changes recorded by all nodes.
+     *
+     * @param intervalMillis the time between polls in milliseconds
+     * @param invalidator    called for each role with changed white-lists or credentials
+     */
+    public void startChangePoller(long intervalMillis, Consumer<RoleResource> invalidator)
+    {
+        WhitelistChangePoller.start(whitelistDataAccess, intervalMillis, invalidator);
+    }
+
     public void createRoleWhitelist(AuthenticatedUser performer, RoleResource role, RoleOptions options)
             throws RequestValidationException, RequestExecutionException
     {
@@ -87,8 +103,10 @@ public class AuditWhitelistManager
                         resources.stream().map(r -> r.getName()).collect(Collectors.toSet()));
             }
 
-            addStatements.forEach(
-                    (o, r) -> whitelistDataAccess.addToWhitelist(role.getRoleName(), o, r));
+            if (!addStatements.isEmpty())
+            {
+                whitelistDataAccess.updateWhitelists(role.getRoleName(), addStatements, Collections.emptyMap());
+            }
         }
     }
 
@@ -118,17 +136,51 @@ public class AuditWhitelistManager
                 }
             }
 
-            addStatements.forEach(
-                    (o, r) -> whitelistDataAccess.addToWhitelist(role.getRoleName(), o, r));
-            removeStatements.forEach(
-                    (o, r) -> whitelistDataAccess.removeFromWhitelist(role.getRoleName(), o, r));
+            if (!addStatements.isEmpty() || !removeStatements.isEmpty())
+            {
+                whitelistDataAccess.updateWhitelists(role.getRoleName(), addStatements, removeStatements);
+            }
         }
     }
 
+    /**
+     * Record that the password of a role has changed, so that all nodes invalidate the cached credentials of the role.
+     *
+     * @param role the role
+     */
+    public void recordPasswordChange(RoleResource role)
+    {
+        whitelistDataAccess.recordRoleChange(role.getRoleName());
+    }
+
     public Map<String, String> getRoleWhitelist(String roleName)
     {
-        Set<String> whitelistResources = whitelistDataAccess.getWhitelist(roleName, OPERATION_ALL);
-        return Collections.singletonMap(OPTION_AUDIT_WHITELIST_ALL, StringUtils.join(whitelistResources, ','));
+        return toWhitelistOptions(whitelistDataAccess.getWhitelists(roleName));
+    }
+
+    /**
+     * Get the white-list options of all roles with white-lists in one bulk read.
+     *
+     * @return a map from role name to the white-list options of the role
+     */
+    public Map<String, Map<String, String>> getAllRoleWhitelists()
+    {
+        Map<String, Map<String, String>> roleWhitelists = new HashMap<>();
+        whitelistDataAccess.getAllWhitelists().forEach((roleName, whitelists) -> roleWhitelists.put(roleName, toWhitelistOptions(whitelists)));
+        return roleWhitelists;
+    }
+
+    private static Map<String, String> toWhitelistOptions(Map<String, Set<String>> whitelists)
+    {
+        Map<String, String> whitelistOptions = new HashMap<>();
+        whitelistOptions.put(OPTION_AUDIT_WHITELIST_ALL, StringUtils.join(whitelists.getOrDefault(OPERATION_ALL, Collections.emptySet()), ','));
+        whitelists.forEach((operation, resources) -> {
+            if (!OPERATION_ALL.equals(operation) && !resources.isEmpty())
+            {
+                whitelistOptions.put(OPTION_AUDIT_WHITELIST_PREFIX + operation.toLowerCase(Locale.ENGLISH), StringUtils.join(resources, ','));
+            }
+        });
+        return whitelistOptions;
     }
 
     public void dropRoleWhitelist(String roleName)
@@ -0,0 +1,151 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.function.Supplier;
+
+import com.ericsson.bss.cassandra.ecaudit.auth.cache.AuthCache;
+import com.ericsson.bss.cassandra.ecaudit.auth.cache.DescriptorBridge;
+import com.ericsson.bss.cassandra.ecaudit.facade.CassandraAuditException;
+
+/**
+ * Caches the credentials which have been verified for each role, so that a repeated login with the same password
+ * doesn't have to read the roles table and check the password hash again.
+ *
+ * Verified passwords are never kept in clear text. Each role keeps a salted SHA-256 digest of its last verified
+ * password, where the salt is generated randomly when the cache is created.
+ *
+ * The cache has its own validity, update interval and max entries, see {@link DescriptorBridge}. Credentials are only
+ * added once a password has been verified, so failed logins don't fill the cache. When an entry is older than the
+ * update interval, the next login of the role is verified by the wrapped authenticator again. Credentials of a role
+ * are invalidated when its password is changed or when it is dropped, on other nodes once they poll the change.
+ */
+public class CredentialsCache extends AuthCache<String, CredentialsCache.Credentials>
+{
+    private static final int SALT_LENGTH = 32;
+
+    private static final CredentialsCache CACHE = new CredentialsCache();
+
+    private final byte[] salt;
+
+    private CredentialsCache()
+    {
+        super("CredentialsCache",
+              DescriptorBridge::setCredentialsValidity,
+              DescriptorBridge::getCredentialsValidity,
+              DescriptorBridge::setCredentialsUpdateInterval,
+              DescriptorBridge::getCredentialsUpdateInterval,
+              DescriptorBridge::setCredentialsCacheMaxEntries,
+              DescriptorBridge::getCredentialsCacheMaxEntries,
+              CredentialsCache::notVerified,
+              () -> true);
+        this.salt = newSalt();
+    }
+
+    // Visible for testing
+    CredentialsCache(String name, Supplier<Integer> getValidityDelegate, Supplier<Integer> getUpdateIntervalDelegate, Supplier<Integer> getMaxEntriesDelegate)
+    {
+        super(name,
+              (v) -> {},
+              getValidityDelegate,
+              (i) -> {},
+              getUpdateIntervalDelegate,
+              (m) -> {},
+              getMaxEntriesDelegate,
+              CredentialsCache::notVerified,
+              () -> true);
+        this.salt = newSalt();
+    }
+
+    /**
+     * @return the credentials cache of this node
+     */
+    public static CredentialsCache getInstance()
+    {
+        return CACHE;
+    }
+
+    private static Credentials notVerified(String role)
+    {
+        throw new UnsupportedOperationException("Credentials of role " + role + " are only cached once verified");
+    }
+
+    /**
+     * Check if a password has been verified for a role.
+     *
+     * @param role     the role name
+     * @param password the password to check
+     * @return true if the password is the last verified password of the role, false otherwise
+     */
+    public boolean isVerified(String role, String password)
+    {
+        Credentials credentials = getIfPresent(role);
+        return credentials != null && MessageDigest.isEqual(credentials.digest, digest(password));
+    }
+
+    /**
+     * Record a password which has been verified for a role.
+     *
+     * The stamp should be taken before the password is verified, so that a password which is changed concurrently is
+     * not recorded.
+     *
+     * @param role     the role name
+     * @param password the verified password
+     * @param stamp    the stamp taken before the password was verified, see {@link #stamp()}
+     */
+    public void markVerified(String role, String password, long stamp)
+    {
+        put(role, new Credentials(digest(password)), stamp);
+    }
+
+    private byte[] digest(String password)
+    {
+        try
+        {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            messageDigest.update(salt);
+            return messageDigest.digest(password.getBytes(StandardCharsets.UTF_8));
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new CassandraAuditException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] newSalt()
+    {
+        byte[] salt = new byte[SALT_LENGTH];
+        new SecureRandom().nextBytes(salt);
+        return salt;
+    }
+
+    /**
+     * The verified credentials of a role.
+     */
+    public static final class Credentials
+    {
+        private final byte[] digest;
+
+        private Credentials(byte[] digest)
+        {
+            this.digest = digest;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.auth;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.auth.RoleResource;
+import org.apache.cassandra.concurrent.ScheduledExecutors;
+
+/**
+ * Polls the audit white-list changes recorded by all nodes and invalidates the cached white-lists of changed roles.
+ *
+ * Changes are read with a look-back window, so that changes which are delayed by replication or by clock skew between
+ * nodes are still seen. The cached white-lists of a role are invalidated on every poll which sees a change of the role,
+ * so that a reload which read a stale white-list from a replica which hadn't received the change yet is corrected by
+ * a later reload. If a poll fails, the failure is logged and the changes are read again on the next poll.
+ *
+ * Partitions of changes older than the retention time are deleted by the pollers.
+ */
+class WhitelistChangePoller implements Runnable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(WhitelistChangePoller.class);
+
+    static final long LOOKBACK_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final WhitelistDataAccess whitelistDataAccess;
+    private final Consumer<RoleResource> invalidator;
+    private final LongSupplier clock;
+
+    private long expiredBucket = Long.MIN_VALUE;
+
+    // Visible for testing
+    WhitelistChangePoller(WhitelistDataAccess whitelistDataAccess, Consumer<RoleResource> invalidator, LongSupplier clock)
+    {
+        this.whitelistDataAccess = whitelistDataAccess;
+        this.invalidator = invalidator;
+        this.clock = clock;
+    }
+
+    /**
+     * Start polling white-list changes on the optional tasks executor of Cassandra.
+     *
+     * @param whitelistDataAccess the white-list data access
+     * @param intervalMillis      the time between polls in milliseconds
+     * @param invalidator         called for each changed role
+     * @return the poller
+     */
+    static WhitelistChangePoller start(WhitelistDataAccess whitelistDataAccess, long intervalMillis, Consumer<RoleResource> invalidator)
+    {
+        WhitelistChangePoller poller = new WhitelistChangePoller(whitelistDataAccess, invalidator, System::currentTimeMillis);
+        ScheduledExecutors.optionalTasks.scheduleWithFixedDelay(poller, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        LOG.info("Polling audit whitelist changes every {} ms", intervalMillis);
+        return poller;
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            poll();
+        }
+        catch (RuntimeException e)
+        {
+            LOG.warn("Failed to poll audit whitelist changes, will retry on next poll", e);
+        }
+    }
+
+    private void poll()
+    {
+        long now = clock.getAsLong();
+
+        Set<RoleResource> changedRoles = new LinkedHashSet<>();
+        whitelistDataAccess.getWhitelistChanges(now - LOOKBACK_MILLIS, now + LOOKBACK_MILLIS)
+                           .values()
+                           .forEach(role -> changedRoles.add(RoleResource.role(role)));
+
+        changedRoles.forEach(invalidator);
+        if (!changedRoles.isEmpty())
+        {
+            LOG.debug("Invalidated audit whitelists of changed roles {}", changedRoles);
+        }
+
+        deleteExpiredChanges(now);
+    }
+
+    /**
+     * Delete the partitions of changes which have passed the retention time since the last poll.
+     */
+    private void deleteExpiredChanges(long now)
+    {
+        long lastExpiredBucket = WhitelistDataAccess.changeBucket(now - RETENTION_MILLIS);
+        long bucket = expiredBucket == Long.MIN_VALUE ? lastExpiredBucket : expiredBucket + 1;
+        for (; bucket <= lastExpiredBucket; bucket++)
+        {
+            whitelistDataAccess.deleteWhitelistChanges(bucket);
+            expiredBucket = bucket;
+        }
+    }
+}
@@ -15,49 +15,109 @@
 //**********************************************************************
 package com.ericsson.bss.cassandra.ecaudit.auth;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
-
-import org.apache.commons.lang3.StringUtils;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+import com.codahale.metrics.Timer;
 import org.apache.cassandra.auth.AuthKeyspace;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.Schema;
+import org.apache.cassandra.cql3.Attributes;
+import org.apache.cassandra.cql3.BatchQueryOptions;
 import org.apache.cassandra.cql3.CQLStatement;
 import org.apache.cassandra.cql3.QueryOptions;
 import org.apache.cassandra.cql3.QueryProcessor;
+import org.apache.cassandra.cql3.ResultSet;
 import org.apache.cassandra.cql3.UntypedResultSet;
+import org.apache.cassandra.cql3.statements.BatchStatement;
 import org.apache.cassandra.cql3.statements.DeleteStatement;
+import org.apache.cassandra.cql3.statements.ModificationStatement;
 import org.apache.cassandra.cql3.statements.SelectStatement;
 import org.apache.cassandra.db.ConsistencyLevel;
+import org.apache.cassandra.db.marshal.SetType;
+import org.apache.cassandra.db.marshal.TimeUUIDType;
 import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.db.partitions.PartitionIterator;
 import org.apache.cassandra.exceptions.RequestValidationException;
+import org.apache.cassandra.metrics.CassandraMetricsRegistry;
 import org.apache.cassandra.schema.KeyspaceMetadata;
 import org.apache.cassandra.service.ClientState;
 import org.apache.cassandra.service.MigrationManager;
 import org.apache.cassandra.service.QueryState;
+import org.apache.cassandra.service.pager.QueryPager;
+import org.apache.cassandra.transport.Server;
 import org.apache.cassandra.transport.messages.ResultMessage;
 import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.UUIDGen;
 
 /**
  * This DAO provides an interface for updating and retrieving role specific audit white-lists.
+ *
+ * All white-lists of a role are stored in one partition. All changes of the white-lists of a role are written in one
+ * logged batch together with a record of the change, so that other nodes see the change once it is applied.
+ * The latency of white-list updates and deletes is exposed as metrics of type AuditWhitelist.
+ *
+ * Changes are recorded in one partition per hour, so that polling reads only recent changes and expired changes are
+ * removed by deleting whole partitions.
  */
 public class WhitelistDataAccess
 {
     private static final String DEFAULT_SUPERUSER_NAME = "cassandra";
+    private static final int LOAD_ALL_PAGE_SIZE = 1000;
+
+    private static final String GROUP_NAME = "com.ericsson.bss.cassandra.ecaudit";
+    private static final String TYPE_NAME = "AuditWhitelist";
+
+    static final CassandraMetricsRegistry.MetricName UPDATE_LATENCY = metricName("UpdateLatency");
+    static final CassandraMetricsRegistry.MetricName DELETE_LATENCY = metricName("DeleteLatency");
+
+    static final long CHANGE_BUCKET_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final SetType<String> RESOURCES_TYPE = SetType.getInstance(UTF8Type.instance, false);
 
+    private ModificationStatement addToWhitelistStatement;
+    private ModificationStatement removeFromWhitelistStatement;
     private DeleteStatement deleteWhitelistStatement;
     private SelectStatement loadWhitelistStatement;
+    private SelectStatement loadAllWhitelistsStatement;
+    private ModificationStatement recordWhitelistChangeStatement;
+    private SelectStatement loadWhitelistChangesStatement;
+    private DeleteStatement deleteWhitelistChangesStatement;
+
+    private Timer updateLatency;
+    private Timer deleteLatency;
 
     public void setup()
     {
         maybeCreateTable();
 
+        addToWhitelistStatement = (ModificationStatement) prepare(
+                "UPDATE %s.%s SET resources = resources + ? WHERE role = ? AND operation = ?",
+                AuthKeyspace.NAME,
+                AuditAuthKeyspace.WHITELIST_TABLE_NAME);
+
+        removeFromWhitelistStatement = (ModificationStatement) prepare(
+                "UPDATE %s.%s SET resources = resources - ? WHERE role = ? AND operation = ?",
+                AuthKeyspace.NAME,
+                AuditAuthKeyspace.WHITELIST_TABLE_NAME);
+
         loadWhitelistStatement = (SelectStatement) prepare(
-                "SELECT resources from %s.%s WHERE role = ? AND operation = ?",
+                "SELECT operation, resources from %s.%s WHERE role = ?",
+                AuthKeyspace.NAME,
+                AuditAuthKeyspace.WHITELIST_TABLE_NAME);
+
+        loadAllWhitelistsStatement = (SelectStatement) prepare(
+                "SELECT role, operation, resources from %s.%s",
                 AuthKeyspace.NAME,
                 AuditAuthKeyspace.WHITELIST_TABLE_NAME);
 
@@ -65,64 +125,225 @@ public class WhitelistDataAccess
                 "DELETE FROM %s.%s WHERE role = ?",
                 AuthKeyspace.NAME,
                 AuditAuthKeyspace.WHITELIST_TABLE_NAME);
-    }
 
-    public void addToWhitelist(String rolename, String whitelistOperation, Set<String> whitelistResources)
-    {
-        updateWhitelist(rolename, whitelistOperation, whitelistResources,
-                "UPDATE %s.%s SET resources = resources + {%s} WHERE role = '%s' AND operation = '%s'");
+        recordWhitelistChangeStatement = (ModificationStatement) prepare(
+                "INSERT INTO %s.%s (bucket, changed_at, role) VALUES (?, ?, ?)",
+                AuthKeyspace.NAME,
+                AuditAuthKeyspace.WHITELIST_CHANGES_TABLE_NAME);
+
+        loadWhitelistChangesStatement = (SelectStatement) prepare(
+                "SELECT changed_at, role from %s.%s WHERE bucket = ? AND changed_at > ?",
+                AuthKeyspace.NAME,
+                AuditAuthKeyspace.WHITELIST_CHANGES_TABLE_NAME);
+
+        deleteWhitelistChangesStatement = (DeleteStatement) prepare(
+                "DELETE FROM %s.%s WHERE bucket = ?",
+                AuthKeyspace.NAME,
+                AuditAuthKeyspace.WHITELIST_CHANGES_TABLE_NAME);
+
+        updateLatency = CassandraMetricsRegistry.Metrics.timer(UPDATE_LATENCY);
+        deleteLatency = CassandraMetricsRegistry.Metrics.timer(DELETE_LATENCY);
     }
 
-    public void removeFromWhitelist(String rolename, String whitelistOperation, Set<String> whitelistResources)
+    /**
+     * Add and remove white-listed resources of a role and record the change in one logged batch.
+     *
+     * If the same resource is both added and removed for an operation, it is removed.
+     *
+     * @param rolename  the name of the role
+     * @param additions a map from operation to the resources to add to the white-list of the operation
+     * @param removals  a map from operation to the resources to remove from the white-list of the operation
+     */
+    public void updateWhitelists(String rolename, Map<String, Set<String>> additions, Map<String, Set<String>> removals)
     {
-        updateWhitelist(rolename, whitelistOperation, whitelistResources,
-                "UPDATE %s.%s SET resources = resources - {%s} WHERE role = '%s' AND operation = '%s'");
+        List<ModificationStatement> statements = new ArrayList<>(additions.size() + removals.size());
+        List<List<ByteBuffer>> values = new ArrayList<>(additions.size() + removals.size());
+        additions.forEach((operation, resources) -> {
+            statements.add(addToWhitelistStatement);
+            values.add(updateValues(rolename, operation, resources));
+        });
+        removals.forEach((operation, resources) -> {
+            statements.add(removeFromWhitelistStatement);
+            values.add(updateValues(rolename, operation, resources));
+        });
+
+        if (statements.isEmpty())
+        {
+            return;
+        }
+
+        try (Timer.Context ignored = updateLatency.time())
+        {
+            executeWithChangeRecord(rolename, statements, values);
+        }
     }
 
-    private void updateWhitelist(String rolename, String whitelistOperation, Set<String> whitelistResources,
-            String statementTemplate)
+    private void executeWithChangeRecord(String rolename, List<ModificationStatement> statements, List<List<ByteBuffer>> values)
     {
-        List<String> quotedWhitelistResources = whitelistResources
-                .stream()
-                .map(r -> "'" + r + "'")
-                .collect(Collectors.toList());
+        statements.add(recordWhitelistChangeStatement);
+        values.add(changeValues(rolename, UUIDGen.getTimeUUID()));
 
-        String statement = String.format(
-                statementTemplate,
-                AuthKeyspace.NAME,
-                AuditAuthKeyspace.WHITELIST_TABLE_NAME,
-                StringUtils.join(quotedWhitelistResources, ','),
-                escape(rolename),
-                whitelistOperation);
+        int boundTerms = statements.stream().mapToInt(ModificationStatement::getBoundTerms).sum();
+        BatchStatement batch = new BatchStatement(boundTerms, BatchStatement.Type.LOGGED, statements, Attributes.none());
+        BatchQueryOptions options = BatchQueryOptions.withPerStatementVariables(
+                QueryOptions.forInternalCalls(consistencyForRole(rolename), Collections.emptyList()),
+                values,
+                Collections.nCopies(statements.size(), null));
 
-        QueryProcessor.process(statement, consistencyForRole(rolename));
+        batch.execute(QueryState.forInternalCalls(), options);
+    }
+
+    private static List<ByteBuffer> updateValues(String rolename, String operation, Set<String> resources)
+    {
+        return Arrays.asList(RESOURCES_TYPE.decompose(resources),
+                             ByteBufferUtil.bytes(rolename),
+                             ByteBufferUtil.bytes(operation));
     }
 
-    public Set<String> getWhitelist(String rolename, String whitelistOperation)
+    /**
+     * Get the white-listed resources of a role for each white-listed operation.
+     *
+     * @param rolename the name of the role
+     * @return a map from operation to the resources white-listed for the operation
+     */
+    public Map<String, Set<String>> getWhitelists(String rolename)
     {
         ResultMessage.Rows rows = loadWhitelistStatement.execute(
                 QueryState.forInternalCalls(),
                 QueryOptions.forInternalCalls(
                         consistencyForRole(rolename),
-                        Arrays.asList(ByteBufferUtil.bytes(rolename), ByteBufferUtil.bytes(whitelistOperation))));
+                        Collections.singletonList(ByteBufferUtil.bytes(rolename))));
 
-        if (rows.result.isEmpty())
+        Map<String, Set<String>> whitelists = new HashMap<>();
+        for (UntypedResultSet.Row untypedRow : UntypedResultSet.create(rows.result))
         {
-            return Collections.emptySet();
+            if (untypedRow.has("resources"))
+            {
+                whitelists.put(untypedRow.getString("operation"), untypedRow.getSet("resources", UTF8Type.instance));
+            }
         }
+        return whitelists;
+    }
 
-        UntypedResultSet.Row untypedRow = UntypedResultSet.create(rows.result).one();
-        return untypedRow.getSet("resources", UTF8Type.instance);
+    /**
+     * Get the white-listed resources of all roles with white-lists, reading the whole table in one paged range scan.
+     *
+     * @return a map from role name to the resources white-listed for each operation
+     */
+    public Map<String, Map<String, Set<String>>> getAllWhitelists()
+    {
+        int nowInSec = FBUtilities.nowInSeconds();
+        QueryOptions options = QueryOptions.forInternalCalls(ConsistencyLevel.LOCAL_ONE, Collections.emptyList());
+        QueryPager pager = loadAllWhitelistsStatement.getQuery(options, nowInSec).getPager(null, Server.CURRENT_VERSION);
 
+        Map<String, Map<String, Set<String>>> whitelists = new HashMap<>();
+        while (!pager.isExhausted())
+        {
+            try (PartitionIterator partitions = pager.fetchPage(LOAD_ALL_PAGE_SIZE, ConsistencyLevel.LOCAL_ONE, ClientState.forInternalCalls()))
+            {
+                ResultSet resultSet = loadAllWhitelistsStatement.process(partitions, nowInSec);
+                for (UntypedResultSet.Row untypedRow : UntypedResultSet.create(resultSet))
+                {
+                    if (untypedRow.has("resources"))
+                    {
+                        whitelists.computeIfAbsent(untypedRow.getString("role"), r -> new HashMap<>())
+                                  .put(untypedRow.getString("operation"), untypedRow.getSet("resources", UTF8Type.instance));
+                    }
+                }
+            }
+        }
+        return whitelists;
     }
 
+    /**
+     * Delete all white-lists of a role and record the change in one logged batch.
+     *
+     * @param rolename the name of the role
+     */
     public void deleteWhitelist(String rolename)
     {
-        deleteWhitelistStatement.execute(
+        List<ModificationStatement> statements = new ArrayList<>(2);
+        List<List<ByteBuffer>> values = new ArrayList<>(2);
+        statements.add(deleteWhitelistStatement);
+        values.add(Collections.singletonList(ByteBufferUtil.bytes(rolename)));
+
+        try (Timer.Context ignored = deleteLatency.time())
+        {
+            executeWithChangeRecord(rolename, statements, values);
+        }
+    }
+
+    /**
+     * Record a change of a role which doesn't change its white-lists, such as a password change, so that other nodes
+     * invalidate their cached data of the role.
+     *
+     * @param rolename the name of the role
+     */
+    public void recordRoleChange(String rolename)
+    {
+        recordWhitelistChangeStatement.execute(
                 QueryState.forInternalCalls(),
                 QueryOptions.forInternalCalls(
                         consistencyForRole(rolename),
-                        Arrays.asList(ByteBufferUtil.bytes(rolename))));
+                        changeValues(rolename, UUIDGen.getTimeUUID())));
+    }
+
+    private static List<ByteBuffer> changeValues(String rolename, UUID changeId)
+    {
+        return Arrays.asList(ByteBufferUtil.bytes(changeBucket(UUIDGen.unixTimestamp(changeId))),
+                             TimeUUIDType.instance.decompose(changeId),
+                             ByteBufferUtil.bytes(rolename));
+    }
+
+    /**
+     * Get the white-list changes recorded in a period of time.
+     *
+     * @param sinceMillis the time in milliseconds since epoch to get changes after
+     * @param untilMillis the time in milliseconds since epoch up to which partitions of changes are read
+     * @return a map from change id to the name of the changed role, ordered by time of change
+     */
+    public Map<UUID, String> getWhitelistChanges(long sinceMillis, long untilMillis)
+    {
+        ByteBuffer since = TimeUUIDType.instance.decompose(UUIDGen.minTimeUUID(sinceMillis));
+
+        Map<UUID, String> changes = new LinkedHashMap<>();
+        for (long bucket = changeBucket(sinceMillis); bucket <= changeBucket(untilMillis); bucket++)
+        {
+            ResultMessage.Rows rows = loadWhitelistChangesStatement.execute(
+                    QueryState.forInternalCalls(),
+                    QueryOptions.forInternalCalls(
+                            ConsistencyLevel.LOCAL_ONE,
+                            Arrays.asList(ByteBufferUtil.bytes(bucket), since)));
+
+            for (UntypedResultSet.Row untypedRow : UntypedResultSet.create(rows.result))
+            {
+                changes.put(untypedRow.getUUID("changed_at"), untypedRow.getString("role"));
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Delete the partition of white-list changes recorded in a period of time.
+     *
+     * @param bucket the partition of changes, see {@link #changeBucket(long)}
+     */
+    public void deleteWhitelistChanges(long bucket)
+    {
+        deleteWhitelistChangesStatement.execute(
+                QueryState.forInternalCalls(),
+                QueryOptions.forInternalCalls(
+                        ConsistencyLevel.LOCAL_ONE,
+                        Collections.singletonList(ByteBufferUtil.bytes(bucket))));
+    }
+
+    /**
+     * @param timeMillis a time in milliseconds since epoch
+     * @return the partition of white-list changes recorded at the time
+     */
+    static long changeBucket(long timeMillis)
+    {
+        return Math.floorDiv(timeMillis, CHANGE_BUCKET_MILLIS);
     }
 
     private static void maybeCreateTable()
@@ -140,12 +361,6 @@ public class WhitelistDataAccess
         }
     }
 
-    // Stolen from CassandraRoleManager
-    private static String escape(String name)
-    {
-        return StringUtils.replace(name, "'", "''");
-    }
-
     // Stolen from CassandraRoleManager
     private static CQLStatement prepare(String template, String keyspace, String table)
     {
@@ -171,4 +386,9 @@ public class WhitelistDataAccess
             return ConsistencyLevel.LOCAL_ONE;
         }
     }
+
+    private static CassandraMetricsRegistry.MetricName metricName(String name)
+    {
+        return new CassandraMetricsRegistry.MetricName(GROUP_NAME, TYPE_NAME, name);
+    }
 }
@@ -0,0 +1,187 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.auth;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.apache.cassandra.auth.IResource;
+import org.apache.cassandra.auth.Permission;
+import org.apache.cassandra.auth.RoleResource;
+import org.apache.cassandra.config.DatabaseDescriptor;
+
+/**
+ * Caches whitelist decisions per primary role, resource and permissions, so that a repeated request doesn't have to resolve the
+ * granted roles and walk their whitelisted resources again.
+ *
+ * Decisions expire after roles_validity_in_ms, the same period as the roles and whitelist options they are based on.
+ * All decisions are invalidated when roles, role grants or whitelist options are changed on this node, and when the
+ * {@link AuditWhitelistCache} is invalidated or reconfigured. Decisions are not cached if roles_validity_in_ms is zero
+ * or if authentication is disabled.
+ */
+public class WhitelistDecisionCache
+{
+    private static final long MAX_ENTRIES = 10000;
+
+    private static final WhitelistDecisionCache CACHE = new WhitelistDecisionCache(DatabaseDescriptor::getRolesValidity,
+                                                                                   () -> DatabaseDescriptor.getAuthenticator().requireAuthentication());
+
+    private final Supplier<Integer> getValidityDelegate;
+    private final Supplier<Boolean> enableCache;
+
+    private volatile Cache<Key, Boolean> cache;
+
+    // Visible for testing
+    WhitelistDecisionCache(Supplier<Integer> getValidityDelegate, Supplier<Boolean> enableCache)
+    {
+        this.getValidityDelegate = getValidityDelegate;
+        this.enableCache = enableCache;
+        this.cache = initCache();
+    }
+
+    /**
+     * Check if a primary role is whitelisted for an operation on a resource. The decision may be cached if roles_validity_in_ms has a
+     * value greater than zero.
+     *
+     * @param primaryRole the primary role of the request
+     * @param resource    the resource being accessed
+     * @param permissions the permissions required by the operation
+     * @param decision    resolves the decision if it isn't cached
+     * @return true if the role is whitelisted for the resource, false otherwise
+     */
+    public static boolean isWhitelisted(RoleResource primaryRole, IResource resource, Set<Permission> permissions, Decision decision)
+    {
+        return CACHE.get(primaryRole, resource, permissions, decision);
+    }
+
+    /**
+     * Invalidate all cached decisions.
+     */
+    public static void invalidateAll()
+    {
+        CACHE.invalidate();
+    }
+
+    // Visible for testing
+    boolean get(RoleResource primaryRole, IResource resource, Set<Permission> permissions, Decision decision)
+    {
+        Cache<Key, Boolean> currentCache = cache;
+        if (currentCache == null)
+        {
+            return decision.isWhitelisted(primaryRole, resource, permissions);
+        }
+
+        Key key = new Key(primaryRole, resource, permissions);
+        Boolean whitelisted = currentCache.getIfPresent(key);
+        if (whitelisted == null)
+        {
+            whitelisted = decision.isWhitelisted(primaryRole, resource, permissions);
+            currentCache.put(key, whitelisted);
+        }
+        return whitelisted;
+    }
+
+    // Visible for testing
+    void invalidate()
+    {
+        cache = initCache();
+    }
+
+    // Visible for testing
+    long size()
+    {
+        Cache<Key, Boolean> currentCache = cache;
+        return currentCache != null ? currentCache.size() : 0;
+    }
+
+    private Cache<Key, Boolean> initCache()
+    {
+        if (!enableCache.get())
+        {
+            return null;
+        }
+
+        int validity = getValidityDelegate.get();
+        if (validity <= 0)
+        {
+            return null;
+        }
+
+        return CacheBuilder.newBuilder()
+                           .expireAfterWrite(validity, TimeUnit.MILLISECONDS)
+                           .maximumSize(MAX_ENTRIES)
+                           .build();
+    }
+
+    /**
+     * Resolves a whitelist decision which isn't cached.
+     */
+    @FunctionalInterface
+    public interface Decision
+    {
+        /**
+         * @param primaryRole the primary role of the request
+         * @param resource    the resource being accessed
+         * @param permissions the permissions required by the operation
+         * @return true if the role is whitelisted for the operation, false otherwise
+         */
+        boolean isWhitelisted(RoleResource primaryRole, IResource resource, Set<Permission> permissions);
+    }
+
+    private static final class Key
+    {
+        private final RoleResource primaryRole;
+        private final IResource resource;
+        private final Set<Permission> permissions;
+        private final int hashCode;
+
+        private Key(RoleResource primaryRole, IResource resource, Set<Permission> permissions)
+        {
+            this.primaryRole = primaryRole;
+            this.resource = resource;
+            this.permissions = permissions;
+            this.hashCode = Objects.hash(primaryRole, resource, permissions);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) o;
+            return primaryRole.equals(other.primaryRole)
+                   && resource.equals(other.resource)
+                   && permissions.equals(other.permissions);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+    }
+}
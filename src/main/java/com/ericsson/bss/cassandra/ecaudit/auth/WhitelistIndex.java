@@ -0,0 +1,275 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.auth;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+
+import org.apache.cassandra.auth.IResource;
+import org.apache.cassandra.auth.Permission;
+import org.apache.cassandra.auth.RoleResource;
+
+/**
+ * A compiled audit white-list holding the merged white-listed resources and operations of a role and all roles
+ * granted to it.
+ *
+ * Resources are stored in a trie following their {@link IResource#getParent()} chain, such as data, data/ks and
+ * data/ks/table. Each node holds a bitmask of the permissions which are white-listed on the resource. A single descent
+ * of the trie collects the permissions white-listed on a resource and all its parents, regardless of how many resources
+ * are white-listed. The trie is not built over the segments of resource names since names of roles may contain '/'.
+ *
+ * Instances are immutable and may be shared between threads.
+ */
+public final class WhitelistIndex
+{
+    private static final Permission[] PERMISSION_VALUES = Permission.values();
+    private static final int ALL_PERMISSIONS_MASK = (1 << PERMISSION_VALUES.length) - 1;
+
+    private final Node root;
+    private final Set<RoleResource> roles;
+
+    private WhitelistIndex(Node root, Set<RoleResource> roles)
+    {
+        this.root = root;
+        this.roles = roles;
+    }
+
+    /**
+     * Create a new {@link Builder} instance.
+     *
+     * @return a new instance of {@link Builder}.
+     */
+    public static Builder newBuilder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * Check if the white-lists of a role are part of this index.
+     *
+     * @param role the role
+     * @return true if the white-lists of the role were added to this index, false otherwise
+     */
+    public boolean isBasedOn(RoleResource role)
+    {
+        return roles.contains(role);
+    }
+
+    /**
+     * Check if all of the permissions are white-listed on a resource, either directly or through its parents.
+     *
+     * @param resource    the resource being accessed
+     * @param permissions the permissions required by the operation
+     * @return true if the operation is white-listed, false otherwise
+     */
+    public boolean isWhitelisted(IResource resource, Set<Permission> permissions)
+    {
+        int requiredMask = toMask(permissions);
+        int whitelistedMask = 0;
+
+        List<IResource> path = path(resource);
+        Node node = root;
+        for (int i = path.size() - 1; i >= 0; i--)
+        {
+            node = node.children.get(path.get(i));
+            if (node == null)
+            {
+                return false;
+            }
+
+            whitelistedMask |= node.permissions;
+            if (whitelistedMask != 0 && (requiredMask & ~whitelistedMask) == 0)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the resource followed by all its parents, ending with the root-level resource
+     */
+    private static List<IResource> path(IResource resource)
+    {
+        List<IResource> path = new ArrayList<>(4);
+        IResource current = resource;
+        path.add(current);
+        while (current.hasParent())
+        {
+            current = current.getParent();
+            path.add(current);
+        }
+        return path;
+    }
+
+    private static int toMask(Set<Permission> permissions)
+    {
+        int mask = 0;
+        for (Permission permission : permissions)
+        {
+            mask |= 1 << permission.ordinal();
+        }
+        return mask;
+    }
+
+    private static final class Node
+    {
+        private Map<IResource, Node> children = Collections.emptyMap();
+        private int permissions = 0;
+
+        private Node child(IResource resource)
+        {
+            if (children.isEmpty())
+            {
+                children = new HashMap<>();
+            }
+            return children.computeIfAbsent(resource, r -> new Node());
+        }
+    }
+
+    /**
+     * Builder class for {@link WhitelistIndex} instances.
+     *
+     * A builder must not be used after the index is built.
+     */
+    public static final class Builder
+    {
+        private final Node root = new Node();
+        private final Set<RoleResource> roles = new HashSet<>();
+
+        private Builder()
+        {
+        }
+
+        /**
+         * Add the white-listed resources of a role as read from its custom options, and remember that the index is
+         * based on the role.
+         *
+         * @param role        the role
+         * @param roleOptions the role options as stored in Cassandra
+         * @return this builder instance
+         * @see #addRoleOptions(Map)
+         */
+        public Builder addRole(RoleResource role, Map<String, Set<IResource>> roleOptions)
+        {
+            roles.add(role);
+            return addRoleOptions(roleOptions);
+        }
+
+        /**
+         * Add the white-listed resources of a role as read from its custom options.
+         *
+         * Resources of the audit_whitelist_for_all option are white-listed for all operations, while resources of
+         * options such as audit_whitelist_for_select are white-listed for the named permission only. Other options
+         * are ignored.
+         *
+         * @param roleOptions the role options as stored in Cassandra
+         * @return this builder instance
+         */
+        public Builder addRoleOptions(Map<String, Set<IResource>> roleOptions)
+        {
+            for (Map.Entry<String, Set<IResource>> option : roleOptions.entrySet())
+            {
+                int mask = optionMask(option.getKey());
+                if (mask != 0)
+                {
+                    option.getValue().forEach(resource -> addResource(resource, mask));
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Add a resource white-listed for some operations.
+         *
+         * @param resource    the resource to white-list, including all its children
+         * @param permissions the permissions to white-list on the resource
+         * @return this builder instance
+         */
+        public Builder addResource(IResource resource, Set<Permission> permissions)
+        {
+            return addResource(resource, toMask(permissions));
+        }
+
+        /**
+         * Add a resource white-listed for all operations.
+         *
+         * @param resource the resource to white-list, including all its children
+         * @return this builder instance
+         */
+        public Builder addResource(IResource resource)
+        {
+            return addResource(resource, ALL_PERMISSIONS_MASK);
+        }
+
+        private Builder addResource(IResource resource, int mask)
+        {
+            int inheritedMask = 0;
+            Node node = root;
+            List<IResource> path = path(resource);
+            for (int i = path.size() - 1; i >= 0; i--)
+            {
+                inheritedMask |= node.permissions;
+                if ((mask & ~inheritedMask) == 0)
+                {
+                    // Already white-listed on a parent
+                    return this;
+                }
+                node = node.child(path.get(i));
+            }
+
+            node.permissions |= mask;
+            return this;
+        }
+
+        public WhitelistIndex build()
+        {
+            return new WhitelistIndex(root, ImmutableSet.copyOf(roles));
+        }
+
+        private static int optionMask(String option)
+        {
+            if (AuditWhitelistManager.OPTION_AUDIT_WHITELIST_ALL.equals(option))
+            {
+                return ALL_PERMISSIONS_MASK;
+            }
+
+            if (!option.startsWith(AuditWhitelistManager.OPTION_AUDIT_WHITELIST_PREFIX))
+            {
+                return 0;
+            }
+
+            String permissionName = option.substring(AuditWhitelistManager.OPTION_AUDIT_WHITELIST_PREFIX.length()).toUpperCase(Locale.ENGLISH);
+            for (Permission permission : PERMISSION_VALUES)
+            {
+                if (permission.name().equals(permissionName))
+                {
+                    return 1 << permission.ordinal();
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -18,6 +18,7 @@ package com.ericsson.bss.cassandra.ecaudit.auth;
 import java.util.Set;
 
 import org.apache.cassandra.auth.IResource;
+import org.apache.cassandra.auth.Permission;
 import org.apache.cassandra.exceptions.InvalidRequestException;
 
 class WhitelistOptionParser
@@ -52,6 +53,14 @@ class WhitelistOptionParser
             return ALL_OPERATIONS;
         }
 
+        for (Permission permission : Permission.ALL)
+        {
+            if (permission.name().equals(operationString))
+            {
+                return operationString;
+            }
+        }
+
         throw new InvalidRequestException("Invalid whitelist option: " + inputOption);
     }
 
@@ -18,29 +18,53 @@
 package com.ericsson.bss.cassandra.ecaudit.auth.cache;
 
 import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 import javax.management.MBeanServer;
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListenableFutureTask;
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import org.apache.cassandra.concurrent.DebuggableThreadPoolExecutor;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
 
 /**
  * Base class for cached security resources inspired by the class with the same name in Cassandra 3.11.
  *
+ * Entries are kept in a {@link ConcurrentHashMap}, so lookups of cached entries never block. An entry which is older
+ * than the update interval is refreshed in the background on a bounded executor while the current value is still
+ * returned. An entry which is older than the validity period is loaded again by the caller, and concurrent loads of
+ * the same entry are coalesced into one.
+ *
+ * Changes of validity period, update interval and max entries are applied to the existing entries in place. When there
+ * are more entries than allowed, expired and least recently used entries are evicted.
+ *
+ * Hit rate, load latency, evictions and refresh failures are published on the {@link AuthCacheMBean}.
+ *
  * This class is only necessary in 3.0.x.
  */
 public class AuthCache<K, V> implements AuthCacheMBean
@@ -49,8 +73,32 @@ public class AuthCache<K, V> implements AuthCacheMBean
 
     private static final String MBEAN_NAME_BASE = "org.apache.cassandra.auth:type=";
 
-    private volatile LoadingCache<K, V> cache;
-    private ThreadPoolExecutor cacheRefreshExecutor;
+    private static final int REFRESH_QUEUE_SIZE = 1024;
+
+    /**
+     * The share of max entries to keep when evicting, so that entries are evicted in batches rather than one by one.
+     */
+    private static final double EVICTION_RATIO = 0.9;
+
+    /**
+     * The granularity of access times used to find least recently used entries. The access time of an entry is only
+     * written when it is older than this, so that concurrent hits on the same entry don't contend on its cache line.
+     */
+    private static final long ACCESS_TIME_GRANULARITY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ConcurrentMap<K, Node<V>> cache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder refreshFailureCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final Histogram loadLatency = new Histogram(new ExponentiallyDecayingReservoir());
+
+    private volatile Policy policy = Policy.DISABLED;
 
     private final String name;
     private final Consumer<Integer> setValidityDelegate;
@@ -61,6 +109,8 @@ public class AuthCache<K, V> implements AuthCacheMBean
     private final Supplier<Integer> getMaxEntriesDelegate;
     private final Function<K, V> loadFunction;
     private final Supplier<Boolean> enableCache;
+    private final LongSupplier ticker;
+    private final Executor cacheRefreshExecutor;
 
     protected AuthCache(String name,
             Consumer<Integer> setValidityDelegate,
@@ -71,6 +121,27 @@ public class AuthCache<K, V> implements AuthCacheMBean
             Supplier<Integer> getMaxEntriesDelegate,
             Function<K, V> loadFunction,
             Supplier<Boolean> enableCache)
+    {
+        this(name,
+             setValidityDelegate, getValidityDelegate,
+             setUpdateIntervalDelegate, getUpdateIntervalDelegate,
+             setMaxEntriesDelegate, getMaxEntriesDelegate,
+             loadFunction, enableCache,
+             System::nanoTime, newRefreshExecutor(name));
+    }
+
+    // Visible for testing
+    AuthCache(String name,
+              Consumer<Integer> setValidityDelegate,
+              Supplier<Integer> getValidityDelegate,
+              Consumer<Integer> setUpdateIntervalDelegate,
+              Supplier<Integer> getUpdateIntervalDelegate,
+              Consumer<Integer> setMaxEntriesDelegate,
+              Supplier<Integer> getMaxEntriesDelegate,
+              Function<K, V> loadFunction,
+              Supplier<Boolean> enableCache,
+              LongSupplier ticker,
+              Executor cacheRefreshExecutor)
     {
         this.name = name;
         this.setValidityDelegate = setValidityDelegate;
@@ -81,13 +152,23 @@ public class AuthCache<K, V> implements AuthCacheMBean
         this.getMaxEntriesDelegate = getMaxEntriesDelegate;
         this.loadFunction = loadFunction;
         this.enableCache = enableCache;
+        this.ticker = ticker;
+        this.cacheRefreshExecutor = cacheRefreshExecutor;
         init();
     }
 
+    private static Executor newRefreshExecutor(String name)
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                                                             new LinkedBlockingQueue<>(REFRESH_QUEUE_SIZE),
+                                                             new NamedThreadFactory(name + "Refresh"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     protected void init()
     {
-        this.cacheRefreshExecutor = new DebuggableThreadPoolExecutor(name + "Refresh", Thread.NORM_PRIORITY);
-        this.cache = initCache(null);
+        applyPolicy();
         try
         {
             MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
@@ -106,21 +187,298 @@ public class AuthCache<K, V> implements AuthCacheMBean
 
     public V get(K k) throws ExecutionException
     {
-        if (cache == null)
+        Policy currentPolicy = policy;
+        if (!currentPolicy.enabled)
+        {
             return loadFunction.apply(k);
+        }
+
+        Node<V> node = cache.get(k);
+        if (node != null)
+        {
+            long now = ticker.getAsLong();
+            long age = now - node.writeTime;
+            if (age < currentPolicy.validityNanos)
+            {
+                hitCount.increment();
+                if (now - node.accessTime >= ACCESS_TIME_GRANULARITY_NANOS)
+                {
+                    node.accessTime = now;
+                }
+                if (age >= currentPolicy.updateIntervalNanos)
+                {
+                    refresh(k, node);
+                }
+                return node.value;
+            }
+
+            if (cache.remove(k, node))
+            {
+                evictionCount.increment();
+            }
+        }
+
+        missCount.increment();
+        return load(k);
+    }
+
+    /**
+     * Get a cached entry without loading it.
+     *
+     * Entries older than the update interval are treated as missing, since they can't be refreshed without loading.
+     *
+     * @param k the key
+     * @return the cached value, or null if there is no valid entry or the cache is disabled
+     */
+    public V getIfPresent(K k)
+    {
+        Policy currentPolicy = policy;
+        Node<V> node = currentPolicy.enabled ? cache.get(k) : null;
+        if (node != null)
+        {
+            long now = ticker.getAsLong();
+            long age = now - node.writeTime;
+            if (age < currentPolicy.validityNanos && age < currentPolicy.updateIntervalNanos)
+            {
+                hitCount.increment();
+                if (now - node.accessTime >= ACCESS_TIME_GRANULARITY_NANOS)
+                {
+                    node.accessTime = now;
+                }
+                return node.value;
+            }
+
+            if (cache.remove(k, node))
+            {
+                evictionCount.increment();
+            }
+        }
+
+        missCount.increment();
+        return null;
+    }
+
+    private V load(K k) throws ExecutionException
+    {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> ongoing = loading.putIfAbsent(k, future);
+        if (ongoing != null)
+        {
+            return await(ongoing);
+        }
+
+        long loadGeneration = generation.get();
+        try
+        {
+            V value = timedLoad(k);
+            Node<V> node = new Node<>(value, ticker.getAsLong());
+            cache.put(k, node);
+            if (generation.get() != loadGeneration)
+            {
+                // Invalidated while loading, the loaded value may be stale
+                cache.remove(k, node);
+            }
+            future.complete(value);
+            evictIfNeeded();
+            return value;
+        }
+        catch (RuntimeException e)
+        {
+            loadFailureCount.increment();
+            future.completeExceptionally(e);
+            throw new ExecutionException(e);
+        }
+        finally
+        {
+            loading.remove(k, future);
+        }
+    }
+
+    private V await(CompletableFuture<V> future) throws ExecutionException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new ExecutionException(e);
+        }
+    }
+
+    private void refresh(K k, Node<V> node)
+    {
+        if (!node.refreshing.compareAndSet(false, true))
+        {
+            return;
+        }
+
+        try
+        {
+            cacheRefreshExecutor.execute(() -> {
+                try
+                {
+                    V value = timedLoad(k);
+                    // Only replace the entry if it hasn't been invalidated or reloaded meanwhile
+                    cache.replace(k, node, new Node<>(value, ticker.getAsLong()));
+                }
+                catch (RuntimeException e)
+                {
+                    refreshFailureCount.increment();
+                    node.refreshing.set(false);
+                    logger.trace("Error performing async refresh of auth data in {}", name, e);
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            // The refresh queue is full, the entry will be refreshed on a later lookup
+            node.refreshing.set(false);
+        }
+    }
+
+    private V timedLoad(K k)
+    {
+        long start = ticker.getAsLong();
+        V value = Objects.requireNonNull(loadFunction.apply(k), () -> name + " loaded null for " + k);
+        loadLatency.update(TimeUnit.NANOSECONDS.toMicros(ticker.getAsLong() - start));
+        return value;
+    }
+
+    private void evictIfNeeded()
+    {
+        Policy currentPolicy = policy;
+        if (cache.size() <= currentPolicy.maxEntries || !evictionLock.tryLock())
+        {
+            return;
+        }
+
+        try
+        {
+            long now = ticker.getAsLong();
+            List<Map.Entry<K, Node<V>>> entries = new ArrayList<>(cache.size());
+            for (Map.Entry<K, Node<V>> entry : cache.entrySet())
+            {
+                if (now - entry.getValue().writeTime >= currentPolicy.validityNanos)
+                {
+                    evict(entry);
+                }
+                else
+                {
+                    entries.add(entry);
+                }
+            }
+
+            int target = (int) (currentPolicy.maxEntries * EVICTION_RATIO);
+            if (entries.size() > target)
+            {
+                entries.sort(Comparator.comparingLong(entry -> entry.getValue().accessTime));
+                for (int i = 0; i < entries.size() - target; i++)
+                {
+                    evict(entries.get(i));
+                }
+            }
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    private void evict(Map.Entry<K, Node<V>> entry)
+    {
+        if (cache.remove(entry.getKey(), entry.getValue()))
+        {
+            evictionCount.increment();
+        }
+    }
+
+    /**
+     * Add entries to the cache, for instance to fill the cache in bulk at startup. Does nothing if the cache is disabled.
+     *
+     * @param entries the entries to add
+     */
+    public void putAll(Map<K, V> entries)
+    {
+        if (!policy.enabled)
+        {
+            return;
+        }
 
-        return cache.get(k);
+        long now = ticker.getAsLong();
+        entries.forEach((k, v) -> cache.put(k, new Node<>(v, now)));
+        evictIfNeeded();
+    }
+
+    /**
+     * Take a stamp of the invalidations of this cache, to be passed to {@link #put(Object, Object, long)}.
+     *
+     * @return the stamp
+     */
+    public long stamp()
+    {
+        return generation.get();
+    }
+
+    /**
+     * Add an entry to the cache, unless the cache has been invalidated since the stamp was taken. Does nothing if the
+     * cache is disabled.
+     *
+     * The stamp should be taken before the value is read, so that a value which is changed and invalidated
+     * concurrently is not cached.
+     *
+     * @param k     the key
+     * @param v     the value
+     * @param stamp the stamp taken before the value was read, see {@link #stamp()}
+     */
+    public void put(K k, V v, long stamp)
+    {
+        if (!policy.enabled)
+        {
+            return;
+        }
+
+        Node<V> node = new Node<>(v, ticker.getAsLong());
+        cache.put(k, node);
+        if (generation.get() != stamp)
+        {
+            // Invalidated while reading, the value may be stale
+            cache.remove(k, node);
+            return;
+        }
+        evictIfNeeded();
+    }
+
+    /**
+     * @return true if entries are cached, false if every lookup is loaded
+     */
+    public boolean isEnabled()
+    {
+        return policy.enabled;
     }
 
     public void invalidate()
     {
-        cache = initCache(null);
+        generation.incrementAndGet();
+        cache.clear();
     }
 
     public void invalidate(K k)
     {
-        if (cache != null)
-            cache.invalidate(k);
+        generation.incrementAndGet();
+        cache.remove(k);
+    }
+
+    /**
+     * Invalidate all entries matching a predicate.
+     *
+     * @param predicate the predicate of entries to invalidate
+     */
+    public void invalidateIf(BiPredicate<? super K, ? super V> predicate)
+    {
+        generation.incrementAndGet();
+        cache.entrySet().removeIf(entry -> predicate.test(entry.getKey(), entry.getValue().value));
     }
 
     public void setValidity(int validityPeriod)
@@ -129,7 +487,7 @@ public class AuthCache<K, V> implements AuthCacheMBean
             throw new UnsupportedOperationException("Remote configuration of auth caches is disabled");
 
         setValidityDelegate.accept(validityPeriod);
-        cache = initCache(cache);
+        applyPolicy();
     }
 
     public int getValidity()
@@ -143,7 +501,7 @@ public class AuthCache<K, V> implements AuthCacheMBean
             throw new UnsupportedOperationException("Remote configuration of auth caches is disabled");
 
         setUpdateIntervalDelegate.accept(updateInterval);
-        cache = initCache(cache);
+        applyPolicy();
     }
 
     public int getUpdateInterval()
@@ -157,7 +515,7 @@ public class AuthCache<K, V> implements AuthCacheMBean
             throw new UnsupportedOperationException("Remote configuration of auth caches is disabled");
 
         setMaxEntriesDelegate.accept(maxEntries);
-        cache = initCache(cache);
+        applyPolicy();
     }
 
     public int getMaxEntries()
@@ -165,47 +523,124 @@ public class AuthCache<K, V> implements AuthCacheMBean
         return getMaxEntriesDelegate.get();
     }
 
-    private LoadingCache<K, V> initCache(LoadingCache<K, V> existing)
+    public int getSize()
+    {
+        return cache.size();
+    }
+
+    public long getHitCount()
+    {
+        return hitCount.sum();
+    }
+
+    public long getMissCount()
+    {
+        return missCount.sum();
+    }
+
+    public double getHitRate()
+    {
+        long hits = hitCount.sum();
+        long requests = hits + missCount.sum();
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    public long getLoadFailureCount()
+    {
+        return loadFailureCount.sum();
+    }
+
+    public long getRefreshFailureCount()
+    {
+        return refreshFailureCount.sum();
+    }
+
+    public long getEvictionCount()
     {
-        if (!enableCache.get())
-            return null;
+        return evictionCount.sum();
+    }
 
-        if (getValidity() <= 0)
-            return null;
+    public long getLoadCount()
+    {
+        return loadLatency.getCount();
+    }
+
+    public double getLoadLatencyMean()
+    {
+        return loadLatency.getSnapshot().getMean();
+    }
 
-        logger.info("(Re)initializing {} (validity period/update interval/max entries) ({}/{}/{})",
+    public double getLoadLatency50thPercentile()
+    {
+        return loadLatency.getSnapshot().getMedian();
+    }
+
+    public double getLoadLatency99thPercentile()
+    {
+        return loadLatency.getSnapshot().get99thPercentile();
+    }
+
+    public long getLoadLatencyMax()
+    {
+        return loadLatency.getSnapshot().getMax();
+    }
+
+    private void applyPolicy()
+    {
+        if (!enableCache.get() || getValidity() <= 0)
+        {
+            policy = Policy.DISABLED;
+            invalidate();
+            return;
+        }
+
+        logger.info("(Re)configuring {} (validity period/update interval/max entries) ({}/{}/{})",
                 name, getValidity(), getUpdateInterval(), getMaxEntries());
 
-        LoadingCache<K, V> newcache = CacheBuilder.newBuilder()
-                .refreshAfterWrite(getUpdateInterval(), TimeUnit.MILLISECONDS)
-                .expireAfterWrite(getValidity(), TimeUnit.MILLISECONDS)
-                .maximumSize(getMaxEntries())
-                .build(new CacheLoader<K, V>()
-                {
-                    public V load(K k) throws Exception
-                    {
-                        return loadFunction.apply(k);
-                    }
-
-                    public ListenableFuture<V> reload(final K k, final V oldV)
-                    {
-                        ListenableFutureTask<V> task = ListenableFutureTask.create(() -> {
-                            try
-                            {
-                                return loadFunction.apply(k);
-                            }
-                            catch (Exception e)
-                            {
-                                logger.trace("Error performing async refresh of auth data in {}", name, e);
-                                throw e;
-                            }
-                        });
-                        cacheRefreshExecutor.execute(task);
-                        return task;
-                    }
-                });
-        if (existing != null)
-            newcache.putAll(existing.asMap());
-        return newcache;
+        policy = new Policy(TimeUnit.MILLISECONDS.toNanos(getValidity()),
+                            TimeUnit.MILLISECONDS.toNanos(getUpdateInterval()),
+                            getMaxEntries());
+        evictIfNeeded();
+    }
+
+    /**
+     * The validity period, update interval and max entries currently in use, replaced as a whole when reconfigured.
+     */
+    private static final class Policy
+    {
+        private static final Policy DISABLED = new Policy(false, 0, 0, 0);
+
+        private final boolean enabled;
+        private final long validityNanos;
+        private final long updateIntervalNanos;
+        private final int maxEntries;
+
+        private Policy(long validityNanos, long updateIntervalNanos, int maxEntries)
+        {
+            this(true, validityNanos, updateIntervalNanos, maxEntries);
+        }
+
+        private Policy(boolean enabled, long validityNanos, long updateIntervalNanos, int maxEntries)
+        {
+            this.enabled = enabled;
+            this.validityNanos = validityNanos;
+            this.updateIntervalNanos = updateIntervalNanos;
+            this.maxEntries = maxEntries;
+        }
+    }
+
+    private static final class Node<V>
+    {
+        private final V value;
+        private final long writeTime;
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
+        private volatile long accessTime;
+
+        private Node(V value, long writeTime)
+        {
+            this.value = value;
+            this.writeTime = writeTime;
+            this.accessTime = writeTime;
+        }
     }
 }
@@ -37,4 +37,64 @@ public interface AuthCacheMBean
     public void setMaxEntries(int maxEntries);
 
     public int getMaxEntries();
+
+    /**
+     * @return the number of cached entries
+     */
+    public int getSize();
+
+    /**
+     * @return the number of lookups which found a valid entry in the cache
+     */
+    public long getHitCount();
+
+    /**
+     * @return the number of lookups which had to load the entry
+     */
+    public long getMissCount();
+
+    /**
+     * @return the ratio of lookups which found a valid entry in the cache, or 1.0 if there have been no lookups
+     */
+    public double getHitRate();
+
+    /**
+     * @return the number of loads and refreshes which completed successfully
+     */
+    public long getLoadCount();
+
+    /**
+     * @return the number of loads on a cache miss which failed
+     */
+    public long getLoadFailureCount();
+
+    /**
+     * @return the number of background refreshes which failed
+     */
+    public long getRefreshFailureCount();
+
+    /**
+     * @return the number of entries evicted because they expired or because the cache was full
+     */
+    public long getEvictionCount();
+
+    /**
+     * @return the mean load latency in microseconds, biased towards recent loads
+     */
+    public double getLoadLatencyMean();
+
+    /**
+     * @return the median load latency in microseconds, biased towards recent loads
+     */
+    public double getLoadLatency50thPercentile();
+
+    /**
+     * @return the 99th percentile load latency in microseconds, biased towards recent loads
+     */
+    public double getLoadLatency99thPercentile();
+
+    /**
+     * @return the max load latency in microseconds, biased towards recent loads
+     */
+    public long getLoadLatencyMax();
 }
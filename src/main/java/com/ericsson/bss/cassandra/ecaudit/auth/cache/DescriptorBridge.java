@@ -20,12 +20,58 @@ package com.ericsson.bss.cassandra.ecaudit.auth.cache;
 /**
  * Provides missing methods for DatabaseDescriptor in backported AuthCache.
  *
+ * The settings of the credentials cache are read from system properties, with the same defaults as the
+ * credentials_validity_in_ms, credentials_update_interval_in_ms and credentials_cache_max_entries settings of later
+ * Cassandra versions. An update interval of -1 means the same as the validity.
+ *
  * This class is only necessary in 3.0.x.
  */
 public class DescriptorBridge
 {
+    public static final String CREDENTIALS_VALIDITY_PROPERTY_NAME = "ecaudit.credentials_validity_in_ms";
+    public static final String CREDENTIALS_UPDATE_INTERVAL_PROPERTY_NAME = "ecaudit.credentials_update_interval_in_ms";
+    public static final String CREDENTIALS_CACHE_MAX_ENTRIES_PROPERTY_NAME = "ecaudit.credentials_cache_max_entries";
+
+    private static final int DEFAULT_CREDENTIALS_VALIDITY_IN_MS = 2000;
+    private static final int DEFAULT_CREDENTIALS_UPDATE_INTERVAL_IN_MS = -1;
+    private static final int DEFAULT_CREDENTIALS_CACHE_MAX_ENTRIES = 1000;
+
+    private static volatile int credentialsValidity = Integer.getInteger(CREDENTIALS_VALIDITY_PROPERTY_NAME, DEFAULT_CREDENTIALS_VALIDITY_IN_MS);
+    private static volatile int credentialsUpdateInterval = Integer.getInteger(CREDENTIALS_UPDATE_INTERVAL_PROPERTY_NAME, DEFAULT_CREDENTIALS_UPDATE_INTERVAL_IN_MS);
+    private static volatile int credentialsCacheMaxEntries = Integer.getInteger(CREDENTIALS_CACHE_MAX_ENTRIES_PROPERTY_NAME, DEFAULT_CREDENTIALS_CACHE_MAX_ENTRIES);
+
     public static void setRolesCacheMaxEntries(int entries)
     {
         // Intentionally left emtpy
     }
+
+    public static int getCredentialsValidity()
+    {
+        return credentialsValidity;
+    }
+
+    public static void setCredentialsValidity(int timeout)
+    {
+        credentialsValidity = timeout;
+    }
+
+    public static int getCredentialsUpdateInterval()
+    {
+        return credentialsUpdateInterval == -1 ? credentialsValidity : credentialsUpdateInterval;
+    }
+
+    public static void setCredentialsUpdateInterval(int updateInterval)
+    {
+        credentialsUpdateInterval = updateInterval;
+    }
+
+    public static int getCredentialsCacheMaxEntries()
+    {
+        return credentialsCacheMaxEntries;
+    }
+
+    public static void setCredentialsCacheMaxEntries(int maxEntries)
+    {
+        credentialsCacheMaxEntries = maxEntries;
+    }
 }
@@ -37,6 +37,7 @@ public class AuditEntry
     private final String user;
     private final UUID batchId;
     private final Status status;
+    private final long timestamp;
 
     /**
      * @see #newBuilder()
@@ -50,6 +51,7 @@ public class AuditEntry
         this.user = builder.user;
         this.batchId = builder.batchId;
         this.status = builder.status;
+        this.timestamp = builder.timestamp;
     }
 
     public InetAddress getClientAddress()
@@ -107,6 +109,16 @@ public class AuditEntry
         return status;
     }
 
+    /**
+     * Gets the time when the operation was audited.
+     *
+     * @return the timestamp in milliseconds since epoch
+     */
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
     /**
      * Create a new {@link Builder} instance.
      *
@@ -129,6 +141,7 @@ public class AuditEntry
         private String user;
         private UUID batchId;
         private Status status;
+        private long timestamp;
 
         public Builder client(InetAddress address)
         {
@@ -196,6 +209,18 @@ public class AuditEntry
             return this;
         }
 
+        /**
+         * Set the time when the operation was audited.
+         *
+         * @param timestamp the timestamp in milliseconds since epoch
+         * @return this builder instance
+         */
+        public Builder timestamp(long timestamp)
+        {
+            this.timestamp = timestamp;
+            return this;
+        }
+
         /**
          * Configure this builder from an existing {@link AuditEntry} instance.
          *
@@ -211,6 +236,7 @@ public class AuditEntry
             this.user = entry.getUser();
             this.batchId = entry.getBatchId().orElse(null);
             this.status = entry.getStatus();
+            this.timestamp = entry.getTimestamp();
             return this;
         }
 
@@ -19,7 +19,6 @@ import java.util.List;
 import java.util.Set;
 
 import com.google.common.collect.ImmutableSet;
-import org.apache.commons.lang3.reflect.FieldUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,8 +29,6 @@ import com.ericsson.bss.cassandra.ecaudit.facade.CassandraAuditException;
 import org.apache.cassandra.auth.DataResource;
 import org.apache.cassandra.auth.Permission;
 import org.apache.cassandra.cql3.CQLStatement;
-import org.apache.cassandra.cql3.ColumnCondition;
-import org.apache.cassandra.cql3.ColumnIdentifier;
 import org.apache.cassandra.cql3.QueryProcessor;
 import org.apache.cassandra.cql3.statements.AlterKeyspaceStatement;
 import org.apache.cassandra.cql3.statements.AlterRoleStatement;
@@ -72,7 +69,6 @@ import org.apache.cassandra.cql3.statements.TruncateStatement;
 import org.apache.cassandra.cql3.statements.UseStatement;
 import org.apache.cassandra.exceptions.InvalidRequestException;
 import org.apache.cassandra.service.ClientState;
-import org.apache.cassandra.utils.Pair;
 
 public class AuditEntryBuilderFactory
 {
@@ -100,6 +96,33 @@ public class AuditEntryBuilderFactory
     private static final Set<Permission> AUTHORIZE_PERMISSIONS = ImmutableSet.of(Permission.AUTHORIZE);
 
     private StatementResourceAdapter statementResourceAdapter = new StatementResourceAdapter();
+    private final StatementClassificationCache classificationCache;
+
+    /**
+     * Create a factory which parses and prepares every unprepared statement.
+     */
+    public AuditEntryBuilderFactory()
+    {
+        this.classificationCache = null;
+    }
+
+    /**
+     * Create a factory which caches the permissions and resource of unprepared statements.
+     *
+     * @param classificationCacheSize the maximum estimated memory usage of the cache in bytes, or 0 to disable caching
+     */
+    public AuditEntryBuilderFactory(long classificationCacheSize)
+    {
+        this.classificationCache = classificationCacheSize > 0
+                                   ? StatementClassificationCache.create(classificationCacheSize)
+                                   : null;
+    }
+
+    // Visible for testing
+    AuditEntryBuilderFactory(StatementClassificationCache classificationCache)
+    {
+        this.classificationCache = classificationCache;
+    }
 
     public Builder createAuthenticationEntryBuilder()
     {
@@ -112,7 +135,9 @@ public class AuditEntryBuilderFactory
     {
         try
         {
-            return createEntryBuilderForUnpreparedStatement(operation, state);
+            return classificationCache != null
+                   ? createCachedEntryBuilder(operation, state)
+                   : createEntryBuilderForUnpreparedStatement(operation, state);
         }
         catch (RuntimeException e)
         {
@@ -121,6 +146,21 @@ public class AuditEntryBuilderFactory
         }
     }
 
+    private Builder createCachedEntryBuilder(String operation, ClientState state)
+    {
+        String keyspace = state.getRawKeyspace();
+        AuditEntry classification = classificationCache.get(operation, keyspace);
+        if (classification == null)
+        {
+            classification = createEntryBuilderForUnpreparedStatement(operation, state).build();
+            classificationCache.put(operation, keyspace, classification);
+        }
+
+        return AuditEntry.newBuilder()
+                         .permissions(classification.getPermissions())
+                         .resource(classification.getResource());
+    }
+
     private Builder createEntryBuilderForUnpreparedStatement(String operation, ClientState state)
     {
         try
@@ -292,16 +332,7 @@ public class AuditEntryBuilderFactory
 
     private Builder createModificationEntryBuilder(ModificationStatement.Parsed statement)
     {
-        Set<Permission> permissions;
-        try
-        {
-            boolean hasCondition = !((List<Pair<ColumnIdentifier.Raw, ColumnCondition.Raw>>) FieldUtils.readField(statement, "conditions", true)).isEmpty();
-            permissions = hasCondition ? CAS_PERMISSIONS : MODIFY_PERMISSIONS;
-        }
-        catch (IllegalAccessException e)
-        {
-            throw new CassandraAuditException("Failed to resolve resource", e);
-        }
+        Set<Permission> permissions = statementResourceAdapter.hasConditions(statement) ? CAS_PERMISSIONS : MODIFY_PERMISSIONS;
 
         return AuditEntry.newBuilder()
                          .permissions(permissions)
@@ -0,0 +1,139 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.entry.factory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ericsson.bss.cassandra.ecaudit.facade.CassandraAuditException;
+
+/**
+ * Reads a named, possibly private, field of Cassandra statements.
+ *
+ * The field is looked up once per concrete class and cached as a {@link MethodHandle} getter, so reading the field
+ * doesn't involve a reflective lookup or accessibility check. If no getter can be created for a class the field is
+ * read reflectively instead.
+ */
+public final class FieldReader
+{
+    private static final Logger LOG = LoggerFactory.getLogger(FieldReader.class);
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final String fieldName;
+    private final ClassValue<MethodHandle> getters = new ClassValue<MethodHandle>()
+    {
+        @Override
+        protected MethodHandle computeValue(Class<?> type)
+        {
+            return findGetter(type);
+        }
+    };
+
+    /**
+     * @param fieldName the name of the field to read, declared in the class of the object or in one of its super classes
+     */
+    public FieldReader(String fieldName)
+    {
+        this.fieldName = fieldName;
+    }
+
+    /**
+     * Read the field of an object.
+     *
+     * @param object the object to read the field from
+     * @return the value of the field
+     * @throws IllegalArgumentException if the class of the object has no field with the name of this reader
+     */
+    public Object read(Object object)
+    {
+        MethodHandle getter = getters.get(object.getClass());
+        if (getter == null)
+        {
+            return readReflectively(object);
+        }
+
+        try
+        {
+            return getter.invokeExact(object);
+        }
+        catch (RuntimeException | Error e)
+        {
+            throw e;
+        }
+        catch (Throwable e)
+        {
+            throw new CassandraAuditException("Failed to read field " + fieldName + " of " + object.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Read the field of an object reflectively, without using the cached getter.
+     *
+     * @param object the object to read the field from
+     * @return the value of the field
+     * @throws IllegalArgumentException if the class of the object has no field with the name of this reader
+     */
+    public Object readReflectively(Object object)
+    {
+        try
+        {
+            return FieldUtils.readField(object, fieldName, true);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new CassandraAuditException("Failed to read field " + fieldName + " of " + object.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * @param type the class to check
+     * @return true if instances of the class are read with a cached getter
+     */
+    boolean hasGetter(Class<?> type)
+    {
+        return getters.get(type) != null;
+    }
+
+    String getFieldName()
+    {
+        return fieldName;
+    }
+
+    private MethodHandle findGetter(Class<?> type)
+    {
+        try
+        {
+            Field field = FieldUtils.getField(type, fieldName, true);
+            if (field == null)
+            {
+                return null;
+            }
+            return MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE);
+        }
+        catch (IllegalAccessException | RuntimeException e)
+        {
+            LOG.debug("Failed to create getter for field {} of {} - falling back to reflection", fieldName, type.getName(), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.entry.factory;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import com.codahale.metrics.Gauge;
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import org.apache.cassandra.auth.DataResource;
+import org.apache.cassandra.auth.Permission;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.metrics.CassandraMetricsRegistry;
+import org.apache.cassandra.service.MigrationListener;
+import org.apache.cassandra.service.MigrationManager;
+import org.apache.cassandra.utils.Pair;
+
+/**
+ * Caches the permissions and resource resolved for unprepared statements, so that a repeated statement doesn't have
+ * to be parsed and prepared again.
+ *
+ * Entries are keyed by the statement string and the keyspace of the client, since unqualified table names are
+ * resolved relative to the logged in keyspace. Only statements which select or modify data are cached, so that
+ * statements such as CREATE ROLE are not kept in memory with their passwords in clear text.
+ *
+ * The cache is bounded by the estimated memory used by its entries, which is dominated by the length of the statement
+ * strings. The least recently used entries are evicted once the cache is full. All entries are invalidated on schema
+ * changes since resources such as the base table of a view or the overload of a function are resolved against the
+ * current schema.
+ *
+ * The number of hits, misses and evictions are exposed as MBeans of type StatementClassificationCache.
+ */
+class StatementClassificationCache
+{
+    private static final String GROUP_NAME = "com.ericsson.bss.cassandra.ecaudit";
+    private static final String TYPE_NAME = "StatementClassificationCache";
+
+    static final CassandraMetricsRegistry.MetricName HITS = metricName("Hits");
+    static final CassandraMetricsRegistry.MetricName MISSES = metricName("Misses");
+    static final CassandraMetricsRegistry.MetricName EVICTIONS = metricName("Evictions");
+
+    // Estimated size of the map entry, key and classification, excluding the statement string and keyspace
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private static final Set<Permission> DATA_PERMISSIONS = EnumSet.of(Permission.SELECT, Permission.MODIFY);
+
+    private final Cache<Pair<String, String>, AuditEntry> cache;
+
+    // Visible for testing
+    StatementClassificationCache(long maxMemory)
+    {
+        if (maxMemory < 1)
+        {
+            throw new IllegalArgumentException("Statement classification cache size must be positive, was " + maxMemory);
+        }
+
+        this.cache = CacheBuilder.newBuilder()
+                                 .maximumWeight(maxMemory)
+                                 .weigher((Pair<String, String> key, AuditEntry classification) -> weigh(key))
+                                 .recordStats()
+                                 .build();
+    }
+
+    /**
+     * Create a new cache, register its metrics in the Cassandra metrics registry and invalidate it on schema changes.
+     *
+     * Metrics of any previous instance are replaced.
+     *
+     * @param maxMemory the maximum estimated memory usage of the cache in bytes
+     * @return the new cache
+     */
+    static StatementClassificationCache create(long maxMemory)
+    {
+        StatementClassificationCache classificationCache = new StatementClassificationCache(maxMemory);
+        classificationCache.registerMetrics();
+        MigrationManager.instance.register(classificationCache.new SchemaChangeListener());
+        return classificationCache;
+    }
+
+    /**
+     * Get the classification of a statement.
+     *
+     * @param operation the statement string
+     * @param keyspace  the keyspace of the client, may be null
+     * @return an entry holding the permissions and resource of the statement, or null if the statement isn't cached
+     */
+    AuditEntry get(String operation, String keyspace)
+    {
+        return cache.getIfPresent(Pair.create(operation, keyspace));
+    }
+
+    /**
+     * Store the classification of a statement, unless the statement does something else than selecting or modifying
+     * data.
+     *
+     * @param operation      the statement string
+     * @param keyspace       the keyspace of the client, may be null
+     * @param classification an entry holding the permissions and resource of the statement
+     */
+    void put(String operation, String keyspace, AuditEntry classification)
+    {
+        if (isCacheable(classification))
+        {
+            cache.put(Pair.create(operation, keyspace), classification);
+        }
+    }
+
+    private static boolean isCacheable(AuditEntry classification)
+    {
+        return classification.getResource() instanceof DataResource
+               && !classification.getPermissions().isEmpty()
+               && DATA_PERMISSIONS.containsAll(classification.getPermissions());
+    }
+
+    private static int weigh(Pair<String, String> key)
+    {
+        return ENTRY_OVERHEAD + 2 * (key.left.length() + (key.right != null ? key.right.length() : 0));
+    }
+
+    /**
+     * Remove all cached statements.
+     */
+    void invalidateAll()
+    {
+        cache.invalidateAll();
+    }
+
+    // Visible for testing
+    long hitCount()
+    {
+        return cache.stats().hitCount();
+    }
+
+    // Visible for testing
+    long missCount()
+    {
+        return cache.stats().missCount();
+    }
+
+    // Visible for testing
+    long evictionCount()
+    {
+        return cache.stats().evictionCount();
+    }
+
+    // Visible for testing
+    long size()
+    {
+        cache.cleanUp();
+        return cache.size();
+    }
+
+    private void registerMetrics()
+    {
+        register(HITS, this::hitCount);
+        register(MISSES, this::missCount);
+        register(EVICTIONS, this::evictionCount);
+    }
+
+    private static void register(CassandraMetricsRegistry.MetricName name, Gauge<Long> gauge)
+    {
+        CassandraMetricsRegistry.Metrics.remove(name);
+        CassandraMetricsRegistry.Metrics.register(name, gauge);
+    }
+
+    private static CassandraMetricsRegistry.MetricName metricName(String name)
+    {
+        return new CassandraMetricsRegistry.MetricName(GROUP_NAME, TYPE_NAME, name);
+    }
+
+    /**
+     * Invalidates the cache on any schema change.
+     */
+    // Visible for testing
+    class SchemaChangeListener extends MigrationListener
+    {
+        @Override
+        public void onCreateKeyspace(String ksName)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onCreateColumnFamily(String ksName, String cfName)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onCreateView(String ksName, String viewName)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onCreateUserType(String ksName, String typeName)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onCreateFunction(String ksName, String functionName, List<AbstractType<?>> argTypes)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onCreateAggregate(String ksName, String aggregateName, List<AbstractType<?>> argTypes)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onUpdateKeyspace(String ksName)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onUpdateColumnFamily(String ksName, String cfName, boolean affectsStatements)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onUpdateView(String ksName, String viewName, boolean columnsDidChange)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onUpdateUserType(String ksName, String typeName)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onUpdateFunction(String ksName, String functionName, List<AbstractType<?>> argTypes)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onUpdateAggregate(String ksName, String aggregateName, List<AbstractType<?>> argTypes)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onDropKeyspace(String ksName)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onDropColumnFamily(String ksName, String cfName)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onDropView(String ksName, String viewName)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onDropUserType(String ksName, String typeName)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onDropFunction(String ksName, String functionName, List<AbstractType<?>> argTypes)
+        {
+            invalidateAll();
+        }
+
+        @Override
+        public void onDropAggregate(String ksName, String aggregateName, List<AbstractType<?>> argTypes)
+        {
+            invalidateAll();
+        }
+    }
+}
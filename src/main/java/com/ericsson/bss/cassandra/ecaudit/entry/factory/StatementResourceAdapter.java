@@ -15,9 +15,14 @@
 //**********************************************************************
 package com.ericsson.bss.cassandra.ecaudit.entry.factory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
-import org.apache.commons.lang3.reflect.FieldUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.ericsson.bss.cassandra.ecaudit.facade.CassandraAuditException;
 import org.apache.cassandra.auth.DataResource;
@@ -28,21 +33,96 @@ import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.cql3.CFName;
 import org.apache.cassandra.cql3.CQL3Type;
 import org.apache.cassandra.cql3.functions.FunctionName;
+import org.apache.cassandra.cql3.statements.AlterRoleStatement;
 import org.apache.cassandra.cql3.statements.AlterViewStatement;
 import org.apache.cassandra.cql3.statements.AuthenticationStatement;
 import org.apache.cassandra.cql3.statements.AuthorizationStatement;
 import org.apache.cassandra.cql3.statements.CreateAggregateStatement;
 import org.apache.cassandra.cql3.statements.CreateFunctionStatement;
+import org.apache.cassandra.cql3.statements.CreateRoleStatement;
 import org.apache.cassandra.cql3.statements.CreateViewStatement;
+import org.apache.cassandra.cql3.statements.DeleteStatement;
 import org.apache.cassandra.cql3.statements.DropAggregateStatement;
 import org.apache.cassandra.cql3.statements.DropFunctionStatement;
+import org.apache.cassandra.cql3.statements.DropRoleStatement;
 import org.apache.cassandra.cql3.statements.DropViewStatement;
+import org.apache.cassandra.cql3.statements.GrantPermissionsStatement;
+import org.apache.cassandra.cql3.statements.GrantRoleStatement;
+import org.apache.cassandra.cql3.statements.ListPermissionsStatement;
+import org.apache.cassandra.cql3.statements.ListRolesStatement;
+import org.apache.cassandra.cql3.statements.ModificationStatement;
 import org.apache.cassandra.cql3.statements.PermissionsManagementStatement;
+import org.apache.cassandra.cql3.statements.RevokePermissionsStatement;
+import org.apache.cassandra.cql3.statements.RevokeRoleStatement;
+import org.apache.cassandra.cql3.statements.UpdateStatement;
 import org.apache.cassandra.cql3.statements.UseStatement;
 import org.apache.cassandra.db.view.View;
+import org.apache.cassandra.utils.FBUtilities;
 
+/**
+ * Resolves resources of statements which don't expose them, by reading private fields of the statements.
+ *
+ * Fields are read with {@link FieldReader}s. When the class is loaded, the readers are checked against all statement
+ * types they are used for in the running Cassandra version and a warning is logged for each field that can't be found.
+ * Statements which need a missing field can't be audited and fail, also when they are prepared.
+ */
 public class StatementResourceAdapter
 {
+    private static final Logger LOG = LoggerFactory.getLogger(StatementResourceAdapter.class);
+
+    static final FieldReader ROLE = new FieldReader("role");
+    static final FieldReader RESOURCE = new FieldReader("resource");
+    static final FieldReader GRANTEE = new FieldReader("grantee");
+    static final FieldReader KEYSPACE = new FieldReader("keyspace");
+    static final FieldReader BASE_NAME = new FieldReader("baseName");
+    static final FieldReader FUNCTION_NAME = new FieldReader("functionName");
+    static final FieldReader ARG_RAW_TYPES = new FieldReader("argRawTypes");
+    static final FieldReader CONDITIONS = new FieldReader("conditions");
+
+    private static final Map<FieldReader, List<Class<?>>> READ_TYPES = new LinkedHashMap<>();
+
+    static
+    {
+        READ_TYPES.put(ROLE, Arrays.asList(CreateRoleStatement.class, AlterRoleStatement.class, DropRoleStatement.class,
+                                           GrantRoleStatement.class, RevokeRoleStatement.class));
+        READ_TYPES.put(RESOURCE, Arrays.asList(GrantPermissionsStatement.class, RevokePermissionsStatement.class));
+        READ_TYPES.put(GRANTEE, Arrays.asList(ListPermissionsStatement.class, ListRolesStatement.class));
+        READ_TYPES.put(KEYSPACE, Arrays.asList(UseStatement.class));
+        READ_TYPES.put(BASE_NAME, Arrays.asList(CreateViewStatement.class));
+        READ_TYPES.put(FUNCTION_NAME, Arrays.asList(CreateFunctionStatement.class, DropFunctionStatement.class,
+                                                    CreateAggregateStatement.class, DropAggregateStatement.class));
+        READ_TYPES.put(ARG_RAW_TYPES, Arrays.asList(DropFunctionStatement.class, DropAggregateStatement.class));
+        READ_TYPES.put(CONDITIONS, Arrays.asList(UpdateStatement.ParsedInsert.class, UpdateStatement.ParsedInsertJson.class,
+                                                 UpdateStatement.ParsedUpdate.class, DeleteStatement.Parsed.class));
+
+        for (String field : unresolvedFields())
+        {
+            LOG.warn("Field {} not found in Cassandra {} - statements using it can't be audited and will fail",
+                     field, FBUtilities.getReleaseVersionString());
+        }
+    }
+
+    /**
+     * Check that all fields read by this adapter can be found in the running Cassandra version.
+     *
+     * @return the fields which can't be read with a cached getter, as "class.field"
+     */
+    static List<String> unresolvedFields()
+    {
+        List<String> unresolved = new ArrayList<>();
+        for (Map.Entry<FieldReader, List<Class<?>>> entry : READ_TYPES.entrySet())
+        {
+            for (Class<?> type : entry.getValue())
+            {
+                if (!entry.getKey().hasGetter(type))
+                {
+                    unresolved.add(type.getName() + "." + entry.getKey().getFieldName());
+                }
+            }
+        }
+        return unresolved;
+    }
+
     /**
      * Extract the {@link RoleResource} from the {@link AuthenticationStatement}.
      * <p>
@@ -54,69 +134,34 @@ public class StatementResourceAdapter
      */
     RoleResource resolveRoleResource(AuthenticationStatement statement)
     {
-        try
-        {
-            return (RoleResource) FieldUtils.readField(statement, "role", true);
-        }
-        catch (IllegalAccessException e)
-        {
-            throw new CassandraAuditException("Failed to resolve resource", e);
-        }
+        return (RoleResource) read(ROLE, statement, "role of " + typeOf(statement));
     }
 
     IResource resolveManagedResource(PermissionsManagementStatement statement)
     {
-        try
-        {
-            return (IResource) FieldUtils.readField(statement, "resource", true);
-        }
-        catch (IllegalAccessException e)
-        {
-            throw new CassandraAuditException("Failed to resolve resource", e);
-        }
+        return (IResource) read(RESOURCE, statement, "resource of " + typeOf(statement));
     }
 
     RoleResource resolveGranteeResource(AuthorizationStatement statement)
     {
-        try
-        {
-            RoleResource resource = (RoleResource) FieldUtils.readField(statement, "grantee", true);
-            if (resource == null)
-            {
-                resource = RoleResource.root();
-            }
-            return resource;
-        }
-        catch (IllegalAccessException e)
+        RoleResource resource = (RoleResource) read(GRANTEE, statement, "grantee of " + typeOf(statement));
+        if (resource == null)
         {
-            throw new CassandraAuditException("Failed to resolve resource", e);
+            resource = RoleResource.root();
         }
+        return resource;
     }
 
     DataResource resolveKeyspaceResource(UseStatement statement)
     {
-        try
-        {
-            String keyspace = (String) FieldUtils.readField(statement, "keyspace", true);
-            return DataResource.keyspace(keyspace);
-        }
-        catch (IllegalAccessException e)
-        {
-            throw new CassandraAuditException("Failed to resolve resource", e);
-        }
+        String keyspace = (String) read(KEYSPACE, statement, "keyspace of " + typeOf(statement));
+        return DataResource.keyspace(keyspace);
     }
 
     DataResource resolveBaseTableResource(CreateViewStatement statement)
     {
-        try
-        {
-            CFName baseName  = (CFName) FieldUtils.readField(statement, "baseName", true);
-            return DataResource.table(statement.keyspace(), baseName.getColumnFamily());
-        }
-        catch (IllegalAccessException e)
-        {
-            throw new CassandraAuditException("Failed to resolve base table of view " + statement.keyspace() + "." + statement.columnFamily(), e);
-        }
+        CFName baseName = (CFName) read(BASE_NAME, statement, "base table of view " + statement.keyspace() + "." + statement.columnFamily());
+        return DataResource.table(statement.keyspace(), baseName.getColumnFamily());
     }
 
     DataResource resolveBaseTableResource(AlterViewStatement statement)
@@ -147,55 +192,54 @@ public class StatementResourceAdapter
 
     FunctionResource resolveFunctionKeyspaceResource(CreateFunctionStatement statement)
     {
-        try
-        {
-            FunctionName functionName = (FunctionName)  FieldUtils.readField(statement, "functionName", true);
-            return FunctionResource.keyspace(functionName.keyspace);
-        }
-        catch (IllegalAccessException e)
-        {
-            throw new CassandraAuditException("Failed to resolve base keyspace of function" + statement.keyspace() + "." + statement.columnFamily(), e);
-        }
+        FunctionName functionName = (FunctionName) read(FUNCTION_NAME, statement, "function name of " + typeOf(statement));
+        return FunctionResource.keyspace(functionName.keyspace);
     }
 
     FunctionResource resolveFunctionResource(DropFunctionStatement statement)
     {
-        try
-        {
-            FunctionName functionName = (FunctionName)  FieldUtils.readField(statement, "functionName", true);
-            List<CQL3Type.Raw> argRawTypes = (List<CQL3Type.Raw>) FieldUtils.readField(statement, "argRawTypes", true);
-            return FunctionResource.functionFromCql(functionName.keyspace, functionName.name, argRawTypes);
-        }
-        catch (IllegalAccessException e)
-        {
-            throw new CassandraAuditException("Failed to resolve base table of function " + statement.keyspace() + "." + statement.columnFamily(), e);
-        }
+        FunctionName functionName = (FunctionName) read(FUNCTION_NAME, statement, "function name of " + typeOf(statement));
+        List<CQL3Type.Raw> argRawTypes = (List<CQL3Type.Raw>) read(ARG_RAW_TYPES, statement, "argument types of function " + functionName);
+        return FunctionResource.functionFromCql(functionName.keyspace, functionName.name, argRawTypes);
     }
 
     FunctionResource resolveAggregateKeyspaceResource(CreateAggregateStatement statement)
     {
-        try
-        {
-            FunctionName functionName = (FunctionName)  FieldUtils.readField(statement, "functionName", true);
-            return FunctionResource.keyspace(functionName.keyspace);
-        }
-        catch (IllegalAccessException e)
-        {
-            throw new CassandraAuditException("Failed to resolve base keyspace of aggregate" + statement.keyspace() + "." + statement.columnFamily(), e);
-        }
+        FunctionName functionName = (FunctionName) read(FUNCTION_NAME, statement, "aggregate name of " + typeOf(statement));
+        return FunctionResource.keyspace(functionName.keyspace);
     }
 
     FunctionResource resolveAggregateResource(DropAggregateStatement statement)
+    {
+        FunctionName functionName = (FunctionName) read(FUNCTION_NAME, statement, "aggregate name of " + typeOf(statement));
+        List<CQL3Type.Raw> argRawTypes = (List<CQL3Type.Raw>) read(ARG_RAW_TYPES, statement, "argument types of aggregate " + functionName);
+        return FunctionResource.functionFromCql(functionName.keyspace, functionName.name, argRawTypes);
+    }
+
+    /**
+     * @param statement the parsed modification statement
+     * @return true if the statement has conditions, and thus is a compare-and-set statement
+     */
+    boolean hasConditions(ModificationStatement.Parsed statement)
+    {
+        return !((List<?>) read(CONDITIONS, statement, "conditions of " + typeOf(statement))).isEmpty();
+    }
+
+    private static Object read(FieldReader reader, Object statement, String target)
     {
         try
         {
-            FunctionName functionName = (FunctionName)  FieldUtils.readField(statement, "functionName", true);
-            List<CQL3Type.Raw> argRawTypes = (List<CQL3Type.Raw>) FieldUtils.readField(statement, "argRawTypes", true);
-            return FunctionResource.functionFromCql(functionName.keyspace, functionName.name, argRawTypes);
+            return reader.read(statement);
         }
-        catch (IllegalAccessException e)
+        catch (RuntimeException e)
         {
-            throw new CassandraAuditException("Failed to resolve base table of function " + statement.keyspace() + "." + statement.columnFamily(), e);
+            throw new CassandraAuditException("Failed to resolve " + target, e);
         }
     }
+
+    private static String typeOf(Object statement)
+    {
+        String name = statement.getClass().getName();
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
 }
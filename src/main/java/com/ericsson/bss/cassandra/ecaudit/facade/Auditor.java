@@ -30,4 +30,27 @@ public interface Auditor
      */
     void audit(AuditEntry logEntry);
 
+    /**
+     * Check whether an operation is to be audited, before the complete log entry is built.
+     *
+     * The entry passed to this method only needs to hold the client, user, permissions and resource of the
+     * operation, so that the operation string, bound values and batch expansion are only built for operations that
+     * are audited.
+     *
+     * @param logEntry
+     *            a partial log entry describing the operation
+     * @return true if the operation is to be audited, false if it is exempt from audit
+     */
+    boolean isAuditRequired(AuditEntry logEntry);
+
+    /**
+     * Commit an audit log entry to the audit log without checking whether it is exempt from audit.
+     *
+     * Use this method for entries of operations that have been checked with {@link #isAuditRequired(AuditEntry)}.
+     *
+     * @param logEntry
+     *            the log entry to commit
+     */
+    void log(AuditEntry logEntry);
+
 }
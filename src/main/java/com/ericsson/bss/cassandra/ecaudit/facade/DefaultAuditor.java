@@ -43,11 +43,23 @@ public class DefaultAuditor implements Auditor
     @Override
     public void audit(AuditEntry logEntry)
     {
-        if (!filter.isFiltered(logEntry))
+        if (isAuditRequired(logEntry))
         {
-            AuditEntry obfuscatedEntry = obfuscator.obfuscate(logEntry);
-            logger.log(obfuscatedEntry);
+            log(logEntry);
         }
     }
 
+    @Override
+    public boolean isAuditRequired(AuditEntry logEntry)
+    {
+        return !filter.isFiltered(logEntry);
+    }
+
+    @Override
+    public void log(AuditEntry logEntry)
+    {
+        AuditEntry obfuscatedEntry = obfuscator.obfuscate(logEntry);
+        logger.log(obfuscatedEntry);
+    }
+
 }
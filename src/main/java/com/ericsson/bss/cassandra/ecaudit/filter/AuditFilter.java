@@ -25,6 +25,9 @@ public interface AuditFilter {
     /**
      * Return a boolean indicating whether the given log entry is to be exempt from audit logging (i.e. it is filtered).
      *
+     * The decision must only depend on the client, user, permissions and resource of the entry, since filtering is
+     * done before the operation, status and timestamp of the entry are known.
+     *
      * @param logEntry
      *            the log entry to check if filtered
      * @return true if the log entry is exempt from audit
@@ -15,16 +15,15 @@
 //**********************************************************************
 package com.ericsson.bss.cassandra.ecaudit.filter.role;
 
-import java.util.Map;
 import java.util.Set;
 
 import com.ericsson.bss.cassandra.ecaudit.auth.AuditWhitelistCache;
-import com.ericsson.bss.cassandra.ecaudit.auth.AuditWhitelistManager;
+import com.ericsson.bss.cassandra.ecaudit.auth.WhitelistDecisionCache;
 import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
 import com.ericsson.bss.cassandra.ecaudit.filter.AuditFilter;
 import org.apache.cassandra.auth.IResource;
+import org.apache.cassandra.auth.Permission;
 import org.apache.cassandra.auth.RoleResource;
-import org.apache.cassandra.auth.Roles;
 
 /**
  * A role based white-list filter that exempts users based on custom options on roles in Cassandra.
@@ -35,6 +34,8 @@ public class RoleAuditFilter implements AuditFilter
      * Returns true if the supplied log entry's role or any other role granted to it (directly or indirectly) is
      * white-listed for the log entry's specified operation and resource.
      *
+     * Decisions are cached per primary role, resource and permissions by the {@link WhitelistDecisionCache}.
+     *
      * @param logEntry
      *            the log entry specifying the primary role as well as operation and resource
      * @return true if the operation is white-listed, false otherwise
@@ -43,58 +44,11 @@ public class RoleAuditFilter implements AuditFilter
     public boolean isFiltered(AuditEntry logEntry)
     {
         RoleResource primaryRole = RoleResource.role(logEntry.getUser());
-        for (RoleResource role : Roles.getRoles(primaryRole))
-        {
-            Map<String, Set<IResource>> roleOptions = AuditWhitelistCache.getCustomOptions(role);
-            if (isResourceOperationWhitelisted(roleOptions, logEntry.getResource()))
-            {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    /**
-     * Returns true if the supplied option map is white-listing the specified resource.
-     *
-     * @param roleOptions
-     *            the role options as stored in Cassandra
-     * @param operationResource
-     *            the resource being accessed
-     * @return true if the resource is white-listed, false otherwise
-     */
-    boolean isResourceOperationWhitelisted(Map<String, Set<IResource>> roleOptions, IResource operationResource)
-    {
-        Set<IResource> whitelistResources = roleOptions.get(AuditWhitelistManager.OPTION_AUDIT_WHITELIST_ALL);
-        if (whitelistResources == null)
-        {
-            return false;
-        }
-
-        for (IResource whitelistResource : whitelistResources)
-        {
-            if (isResourceAccepted(whitelistResource, operationResource))
-            {
-                return true;
-            }
-        }
-
-        return false;
+        return WhitelistDecisionCache.isWhitelisted(primaryRole, logEntry.getResource(), logEntry.getPermissions(), RoleAuditFilter::isRoleWhitelisted);
     }
 
-    private boolean isResourceAccepted(IResource whitelistResource, IResource operationResource)
+    private static boolean isRoleWhitelisted(RoleResource primaryRole, IResource operationResource, Set<Permission> permissions)
     {
-        if (whitelistResource.equals(operationResource))
-        {
-            return true;
-        }
-
-        if (operationResource.hasParent())
-        {
-            return isResourceAccepted(whitelistResource, operationResource.getParent());
-        }
-
-        return false;
+        return AuditWhitelistCache.getWhitelist(primaryRole).isWhitelisted(operationResource, permissions);
     }
 }
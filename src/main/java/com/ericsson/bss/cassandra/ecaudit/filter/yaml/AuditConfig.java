@@ -23,7 +23,8 @@ import java.util.List;
  */
 public final class AuditConfig
 {
-    private List<String> whitelist;
+    private List<String> whitelist = Collections.emptyList();
+    private String log_format; // NOSONAR name must match the YAML property
 
     /**
      * Get the user whitelist in this configuration
@@ -43,4 +44,23 @@ public final class AuditConfig
     {
         this.whitelist = whitelist != null ? whitelist : Collections.<String> emptyList();
     }
+
+    /**
+     * Get the audit log format template in this configuration
+     * @return the log format template, or null if not configured
+     */
+    public String getLog_format() // NOSONAR name must match the YAML property
+    {
+        return log_format;
+    }
+
+    /**
+     * Set the audit log format template in this configuration
+     * @param log_format
+     *            the log format template
+     */
+    public void setLog_format(String log_format) // NOSONAR name must match the YAML property
+    {
+        this.log_format = log_format;
+    }
 }
@@ -89,6 +89,29 @@ public final class AuditYamlConfigurationLoader implements AuditConfigurationLoa
         }
     }
 
+    /**
+     * Check if the configuration file exists.
+     *
+     * The configuration file is only required by YAML based whitelists, other parts of the configuration are optional.
+     *
+     * @return true if the configuration file exists
+     */
+    public boolean configExists()
+    {
+        String propertiesPath = properties.getProperty(PROPERTY_CONFIG_FILE, DEFAULT_CONFIG_FILE);
+        return !propertiesPath.isEmpty() && new File(propertiesPath).isFile();
+    }
+
+    /**
+     * Get the configuration file, whether it exists or not.
+     *
+     * @return the configuration file
+     */
+    public File getConfigFile()
+    {
+        return new File(properties.getProperty(PROPERTY_CONFIG_FILE, DEFAULT_CONFIG_FILE));
+    }
+
     private static URL getConfigURL(Properties properties)
     {
         String propertiesPath = properties.getProperty(PROPERTY_CONFIG_FILE, DEFAULT_CONFIG_FILE);
@@ -0,0 +1,88 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.filter.yaml;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.concurrent.ScheduledExecutors;
+
+/**
+ * Polls a configuration file and notifies a listener when its modification time or size changes.
+ *
+ * The listener is called on the polling thread, off the request path. If the listener fails, the failure is logged
+ * and the listener is called again on the next change.
+ */
+class ConfigurationFileWatcher implements Runnable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ConfigurationFileWatcher.class);
+
+    private final File file;
+    private final Runnable listener;
+
+    private long lastModified;
+    private long length;
+
+    // Visible for testing
+    ConfigurationFileWatcher(File file, Runnable listener)
+    {
+        this.file = file;
+        this.listener = listener;
+        this.lastModified = file.lastModified();
+        this.length = file.length();
+    }
+
+    /**
+     * Start polling a configuration file on the optional tasks executor of Cassandra.
+     *
+     * @param file           the file to watch
+     * @param intervalMillis the time between polls in milliseconds
+     * @param listener       called when the file has changed
+     * @return the watcher
+     */
+    static ConfigurationFileWatcher watch(File file, long intervalMillis, Runnable listener)
+    {
+        ConfigurationFileWatcher watcher = new ConfigurationFileWatcher(file, listener);
+        ScheduledExecutors.optionalTasks.scheduleWithFixedDelay(watcher, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        LOG.info("Watching {} for changes every {} ms", file, intervalMillis);
+        return watcher;
+    }
+
+    @Override
+    public void run()
+    {
+        long currentLastModified = file.lastModified();
+        long currentLength = file.length();
+        if (currentLastModified == lastModified && currentLength == length)
+        {
+            return;
+        }
+
+        lastModified = currentLastModified;
+        length = currentLength;
+        try
+        {
+            listener.run();
+        }
+        catch (RuntimeException e)
+        {
+            LOG.warn("Failed to reload {}, keeping current configuration", file, e);
+        }
+    }
+}
@@ -15,8 +15,11 @@
 //**********************************************************************
 package com.ericsson.bss.cassandra.ecaudit.filter.yaml;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.ericsson.bss.cassandra.ecaudit.auth.ConnectionResource;
 import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
@@ -24,10 +27,17 @@ import com.ericsson.bss.cassandra.ecaudit.filter.AuditFilter;
 
 /**
  * A simple whitelist filter that exempts certain users from being audited by having them in a whitelist.
+ *
+ * The whitelist is kept in a hash set which may be replaced when the configuration is reloaded, so readers never
+ * block.
  */
 public class YamlAuditFilter implements AuditFilter
 {
-    private final List<String> whitelist;
+    private static final Logger LOG = LoggerFactory.getLogger(YamlAuditFilter.class);
+
+    private final AuditConfigurationLoader configurationLoader;
+
+    private volatile Set<String> whitelist;
 
     /**
      * Create a new instance of {@link YamlAuditFilter}.
@@ -37,16 +47,36 @@ public class YamlAuditFilter implements AuditFilter
         this(AuditYamlConfigurationLoader.withSystemProperties());
     }
 
+    /**
+     * Create a new instance of {@link YamlAuditFilter} which reloads the whitelist when the configuration file changes.
+     *
+     * @param reloadIntervalMillis
+     *            the time between checks for changes of the configuration file in milliseconds, or 0 to never reload
+     */
+    public YamlAuditFilter(long reloadIntervalMillis)
+    {
+        this(AuditYamlConfigurationLoader.withSystemProperties(), reloadIntervalMillis);
+    }
+
+    private YamlAuditFilter(AuditYamlConfigurationLoader configurationLoader, long reloadIntervalMillis)
+    {
+        this(configurationLoader);
+        if (reloadIntervalMillis > 0)
+        {
+            ConfigurationFileWatcher.watch(configurationLoader.getConfigFile(), reloadIntervalMillis, this::reload);
+        }
+    }
+
     /**
      * Create a new instance of {@link YamlAuditFilter}.
      *
-     * @param config
+     * @param configurationLoader
      *            the configuration to load the whitelist from
      */
-    YamlAuditFilter(AuditConfigurationLoader configuratoinLoader)
+    YamlAuditFilter(AuditConfigurationLoader configurationLoader)
     {
-        AuditConfig config = configuratoinLoader.loadConfig();
-        whitelist = new ArrayList<>(config.getWhitelist());
+        this.configurationLoader = configurationLoader;
+        this.whitelist = loadWhitelist();
     }
 
     @Override
@@ -62,4 +92,23 @@ public class YamlAuditFilter implements AuditFilter
         return whitelist.contains(user);
     }
 
+    /**
+     * Load the whitelist from the configuration again and replace the current whitelist.
+     *
+     * The current whitelist is kept if the configuration cannot be loaded.
+     */
+    void reload()
+    {
+        Set<String> reloadedWhitelist = loadWhitelist();
+        if (!reloadedWhitelist.equals(whitelist))
+        {
+            LOG.info("Audit whitelist reloaded with {} user(s)", reloadedWhitelist.size());
+        }
+        whitelist = reloadedWhitelist;
+    }
+
+    private Set<String> loadWhitelist()
+    {
+        return ImmutableSet.copyOf(configurationLoader.loadConfig().getWhitelist());
+    }
 }
@@ -32,7 +32,18 @@ public class YamlAndRoleAuditFilter implements AuditFilter
 
     public YamlAndRoleAuditFilter()
     {
-        this(new YamlAuditFilter(), new RoleAuditFilter());
+        this(new YamlAuditFilter());
+    }
+
+    /**
+     * Create a new instance combining the given YAML filter with a role based filter.
+     *
+     * @param yamlFilter
+     *            the YAML filter to use
+     */
+    public YamlAndRoleAuditFilter(YamlAuditFilter yamlFilter)
+    {
+        this(yamlFilter, new RoleAuditFilter());
     }
 
     // Visible for testing
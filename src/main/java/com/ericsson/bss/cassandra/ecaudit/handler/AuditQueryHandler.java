@@ -159,7 +159,8 @@ public class AuditQueryHandler implements QueryHandler
             throws RequestValidationException
     {
         Prepared prepared = wrappedQueryHandler.prepare(query, state, customPayload);
-        auditAdapter.mapIdToQuery(prepared.statementId, query);
+        ParsedStatement.Prepared parsedPrepared = wrappedQueryHandler.getPrepared(prepared.statementId);
+        auditAdapter.mapIdToStatement(prepared.statementId, query, parsedPrepared != null ? parsedPrepared.statement : null);
 
         return prepared;
     }
@@ -170,6 +171,7 @@ public class AuditQueryHandler implements QueryHandler
         ParsedStatement.Prepared prepared = wrappedQueryHandler.getPrepared(id);
         if (prepared == null)
         {
+            auditAdapter.unmapId(id);
             return null; // Return null to client, will trigger a new attempt
         }
 
@@ -0,0 +1,409 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.facade.CassandraAuditException;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+
+/**
+ * Implements an {@link AuditLogger} that moves formatting and writing of audit records off the request thread.
+ *
+ * Entries are published into a preallocated {@link RingBuffer} and written by one or more consumer threads using a
+ * delegate {@link AuditLogger}. With a single consumer thread, records are written in the same order as they were
+ * published. With more than one consumer thread the order between records may change.
+ *
+ * The operation string is resolved on the calling thread since bound values of prepared statements may refer to
+ * request buffers that are released once the request is completed.
+ *
+ * When the buffer is full the record is handled according to an {@link OverflowPolicy}. Records written by a spill
+ * logger are not ordered with records written by the delegate logger. The number of pending, dropped and spilled
+ * records as well as the time spent blocked are reported by {@link AsyncAuditLoggerMetrics}.
+ *
+ * Records logged after the logger is closed are dropped, since there are no consumer threads left to write them.
+ */
+public class AsyncAuditLogger implements AuditLogger
+{
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncAuditLogger.class);
+
+    private static final int SPINS_BEFORE_PARK = 100;
+    private static final long PRODUCER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final long CONSUMER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private final AuditLogger delegate;
+    private final RingBuffer<AuditEntry> buffer;
+    private final List<Thread> consumers;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+    private final AuditLogger spillLogger;
+    private final AsyncAuditLoggerMetrics metrics;
+
+    private volatile boolean running = true;
+    private volatile boolean closed = false;
+    private final AtomicBoolean droppedAfterClose = new AtomicBoolean(false);
+
+    /**
+     * Create a new asynchronous audit logger which blocks without timeout when the buffer is full and start its
+     * consumer threads.
+     *
+     * @param delegate   the logger to write entries with
+     * @param bufferSize the number of entries that may be pending in the buffer, rounded up to a power of two
+     * @param threads    the number of consumer threads
+     */
+    public AsyncAuditLogger(AuditLogger delegate, int bufferSize, int threads)
+    {
+        this(newBuilder(delegate).bufferSize(bufferSize).threads(threads));
+    }
+
+    private AsyncAuditLogger(Builder builder)
+    {
+        if (builder.threads < 1)
+        {
+            throw new IllegalArgumentException("Number of audit logger threads must be positive, was " + builder.threads);
+        }
+
+        if (builder.blockTimeoutMillis < 0)
+        {
+            throw new IllegalArgumentException("Audit logger block timeout must not be negative, was " + builder.blockTimeoutMillis);
+        }
+
+        if (builder.overflowPolicy == OverflowPolicy.SPILL && builder.spillLogger == null)
+        {
+            throw new IllegalArgumentException("Audit logger overflow policy SPILL requires a spill logger");
+        }
+
+        this.delegate = builder.delegate;
+        this.buffer = new RingBuffer<>(builder.bufferSize);
+        this.overflowPolicy = builder.overflowPolicy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(builder.blockTimeoutMillis);
+        this.spillLogger = builder.spillLogger;
+        this.metrics = builder.metrics != null
+                       ? builder.metrics
+                       : AsyncAuditLoggerMetrics.register(buffer::size);
+        this.consumers = new ArrayList<>(builder.threads);
+        for (int i = 0; i < builder.threads; i++)
+        {
+            Thread consumer = builder.threadFactory.newThread(this::consume);
+            consumers.add(consumer);
+            consumer.start();
+        }
+
+        LOG.info("Asynchronous audit logger started with buffer size {}, {} thread(s) and overflow policy {}",
+                 buffer.capacity(), builder.threads, overflowPolicy);
+    }
+
+    /**
+     * Create a new {@link Builder} instance.
+     *
+     * @param delegate the logger to write entries with
+     * @return a new instance of {@link Builder}.
+     */
+    public static AsyncAuditLogger.Builder newBuilder(AuditLogger delegate)
+    {
+        return new Builder(delegate);
+    }
+
+    @Override
+    public void log(AuditEntry logEntry)
+    {
+        // Resolve the operation string while request buffers are still valid, see class documentation
+        logEntry.getOperation().getOperationString();
+
+        if (!running)
+        {
+            dropAfterClose();
+            return;
+        }
+
+        if (buffer.offer(logEntry))
+        {
+            if (closed)
+            {
+                // Closed after the check above, nobody else will drain the buffer
+                dropPending();
+            }
+            return;
+        }
+
+        switch (overflowPolicy)
+        {
+        case BLOCK:
+            block(logEntry);
+            break;
+        case DROP_NEWEST:
+            metrics.markDropped();
+            break;
+        case DROP_OLDEST:
+            dropOldest(logEntry);
+            break;
+        case SPILL:
+            spillLogger.log(logEntry);
+            metrics.markSpilled();
+            break;
+        default:
+            throw new IllegalStateException("Unknown overflow policy " + overflowPolicy);
+        }
+    }
+
+    private void block(AuditEntry logEntry)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            while (!buffer.offer(logEntry))
+            {
+                if (blockTimeoutNanos > 0 && System.nanoTime() - start >= blockTimeoutNanos)
+                {
+                    metrics.markDropped();
+                    throw new CassandraAuditException("Timed out waiting for space in audit buffer");
+                }
+                LockSupport.parkNanos(PRODUCER_PARK_NANOS);
+            }
+        }
+        finally
+        {
+            metrics.markBlocked(System.nanoTime() - start);
+        }
+    }
+
+    private void dropOldest(AuditEntry logEntry)
+    {
+        while (!buffer.offer(logEntry))
+        {
+            if (buffer.poll() != null)
+            {
+                metrics.markDropped();
+            }
+        }
+    }
+
+    private void dropAfterClose()
+    {
+        metrics.markDropped();
+        if (droppedAfterClose.compareAndSet(false, true))
+        {
+            LOG.warn("Asynchronous audit logger is closed, dropping audit records");
+        }
+    }
+
+    private int dropPending()
+    {
+        int dropped = 0;
+        while (buffer.poll() != null)
+        {
+            metrics.markDropped();
+            dropped++;
+        }
+        return dropped;
+    }
+
+    /**
+     * Stop the consumer threads once all pending entries have been written and close the delegate and spill loggers.
+     *
+     * Entries which are still pending when the consumer threads have stopped, or which are logged concurrently with
+     * closing, are counted as dropped.
+     */
+    @Override
+    public void close()
+    {
+        running = false;
+        try
+        {
+            joinConsumers();
+        }
+        finally
+        {
+            closed = true;
+            int dropped = dropPending();
+            if (dropped > 0)
+            {
+                LOG.warn("Asynchronous audit logger stopped with {} pending entries", dropped);
+            }
+
+            try
+            {
+                delegate.close();
+            }
+            finally
+            {
+                if (spillLogger != null)
+                {
+                    spillLogger.close();
+                }
+            }
+        }
+    }
+
+    private void joinConsumers()
+    {
+        for (Thread consumer : consumers)
+        {
+            try
+            {
+                consumer.join(SHUTDOWN_TIMEOUT_MILLIS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Visible for testing
+    int pendingEntries()
+    {
+        return buffer.size();
+    }
+
+    private void consume()
+    {
+        int idleSpins = 0;
+        while (running || !buffer.isEmpty())
+        {
+            AuditEntry logEntry = buffer.poll();
+            if (logEntry != null)
+            {
+                idleSpins = 0;
+                write(logEntry);
+            }
+            else if (idleSpins < SPINS_BEFORE_PARK)
+            {
+                idleSpins++;
+                Thread.yield();
+            }
+            else
+            {
+                LockSupport.parkNanos(CONSUMER_PARK_NANOS);
+            }
+        }
+    }
+
+    private void write(AuditEntry logEntry)
+    {
+        try
+        {
+            delegate.log(logEntry);
+        }
+        catch (RuntimeException e)
+        {
+            LOG.error("Failed to write audit record", e);
+        }
+    }
+
+    /**
+     * Builder class for {@link AsyncAuditLogger} instances.
+     */
+    public static class Builder
+    {
+        private static final int DEFAULT_BUFFER_SIZE = 65536;
+
+        private final AuditLogger delegate;
+        private int bufferSize = DEFAULT_BUFFER_SIZE;
+        private int threads = 1;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+        private long blockTimeoutMillis = 0;
+        private AuditLogger spillLogger;
+        private ThreadFactory threadFactory = new NamedThreadFactory("AuditLogger");
+        private AsyncAuditLoggerMetrics metrics;
+
+        private Builder(AuditLogger delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        /**
+         * @param bufferSize the number of entries that may be pending in the buffer, rounded up to a power of two
+         * @return this builder instance
+         */
+        public Builder bufferSize(int bufferSize)
+        {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * @param threads the number of consumer threads
+         * @return this builder instance
+         */
+        public Builder threads(int threads)
+        {
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * @param overflowPolicy what to do with records when the buffer is full
+         * @return this builder instance
+         */
+        public Builder overflowPolicy(OverflowPolicy overflowPolicy)
+        {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * @param blockTimeoutMillis the maximum time to wait with {@link OverflowPolicy#BLOCK}, or 0 to wait
+         *                           indefinitely
+         * @return this builder instance
+         */
+        public Builder blockTimeoutMillis(long blockTimeoutMillis)
+        {
+            this.blockTimeoutMillis = blockTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * @param spillLogger the logger to write records with when using {@link OverflowPolicy#SPILL}
+         * @return this builder instance
+         */
+        public Builder spillLogger(AuditLogger spillLogger)
+        {
+            this.spillLogger = spillLogger;
+            return this;
+        }
+
+        // Visible for testing
+        Builder threadFactory(ThreadFactory threadFactory)
+        {
+            this.threadFactory = threadFactory;
+            return this;
+        }
+
+        // Visible for testing
+        Builder metrics(AsyncAuditLoggerMetrics metrics)
+        {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public AsyncAuditLogger build()
+        {
+            return new AsyncAuditLogger(this);
+        }
+    }
+}
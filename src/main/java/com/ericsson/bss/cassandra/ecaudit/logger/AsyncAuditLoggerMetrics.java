@@ -0,0 +1,87 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
+import org.apache.cassandra.metrics.CassandraMetricsRegistry;
+
+/**
+ * Metrics of the {@link AsyncAuditLogger}, exposed as MBeans of type AsyncAuditLogger.
+ */
+class AsyncAuditLoggerMetrics
+{
+    private static final String GROUP_NAME = "com.ericsson.bss.cassandra.ecaudit";
+    private static final String TYPE_NAME = "AsyncAuditLogger";
+
+    static final CassandraMetricsRegistry.MetricName PENDING_RECORDS = metricName("PendingRecords");
+    static final CassandraMetricsRegistry.MetricName DROPPED_RECORDS = metricName("DroppedRecords");
+    static final CassandraMetricsRegistry.MetricName SPILLED_RECORDS = metricName("SpilledRecords");
+    static final CassandraMetricsRegistry.MetricName BLOCKED_TIME = metricName("BlockedTime");
+
+    private final Counter droppedRecords;
+    private final Counter spilledRecords;
+    private final Timer blockedTime;
+
+    // Visible for testing
+    AsyncAuditLoggerMetrics(Counter droppedRecords, Counter spilledRecords, Timer blockedTime)
+    {
+        this.droppedRecords = droppedRecords;
+        this.spilledRecords = spilledRecords;
+        this.blockedTime = blockedTime;
+    }
+
+    /**
+     * Register metrics in the Cassandra metrics registry, replacing the pending records gauge of any previous
+     * instance.
+     *
+     * @param pendingRecords supplier of the number of records waiting in the buffer
+     * @return the registered metrics
+     */
+    static AsyncAuditLoggerMetrics register(IntSupplier pendingRecords)
+    {
+        CassandraMetricsRegistry.Metrics.remove(PENDING_RECORDS);
+        CassandraMetricsRegistry.Metrics.register(PENDING_RECORDS, (Gauge<Integer>) pendingRecords::getAsInt);
+
+        return new AsyncAuditLoggerMetrics(CassandraMetricsRegistry.Metrics.counter(DROPPED_RECORDS),
+                                           CassandraMetricsRegistry.Metrics.counter(SPILLED_RECORDS),
+                                           CassandraMetricsRegistry.Metrics.timer(BLOCKED_TIME));
+    }
+
+    void markDropped()
+    {
+        droppedRecords.inc();
+    }
+
+    void markSpilled()
+    {
+        spilledRecords.inc();
+    }
+
+    void markBlocked(long nanos)
+    {
+        blockedTime.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static CassandraMetricsRegistry.MetricName metricName(String name)
+    {
+        return new CassandraMetricsRegistry.MetricName(GROUP_NAME, TYPE_NAME, name);
+    }
+}
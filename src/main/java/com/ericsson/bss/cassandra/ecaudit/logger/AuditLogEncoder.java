@@ -0,0 +1,167 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.encoder.EncoderBase;
+
+/**
+ * A LOGBack encoder which writes audit records as UTF-8 without intermediate strings.
+ *
+ * Records are written in the same format as the {@code %d{HH:mm:ss.SSS} - %msg%n} pattern, but the time and message
+ * are encoded directly into a buffer which is reused between events. In contrast to the default pattern encoder this
+ * avoids creating a formatted string and a byte array for each record.
+ *
+ * The encoder relies on the appender to serialize calls, which is the case for all output stream appenders.
+ */
+public class AuditLogEncoder extends EncoderBase<ILoggingEvent>
+{
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 65536;
+    private static final int TIME_SIZE = "HH:mm:ss.".length();
+    private static final byte[] SEPARATOR = { ' ', '-', ' ' };
+
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final byte[] time = new byte[TIME_SIZE];
+    private long timeSecond = Long.MIN_VALUE;
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private boolean immediateFlush = true;
+
+    public void setImmediateFlush(boolean immediateFlush)
+    {
+        this.immediateFlush = immediateFlush;
+    }
+
+    public boolean isImmediateFlush()
+    {
+        return immediateFlush;
+    }
+
+    @Override
+    public void doEncode(ILoggingEvent event) throws IOException
+    {
+        String message = event.getFormattedMessage();
+        ensureCapacity(TIME_SIZE + 3 + SEPARATOR.length + 3 * message.length() + 1);
+
+        int position = writeTime(event.getTimeStamp());
+        System.arraycopy(SEPARATOR, 0, buffer, position, SEPARATOR.length);
+        position += SEPARATOR.length;
+        position = writeUtf8(message, buffer, position);
+        buffer[position++] = '\n';
+
+        outputStream.write(buffer, 0, position);
+        if (immediateFlush)
+        {
+            outputStream.flush();
+        }
+
+        if (buffer.length > MAX_RETAINED_BUFFER_SIZE)
+        {
+            buffer = new byte[INITIAL_BUFFER_SIZE];
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        outputStream.flush();
+    }
+
+    private void ensureCapacity(int size)
+    {
+        if (buffer.length < size)
+        {
+            buffer = new byte[size];
+        }
+    }
+
+    private int writeTime(long timestamp)
+    {
+        long second = Math.floorDiv(timestamp, 1000L);
+        if (second != timeSecond)
+        {
+            LocalTime localTime = Instant.ofEpochSecond(second).atZone(zone).toLocalTime();
+            writeDigits(localTime.getHour(), 2, time, 0);
+            time[2] = ':';
+            writeDigits(localTime.getMinute(), 2, time, 3);
+            time[5] = ':';
+            writeDigits(localTime.getSecond(), 2, time, 6);
+            time[8] = '.';
+            timeSecond = second;
+        }
+
+        System.arraycopy(time, 0, buffer, 0, TIME_SIZE);
+        writeDigits((int) Math.floorMod(timestamp, 1000L), 3, buffer, TIME_SIZE);
+        return TIME_SIZE + 3;
+    }
+
+    private static void writeDigits(int value, int digits, byte[] destination, int offset)
+    {
+        for (int i = offset + digits - 1; i >= offset; i--)
+        {
+            destination[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * Encode a string as UTF-8 into a byte array, replacing unpaired surrogates with '?'.
+     *
+     * The destination must have room for three bytes per character of the string.
+     */
+    static int writeUtf8(String value, byte[] destination, int offset)
+    {
+        int position = offset;
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if (c < 0x80)
+            {
+                destination[position++] = (byte) c;
+            }
+            else if (c < 0x800)
+            {
+                destination[position++] = (byte) (0xC0 | (c >> 6));
+                destination[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                destination[position++] = (byte) (0xF0 | (codePoint >> 18));
+                destination[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                destination[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                destination[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            }
+            else if (Character.isSurrogate(c))
+            {
+                destination[position++] = (byte) '?';
+            }
+            else
+            {
+                destination[position++] = (byte) (0xE0 | (c >> 12));
+                destination[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                destination[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return position;
+    }
+}
@@ -0,0 +1,490 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import org.apache.cassandra.auth.DataResource;
+import org.apache.cassandra.auth.IResource;
+import org.apache.cassandra.auth.Permission;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.utils.FBUtilities;
+
+/**
+ * A format of audit log messages, compiled from a template into a sequence of field writers.
+ *
+ * The template is plain text with fields on the form {@code ${NAME}}. Text within {@code {?} and {@code ?}} is an
+ * optional section which is only written if all fields within the section are present in the entry. Fields outside
+ * of optional sections which are not present are written as empty text.
+ *
+ * The following fields are supported:
+ * <ul>
+ * <li>{@code CLIENT} - the client address</li>
+ * <li>{@code USER} - the user name</li>
+ * <li>{@code BATCH_ID} - the batch id, present for batch statements</li>
+ * <li>{@code STATUS} - the status of the operation, ATTEMPT or FAILED</li>
+ * <li>{@code OPERATION} - the operation, i.e. the CQL statement</li>
+ * <li>{@code TIMESTAMP} - the time of the request in milliseconds since epoch</li>
+ * <li>{@code KEYSPACE} - the keyspace of the resource, present for keyspace and table resources</li>
+ * <li>{@code TABLE} - the table of the resource, present for table resources</li>
+ * <li>{@code PERMISSIONS} - comma separated permissions needed for the operation</li>
+ * <li>{@code COORDINATOR} - the broadcast address of this node</li>
+ * </ul>
+ *
+ * The template is parsed once and formatting an entry is a loop over the compiled writers.
+ */
+public final class AuditLogFormat
+{
+    /**
+     * The default template, which is the format used since the first version of ecAudit.
+     */
+    public static final String DEFAULT_TEMPLATE = "client:'${CLIENT}'|user:'${USER}'{?|batchId:'${BATCH_ID}'?}|status:'${STATUS}'|operation:'${OPERATION}'";
+
+    private static final AuditLogFormat DEFAULT = parse(DEFAULT_TEMPLATE);
+
+    private static final String FIELD_START = "${";
+    private static final String FIELD_END = "}";
+    private static final String SECTION_START = "{?";
+    private static final String SECTION_END = "?}";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final FieldWriter[] writers;
+
+    private AuditLogFormat(FieldWriter[] writers)
+    {
+        this.writers = writers;
+    }
+
+    /**
+     * Get the default format.
+     *
+     * @return the format of {@link #DEFAULT_TEMPLATE}
+     */
+    public static AuditLogFormat getDefault()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Append the log message of an audit entry to a builder.
+     *
+     * @param logEntry the entry to format
+     * @param builder  the builder to append the message to
+     */
+    public void format(AuditEntry logEntry, StringBuilder builder)
+    {
+        for (FieldWriter writer : writers)
+        {
+            writer.write(logEntry, builder);
+        }
+    }
+
+    /**
+     * Compile a template into a format.
+     *
+     * @param template the template
+     * @return the compiled format
+     * @throws ConfigurationException if the template is invalid
+     */
+    public static AuditLogFormat parse(String template)
+    {
+        return parse(template, FBUtilities::getBroadcastAddress);
+    }
+
+    // Visible for testing
+    static AuditLogFormat parse(String template, Supplier<InetAddress> coordinator)
+    {
+        List<FieldWriter> writers = new ArrayList<>();
+        List<FieldWriter> section = null;
+        StringBuilder literal = new StringBuilder();
+
+        int position = 0;
+        while (position < template.length())
+        {
+            if (template.startsWith(FIELD_START, position))
+            {
+                int end = template.indexOf(FIELD_END, position + FIELD_START.length());
+                if (end < 0)
+                {
+                    throw new ConfigurationException("Unterminated field in audit log format: " + template);
+                }
+                addLiteral(literal, section != null ? section : writers);
+                String name = template.substring(position + FIELD_START.length(), end);
+                (section != null ? section : writers).add(field(name, coordinator));
+                position = end + FIELD_END.length();
+            }
+            else if (template.startsWith(SECTION_START, position))
+            {
+                if (section != null)
+                {
+                    throw new ConfigurationException("Nested optional sections in audit log format: " + template);
+                }
+                addLiteral(literal, writers);
+                section = new ArrayList<>();
+                position += SECTION_START.length();
+            }
+            else if (template.startsWith(SECTION_END, position) && section != null)
+            {
+                addLiteral(literal, section);
+                writers.add(new SectionWriter(section.toArray(new FieldWriter[0])));
+                section = null;
+                position += SECTION_END.length();
+            }
+            else
+            {
+                literal.append(template.charAt(position));
+                position++;
+            }
+        }
+
+        if (section != null)
+        {
+            throw new ConfigurationException("Unterminated optional section in audit log format: " + template);
+        }
+        addLiteral(literal, writers);
+
+        return new AuditLogFormat(writers.toArray(new FieldWriter[0]));
+    }
+
+    private static void addLiteral(StringBuilder literal, List<FieldWriter> writers)
+    {
+        if (literal.length() > 0)
+        {
+            writers.add(new LiteralWriter(literal.toString()));
+            literal.setLength(0);
+        }
+    }
+
+    private static FieldWriter field(String name, Supplier<InetAddress> coordinator)
+    {
+        if ("COORDINATOR".equals(name))
+        {
+            return new CoordinatorWriter(coordinator);
+        }
+
+        try
+        {
+            return Field.valueOf(name);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new ConfigurationException(String.format("Unknown field ${%s} in audit log format, supported fields are %s and COORDINATOR",
+                                                           name, Arrays.toString(Field.values())), e);
+        }
+    }
+
+    /**
+     * Writes one part of a log message.
+     */
+    interface FieldWriter
+    {
+        /**
+         * @param logEntry the entry to format
+         * @return true if the entry has a value for this writer
+         */
+        boolean isPresent(AuditEntry logEntry);
+
+        /**
+         * Append the value of the entry, if present.
+         *
+         * @param logEntry the entry to format
+         * @param builder  the builder to append to
+         */
+        void write(AuditEntry logEntry, StringBuilder builder);
+    }
+
+    private static final class LiteralWriter implements FieldWriter
+    {
+        private final String text;
+
+        LiteralWriter(String text)
+        {
+            this.text = text;
+        }
+
+        @Override
+        public boolean isPresent(AuditEntry logEntry)
+        {
+            return true;
+        }
+
+        @Override
+        public void write(AuditEntry logEntry, StringBuilder builder)
+        {
+            builder.append(text);
+        }
+    }
+
+    private static final class SectionWriter implements FieldWriter
+    {
+        private final FieldWriter[] writers;
+
+        SectionWriter(FieldWriter[] writers)
+        {
+            this.writers = writers;
+        }
+
+        @Override
+        public boolean isPresent(AuditEntry logEntry)
+        {
+            for (FieldWriter writer : writers)
+            {
+                if (!writer.isPresent(logEntry))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void write(AuditEntry logEntry, StringBuilder builder)
+        {
+            if (isPresent(logEntry))
+            {
+                for (FieldWriter writer : writers)
+                {
+                    writer.write(logEntry, builder);
+                }
+            }
+        }
+    }
+
+    private static final class CoordinatorWriter implements FieldWriter
+    {
+        private final Supplier<InetAddress> coordinator;
+        private volatile String hostAddress;
+
+        CoordinatorWriter(Supplier<InetAddress> coordinator)
+        {
+            this.coordinator = coordinator;
+        }
+
+        @Override
+        public boolean isPresent(AuditEntry logEntry)
+        {
+            return true;
+        }
+
+        @Override
+        public void write(AuditEntry logEntry, StringBuilder builder)
+        {
+            String address = hostAddress;
+            if (address == null)
+            {
+                // Resolved on first use since the broadcast address is not known until Cassandra is configured
+                address = coordinator.get().getHostAddress();
+                hostAddress = address;
+            }
+            builder.append(address);
+        }
+    }
+
+    private enum Field implements FieldWriter
+    {
+        CLIENT
+        {
+            @Override
+            public boolean isPresent(AuditEntry logEntry)
+            {
+                return logEntry.getClientAddress() != null;
+            }
+
+            @Override
+            public void write(AuditEntry logEntry, StringBuilder builder)
+            {
+                if (isPresent(logEntry))
+                {
+                    builder.append(HostAddressCache.getHostAddress(logEntry.getClientAddress()));
+                }
+            }
+        },
+        USER
+        {
+            @Override
+            public boolean isPresent(AuditEntry logEntry)
+            {
+                return logEntry.getUser() != null;
+            }
+
+            @Override
+            public void write(AuditEntry logEntry, StringBuilder builder)
+            {
+                builder.append(logEntry.getUser());
+            }
+        },
+        BATCH_ID
+        {
+            @Override
+            public boolean isPresent(AuditEntry logEntry)
+            {
+                return logEntry.getBatchId().isPresent();
+            }
+
+            @Override
+            public void write(AuditEntry logEntry, StringBuilder builder)
+            {
+                UUID batchId = logEntry.getBatchId().orElse(null);
+                if (batchId != null)
+                {
+                    appendUuid(batchId, builder);
+                }
+            }
+        },
+        STATUS
+        {
+            @Override
+            public boolean isPresent(AuditEntry logEntry)
+            {
+                return logEntry.getStatus() != null;
+            }
+
+            @Override
+            public void write(AuditEntry logEntry, StringBuilder builder)
+            {
+                builder.append(logEntry.getStatus());
+            }
+        },
+        OPERATION
+        {
+            @Override
+            public boolean isPresent(AuditEntry logEntry)
+            {
+                return logEntry.getOperation() != null;
+            }
+
+            @Override
+            public void write(AuditEntry logEntry, StringBuilder builder)
+            {
+                if (isPresent(logEntry))
+                {
+                    builder.append(logEntry.getOperation().getOperationString());
+                }
+            }
+        },
+        TIMESTAMP
+        {
+            @Override
+            public boolean isPresent(AuditEntry logEntry)
+            {
+                return true;
+            }
+
+            @Override
+            public void write(AuditEntry logEntry, StringBuilder builder)
+            {
+                builder.append(logEntry.getTimestamp());
+            }
+        },
+        KEYSPACE
+        {
+            @Override
+            public boolean isPresent(AuditEntry logEntry)
+            {
+                IResource resource = logEntry.getResource();
+                return resource instanceof DataResource && !((DataResource) resource).isRootLevel();
+            }
+
+            @Override
+            public void write(AuditEntry logEntry, StringBuilder builder)
+            {
+                if (isPresent(logEntry))
+                {
+                    builder.append(((DataResource) logEntry.getResource()).getKeyspace());
+                }
+            }
+        },
+        TABLE
+        {
+            @Override
+            public boolean isPresent(AuditEntry logEntry)
+            {
+                IResource resource = logEntry.getResource();
+                return resource instanceof DataResource && ((DataResource) resource).isTableLevel();
+            }
+
+            @Override
+            public void write(AuditEntry logEntry, StringBuilder builder)
+            {
+                if (isPresent(logEntry))
+                {
+                    builder.append(((DataResource) logEntry.getResource()).getTable());
+                }
+            }
+        },
+        PERMISSIONS
+        {
+            @Override
+            public boolean isPresent(AuditEntry logEntry)
+            {
+                Set<Permission> permissions = logEntry.getPermissions();
+                return permissions != null && !permissions.isEmpty();
+            }
+
+            @Override
+            public void write(AuditEntry logEntry, StringBuilder builder)
+            {
+                if (isPresent(logEntry))
+                {
+                    boolean first = true;
+                    for (Permission permission : logEntry.getPermissions())
+                    {
+                        if (!first)
+                        {
+                            builder.append(',');
+                        }
+                        builder.append(permission.name());
+                        first = false;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Append a UUID in the same format as {@link UUID#toString()} without creating intermediate strings.
+     */
+    private static void appendUuid(UUID uuid, StringBuilder builder)
+    {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        appendHex(msb >>> 32, 8, builder);
+        builder.append('-');
+        appendHex(msb >>> 16, 4, builder);
+        builder.append('-');
+        appendHex(msb, 4, builder);
+        builder.append('-');
+        appendHex(lsb >>> 48, 4, builder);
+        builder.append('-');
+        appendHex(lsb, 12, builder);
+    }
+
+    private static void appendHex(long value, int digits, StringBuilder builder)
+    {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4)
+        {
+            builder.append(HEX_DIGITS[(int) (value >>> shift) & 0xF]);
+        }
+    }
+}
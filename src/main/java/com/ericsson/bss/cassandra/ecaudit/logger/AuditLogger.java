@@ -29,4 +29,14 @@ public interface AuditLogger {
      *            the entry to commit to the log
      */
     void log(AuditEntry logEntry);
+
+    /**
+     * Write any pending entries and release resources held by this logger.
+     *
+     * Entries logged after the logger has been closed may be lost.
+     */
+    default void close()
+    {
+        // Nothing to release by default
+    }
 }
@@ -0,0 +1,72 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.net.InetAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the textual representation of client addresses.
+ *
+ * {@link InetAddress#getHostAddress()} creates a new string on each invocation. Since the set of clients connected
+ * to a node is typically small, the rendered address is cached per {@link InetAddress}. The cache is cleared once it
+ * reaches its maximum size to keep memory bounded if many different clients connect over time.
+ */
+final class HostAddressCache
+{
+    static final int MAX_SIZE = 1024;
+
+    private static final ConcurrentMap<InetAddress, String> CACHE = new ConcurrentHashMap<>();
+
+    private HostAddressCache()
+    {
+        // Utility class
+    }
+
+    /**
+     * Get the textual representation of an address.
+     *
+     * @param address the address
+     * @return the same representation as returned by {@link InetAddress#getHostAddress()}
+     */
+    static String getHostAddress(InetAddress address)
+    {
+        String hostAddress = CACHE.get(address);
+        if (hostAddress == null)
+        {
+            if (CACHE.size() >= MAX_SIZE)
+            {
+                CACHE.clear();
+            }
+            hostAddress = address.getHostAddress();
+            CACHE.put(address, hostAddress);
+        }
+        return hostAddress;
+    }
+
+    // Visible for testing
+    static int size()
+    {
+        return CACHE.size();
+    }
+
+    // Visible for testing
+    static void clear()
+    {
+        CACHE.clear();
+    }
+}
@@ -0,0 +1,43 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+/**
+ * Decides what the {@link AsyncAuditLogger} does with a record when its buffer is full.
+ */
+public enum OverflowPolicy
+{
+    /**
+     * Wait for space in the buffer, optionally failing the request after a timeout. No records are lost, at the
+     * expense of request latency.
+     */
+    BLOCK,
+
+    /**
+     * Discard the record being logged.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Discard the oldest record in the buffer to make room for the record being logged.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Write the record to a local spill logger on the calling thread.
+     */
+    SPILL
+}
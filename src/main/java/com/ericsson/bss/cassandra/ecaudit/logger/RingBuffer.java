@@ -0,0 +1,158 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, preallocated and lock-free multi-producer/multi-consumer ring buffer.
+ *
+ * Each slot carries a sequence number which tells whether the slot is free to be claimed by a producer or holds a
+ * published element for a consumer. A producer claims a position with a single CAS on the producer sequence, stores
+ * the element and publishes the slot by advancing its sequence. Consumers operate the same way on the consumer
+ * sequence.
+ *
+ * @param <T> the type of elements held in this buffer
+ */
+class RingBuffer<T>
+{
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<T> elements;
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong producerSequence = new AtomicLong();
+    private final AtomicLong consumerSequence = new AtomicLong();
+
+    /**
+     * Create a new ring buffer.
+     *
+     * @param requestedCapacity the requested capacity, will be rounded up to the nearest power of two
+     */
+    RingBuffer(int requestedCapacity)
+    {
+        if (requestedCapacity < 1)
+        {
+            throw new IllegalArgumentException("Ring buffer capacity must be positive, was " + requestedCapacity);
+        }
+
+        capacity = roundUpToPowerOfTwo(requestedCapacity);
+        mask = capacity - 1;
+        elements = new AtomicReferenceArray<>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+        {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Try to add an element to the buffer.
+     *
+     * @param element the element to add
+     * @return true if the element was added, false if the buffer is full
+     */
+    boolean offer(T element)
+    {
+        long position = producerSequence.get();
+        while (true)
+        {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0)
+            {
+                if (producerSequence.compareAndSet(position, position + 1))
+                {
+                    elements.lazySet(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = producerSequence.get();
+            }
+            else if (difference < 0)
+            {
+                return false;
+            }
+            else
+            {
+                position = producerSequence.get();
+            }
+        }
+    }
+
+    /**
+     * Try to remove the oldest element from the buffer.
+     *
+     * @return the oldest element, or null if the buffer is empty
+     */
+    T poll()
+    {
+        long position = consumerSequence.get();
+        while (true)
+        {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0)
+            {
+                if (consumerSequence.compareAndSet(position, position + 1))
+                {
+                    T element = elements.get(index);
+                    elements.lazySet(index, null);
+                    sequences.set(index, position + capacity);
+                    return element;
+                }
+                position = consumerSequence.get();
+            }
+            else if (difference < 0)
+            {
+                return null;
+            }
+            else
+            {
+                position = consumerSequence.get();
+            }
+        }
+    }
+
+    /**
+     * Get the approximate number of elements in the buffer.
+     *
+     * @return the number of elements
+     */
+    int size()
+    {
+        long size = producerSequence.get() - consumerSequence.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    int capacity()
+    {
+        return capacity;
+    }
+
+    private static int roundUpToPowerOfTwo(int value)
+    {
+        int highestBit = Integer.highestOneBit(value);
+        return highestBit == value ? value : highestBit << 1;
+    }
+}
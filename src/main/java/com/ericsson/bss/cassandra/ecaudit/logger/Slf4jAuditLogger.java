@@ -28,45 +28,86 @@ public class Slf4jAuditLogger implements AuditLogger
     public static final Logger LOG = LoggerFactory.getLogger(Slf4jAuditLogger.class);
 
     public static final String AUDIT_LOGGER_NAME = "ECAUDIT";
+
+    private static final int INITIAL_BUILDER_CAPACITY = 256;
+    private static final int MAX_RETAINED_BUILDER_CAPACITY = 16384;
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_BUILDER_CAPACITY));
+
     private final Logger auditLogger; // NOSONAR
+    private final AuditLogFormat logFormat;
 
     /**
-     * Default constructor, injects logger from {@link LoggerFactory}.
+     * Default constructor, injects logger from {@link LoggerFactory} and uses the default log format.
      */
     public Slf4jAuditLogger()
     {
-        this(LoggerFactory.getLogger(AUDIT_LOGGER_NAME));
+        this(AuditLogFormat.getDefault());
+    }
+
+    /**
+     * Create a new logger with a custom log format, injects logger from {@link LoggerFactory}.
+     *
+     * @param logFormat the format of log messages
+     */
+    public Slf4jAuditLogger(AuditLogFormat logFormat)
+    {
+        this(LoggerFactory.getLogger(AUDIT_LOGGER_NAME), logFormat);
     }
 
     /**
      * Test constructor.
      *
-     * @param logger the logger backend to use for audit logs
+     * @param logger    the logger backend to use for audit logs
+     * @param logFormat the format of log messages
      */
-    Slf4jAuditLogger(Logger logger)
+    Slf4jAuditLogger(Logger logger, AuditLogFormat logFormat)
     {
         auditLogger = logger;
+        this.logFormat = logFormat;
     }
 
     @Override
     public void log(AuditEntry logEntry)
     {
-        auditLogger.info(getLogString(logEntry));
+        auditLogger.info(getLogString(logEntry, logFormat));
     }
 
+    /**
+     * Get the log message of an audit entry in the default log format.
+     *
+     * The message is built in a buffer which is reused by the calling thread.
+     *
+     * @param logEntry the entry to format
+     * @return the log message
+     */
     public static String getLogString(AuditEntry logEntry)
     {
-        StringBuilder builder = new StringBuilder();
+        return getLogString(logEntry, AuditLogFormat.getDefault());
+    }
+
+    /**
+     * Append the log message of an audit entry in the default log format to a builder.
+     *
+     * @param logEntry the entry to format
+     * @param builder  the builder to append the message to
+     */
+    public static void appendLogString(AuditEntry logEntry, StringBuilder builder)
+    {
+        AuditLogFormat.getDefault().format(logEntry, builder);
+    }
+
+    private static String getLogString(AuditEntry logEntry, AuditLogFormat logFormat)
+    {
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+        logFormat.format(logEntry, builder);
+        String logString = builder.toString();
 
-        builder.append("client:'").append(logEntry.getClientAddress().getHostAddress());
-        builder.append("'|user:'").append(logEntry.getUser());
-        if (logEntry.getBatchId().isPresent())
+        if (builder.capacity() > MAX_RETAINED_BUILDER_CAPACITY)
         {
-            builder.append("'|batchId:'").append(logEntry.getBatchId().get());
+            BUILDER.remove();
         }
-        builder.append("'|status:'").append(logEntry.getStatus());
-        builder.append("'|operation:'").append(logEntry.getOperation().getOperationString()).append("'");
 
-        return builder.toString();
+        return logString;
     }
 }
@@ -0,0 +1,149 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.net.InetAddress;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.entry.Status;
+
+/**
+ * Selects decoded {@link AuditEntry} instances based on user, client, status, batch id and time range.
+ *
+ * Criteria which are not set will match any entry.
+ *
+ * Instances are immutable an may only be created using the {@link AuditRecordFilter.Builder}.
+ */
+public class AuditRecordFilter implements Predicate<AuditEntry>
+{
+    private final String user;
+    private final InetAddress client;
+    private final Status status;
+    private final UUID batchId;
+    private final long fromTimestamp;
+    private final long toTimestamp;
+
+    private AuditRecordFilter(Builder builder)
+    {
+        this.user = builder.user;
+        this.client = builder.client;
+        this.status = builder.status;
+        this.batchId = builder.batchId;
+        this.fromTimestamp = builder.fromTimestamp;
+        this.toTimestamp = builder.toTimestamp;
+    }
+
+    @Override
+    public boolean test(AuditEntry logEntry)
+    {
+        return logEntry.getTimestamp() >= fromTimestamp
+               && logEntry.getTimestamp() < toTimestamp
+               && (status == null || status == logEntry.getStatus())
+               && (user == null || user.equals(logEntry.getUser()))
+               && (client == null || client.equals(logEntry.getClientAddress()))
+               && (batchId == null || batchId.equals(logEntry.getBatchId().orElse(null)));
+    }
+
+    /**
+     * @return the first timestamp to include, in milliseconds since epoch
+     */
+    public long getFromTimestamp()
+    {
+        return fromTimestamp;
+    }
+
+    /**
+     * @return the first timestamp to exclude, in milliseconds since epoch
+     */
+    public long getToTimestamp()
+    {
+        return toTimestamp;
+    }
+
+    /**
+     * Create a new {@link Builder} instance.
+     *
+     * @return a new instance of {@link Builder}.
+     */
+    public static AuditRecordFilter.Builder newBuilder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * Builder class for {@link AuditRecordFilter} instances.
+     */
+    public static class Builder
+    {
+        private String user;
+        private InetAddress client;
+        private Status status;
+        private UUID batchId;
+        private long fromTimestamp = Long.MIN_VALUE;
+        private long toTimestamp = Long.MAX_VALUE;
+
+        public Builder user(String user)
+        {
+            this.user = user;
+            return this;
+        }
+
+        public Builder client(InetAddress client)
+        {
+            this.client = client;
+            return this;
+        }
+
+        public Builder status(Status status)
+        {
+            this.status = status;
+            return this;
+        }
+
+        public Builder batch(UUID batchId)
+        {
+            this.batchId = batchId;
+            return this;
+        }
+
+        /**
+         * @param fromTimestamp the first timestamp to include, in milliseconds since epoch
+         * @return this builder instance
+         */
+        public Builder from(long fromTimestamp)
+        {
+            this.fromTimestamp = fromTimestamp;
+            return this;
+        }
+
+        /**
+         * @param toTimestamp the first timestamp to exclude, in milliseconds since epoch
+         * @return this builder instance
+         */
+        public Builder to(long toTimestamp)
+        {
+            this.toTimestamp = toTimestamp;
+            return this;
+        }
+
+        public AuditRecordFilter build()
+        {
+            return new AuditRecordFilter(this);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.logger.Slf4jAuditLogger;
+import org.apache.cassandra.cql3.Json;
+
+/**
+ * Output formats for decoded binary audit records.
+ */
+public enum AuditRecordFormat
+{
+    /**
+     * The timestamp in ISO-8601 format followed by the same message as written by {@link Slf4jAuditLogger}.
+     */
+    TEXT
+    {
+        @Override
+        public String format(AuditEntry logEntry)
+        {
+            return DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochMilli(logEntry.getTimestamp()))
+                   + " - " + Slf4jAuditLogger.getLogString(logEntry);
+        }
+    },
+    /**
+     * One JSON object per record with the same fields as written by {@link Slf4jAuditLogger}.
+     */
+    JSON
+    {
+        @Override
+        public String format(AuditEntry logEntry)
+        {
+            StringBuilder builder = new StringBuilder();
+            builder.append("{\"timestamp\":").append(logEntry.getTimestamp());
+            builder.append(",\"client\":\"").append(logEntry.getClientAddress().getHostAddress());
+            builder.append("\",\"user\":\"").append(Json.quoteAsJsonString(logEntry.getUser()));
+            if (logEntry.getBatchId().isPresent())
+            {
+                builder.append("\",\"batchId\":\"").append(logEntry.getBatchId().get());
+            }
+            builder.append("\",\"status\":\"").append(logEntry.getStatus());
+            builder.append("\",\"operation\":\"").append(Json.quoteAsJsonString(logEntry.getOperation().getOperationString()));
+            builder.append("\"}");
+
+            return builder.toString();
+        }
+    };
+
+    /**
+     * Format a decoded audit entry as a single line.
+     *
+     * @param logEntry the entry to format
+     * @return the formatted entry
+     */
+    public abstract String format(AuditEntry logEntry);
+}
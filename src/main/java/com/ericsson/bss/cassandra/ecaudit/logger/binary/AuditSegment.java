@@ -0,0 +1,378 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import org.apache.cassandra.io.util.FileUtils;
+
+/**
+ * Naming and layout of binary audit segment files.
+ *
+ * A segment file starts with an 8 byte header (magic number, format version, compression and two reserved bytes).
+ *
+ * In an uncompressed segment the header is followed by records as described by {@link BinaryRecordCodec}.
+ *
+ * In a compressed segment the header is followed by independently compressed blocks, each holding a number of whole
+ * records. Each block starts with the compressed and uncompressed length of the block, so blocks can be skipped
+ * without being decompressed.
+ *
+ * A sharded logger writes the segments of each shard in a separate shard directory below the segment directory.
+ */
+public final class AuditSegment
+{
+    public static final int MAGIC = 0x45434155; // "ECAU"
+    public static final byte VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+
+    static final int BLOCK_HEADER_SIZE = 2 * Integer.BYTES;
+
+    private static final String PREFIX = "audit-";
+    private static final String SUFFIX = ".seg";
+    private static final String COMPRESSED_SUFFIX = ".segz";
+    private static final String SHARD_PREFIX = "shard-";
+
+    private AuditSegment()
+    {
+        // Utility class
+    }
+
+    /**
+     * Get the file of an uncompressed segment.
+     *
+     * @param directory the segment directory
+     * @param id        the segment id
+     * @return the segment file
+     */
+    public static File file(File directory, long id)
+    {
+        return new File(directory, String.format("%s%019d%s", PREFIX, id, SUFFIX));
+    }
+
+    /**
+     * Get the file of a compressed segment.
+     *
+     * @param directory the segment directory
+     * @param id        the segment id
+     * @return the compressed segment file
+     */
+    public static File compressedFile(File directory, long id)
+    {
+        return new File(directory, String.format("%s%019d%s", PREFIX, id, COMPRESSED_SUFFIX));
+    }
+
+    /**
+     * Get the directory of a shard.
+     *
+     * @param directory the segment directory
+     * @param shard     the shard number
+     * @return the shard directory
+     */
+    public static File shardDirectory(File directory, int shard)
+    {
+        return new File(directory, String.format("%s%03d", SHARD_PREFIX, shard));
+    }
+
+    /**
+     * @param directory the directory
+     * @return true if the directory is the shard directory of a sharded logger
+     */
+    public static boolean isShardDirectory(File directory)
+    {
+        String name = directory.getName();
+        return name.startsWith(SHARD_PREFIX)
+               && name.length() > SHARD_PREFIX.length()
+               && name.substring(SHARD_PREFIX.length()).chars().allMatch(Character::isDigit);
+    }
+
+    /**
+     * List all shard directories in a segment directory.
+     *
+     * @param directory the segment directory
+     * @return the shard directories, ordered by shard number
+     */
+    public static List<File> listShards(File directory)
+    {
+        File[] shards = directory.listFiles(file -> file.isDirectory() && isShardDirectory(file));
+        if (shards == null)
+        {
+            return Collections.emptyList();
+        }
+
+        Arrays.sort(shards);
+        return Arrays.asList(shards);
+    }
+
+    /**
+     * Get the id of a segment file.
+     *
+     * @param file the segment file
+     * @return the segment id
+     */
+    public static long id(File file)
+    {
+        String name = file.getName();
+        int suffixLength = isCompressed(file) ? COMPRESSED_SUFFIX.length() : SUFFIX.length();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - suffixLength));
+    }
+
+    /**
+     * @param file the segment file
+     * @return true if the file is a compressed segment
+     */
+    public static boolean isCompressed(File file)
+    {
+        return file.getName().endsWith(COMPRESSED_SUFFIX);
+    }
+
+    /**
+     * List all segment files in a directory.
+     *
+     * If a segment exist both compressed and uncompressed, only the compressed segment is listed.
+     *
+     * @param directory the segment directory
+     * @return the segment files, ordered by segment id
+     */
+    public static List<File> list(File directory)
+    {
+        File[] files = directory.listFiles((dir, name) -> isSegment(name));
+        if (files == null)
+        {
+            return Collections.emptyList();
+        }
+
+        Arrays.sort(files, Comparator.comparingLong(AuditSegment::id).thenComparing(file -> !isCompressed(file)));
+
+        List<File> segments = new ArrayList<>(files.length);
+        for (File file : files)
+        {
+            if (segments.isEmpty() || id(segments.get(segments.size() - 1)) != id(file))
+            {
+                segments.add(file);
+            }
+        }
+        return segments;
+    }
+
+    static boolean isSegment(String name)
+    {
+        return isSegment(name, SUFFIX) || isSegment(name, COMPRESSED_SUFFIX);
+    }
+
+    private static boolean isSegment(String name, String suffix)
+    {
+        return name.startsWith(PREFIX) && name.endsWith(suffix) && name.length() > PREFIX.length() + suffix.length();
+    }
+
+    static void writeHeader(ByteBuffer buffer, SegmentCompression compression)
+    {
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.put(compression.id());
+        buffer.put(new byte[HEADER_SIZE - Integer.BYTES - 2 * Byte.BYTES]);
+    }
+
+    /**
+     * Read and verify the header of a segment, leaving the buffer positioned at the first record or block.
+     *
+     * @param buffer the segment buffer
+     * @return the compression of the segment
+     * @throws IOException if the buffer doesn't start with a valid segment header
+     */
+    public static SegmentCompression readHeader(ByteBuffer buffer) throws IOException
+    {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC)
+        {
+            throw new IOException("Not an audit segment");
+        }
+
+        byte version = buffer.get();
+        if (version != VERSION)
+        {
+            throw new IOException("Unsupported audit segment version " + version);
+        }
+
+        SegmentCompression compression = SegmentCompression.fromId(buffer.get());
+        buffer.position(buffer.position() + HEADER_SIZE - Integer.BYTES - 2 * Byte.BYTES);
+        return compression;
+    }
+
+    /**
+     * Map a segment file into memory and decode its records in order.
+     *
+     * Both compressed and uncompressed segments are supported.
+     *
+     * @param file     the segment file
+     * @param consumer the consumer of decoded entries
+     * @throws IOException if the segment can't be read
+     */
+    public static void forEachRecord(File file, Consumer<AuditEntry> consumer) throws IOException
+    {
+        forEachRecord(file, (logEntry, sequence) -> consumer.accept(logEntry));
+    }
+
+    /**
+     * Map a segment file into memory and decode its records in order, together with their sequence numbers.
+     *
+     * Both compressed and uncompressed segments are supported.
+     *
+     * @param file     the segment file
+     * @param consumer the consumer of decoded entries and their sequence numbers
+     * @throws IOException if the segment can't be read
+     */
+    public static void forEachRecord(File file, ObjLongConsumer<AuditEntry> consumer) throws IOException
+    {
+        forEachRecord(file, Long.MIN_VALUE, Long.MAX_VALUE, consumer);
+    }
+
+    /**
+     * Map a segment file into memory and decode records which may be within a time range, together with their sequence
+     * numbers.
+     *
+     * Intervals of records which the {@link AuditSegmentIndex} rules out are skipped. Records outside of the time range
+     * may still be passed to the consumer, so the consumer is expected to filter records by time.
+     *
+     * @param file          the segment file
+     * @param fromTimestamp the first timestamp to include
+     * @param toTimestamp   the first timestamp to exclude
+     * @param consumer      the consumer of decoded entries and their sequence numbers
+     * @throws IOException if the segment can't be read
+     */
+    public static void forEachRecord(File file, long fromTimestamp, long toTimestamp, ObjLongConsumer<AuditEntry> consumer) throws IOException
+    {
+        MappedByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"))
+        {
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+
+        try
+        {
+            SegmentCompression compression = readHeader(buffer);
+            boolean unbounded = fromTimestamp == Long.MIN_VALUE && toTimestamp == Long.MAX_VALUE;
+            List<AuditSegmentIndex.Entry> index = unbounded
+                                                  ? Collections.emptyList()
+                                                  : AuditSegmentIndex.read(file, buffer.limit());
+
+            for (AuditSegmentIndex.Entry entry : index)
+            {
+                if (entry.overlaps(fromTimestamp, toTimestamp))
+                {
+                    buffer.limit((int) entry.end());
+                    buffer.position((int) entry.getOffset());
+                    forEachRecord(buffer, compression, consumer);
+                }
+                buffer.limit(buffer.capacity());
+                buffer.position((int) entry.end());
+            }
+
+            // Records after the last indexed interval
+            forEachRecord(buffer, compression, consumer);
+        }
+        finally
+        {
+            FileUtils.clean(buffer);
+        }
+    }
+
+    private static void forEachRecord(ByteBuffer buffer, SegmentCompression compression, ObjLongConsumer<AuditEntry> consumer) throws IOException
+    {
+        if (compression != SegmentCompression.NONE)
+        {
+            forEachBlockRecord(buffer, compression, consumer);
+        }
+        else
+        {
+            forEachRecord(buffer, consumer);
+        }
+    }
+
+    private static void forEachBlockRecord(ByteBuffer buffer, SegmentCompression compression, ObjLongConsumer<AuditEntry> consumer) throws IOException
+    {
+        byte[] compressed = new byte[0];
+        byte[] block = new byte[0];
+        while (buffer.remaining() >= BLOCK_HEADER_SIZE)
+        {
+            int compressedLength = buffer.getInt();
+            int length = buffer.getInt();
+            if (compressedLength <= 0 || length <= 0 || compressedLength > buffer.remaining())
+            {
+                throw new IOException("Corrupt audit segment block");
+            }
+
+            if (compressed.length < compressedLength)
+            {
+                compressed = new byte[compressedLength];
+            }
+            if (block.length < length)
+            {
+                block = new byte[length];
+            }
+
+            buffer.get(compressed, 0, compressedLength);
+            compression.decompress(compressed, compressedLength, block, length);
+            forEachRecord(ByteBuffer.wrap(block, 0, length), consumer);
+        }
+    }
+
+    private static void forEachRecord(ByteBuffer buffer, ObjLongConsumer<AuditEntry> consumer)
+    {
+        while (BinaryRecordCodec.recordLength(buffer) > 0)
+        {
+            long sequence = BinaryRecordCodec.sequence(buffer);
+            consumer.accept(BinaryRecordCodec.decode(buffer), sequence);
+        }
+    }
+
+    /**
+     * Find the sequence number of the last record written to a segment directory.
+     *
+     * @param directory the segment directory
+     * @return the last sequence number, or 0 if there are no records in the directory
+     * @throws IOException if a segment can't be read
+     */
+    static long lastSequence(File directory) throws IOException
+    {
+        List<File> segments = list(directory);
+        long[] lastSequence = { 0 };
+        for (int i = segments.size() - 1; i >= 0 && lastSequence[0] == 0; i--)
+        {
+            File segment = segments.get(i);
+            List<AuditSegmentIndex.Entry> index = AuditSegmentIndex.read(segment, segment.length());
+            if (!index.isEmpty())
+            {
+                lastSequence[0] = index.get(index.size() - 1).getLastSequence();
+            }
+
+            // No indexed interval overlaps an empty time range, so only records after the last interval are decoded
+            forEachRecord(segment, Long.MAX_VALUE, Long.MAX_VALUE, (logEntry, sequence) -> lastSequence[0] = Math.max(lastSequence[0], sequence));
+        }
+        return lastSequence[0];
+    }
+}
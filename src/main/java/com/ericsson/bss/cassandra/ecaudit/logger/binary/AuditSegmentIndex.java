@@ -0,0 +1,305 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sparse index of a binary audit segment, stored in a sidecar file next to the segment.
+ *
+ * The index divides the segment into consecutive intervals of records and holds one entry per interval with its
+ * offset and length in the segment, the range of sequence numbers and the range of timestamps in the interval. In an
+ * uncompressed segment an interval is a fixed number of records, in a compressed segment it is one block.
+ *
+ * Timestamps are not strictly ordered within a segment, so each entry carries both the lowest and the highest
+ * timestamp of its interval. Intervals which can't hold records within a time range are skipped without being read.
+ *
+ * An index file starts with an 8 byte header (magic number, format version and three reserved bytes) followed by
+ * fixed size entries:
+ * <pre>
+ * long     offset of the interval in the segment
+ * int      length of the interval in bytes
+ * long     first sequence number
+ * long     last sequence number
+ * long     lowest timestamp
+ * long     highest timestamp
+ * </pre>
+ *
+ * The index is a hint. Records after the last complete interval are not indexed, and a missing or inconsistent index
+ * makes readers fall back to scanning the whole segment.
+ */
+public final class AuditSegmentIndex
+{
+    public static final int MAGIC = 0x45434149; // "ECAI"
+    public static final byte VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+    public static final int ENTRY_SIZE = 5 * Long.BYTES + Integer.BYTES;
+
+    private static final String SUFFIX = ".idx";
+
+    private AuditSegmentIndex()
+    {
+        // Utility class
+    }
+
+    /**
+     * Get the index file of a segment.
+     *
+     * @param segment the segment file
+     * @return the index file
+     */
+    public static File file(File segment)
+    {
+        return new File(segment.getPath() + SUFFIX);
+    }
+
+    /**
+     * Read the index of a segment.
+     *
+     * @param segment       the segment file
+     * @param segmentLength the length of the segment
+     * @return the index entries in segment order, or an empty list if the index is missing or doesn't match the segment
+     */
+    public static List<Entry> read(File segment, long segmentLength)
+    {
+        File file = file(segment);
+        if (!file.isFile())
+        {
+            return Collections.emptyList();
+        }
+
+        try
+        {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.get() != VERSION)
+            {
+                return Collections.emptyList();
+            }
+            buffer.position(HEADER_SIZE);
+
+            List<Entry> entries = new ArrayList<>(buffer.remaining() / ENTRY_SIZE);
+            long expectedOffset = AuditSegment.HEADER_SIZE;
+            while (buffer.remaining() >= ENTRY_SIZE)
+            {
+                Entry entry = new Entry(buffer.getLong(), buffer.getInt(), buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+                if (entry.offset != expectedOffset || entry.length <= 0 || entry.end() > segmentLength)
+                {
+                    return Collections.emptyList();
+                }
+                entries.add(entry);
+                expectedOffset = entry.end();
+            }
+            return entries;
+        }
+        catch (IOException e)
+        {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * An index entry describing one interval of records.
+     */
+    public static final class Entry
+    {
+        private final long offset;
+        private final int length;
+        private final long firstSequence;
+        private final long lastSequence;
+        private final long minTimestamp;
+        private final long maxTimestamp;
+
+        Entry(long offset, int length, long firstSequence, long lastSequence, long minTimestamp, long maxTimestamp)
+        {
+            this.offset = offset;
+            this.length = length;
+            this.firstSequence = firstSequence;
+            this.lastSequence = lastSequence;
+            this.minTimestamp = minTimestamp;
+            this.maxTimestamp = maxTimestamp;
+        }
+
+        public long getOffset()
+        {
+            return offset;
+        }
+
+        public int getLength()
+        {
+            return length;
+        }
+
+        public long getFirstSequence()
+        {
+            return firstSequence;
+        }
+
+        public long getLastSequence()
+        {
+            return lastSequence;
+        }
+
+        public long getMinTimestamp()
+        {
+            return minTimestamp;
+        }
+
+        public long getMaxTimestamp()
+        {
+            return maxTimestamp;
+        }
+
+        /**
+         * @param fromTimestamp the first timestamp to include
+         * @param toTimestamp   the first timestamp to exclude
+         * @return true if the interval may hold records within the time range
+         */
+        public boolean overlaps(long fromTimestamp, long toTimestamp)
+        {
+            return maxTimestamp >= fromTimestamp && minTimestamp < toTimestamp;
+        }
+
+        long end()
+        {
+            return offset + length;
+        }
+    }
+
+    /**
+     * Writes the index of a segment while records are appended to the segment.
+     *
+     * Records are added to the current interval until the interval is ended, at which point an entry is written.
+     */
+    static final class Writer implements Closeable
+    {
+        private final FileChannel channel;
+        private final ByteBuffer entryBuffer = ByteBuffer.allocate(ENTRY_SIZE);
+
+        private long intervalOffset = AuditSegment.HEADER_SIZE;
+        private int intervalRecords;
+        private long firstSequence;
+        private long lastSequence;
+        private long minTimestamp;
+        private long maxTimestamp;
+
+        /**
+         * Create or truncate an index file and write its header.
+         *
+         * @param file the index file
+         * @throws IOException if the index file can't be created
+         */
+        Writer(File file) throws IOException
+        {
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            channel.truncate(0);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.put(VERSION);
+            header.position(HEADER_SIZE);
+            header.flip();
+            write(header);
+        }
+
+        /**
+         * Add a record to the current interval.
+         *
+         * @param sequence  the sequence number of the record
+         * @param timestamp the timestamp of the record
+         */
+        void add(long sequence, long timestamp)
+        {
+            if (intervalRecords == 0)
+            {
+                firstSequence = sequence;
+                minTimestamp = timestamp;
+                maxTimestamp = timestamp;
+            }
+            else
+            {
+                minTimestamp = Math.min(minTimestamp, timestamp);
+                maxTimestamp = Math.max(maxTimestamp, timestamp);
+            }
+            lastSequence = sequence;
+            intervalRecords++;
+        }
+
+        int intervalRecords()
+        {
+            return intervalRecords;
+        }
+
+        /**
+         * End the current interval and write its entry, unless the interval is empty.
+         *
+         * @param endOffset the offset in the segment where the next interval starts
+         * @throws IOException if the entry can't be written
+         */
+        void endInterval(long endOffset) throws IOException
+        {
+            if (intervalRecords == 0)
+            {
+                return;
+            }
+
+            entryBuffer.clear();
+            entryBuffer.putLong(intervalOffset);
+            entryBuffer.putInt((int) (endOffset - intervalOffset));
+            entryBuffer.putLong(firstSequence);
+            entryBuffer.putLong(lastSequence);
+            entryBuffer.putLong(minTimestamp);
+            entryBuffer.putLong(maxTimestamp);
+            entryBuffer.flip();
+            write(entryBuffer);
+
+            intervalOffset = endOffset;
+            intervalRecords = 0;
+        }
+
+        private void write(ByteBuffer buffer) throws IOException
+        {
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+        }
+
+        /**
+         * Force written entries to storage.
+         *
+         * @throws IOException if the entries can't be forced
+         */
+        void force() throws IOException
+        {
+            channel.force(false);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            channel.close();
+        }
+    }
+}
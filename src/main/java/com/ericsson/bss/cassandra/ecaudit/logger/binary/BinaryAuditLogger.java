@@ -0,0 +1,473 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Histogram;
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.facade.CassandraAuditException;
+import com.ericsson.bss.cassandra.ecaudit.logger.AuditLogger;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.apache.cassandra.metrics.CassandraMetricsRegistry;
+
+/**
+ * Implements an {@link AuditLogger} that writes {@link AuditEntry} instances as binary records into memory-mapped
+ * segment files.
+ *
+ * Segments are pre-sized and a new segment is created once the current one is full. Segment files are named by a
+ * sequence number which continues from the last segment found in the directory at startup.
+ *
+ * Records are forced to storage according to a {@link FsyncPolicy}. With {@link FsyncPolicy#BATCH}, records logged
+ * concurrently are forced by a single group commit. The number of records carried by each commit is reported in the
+ * RecordsPerCommit histogram.
+ *
+ * Rolled segments may be compressed in the background by a {@link SegmentCompressor}. Uncompressed segments left by
+ * a previous run are compressed at startup.
+ *
+ * A sparse time and sequence index is written next to each segment, see {@link AuditSegmentIndex}.
+ *
+ * Each record carries a sequence number which continues from the last record found in the directory at startup. The
+ * sequence may be shared between the shards of a {@link ShardedAuditLogger}.
+ */
+public class BinaryAuditLogger implements AuditLogger
+{
+    private static final Logger LOG = LoggerFactory.getLogger(BinaryAuditLogger.class);
+
+    private static final CassandraMetricsRegistry.MetricName RECORDS_PER_COMMIT =
+        new CassandraMetricsRegistry.MetricName("com.ericsson.bss.cassandra.ecaudit", "BinaryAuditLogger", "RecordsPerCommit");
+
+    private final File directory;
+    private final int segmentSize;
+    private final int indexInterval;
+    private final FsyncPolicy fsyncPolicy;
+    private final Histogram recordsPerCommit;
+    private final ScheduledExecutorService periodicCommitExecutor;
+    private final SegmentCompressor compressor;
+    private final boolean ownsCompressor;
+    private final AtomicLong sequence;
+
+    private final Object commitLock = new Object();
+
+    private long nextSegmentId;
+    private SegmentWriter writer;
+    private long appendedRecords; // Guarded by this
+    private long committedRecords; // Guarded by commitLock
+
+    /**
+     * Create a new binary audit logger which leaves it to the operating system to write records to storage and
+     * doesn't compress segments.
+     *
+     * @param directory   the directory to create segment files in
+     * @param segmentSize the size of each segment in bytes
+     */
+    public BinaryAuditLogger(File directory, int segmentSize)
+    {
+        this(newBuilder(directory).segmentSize(segmentSize));
+    }
+
+    private BinaryAuditLogger(Builder builder)
+    {
+        if (builder.segmentSize <= AuditSegment.HEADER_SIZE)
+        {
+            throw new IllegalArgumentException("Audit segment size too small: " + builder.segmentSize);
+        }
+
+        if (builder.indexInterval < 1)
+        {
+            throw new IllegalArgumentException("Audit index interval must be positive, was " + builder.indexInterval);
+        }
+
+        if (builder.fsyncPolicy == FsyncPolicy.PERIODIC && builder.fsyncPeriodMillis <= 0)
+        {
+            throw new IllegalArgumentException("Audit fsync period must be positive, was " + builder.fsyncPeriodMillis);
+        }
+
+        if (!builder.directory.isDirectory() && !builder.directory.mkdirs())
+        {
+            throw new IllegalArgumentException("Failed to create audit segment directory " + builder.directory);
+        }
+
+        this.directory = builder.directory;
+        this.segmentSize = builder.segmentSize;
+        this.indexInterval = builder.indexInterval;
+        this.fsyncPolicy = builder.fsyncPolicy;
+        this.recordsPerCommit = builder.recordsPerCommit != null
+                                ? builder.recordsPerCommit
+                                : CassandraMetricsRegistry.Metrics.histogram(RECORDS_PER_COMMIT, false);
+        this.ownsCompressor = builder.compressor == null && builder.compression != SegmentCompression.NONE;
+        this.compressor = ownsCompressor
+                          ? new SegmentCompressor(builder.compression, builder.compressionThreads)
+                          : builder.compressor;
+        this.sequence = builder.sequence != null
+                        ? builder.sequence
+                        : new AtomicLong(lastSequence(directory));
+
+        List<File> existingSegments = AuditSegment.list(directory);
+        nextSegmentId = existingSegments.isEmpty() ? 0 : AuditSegment.id(existingSegments.get(existingSegments.size() - 1)) + 1;
+
+        if (compressor != null)
+        {
+            existingSegments.stream()
+                            .filter(segment -> !AuditSegment.isCompressed(segment))
+                            .forEach(compressor::submit);
+        }
+
+        if (fsyncPolicy == FsyncPolicy.PERIODIC)
+        {
+            periodicCommitExecutor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("AuditLogSync"));
+            periodicCommitExecutor.scheduleWithFixedDelay(this::periodicCommit, builder.fsyncPeriodMillis, builder.fsyncPeriodMillis, TimeUnit.MILLISECONDS);
+        }
+        else
+        {
+            periodicCommitExecutor = null;
+        }
+
+        LOG.info("Binary audit records written to {} in segments of {} bytes with fsync policy {} and compression {}",
+                 directory, segmentSize, fsyncPolicy, builder.compression);
+    }
+
+    /**
+     * Create a new {@link Builder} instance.
+     *
+     * @param directory the directory to create segment files in
+     * @return a new instance of {@link Builder}.
+     */
+    public static BinaryAuditLogger.Builder newBuilder(File directory)
+    {
+        return new Builder(directory);
+    }
+
+    @Override
+    public void log(AuditEntry logEntry)
+    {
+        long record = append(logEntry);
+
+        if (fsyncPolicy == FsyncPolicy.BATCH)
+        {
+            commit(record);
+        }
+    }
+
+    private synchronized long append(AuditEntry logEntry)
+    {
+        try
+        {
+            if (writer == null)
+            {
+                writer = openSegment();
+            }
+
+            long recordSequence = sequence.incrementAndGet();
+            if (!writer.append(logEntry, recordSequence))
+            {
+                roll();
+                if (!writer.append(logEntry, recordSequence))
+                {
+                    throw new CassandraAuditException("Audit record too large for segment size " + segmentSize);
+                }
+            }
+
+            return ++appendedRecords;
+        }
+        catch (IOException e)
+        {
+            throw new CassandraAuditException("Failed to write audit record to " + directory, e);
+        }
+    }
+
+    /**
+     * Force all records up to and including the given record to storage.
+     *
+     * Threads waiting for the commit lock are likely to find that their record was included by the commit of the
+     * previous lock holder, which makes concurrent records share a single fsync.
+     *
+     * @param record the record number returned by {@link #append(AuditEntry)}, or {@link Long#MAX_VALUE} to force
+     *               all records appended so far
+     */
+    private void commit(long record)
+    {
+        synchronized (commitLock)
+        {
+            if (committedRecords >= record)
+            {
+                return;
+            }
+
+            long target;
+            SegmentWriter currentWriter;
+            synchronized (this)
+            {
+                target = appendedRecords;
+                currentWriter = writer;
+            }
+
+            if (target == committedRecords)
+            {
+                return;
+            }
+
+            // Records in previous segments were forced when their segment was closed
+            if (currentWriter != null)
+            {
+                currentWriter.force();
+            }
+
+            recordsPerCommit.update(target - committedRecords);
+            committedRecords = target;
+        }
+    }
+
+    private void periodicCommit()
+    {
+        try
+        {
+            commit(Long.MAX_VALUE);
+        }
+        catch (RuntimeException e)
+        {
+            LOG.error("Failed to force audit records to storage", e);
+        }
+    }
+
+    /**
+     * Stop periodic commits and compression, and close the current segment, if any.
+     *
+     * Segments which are not yet compressed will be compressed on next startup.
+     */
+    @Override
+    public void close()
+    {
+        if (periodicCommitExecutor != null)
+        {
+            periodicCommitExecutor.shutdownNow();
+        }
+
+        if (ownsCompressor)
+        {
+            compressor.close();
+        }
+
+        synchronized (this)
+        {
+            if (writer == null)
+            {
+                return;
+            }
+
+            try
+            {
+                closeSegment(writer);
+            }
+            catch (IOException e)
+            {
+                LOG.warn("Failed to close audit segment {}", writer.file(), e);
+            }
+            writer = null;
+        }
+    }
+
+    private void roll() throws IOException
+    {
+        SegmentWriter fullWriter = writer;
+        writer = null;
+        closeSegment(fullWriter);
+        if (compressor != null)
+        {
+            compressor.submit(fullWriter.file());
+        }
+        writer = openSegment();
+    }
+
+    private void closeSegment(SegmentWriter segmentWriter) throws IOException
+    {
+        if (fsyncPolicy != FsyncPolicy.NONE)
+        {
+            segmentWriter.force();
+        }
+        segmentWriter.close();
+    }
+
+    private static long lastSequence(File directory)
+    {
+        try
+        {
+            return AuditSegment.lastSequence(directory);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalArgumentException("Failed to read last audit sequence number in " + directory, e);
+        }
+    }
+
+    private SegmentWriter openSegment() throws IOException
+    {
+        File file = AuditSegment.file(directory, nextSegmentId++);
+        LOG.debug("Opening audit segment {}", file);
+        return new SegmentWriter(file, segmentSize, indexInterval);
+    }
+
+    // Visible for testing
+    SegmentCompressor compressor()
+    {
+        return compressor;
+    }
+
+    /**
+     * Builder class for {@link BinaryAuditLogger} instances.
+     */
+    public static class Builder
+    {
+        private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+        private static final long DEFAULT_FSYNC_PERIOD_MILLIS = 1000;
+        private static final int DEFAULT_INDEX_INTERVAL = 1024;
+
+        private final File directory;
+        private int segmentSize = DEFAULT_SEGMENT_SIZE;
+        private int indexInterval = DEFAULT_INDEX_INTERVAL;
+        private FsyncPolicy fsyncPolicy = FsyncPolicy.NONE;
+        private long fsyncPeriodMillis = DEFAULT_FSYNC_PERIOD_MILLIS;
+        private SegmentCompression compression = SegmentCompression.NONE;
+        private int compressionThreads = 1;
+        private Histogram recordsPerCommit;
+        private AtomicLong sequence;
+        private SegmentCompressor compressor;
+
+        private Builder(File directory)
+        {
+            this.directory = directory;
+        }
+
+        /**
+         * Create a copy of this builder for one shard of a {@link ShardedAuditLogger}.
+         *
+         * @param shard      the shard number
+         * @param sequence   the sequence shared by all shards
+         * @param compressor the compressor shared by all shards, or null if segments are not compressed
+         * @return a new builder instance
+         */
+        Builder forShard(int shard, AtomicLong sequence, SegmentCompressor compressor)
+        {
+            Builder builder = new Builder(AuditSegment.shardDirectory(directory, shard));
+            builder.segmentSize = segmentSize;
+            builder.indexInterval = indexInterval;
+            builder.fsyncPolicy = fsyncPolicy;
+            builder.fsyncPeriodMillis = fsyncPeriodMillis;
+            builder.compression = compression;
+            builder.compressionThreads = compressionThreads;
+            builder.recordsPerCommit = recordsPerCommit;
+            builder.sequence = sequence;
+            builder.compressor = compressor;
+            return builder;
+        }
+
+        File directory()
+        {
+            return directory;
+        }
+
+        SegmentCompression compression()
+        {
+            return compression;
+        }
+
+        int compressionThreads()
+        {
+            return compressionThreads;
+        }
+
+        /**
+         * @param segmentSize the size of each segment in bytes
+         * @return this builder instance
+         */
+        public Builder segmentSize(int segmentSize)
+        {
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * @param indexInterval the number of records per entry in the segment index
+         * @return this builder instance
+         */
+        public Builder indexInterval(int indexInterval)
+        {
+            this.indexInterval = indexInterval;
+            return this;
+        }
+
+        /**
+         * @param fsyncPolicy the policy for forcing records to storage
+         * @return this builder instance
+         */
+        public Builder fsyncPolicy(FsyncPolicy fsyncPolicy)
+        {
+            this.fsyncPolicy = fsyncPolicy;
+            return this;
+        }
+
+        /**
+         * @param fsyncPeriodMillis the period between commits when using {@link FsyncPolicy#PERIODIC}
+         * @return this builder instance
+         */
+        public Builder fsyncPeriodMillis(long fsyncPeriodMillis)
+        {
+            this.fsyncPeriodMillis = fsyncPeriodMillis;
+            return this;
+        }
+
+        /**
+         * @param compression the compression of rolled segments
+         * @return this builder instance
+         */
+        public Builder compression(SegmentCompression compression)
+        {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * @param compressionThreads the maximum number of segments to compress concurrently
+         * @return this builder instance
+         */
+        public Builder compressionThreads(int compressionThreads)
+        {
+            this.compressionThreads = compressionThreads;
+            return this;
+        }
+
+        // Visible for testing
+        Builder recordsPerCommit(Histogram recordsPerCommit)
+        {
+            this.recordsPerCommit = recordsPerCommit;
+            return this;
+        }
+
+        public BinaryAuditLogger build()
+        {
+            return new BinaryAuditLogger(this);
+        }
+    }
+}
@@ -0,0 +1,479 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.Status;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+
+/**
+ * Decodes binary audit segments written by {@link BinaryAuditLogger} and prints them as text or JSON.
+ *
+ * Segments are memory-mapped and decoded in parallel, one segment per thread. Each segment streams its formatted
+ * records through a bounded queue so that records are printed in segment order while memory usage stays bounded,
+ * regardless of the total size of the segments.
+ *
+ * Segments written by a {@link ShardedAuditLogger} are scanned one shard per thread and merged into sequence order.
+ * At most as many shards as the configured number of threads are decoded at a time, a shard waiting for the merge
+ * to catch up gives way to the others.
+ *
+ * When the filter has a time range, intervals of records outside of the range are skipped using the
+ * {@link AuditSegmentIndex} of each segment.
+ */
+public class BinaryAuditReader
+{
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final Record END_OF_SEGMENT = new Record(0, null);
+
+    private final AuditRecordFilter filter;
+    private final AuditRecordFormat format;
+    private final int threads;
+
+    /**
+     * Create a new binary audit reader.
+     *
+     * @param filter  the filter to select records with
+     * @param format  the output format
+     * @param threads the number of segments to decode in parallel
+     */
+    public BinaryAuditReader(AuditRecordFilter filter, AuditRecordFormat format, int threads)
+    {
+        if (threads < 1)
+        {
+            throw new IllegalArgumentException("Number of reader threads must be positive, was " + threads);
+        }
+
+        this.filter = filter;
+        this.format = format;
+        this.threads = threads;
+    }
+
+    /**
+     * Decode the segments and print all matching records, one record per line.
+     *
+     * If all segments are located in shard directories, the records of each shard are merged into sequence order.
+     * Otherwise records are printed in the order of the segments.
+     *
+     * @param segments the segments to read, in the order they should be printed
+     * @param out      the stream to print records to
+     * @throws IOException if a segment can't be read
+     */
+    public void read(List<File> segments, PrintStream out) throws IOException
+    {
+        List<List<File>> shards = shards(segments);
+        try
+        {
+            if (shards.size() > 1)
+            {
+                readMerged(shards, out);
+            }
+            else
+            {
+                readInOrder(segments, out);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading audit segments", e);
+        }
+    }
+
+    private void readInOrder(List<File> segments, PrintStream out) throws IOException, InterruptedException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new NamedThreadFactory("AuditReader"));
+        try
+        {
+            List<BlockingQueue<Record>> queues = new ArrayList<>(segments.size());
+            List<Future<Void>> futures = new ArrayList<>(segments.size());
+            for (File segment : segments)
+            {
+                BlockingQueue<Record> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+                queues.add(queue);
+                futures.add(executor.submit(() -> scan(Collections.singletonList(segment), queue, null)));
+            }
+
+            for (int i = 0; i < segments.size(); i++)
+            {
+                print(queues.get(i), out);
+                awaitSegments(Collections.singletonList(segments.get(i)), futures.get(i));
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Scan each shard in a separate thread and merge the records of all shards by sequence number.
+     *
+     * The merge needs the next record of every shard, so each shard keeps its own thread while waiting for queue
+     * space. Decoding is limited to the configured number of threads by permits which are released while waiting.
+     *
+     * Records are written in sequence order within a shard, so only the next record of each shard has to be compared.
+     */
+    private void readMerged(List<List<File>> shards, PrintStream out) throws IOException, InterruptedException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(shards.size(), new NamedThreadFactory("AuditReader"));
+        Semaphore decoders = new Semaphore(Math.min(threads, shards.size()));
+        try
+        {
+            List<Future<Void>> futures = new ArrayList<>(shards.size());
+            PriorityQueue<ShardHead> heads = new PriorityQueue<>(shards.size(), Comparator.comparingLong(head -> head.record.sequence));
+            List<ShardHead> allHeads = new ArrayList<>(shards.size());
+            for (List<File> shard : shards)
+            {
+                BlockingQueue<Record> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+                futures.add(executor.submit(() -> scan(shard, queue, decoders)));
+                allHeads.add(new ShardHead(queue));
+            }
+
+            for (ShardHead head : allHeads)
+            {
+                if (head.next())
+                {
+                    heads.add(head);
+                }
+            }
+
+            ShardHead head;
+            while ((head = heads.poll()) != null)
+            {
+                out.println(head.record.line);
+                if (head.next())
+                {
+                    heads.add(head);
+                }
+            }
+
+            for (int i = 0; i < shards.size(); i++)
+            {
+                awaitSegments(shards.get(i), futures.get(i));
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Decode the segments into the queue.
+     *
+     * @param decoders permits to hold while decoding, released while waiting for queue space, or null if unlimited
+     */
+    private Void scan(List<File> segments, BlockingQueue<Record> queue, Semaphore decoders) throws IOException, InterruptedException
+    {
+        acquire(decoders);
+        try
+        {
+            for (File segment : segments)
+            {
+                AuditSegment.forEachRecord(segment, filter.getFromTimestamp(), filter.getToTimestamp(), (logEntry, sequence) ->
+                {
+                    if (filter.test(logEntry))
+                    {
+                        put(queue, new Record(sequence, format.format(logEntry)), decoders);
+                    }
+                });
+            }
+        }
+        finally
+        {
+            release(decoders);
+            queue.put(END_OF_SEGMENT);
+        }
+        return null;
+    }
+
+    private static void put(BlockingQueue<Record> queue, Record record, Semaphore decoders)
+    {
+        if (queue.offer(record))
+        {
+            return;
+        }
+
+        release(decoders);
+        try
+        {
+            queue.put(record);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while reading audit segment");
+        }
+        finally
+        {
+            if (decoders != null)
+            {
+                decoders.acquireUninterruptibly();
+            }
+        }
+    }
+
+    private static void acquire(Semaphore decoders) throws InterruptedException
+    {
+        if (decoders != null)
+        {
+            decoders.acquire();
+        }
+    }
+
+    private static void release(Semaphore decoders)
+    {
+        if (decoders != null)
+        {
+            decoders.release();
+        }
+    }
+
+    private static void print(BlockingQueue<Record> queue, PrintStream out) throws InterruptedException
+    {
+        Record record;
+        while ((record = queue.take()) != END_OF_SEGMENT)
+        {
+            out.println(record.line);
+        }
+    }
+
+    private static void awaitSegments(List<File> segments, Future<Void> future) throws IOException, InterruptedException
+    {
+        try
+        {
+            future.get();
+        }
+        catch (ExecutionException e)
+        {
+            String source = segments.size() == 1 ? segments.get(0).toString() : segments.get(0).getParent();
+            throw new IOException("Failed to read audit segment " + source, e.getCause());
+        }
+    }
+
+    /**
+     * Group segments by shard if all segments are located in shard directories.
+     *
+     * @param segments the segments to read
+     * @return the segments of each shard, or a single group with all segments
+     */
+    static List<List<File>> shards(List<File> segments)
+    {
+        Map<File, List<File>> shards = new LinkedHashMap<>();
+        for (File segment : segments)
+        {
+            File directory = segment.getAbsoluteFile().getParentFile();
+            if (directory == null || !AuditSegment.isShardDirectory(directory))
+            {
+                return Collections.singletonList(segments);
+            }
+            shards.computeIfAbsent(directory, key -> new ArrayList<>()).add(segment);
+        }
+        return new ArrayList<>(shards.values());
+    }
+
+    /**
+     * Collect the segments to read from files and directories given on the command line.
+     *
+     * @param paths segment files or directories containing segment files
+     * @return the segment files, directories and their shard directories expanded in segment order
+     */
+    static List<File> segments(List<String> paths)
+    {
+        List<File> segments = new ArrayList<>();
+        for (String path : paths)
+        {
+            File file = new File(path);
+            if (file.isDirectory())
+            {
+                segments.addAll(AuditSegment.list(file));
+                for (File shard : AuditSegment.listShards(file))
+                {
+                    segments.addAll(AuditSegment.list(shard));
+                }
+            }
+            else
+            {
+                segments.add(file);
+            }
+        }
+        return segments;
+    }
+
+    static long parseTimestamp(String value)
+    {
+        try
+        {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException e)
+        {
+            return Instant.parse(value).toEpochMilli();
+        }
+    }
+
+    private static Options options()
+    {
+        Options options = new Options();
+        options.addOption(new Option("f", "format", true, "Output format, TEXT (default) or JSON"));
+        options.addOption(new Option("u", "user", true, "Only print records of this user"));
+        options.addOption(new Option("c", "client", true, "Only print records from this client address"));
+        options.addOption(new Option("s", "status", true, "Only print records with this status, ATTEMPT or FAILED"));
+        options.addOption(new Option("b", "batch", true, "Only print records with this batch id"));
+        options.addOption(new Option(null, "from", true, "Only print records at or after this time, in ISO-8601 or milliseconds since epoch"));
+        options.addOption(new Option(null, "to", true, "Only print records before this time, in ISO-8601 or milliseconds since epoch"));
+        options.addOption(new Option("t", "threads", true, "Number of segments to decode in parallel, defaults to the number of processors"));
+        options.addOption(new Option("h", "help", false, "Print this help"));
+        return options;
+    }
+
+    private static AuditRecordFilter filter(CommandLine cmd) throws UnknownHostException
+    {
+        AuditRecordFilter.Builder builder = AuditRecordFilter.newBuilder();
+        if (cmd.hasOption("user"))
+        {
+            builder.user(cmd.getOptionValue("user"));
+        }
+        if (cmd.hasOption("client"))
+        {
+            builder.client(InetAddress.getByName(cmd.getOptionValue("client")));
+        }
+        if (cmd.hasOption("status"))
+        {
+            builder.status(Status.valueOf(cmd.getOptionValue("status").toUpperCase(Locale.ENGLISH)));
+        }
+        if (cmd.hasOption("batch"))
+        {
+            builder.batch(UUID.fromString(cmd.getOptionValue("batch")));
+        }
+        if (cmd.hasOption("from"))
+        {
+            builder.from(parseTimestamp(cmd.getOptionValue("from")));
+        }
+        if (cmd.hasOption("to"))
+        {
+            builder.to(parseTimestamp(cmd.getOptionValue("to")));
+        }
+        return builder.build();
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void main(String[] args)
+    {
+        Options options = options();
+        String usage = "ecaudit-reader [options] <segment file or directory>...";
+
+        CommandLine cmd;
+        BinaryAuditReader reader;
+        try
+        {
+            cmd = new PosixParser().parse(options, args);
+            if (cmd.hasOption("help") || cmd.getArgList().isEmpty())
+            {
+                new HelpFormatter().printHelp(usage, options);
+                System.exit(cmd.hasOption("help") ? 0 : 1);
+                return;
+            }
+
+            AuditRecordFormat format = AuditRecordFormat.valueOf(cmd.getOptionValue("format", "TEXT").toUpperCase(Locale.ENGLISH));
+            int threads = Integer.parseInt(cmd.getOptionValue("threads", Integer.toString(Runtime.getRuntime().availableProcessors())));
+            reader = new BinaryAuditReader(filter(cmd), format, threads);
+        }
+        catch (ParseException | IllegalArgumentException | DateTimeParseException | UnknownHostException e)
+        {
+            System.err.println("Invalid arguments: " + e.getMessage());
+            new HelpFormatter().printHelp(usage, options);
+            System.exit(1);
+            return;
+        }
+
+        try
+        {
+            reader.read(segments(cmd.getArgList()), System.out);
+        }
+        catch (IOException e)
+        {
+            System.err.println(e.getMessage() + (e.getCause() != null ? ": " + e.getCause() : ""));
+            System.exit(2);
+        }
+        System.out.flush();
+    }
+
+    private static final class Record
+    {
+        private final long sequence;
+        private final String line;
+
+        private Record(long sequence, String line)
+        {
+            this.sequence = sequence;
+            this.line = line;
+        }
+    }
+
+    private static final class ShardHead
+    {
+        private final BlockingQueue<Record> queue;
+        private Record record;
+
+        private ShardHead(BlockingQueue<Record> queue)
+        {
+            this.queue = queue;
+        }
+
+        /**
+         * Take the next record of the shard.
+         *
+         * @return true if there was a next record, false if the shard is exhausted
+         */
+        private boolean next() throws InterruptedException
+        {
+            record = queue.take();
+            return record != END_OF_SEGMENT;
+        }
+    }
+}
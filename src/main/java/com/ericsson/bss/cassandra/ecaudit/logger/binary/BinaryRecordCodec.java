@@ -0,0 +1,326 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.entry.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.entry.Status;
+
+/**
+ * Encodes and decodes {@link AuditEntry} instances as compact, length prefixed binary records.
+ *
+ * A record has the following layout:
+ * <pre>
+ * int      length of the record body
+ * long     sequence number, monotonic per node
+ * long     timestamp in milliseconds since epoch
+ * byte     status ordinal
+ * byte     flags, bit 0 is set if a batch id is present
+ * byte     length of client address (4 or 16)
+ * byte[]   client address
+ * long[2]  batch id, most and least significant bits (if present)
+ * varint   length of user
+ * byte[]   user (UTF-8)
+ * varint   length of operation
+ * byte[]   operation (UTF-8)
+ * </pre>
+ *
+ * The length prefix is written after the record body, so a record that was only partially written will appear as the
+ * end of the segment rather than as a corrupt record.
+ */
+public final class BinaryRecordCodec
+{
+    static final int LENGTH_SIZE = Integer.BYTES;
+
+    private static final int FIXED_BODY_SIZE = 2 * Long.BYTES + 3 * Byte.BYTES;
+    private static final int BATCH_ID_SIZE = 2 * Long.BYTES;
+    private static final byte BATCH_ID_FLAG = 0x01;
+
+    private static final Status[] STATUS_VALUES = Status.values();
+
+    private BinaryRecordCodec()
+    {
+        // Utility class
+    }
+
+    /**
+     * Encode an audit entry at the current position of the buffer.
+     *
+     * If the entry fit in the buffer the buffer position is advanced past the record.
+     * Otherwise the buffer is left unchanged.
+     *
+     * @param logEntry the entry to encode
+     * @param sequence the sequence number of the record
+     * @param buffer   the buffer to write to
+     * @return true if the entry was encoded, false if there is not enough space left in the buffer
+     */
+    public static boolean encode(AuditEntry logEntry, long sequence, ByteBuffer buffer)
+    {
+        byte[] address = logEntry.getClientAddress().getAddress();
+        UUID batchId = logEntry.getBatchId().orElse(null);
+        String user = nullToEmpty(logEntry.getUser());
+        String operation = nullToEmpty(logEntry.getOperation().getOperationString());
+
+        int userLength = utf8Length(user);
+        int operationLength = utf8Length(operation);
+        int bodySize = FIXED_BODY_SIZE
+                       + address.length
+                       + (batchId != null ? BATCH_ID_SIZE : 0)
+                       + varIntSize(userLength) + userLength
+                       + varIntSize(operationLength) + operationLength;
+
+        if (buffer.remaining() < LENGTH_SIZE + bodySize)
+        {
+            return false;
+        }
+
+        int start = buffer.position();
+        buffer.position(start + LENGTH_SIZE);
+        buffer.putLong(sequence);
+        buffer.putLong(logEntry.getTimestamp());
+        buffer.put((byte) logEntry.getStatus().ordinal());
+        buffer.put(batchId != null ? BATCH_ID_FLAG : 0);
+        buffer.put((byte) address.length);
+        buffer.put(address);
+        if (batchId != null)
+        {
+            buffer.putLong(batchId.getMostSignificantBits());
+            buffer.putLong(batchId.getLeastSignificantBits());
+        }
+        writeString(user, userLength, buffer);
+        writeString(operation, operationLength, buffer);
+        buffer.putInt(start, bodySize);
+
+        return true;
+    }
+
+    /**
+     * Decode an audit entry at the current position of the buffer and advance the position past the record.
+     *
+     * @param buffer the buffer to read from
+     * @return the decoded entry, or null if there are no more records in the buffer
+     */
+    public static AuditEntry decode(ByteBuffer buffer)
+    {
+        if (recordLength(buffer) == 0)
+        {
+            return null;
+        }
+
+        buffer.position(buffer.position() + LENGTH_SIZE + Long.BYTES);
+        AuditEntry.Builder builder = AuditEntry.newBuilder()
+                                               .timestamp(buffer.getLong())
+                                               .status(STATUS_VALUES[buffer.get()]);
+        byte flags = buffer.get();
+        builder.client(readAddress(buffer));
+        if ((flags & BATCH_ID_FLAG) != 0)
+        {
+            builder.batch(new UUID(buffer.getLong(), buffer.getLong()));
+        }
+        builder.user(readString(buffer));
+        builder.operation(new SimpleAuditOperation(readString(buffer)));
+
+        return builder.build();
+    }
+
+    /**
+     * Get the sequence number of the record at the current position of the buffer without decoding it.
+     *
+     * The caller must make sure there is a record at the current position, see {@link #recordLength(ByteBuffer)}.
+     *
+     * @param buffer the buffer to read from
+     * @return the sequence number of the record
+     */
+    static long sequence(ByteBuffer buffer)
+    {
+        return buffer.getLong(buffer.position() + LENGTH_SIZE);
+    }
+
+    /**
+     * Get the timestamp of the record at the current position of the buffer without decoding it.
+     *
+     * The caller must make sure there is a record at the current position, see {@link #recordLength(ByteBuffer)}.
+     *
+     * @param buffer the buffer to read from
+     * @return the timestamp of the record
+     */
+    static long timestamp(ByteBuffer buffer)
+    {
+        return buffer.getLong(buffer.position() + LENGTH_SIZE + Long.BYTES);
+    }
+
+    /**
+     * Get the length of the record at the current position of the buffer without decoding it.
+     *
+     * @param buffer the buffer to read from
+     * @return the length of the record including the length prefix, or 0 if there are no more records in the buffer
+     */
+    static int recordLength(ByteBuffer buffer)
+    {
+        if (buffer.remaining() < LENGTH_SIZE)
+        {
+            return 0;
+        }
+
+        int bodySize = buffer.getInt(buffer.position());
+        if (bodySize <= 0 || bodySize > buffer.remaining() - LENGTH_SIZE)
+        {
+            return 0;
+        }
+
+        return LENGTH_SIZE + bodySize;
+    }
+
+    private static InetAddress readAddress(ByteBuffer buffer)
+    {
+        byte[] address = new byte[buffer.get()];
+        buffer.get(address);
+        try
+        {
+            return InetAddress.getByAddress(address);
+        }
+        catch (UnknownHostException e)
+        {
+            throw new IllegalStateException("Invalid client address length in audit record: " + address.length, e);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[readVarInt(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(String value, int utf8Length, ByteBuffer buffer)
+    {
+        writeVarInt(utf8Length, buffer);
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if (c < 0x80)
+            {
+                buffer.put((byte) c);
+            }
+            else if (c < 0x800)
+            {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            }
+            else if (Character.isSurrogate(c))
+            {
+                buffer.put((byte) '?');
+            }
+            else
+            {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    /**
+     * Calculate the number of bytes needed to encode a string as UTF-8 without encoding it.
+     *
+     * Unpaired surrogates are counted as one byte since they are replaced by '?' when encoded.
+     */
+    static int utf8Length(String value)
+    {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if (c < 0x80)
+            {
+                length += 1;
+            }
+            else if (c < 0x800)
+            {
+                length += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                length += 4;
+                i++;
+            }
+            else if (Character.isSurrogate(c))
+            {
+                length += 1;
+            }
+            else
+            {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    static int varIntSize(int value)
+    {
+        int size = 1;
+        while ((value & ~0x7F) != 0)
+        {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    static void writeVarInt(int value, ByteBuffer buffer)
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int readVarInt(ByteBuffer buffer)
+    {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do
+        {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static String nullToEmpty(String value)
+    {
+        return value != null ? value : "";
+    }
+}
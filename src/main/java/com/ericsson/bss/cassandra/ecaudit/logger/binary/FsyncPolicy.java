@@ -0,0 +1,37 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+/**
+ * Defines when binary audit records are forced to persistent storage.
+ */
+public enum FsyncPolicy
+{
+    /**
+     * Records are written to storage by the operating system. Records may be lost if the node crashes.
+     */
+    NONE,
+    /**
+     * Records are forced to storage periodically. Records written since the last fsync may be lost if the node
+     * crashes.
+     */
+    PERIODIC,
+    /**
+     * Records are forced to storage before the logging thread continues. Concurrent records are grouped into a
+     * single fsync.
+     */
+    BATCH
+}
@@ -0,0 +1,207 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * Compression algorithms for blocks of rolled binary audit segments.
+ */
+public enum SegmentCompression
+{
+    /**
+     * Segments are not compressed.
+     */
+    NONE((byte) 0)
+    {
+        @Override
+        int maxCompressedLength(int length)
+        {
+            return length;
+        }
+
+        @Override
+        int compress(byte[] source, int length, byte[] destination)
+        {
+            System.arraycopy(source, 0, destination, 0, length);
+            return length;
+        }
+
+        @Override
+        void decompress(byte[] source, int sourceLength, byte[] destination, int length) throws IOException
+        {
+            if (sourceLength != length)
+            {
+                throw new IOException("Corrupt audit segment block");
+            }
+            System.arraycopy(source, 0, destination, 0, length);
+        }
+    },
+    /**
+     * Fast compression with a moderate compression ratio.
+     */
+    LZ4((byte) 1)
+    {
+        @Override
+        int maxCompressedLength(int length)
+        {
+            return LZ4Holder.COMPRESSOR.maxCompressedLength(length);
+        }
+
+        @Override
+        int compress(byte[] source, int length, byte[] destination)
+        {
+            return LZ4Holder.COMPRESSOR.compress(source, 0, length, destination, 0);
+        }
+
+        @Override
+        void decompress(byte[] source, int sourceLength, byte[] destination, int length) throws IOException
+        {
+            try
+            {
+                if (LZ4Holder.DECOMPRESSOR.decompress(source, 0, sourceLength, destination, 0, length) != length)
+                {
+                    throw new IOException("Corrupt audit segment block");
+                }
+            }
+            catch (LZ4Exception e)
+            {
+                throw new IOException("Corrupt audit segment block", e);
+            }
+        }
+    },
+    /**
+     * Slower compression with a higher compression ratio.
+     */
+    DEFLATE((byte) 2)
+    {
+        @Override
+        int maxCompressedLength(int length)
+        {
+            // Stored blocks add five bytes per 16 KiB, plus header and trailer
+            return length + (length >> 3) + 64;
+        }
+
+        @Override
+        int compress(byte[] source, int length, byte[] destination)
+        {
+            Deflater deflater = new Deflater();
+            try
+            {
+                deflater.setInput(source, 0, length);
+                deflater.finish();
+                int compressedLength = deflater.deflate(destination);
+                if (!deflater.finished())
+                {
+                    throw new IllegalStateException("Compressed audit segment block larger than expected");
+                }
+                return compressedLength;
+            }
+            finally
+            {
+                deflater.end();
+            }
+        }
+
+        @Override
+        void decompress(byte[] source, int sourceLength, byte[] destination, int length) throws IOException
+        {
+            Inflater inflater = new Inflater();
+            try
+            {
+                inflater.setInput(source, 0, sourceLength);
+                if (inflater.inflate(destination, 0, length) != length || !inflater.finished())
+                {
+                    throw new IOException("Corrupt audit segment block");
+                }
+            }
+            catch (DataFormatException e)
+            {
+                throw new IOException("Corrupt audit segment block", e);
+            }
+            finally
+            {
+                inflater.end();
+            }
+        }
+    };
+
+    private final byte id;
+
+    SegmentCompression(byte id)
+    {
+        this.id = id;
+    }
+
+    byte id()
+    {
+        return id;
+    }
+
+    static SegmentCompression fromId(byte id) throws IOException
+    {
+        for (SegmentCompression compression : values())
+        {
+            if (compression.id == id)
+            {
+                return compression;
+            }
+        }
+        throw new IOException("Unsupported audit segment compression " + id);
+    }
+
+    /**
+     * @param length the length of the uncompressed block
+     * @return the maximum length of the compressed block
+     */
+    abstract int maxCompressedLength(int length);
+
+    /**
+     * Compress a block.
+     *
+     * @param source      the uncompressed block
+     * @param length      the length of the uncompressed block
+     * @param destination the buffer to write the compressed block to, at least {@link #maxCompressedLength(int)} long
+     * @return the length of the compressed block
+     */
+    abstract int compress(byte[] source, int length, byte[] destination);
+
+    /**
+     * Decompress a block.
+     *
+     * @param source       the compressed block
+     * @param sourceLength the length of the compressed block
+     * @param destination  the buffer to write the uncompressed block to
+     * @param length       the length of the uncompressed block
+     * @throws IOException if the block is corrupt
+     */
+    abstract void decompress(byte[] source, int sourceLength, byte[] destination, int length) throws IOException;
+
+    private static final class LZ4Holder
+    {
+        private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+        // Bounds checked, since segments handed to the reader may be corrupt
+        private static final LZ4SafeDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().safeDecompressor();
+    }
+}
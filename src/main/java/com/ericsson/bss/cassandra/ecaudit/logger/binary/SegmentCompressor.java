@@ -0,0 +1,238 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.apache.cassandra.io.util.FileUtils;
+
+/**
+ * Compresses rolled audit segments in the background.
+ *
+ * Segments are compressed by a bounded number of low priority threads. Submitting a segment never blocks, pending
+ * segments are queued until a thread is available. Each segment is compressed in blocks of whole records into a
+ * temporary file, which replaces the uncompressed segment once complete. The index of the compressed segment has one
+ * entry per block.
+ */
+class SegmentCompressor
+{
+    private static final Logger LOG = LoggerFactory.getLogger(SegmentCompressor.class);
+
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final SegmentCompression compression;
+    private final ExecutorService executor;
+
+    /**
+     * Create a new segment compressor.
+     *
+     * @param compression the compression algorithm
+     * @param threads     the maximum number of segments to compress concurrently
+     */
+    SegmentCompressor(SegmentCompression compression, int threads)
+    {
+        if (compression == SegmentCompression.NONE)
+        {
+            throw new IllegalArgumentException("Segment compressor requires a compression algorithm");
+        }
+
+        if (threads < 1)
+        {
+            throw new IllegalArgumentException("Number of compression threads must be positive, was " + threads);
+        }
+
+        this.compression = compression;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                               new LinkedBlockingQueue<>(),
+                                               new NamedThreadFactory("AuditSegmentCompressor", Thread.MIN_PRIORITY));
+    }
+
+    /**
+     * Compress a segment in the background.
+     *
+     * @param segment the closed, uncompressed segment
+     */
+    void submit(File segment)
+    {
+        try
+        {
+            executor.execute(() -> compressQuietly(segment));
+        }
+        catch (RejectedExecutionException e)
+        {
+            LOG.debug("Audit segment {} left uncompressed since compressor is stopped", segment);
+        }
+    }
+
+    /**
+     * Stop compressing segments. Segments which are not yet compressed are left uncompressed.
+     */
+    void close()
+    {
+        executor.shutdownNow();
+    }
+
+    // Visible for testing
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        executor.shutdown();
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    private void compressQuietly(File segment)
+    {
+        try
+        {
+            compress(segment);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            LOG.warn("Failed to compress audit segment {}", segment, e);
+        }
+    }
+
+    /**
+     * Compress a segment and delete the uncompressed segment.
+     *
+     * @param segment the closed, uncompressed segment
+     * @throws IOException if the segment can't be compressed
+     */
+    void compress(File segment) throws IOException
+    {
+        File target = AuditSegment.compressedFile(segment.getParentFile(), AuditSegment.id(segment));
+        File temporary = new File(target.getPath() + TEMPORARY_SUFFIX);
+        File temporaryIndex = new File(AuditSegmentIndex.file(target).getPath() + TEMPORARY_SUFFIX);
+
+        if (target.exists())
+        {
+            // Compressed before, but not deleted
+            deleteSegment(segment);
+            return;
+        }
+
+        MappedByteBuffer source;
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "r"))
+        {
+            source = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+
+        try (FileOutputStream fileOutput = new FileOutputStream(temporary);
+             AuditSegmentIndex.Writer index = new AuditSegmentIndex.Writer(temporaryIndex))
+        {
+            AuditSegment.readHeader(source);
+            writeBlocks(source, new DataOutputStream(new BufferedOutputStream(fileOutput, BLOCK_SIZE)), index);
+            fileOutput.getChannel().force(true);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            Files.deleteIfExists(temporary.toPath());
+            Files.deleteIfExists(temporaryIndex.toPath());
+            throw e;
+        }
+        finally
+        {
+            FileUtils.clean(source);
+        }
+
+        Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        Files.move(temporaryIndex.toPath(), AuditSegmentIndex.file(target).toPath(), StandardCopyOption.ATOMIC_MOVE);
+        deleteSegment(segment);
+        LOG.debug("Compressed audit segment {} into {}", segment, target);
+    }
+
+    private static void deleteSegment(File segment) throws IOException
+    {
+        Files.delete(segment.toPath());
+        Files.deleteIfExists(AuditSegmentIndex.file(segment).toPath());
+    }
+
+    private void writeBlocks(ByteBuffer source, DataOutputStream output, AuditSegmentIndex.Writer index) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(AuditSegment.HEADER_SIZE);
+        AuditSegment.writeHeader(header, compression);
+        output.write(header.array());
+
+        byte[] block = new byte[BLOCK_SIZE];
+        byte[] compressed = new byte[compression.maxCompressedLength(BLOCK_SIZE)];
+        int blockLength = 0;
+
+        int recordLength;
+        while ((recordLength = BinaryRecordCodec.recordLength(source)) > 0)
+        {
+            if (blockLength > 0 && blockLength + recordLength > block.length)
+            {
+                compressed = writeBlock(block, blockLength, compressed, output);
+                index.endInterval(output.size());
+                blockLength = 0;
+            }
+
+            if (recordLength > block.length)
+            {
+                block = new byte[recordLength];
+            }
+
+            index.add(BinaryRecordCodec.sequence(source), BinaryRecordCodec.timestamp(source));
+            source.get(block, blockLength, recordLength);
+            blockLength += recordLength;
+
+            if (Thread.currentThread().isInterrupted())
+            {
+                throw new IOException("Interrupted while compressing audit segment");
+            }
+        }
+
+        if (blockLength > 0)
+        {
+            writeBlock(block, blockLength, compressed, output);
+            index.endInterval(output.size());
+        }
+        output.flush();
+    }
+
+    private byte[] writeBlock(byte[] block, int blockLength, byte[] compressed, DataOutputStream output) throws IOException
+    {
+        int maxCompressedLength = compression.maxCompressedLength(blockLength);
+        byte[] buffer = compressed.length < maxCompressedLength ? new byte[maxCompressedLength] : compressed;
+
+        int compressedLength = compression.compress(block, blockLength, buffer);
+        output.writeInt(compressedLength);
+        output.writeInt(blockLength);
+        output.write(buffer, 0, compressedLength);
+
+        return buffer;
+    }
+}
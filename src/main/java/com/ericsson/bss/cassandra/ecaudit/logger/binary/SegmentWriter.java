@@ -0,0 +1,125 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import org.apache.cassandra.io.util.FileUtils;
+
+/**
+ * Appends binary audit records to a pre-sized, memory-mapped segment file.
+ *
+ * When the segment is closed the file is truncated to the size of the records written.
+ *
+ * A sparse {@link AuditSegmentIndex} is written next to the segment with one entry per interval of records.
+ *
+ * Appending is not thread safe. Forcing and closing may be done concurrently with appending.
+ */
+class SegmentWriter
+{
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final AuditSegmentIndex.Writer index;
+    private final int indexInterval;
+
+    private boolean closed = false;
+
+    /**
+     * Create a new segment file and map it into memory.
+     *
+     * @param file          the segment file to create
+     * @param size          the size of the segment in bytes
+     * @param indexInterval the number of records per index entry
+     * @throws IOException if the segment file can't be created
+     */
+    SegmentWriter(File file, int size, int indexInterval) throws IOException
+    {
+        this.file = file;
+        this.indexInterval = indexInterval;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+        {
+            raf.setLength(size);
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        AuditSegment.writeHeader(buffer, SegmentCompression.NONE);
+        index = new AuditSegmentIndex.Writer(AuditSegmentIndex.file(file));
+    }
+
+    /**
+     * Append an entry to the segment.
+     *
+     * @param logEntry the entry to append
+     * @param sequence the sequence number of the record
+     * @return true if the entry was appended, false if the segment is full
+     * @throws IOException if the index can't be written
+     */
+    boolean append(AuditEntry logEntry, long sequence) throws IOException
+    {
+        if (!BinaryRecordCodec.encode(logEntry, sequence, buffer))
+        {
+            return false;
+        }
+
+        index.add(sequence, logEntry.getTimestamp());
+        if (index.intervalRecords() >= indexInterval)
+        {
+            index.endInterval(buffer.position());
+        }
+        return true;
+    }
+
+    /**
+     * Force records appended so far to storage. Does nothing if the segment is already closed.
+     */
+    synchronized void force()
+    {
+        if (!closed)
+        {
+            buffer.force();
+        }
+    }
+
+    /**
+     * Unmap the segment, truncate the file to the size of the records written and complete the index.
+     *
+     * @throws IOException if the file can't be truncated or the index can't be written
+     */
+    synchronized void close() throws IOException
+    {
+        closed = true;
+        int length = buffer.position();
+        FileUtils.clean(buffer);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+        {
+            raf.setLength(length);
+        }
+
+        try (AuditSegmentIndex.Writer closingIndex = index)
+        {
+            closingIndex.endInterval(length);
+        }
+    }
+
+    File file()
+    {
+        return file;
+    }
+}
@@ -0,0 +1,118 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.logger.AuditLogger;
+
+/**
+ * Implements an {@link AuditLogger} that spreads records over a number of {@link BinaryAuditLogger} shards to avoid
+ * contention between request threads.
+ *
+ * Each request thread is mapped to one shard, which writes segments into its own shard directory. All shards share
+ * one node-wide sequence, so that the records of all shards can be merged back into one order by the
+ * {@link BinaryAuditReader}. Within a shard, records are written in sequence order.
+ */
+public class ShardedAuditLogger implements AuditLogger
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ShardedAuditLogger.class);
+
+    private final BinaryAuditLogger[] shards;
+    private final SegmentCompressor compressor;
+
+    /**
+     * Create a new sharded audit logger.
+     *
+     * @param builder the builder to create each shard with, shard directories are created below its directory
+     * @param shards  the number of shards
+     */
+    public ShardedAuditLogger(BinaryAuditLogger.Builder builder, int shards)
+    {
+        if (shards < 1)
+        {
+            throw new IllegalArgumentException("Number of audit shards must be positive, was " + shards);
+        }
+
+        AtomicLong sequence = new AtomicLong(lastSequence(builder.directory()));
+        this.compressor = builder.compression() != SegmentCompression.NONE
+                          ? new SegmentCompressor(builder.compression(), builder.compressionThreads())
+                          : null;
+        this.shards = new BinaryAuditLogger[shards];
+        for (int i = 0; i < shards; i++)
+        {
+            this.shards[i] = builder.forShard(i, sequence, compressor).build();
+        }
+
+        LOG.info("Binary audit records written to {} shards, continuing from sequence number {}", shards, sequence.get());
+    }
+
+    @Override
+    public void log(AuditEntry logEntry)
+    {
+        shards[(int) (Thread.currentThread().getId() % shards.length)].log(logEntry);
+    }
+
+    /**
+     * Close all shards and stop compression.
+     */
+    @Override
+    public void close()
+    {
+        for (BinaryAuditLogger shard : shards)
+        {
+            shard.close();
+        }
+
+        if (compressor != null)
+        {
+            compressor.close();
+        }
+    }
+
+    /**
+     * Find the last sequence number in the segment directory and all shard directories, including shards left from a
+     * previous run with more shards.
+     */
+    private static long lastSequence(File directory)
+    {
+        List<File> directories = new ArrayList<>();
+        directories.add(directory);
+        directories.addAll(AuditSegment.listShards(directory));
+
+        long lastSequence = 0;
+        for (File shardDirectory : directories)
+        {
+            try
+            {
+                lastSequence = Math.max(lastSequence, AuditSegment.lastSequence(shardDirectory));
+            }
+            catch (IOException e)
+            {
+                throw new IllegalArgumentException("Failed to read last audit sequence number in " + shardDirectory, e);
+            }
+        }
+        return lastSequence;
+    }
+}
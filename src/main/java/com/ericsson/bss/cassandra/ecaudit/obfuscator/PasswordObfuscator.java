@@ -16,8 +16,6 @@
 package com.ericsson.bss.cassandra.ecaudit.obfuscator;
 
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.cassandra.auth.IResource;
 import org.apache.cassandra.auth.Permission;
@@ -31,17 +29,13 @@ import com.google.common.collect.Sets;
 /**
  * Implements an {@link AuditObfuscator} that obfuscated passwords,
  * if present, in the operation string of the {@link AuditEntry}.
+ *
+ * Role statements are scanned by a {@link PasswordScanner} which also masks other sensitive role options.
  */
 public class PasswordObfuscator implements AuditObfuscator
 {
     private final static String PASSWORD_OBFUSCATED = "*****";
 
-    private final static String REGEX_PASSWORD_GROUP = "password";
-    private final static Pattern QUERY_CREATE_ALTER_USER_PATTERN =
-            Pattern.compile(".*password\\s+'(?<password>[^\\s]+)'.*", Pattern.CASE_INSENSITIVE);
-    private final static Pattern QUERY_CREATE_ALTER_ROLE_PATTERN =
-            Pattern.compile(".*password\\s*=\\s*'(?<password>[^\\s]+)'.*", Pattern.CASE_INSENSITIVE);
-
     private final static Set<Permission> PASSWORD_PERMISSIONS = ImmutableSet.of(Permission.CREATE, Permission.ALTER);
 
     @Override
@@ -82,32 +76,6 @@ public class PasswordObfuscator implements AuditObfuscator
      */
     private String obfuscateOperation(String operation)
     {
-        // CREATE ROLE / ALTER ROLE query
-        Matcher createAlterRoleMatcher = QUERY_CREATE_ALTER_ROLE_PATTERN.matcher(operation);
-        if (createAlterRoleMatcher.matches())
-        {
-            return obfuscateOperation(createAlterRoleMatcher, operation);
-        }
-
-        // CREATE USER / ALTER USER query
-        Matcher createAlterUserMatcher = QUERY_CREATE_ALTER_USER_PATTERN.matcher(operation);
-        if (createAlterUserMatcher.matches())
-        {
-            return obfuscateOperation(createAlterUserMatcher, operation);
-        }
-
-        return operation;
+        return PasswordScanner.obfuscate(operation, PASSWORD_OBFUSCATED);
     }
-
-    private String obfuscateOperation(Matcher matcher, String operation)
-    {
-        StringBuilder obfuscated = new StringBuilder();
-        int matchStart = matcher.start(REGEX_PASSWORD_GROUP);
-        int matchStop = matcher.end(REGEX_PASSWORD_GROUP);
-
-        obfuscated.append(operation, 0, matchStart).append(PASSWORD_OBFUSCATED).append(operation.substring(matchStop));
-
-        return obfuscated.toString();
-    }
-
 }
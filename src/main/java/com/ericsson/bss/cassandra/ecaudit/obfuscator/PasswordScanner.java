@@ -0,0 +1,220 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.obfuscator;
+
+/**
+ * A single pass scanner which masks passwords and other sensitive values in CQL statements.
+ *
+ * The scanner understands CQL string literals (including escaped quotes), dollar quoted strings, quoted identifiers
+ * and comments. A string literal is masked if it is the value of a PASSWORD option, in both the
+ * {@code PASSWORD 'secret'} and {@code PASSWORD = 'secret'} forms, or if it is the value of an entry in an option map
+ * whose key contains "password" or "secret", such as {@code OPTIONS = { 'ldap_password' : 'secret' }}.
+ *
+ * Every character of the statement is visited once, so the time spent is linear in the length of the statement.
+ */
+final class PasswordScanner
+{
+    private static final String PASSWORD_KEYWORD = "password";
+    private static final String[] SENSITIVE_KEY_WORDS = { "password", "secret" };
+
+    private PasswordScanner()
+    {
+        // Utility class
+    }
+
+    /**
+     * Mask sensitive values in a statement.
+     *
+     * @param statement the statement to scan
+     * @param mask      the string to replace the content of sensitive string literals with
+     * @return the statement with sensitive values masked, or the same statement instance if nothing was masked
+     */
+    static String obfuscate(String statement, String mask)
+    {
+        StringBuilder obfuscated = null;
+        int copied = 0;
+        boolean maskNext = false;
+
+        int length = statement.length();
+        int i = 0;
+        while (i < length)
+        {
+            char c = statement.charAt(i);
+            if (Character.isWhitespace(c) || c == '=' || c == ':')
+            {
+                // Separators between an option and its value
+                i++;
+            }
+            else if (c == '\'' || isDollarQuote(statement, i))
+            {
+                int quoteLength = c == '\'' ? 1 : 2;
+                int end = c == '\'' ? endOfStringLiteral(statement, i) : endOfDollarQuotedString(statement, i);
+                int contentStart = i + quoteLength;
+                int contentEnd = end < length ? end - quoteLength + 1 : length;
+
+                if (maskNext)
+                {
+                    if (obfuscated == null)
+                    {
+                        obfuscated = new StringBuilder(length);
+                    }
+                    obfuscated.append(statement, copied, contentStart).append(mask);
+                    copied = contentEnd;
+                    maskNext = false;
+                }
+                else
+                {
+                    maskNext = isFollowedByColon(statement, end + 1) && isSensitiveKey(statement, contentStart, contentEnd);
+                }
+                i = end + 1;
+            }
+            else if (c == '"')
+            {
+                i = endOfQuotedIdentifier(statement, i) + 1;
+                maskNext = false;
+            }
+            else if (isLineComment(statement, i))
+            {
+                i = endOfLine(statement, i) + 1;
+            }
+            else if (isBlockComment(statement, i))
+            {
+                i = endOfBlockComment(statement, i) + 1;
+            }
+            else if (isIdentifierPart(c))
+            {
+                int start = i;
+                while (i < length && isIdentifierPart(statement.charAt(i)))
+                {
+                    i++;
+                }
+                maskNext = i - start == PASSWORD_KEYWORD.length()
+                           && statement.regionMatches(true, start, PASSWORD_KEYWORD, 0, PASSWORD_KEYWORD.length());
+            }
+            else
+            {
+                i++;
+                maskNext = false;
+            }
+        }
+
+        if (obfuscated == null)
+        {
+            return statement;
+        }
+
+        return obfuscated.append(statement, copied, length).toString();
+    }
+
+    private static boolean isIdentifierPart(char c)
+    {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static boolean isDollarQuote(String statement, int i)
+    {
+        return statement.startsWith("$$", i);
+    }
+
+    private static boolean isLineComment(String statement, int i)
+    {
+        return statement.startsWith("--", i) || statement.startsWith("//", i);
+    }
+
+    private static boolean isBlockComment(String statement, int i)
+    {
+        return statement.startsWith("/*", i);
+    }
+
+    /**
+     * @return the index of the closing quote, or the length of the statement if the literal is not terminated
+     */
+    private static int endOfStringLiteral(String statement, int start)
+    {
+        return endOfQuoted(statement, start, '\'');
+    }
+
+    private static int endOfQuotedIdentifier(String statement, int start)
+    {
+        return endOfQuoted(statement, start, '"');
+    }
+
+    private static int endOfQuoted(String statement, int start, char quote)
+    {
+        int i = start + 1;
+        while (i < statement.length())
+        {
+            if (statement.charAt(i) == quote)
+            {
+                if (i + 1 < statement.length() && statement.charAt(i + 1) == quote)
+                {
+                    // Escaped quote
+                    i += 2;
+                    continue;
+                }
+                return i;
+            }
+            i++;
+        }
+        return statement.length();
+    }
+
+    /**
+     * @return the index of the last character of the closing $$, or the length of the statement if not terminated
+     */
+    private static int endOfDollarQuotedString(String statement, int start)
+    {
+        int end = statement.indexOf("$$", start + 2);
+        return end < 0 ? statement.length() : end + 1;
+    }
+
+    private static int endOfLine(String statement, int start)
+    {
+        int end = statement.indexOf('\n', start);
+        return end < 0 ? statement.length() : end;
+    }
+
+    private static int endOfBlockComment(String statement, int start)
+    {
+        int end = statement.indexOf("*/", start + 2);
+        return end < 0 ? statement.length() : end + 1;
+    }
+
+    private static boolean isFollowedByColon(String statement, int start)
+    {
+        int i = start;
+        while (i < statement.length() && Character.isWhitespace(statement.charAt(i)))
+        {
+            i++;
+        }
+        return i < statement.length() && statement.charAt(i) == ':';
+    }
+
+    private static boolean isSensitiveKey(String statement, int start, int end)
+    {
+        for (String word : SENSITIVE_KEY_WORDS)
+        {
+            for (int i = start; i <= end - word.length(); i++)
+            {
+                if (statement.regionMatches(true, i, word, 0, word.length()))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
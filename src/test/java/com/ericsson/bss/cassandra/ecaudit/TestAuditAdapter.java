@@ -64,7 +64,10 @@ import org.mockito.junit.MockitoJUnitRunner;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -107,11 +110,13 @@ public class TestAuditAdapter
     public void before()
     {
         auditAdapter = new AuditAdapter(mockAuditor, mockAuditEntryBuilderFactory);
+        lenient().when(mockAuditor.isAuditRequired(any(AuditEntry.class))).thenReturn(true);
     }
 
     @After
     public void after()
     {
+        verify(mockAuditor, atLeast(0)).isAuditRequired(any(AuditEntry.class));
         verifyNoMoreInteractions(mockAuditor);
     }
 
@@ -143,7 +148,7 @@ public class TestAuditAdapter
 
         // Capture and perform validation
         ArgumentCaptor<AuditEntry> captor = ArgumentCaptor.forClass(AuditEntry.class);
-        verify(mockAuditor, times(1)).audit(captor.capture());
+        verify(mockAuditor, times(1)).log(captor.capture());
 
         AuditEntry captured = captor.getValue();
         assertThat(captured.getClientAddress()).isEqualTo(expectedSocketAddress.getAddress());
@@ -175,7 +180,7 @@ public class TestAuditAdapter
 
         // Capture and perform validation
         ArgumentCaptor<AuditEntry> captor = ArgumentCaptor.forClass(AuditEntry.class);
-        verify(mockAuditor, times(1)).audit(captor.capture());
+        verify(mockAuditor, times(1)).log(captor.capture());
 
         AuditEntry captured = captor.getValue();
         assertThat(captured.getClientAddress()).isEqualTo(expectedSocketAddress.getAddress());
@@ -213,12 +218,12 @@ public class TestAuditAdapter
                               .permissions(ImmutableSet.of(Permission.SELECT))
                               .resource(DataResource.table("ks", "cf")));
 
-        auditAdapter.mapIdToQuery(statementId, preparedQuery);
+        auditAdapter.mapIdToStatement(statementId, preparedQuery, mockStatement);
         auditAdapter.auditPrepared(statementId, mockStatement, mockState, mockOptions, expectedStatus);
 
         // Capture and perform validation
         ArgumentCaptor<AuditEntry> captor = ArgumentCaptor.forClass(AuditEntry.class);
-        verify(mockAuditor, times(1)).audit(captor.capture());
+        verify(mockAuditor, times(1)).log(captor.capture());
         verifyNoMoreInteractions(mockOptions);
 
         AuditEntry captured = captor.getValue();
@@ -231,6 +236,94 @@ public class TestAuditAdapter
         assertThat(captured.getResource()).isEqualTo(DataResource.table("ks", "cf"));
     }
 
+    @Test
+    public void testPreparedStatementIsResolvedOnceOnPrepare()
+    {
+        String preparedQuery = "select value1 from ks.cf where pk = ?";
+        MD5Digest statementId = MD5Digest.compute(preparedQuery);
+
+        when(mockUser.getName()).thenReturn("user");
+        when(mockState.getUser()).thenReturn(mockUser);
+        when(mockState.getRemoteAddress()).thenReturn(InetSocketAddress.createUnresolved("localhost", 0));
+        when(mockAuditEntryBuilderFactory.createEntryBuilder(eq(mockStatement)))
+        .thenReturn(AuditEntry.newBuilder()
+                              .permissions(ImmutableSet.of(Permission.SELECT))
+                              .resource(DataResource.table("ks", "cf")));
+
+        auditAdapter.mapIdToStatement(statementId, preparedQuery, mockStatement);
+        auditAdapter.auditPrepared(statementId, mockStatement, mockState, mockOptions, Status.ATTEMPT);
+        auditAdapter.auditPrepared(statementId, mockStatement, mockState, mockOptions, Status.ATTEMPT);
+
+        ArgumentCaptor<AuditEntry> captor = ArgumentCaptor.forClass(AuditEntry.class);
+        verify(mockAuditor, times(2)).log(captor.capture());
+        verify(mockAuditEntryBuilderFactory, times(1)).createEntryBuilder(eq(mockStatement));
+
+        assertThat(captor.getAllValues()).extracting(AuditEntry::getResource).containsOnly(DataResource.table("ks", "cf"));
+        assertThat(captor.getAllValues()).extracting(AuditEntry::getPermissions).containsOnly(ImmutableSet.of(Permission.SELECT));
+    }
+
+    @Test
+    public void testPreparedStatementIsResolvedOnExecuteIfUnavailableOnPrepare()
+    {
+        String preparedQuery = "select value1 from ks.cf where pk = ?";
+        MD5Digest statementId = MD5Digest.compute(preparedQuery);
+
+        when(mockUser.getName()).thenReturn("user");
+        when(mockState.getUser()).thenReturn(mockUser);
+        when(mockState.getRemoteAddress()).thenReturn(InetSocketAddress.createUnresolved("localhost", 0));
+        when(mockOptions.getValues()).thenReturn(createValues("text"));
+        when(mockOptions.getColumnSpecifications()).thenReturn(createTextColumns("text"));
+        when(mockOptions.hasColumnSpecifications()).thenReturn(true);
+        when(mockAuditEntryBuilderFactory.createEntryBuilder(eq(mockStatement)))
+        .thenReturn(AuditEntry.newBuilder()
+                              .permissions(ImmutableSet.of(Permission.SELECT))
+                              .resource(DataResource.table("ks", "cf")));
+
+        auditAdapter.mapIdToStatement(statementId, preparedQuery, null);
+        auditAdapter.auditPrepared(statementId, mockStatement, mockState, mockOptions, Status.ATTEMPT);
+        auditAdapter.auditPrepared(statementId, mockStatement, mockState, mockOptions, Status.ATTEMPT);
+
+        ArgumentCaptor<AuditEntry> captor = ArgumentCaptor.forClass(AuditEntry.class);
+        verify(mockAuditor, times(2)).log(captor.capture());
+        verify(mockAuditEntryBuilderFactory, times(1)).createEntryBuilder(eq(mockStatement));
+
+        assertThat(captor.getAllValues()).extracting(AuditEntry::getResource).containsOnly(DataResource.table("ks", "cf"));
+        assertThat(captor.getAllValues()).extracting(AuditEntry::getOperation).extracting(AuditOperation::getOperationString)
+                                         .containsOnly(preparedQuery + "['text']");
+    }
+
+    @Test
+    public void testPreparedStatementKeepsQueryWhenTemplatesAreFull()
+    {
+        String preparedQuery = "select value1 from ks.cf where pk = ?";
+        MD5Digest statementId = MD5Digest.compute(preparedQuery);
+        auditAdapter = new AuditAdapter(mockAuditor, mockAuditEntryBuilderFactory, new PreparedStatementCache(1024, statementId::equals));
+
+        when(mockUser.getName()).thenReturn("user");
+        when(mockState.getUser()).thenReturn(mockUser);
+        when(mockState.getRemoteAddress()).thenReturn(InetSocketAddress.createUnresolved("localhost", 0));
+        when(mockOptions.getValues()).thenReturn(createValues("text"));
+        when(mockOptions.getColumnSpecifications()).thenReturn(createTextColumns("text"));
+        when(mockOptions.hasColumnSpecifications()).thenReturn(true);
+        when(mockAuditEntryBuilderFactory.createEntryBuilder(eq(mockStatement)))
+        .thenReturn(AuditEntry.newBuilder()
+                              .permissions(ImmutableSet.of(Permission.SELECT))
+                              .resource(DataResource.table("ks", "cf")));
+
+        auditAdapter.mapIdToStatement(statementId, preparedQuery, mockStatement);
+        for (int i = 0; i < 10; i++)
+        {
+            String otherQuery = "select value1 from ks.cf where pk = " + i;
+            auditAdapter.mapIdToStatement(MD5Digest.compute(otherQuery), otherQuery, mockStatement);
+        }
+        auditAdapter.auditPrepared(statementId, mockStatement, mockState, mockOptions, Status.ATTEMPT);
+
+        ArgumentCaptor<AuditEntry> captor = ArgumentCaptor.forClass(AuditEntry.class);
+        verify(mockAuditor, times(1)).log(captor.capture());
+
+        assertThat(captor.getValue().getOperation().getOperationString()).isEqualTo(preparedQuery + "['text']");
+    }
+
     @Test
     public void testProcessPreparedStatementFailure()
     {
@@ -257,12 +350,12 @@ public class TestAuditAdapter
                               .permissions(ImmutableSet.of(Permission.SELECT))
                               .resource(DataResource.table("ks", "cf")));
 
-        auditAdapter.mapIdToQuery(statementId, preparedQuery);
+        auditAdapter.mapIdToStatement(statementId, preparedQuery, mockStatement);
         auditAdapter.auditPrepared(statementId, mockStatement, mockState, mockOptions, expectedStatus);
 
         // Capture and perform validation
         ArgumentCaptor<AuditEntry> captor = ArgumentCaptor.forClass(AuditEntry.class);
-        verify(mockAuditor, times(1)).audit(captor.capture());
+        verify(mockAuditor, times(1)).log(captor.capture());
         verifyNoMoreInteractions(mockOptions);
 
         AuditEntry captured = captor.getValue();
@@ -302,7 +395,7 @@ public class TestAuditAdapter
         auditAdapter.auditBatch(mockBatchStatement, expectedBatchId, mockState, mockBatchOptions, expectedStatus);
 
         ArgumentCaptor<AuditEntry> captor = ArgumentCaptor.forClass(AuditEntry.class);
-        verify(mockAuditor, times(1)).audit(captor.capture());
+        verify(mockAuditor, times(1)).log(captor.capture());
 
         List<AuditEntry> entries = captor.getAllValues();
 
@@ -345,7 +438,7 @@ public class TestAuditAdapter
         auditAdapter.auditBatch(mockBatchStatement, expectedBatchId, mockState, mockBatchOptions, expectedStatus);
 
         ArgumentCaptor<AuditEntry> captor = ArgumentCaptor.forClass(AuditEntry.class);
-        verify(mockAuditor, times(3)).audit(captor.capture());
+        verify(mockAuditor, times(3)).log(captor.capture());
 
         List<AuditEntry> entries = captor.getAllValues();
 
@@ -398,12 +491,17 @@ public class TestAuditAdapter
         when(mockAuditEntryBuilderFactory.updateBatchEntryBuilder(any(AuditEntry.Builder.class), any(ModificationStatement.class)))
         .thenAnswer(a -> a.getArgument(0));
 
-        auditAdapter.mapIdToQuery(id, preparedQuery);
+        when(mockAuditEntryBuilderFactory.createEntryBuilder(eq(mockModifyStatement)))
+        .thenReturn(AuditEntry.newBuilder()
+                              .permissions(Sets.immutableEnumSet(Permission.MODIFY))
+                              .resource(DataResource.table("ts", "ks")));
+
+        auditAdapter.mapIdToStatement(id, preparedQuery, mockModifyStatement);
         auditAdapter.auditBatch(mockBatchStatement, expectedBatchId, mockState, mockBatchOptions, expectedStatus);
 
         // Begin, prepared statement, end
         ArgumentCaptor<AuditEntry> captor = ArgumentCaptor.forClass(AuditEntry.class);
-        verify(mockAuditor, times(1)).audit(captor.capture());
+        verify(mockAuditor, times(1)).log(captor.capture());
         verifyNoMoreInteractions(mockOptions);
 
         List<AuditEntry> entries = captor.getAllValues();
@@ -417,6 +515,54 @@ public class TestAuditAdapter
         assertThat(entries).extracting(AuditEntry::getResource).containsOnly(DataResource.root());
     }
 
+    @Test
+    public void testWhitelistedRegularStatementIsNotBuilt()
+    {
+        when(mockUser.getName()).thenReturn("user");
+        when(mockState.getUser()).thenReturn(mockUser);
+        when(mockState.getRemoteAddress()).thenReturn(InetSocketAddress.createUnresolved("localhost", 0));
+        when(mockAuditEntryBuilderFactory.createEntryBuilder(eq("select * from ks.cf"), eq(mockState)))
+        .thenReturn(AuditEntry.newBuilder()
+                              .permissions(ImmutableSet.of(Permission.SELECT))
+                              .resource(DataResource.table("ks", "cf")));
+        when(mockAuditor.isAuditRequired(any(AuditEntry.class))).thenReturn(false);
+
+        auditAdapter.auditRegular("select * from ks.cf", mockState, Status.ATTEMPT);
+
+        ArgumentCaptor<AuditEntry> captor = ArgumentCaptor.forClass(AuditEntry.class);
+        verify(mockAuditor, times(1)).isAuditRequired(captor.capture());
+        verify(mockAuditor, never()).log(any(AuditEntry.class));
+
+        AuditEntry checked = captor.getValue();
+        assertThat(checked.getUser()).isEqualTo("user");
+        assertThat(checked.getResource()).isEqualTo(DataResource.table("ks", "cf"));
+        assertThat(checked.getPermissions()).isEqualTo(ImmutableSet.of(Permission.SELECT));
+        assertThat(checked.getOperation()).isNull();
+    }
+
+    @Test
+    public void testWhitelistedPreparedStatementIsNotBuilt()
+    {
+        String preparedQuery = "select value1 from ks.cf where pk = ?";
+        MD5Digest statementId = MD5Digest.compute(preparedQuery);
+
+        when(mockUser.getName()).thenReturn("user");
+        when(mockState.getUser()).thenReturn(mockUser);
+        when(mockState.getRemoteAddress()).thenReturn(InetSocketAddress.createUnresolved("localhost", 0));
+        when(mockAuditEntryBuilderFactory.createEntryBuilder(eq(mockStatement)))
+        .thenReturn(AuditEntry.newBuilder()
+                              .permissions(ImmutableSet.of(Permission.SELECT))
+                              .resource(DataResource.table("ks", "cf")));
+        when(mockAuditor.isAuditRequired(any(AuditEntry.class))).thenReturn(false);
+
+        auditAdapter.mapIdToStatement(statementId, preparedQuery, mockStatement);
+        auditAdapter.auditPrepared(statementId, mockStatement, mockState, mockOptions, Status.ATTEMPT);
+
+        verify(mockAuditor, times(1)).isAuditRequired(any(AuditEntry.class));
+        verify(mockAuditor, never()).log(any(AuditEntry.class));
+        verifyNoMoreInteractions(mockOptions);
+    }
+
     @Test
     public void testProcessAuth()
     {
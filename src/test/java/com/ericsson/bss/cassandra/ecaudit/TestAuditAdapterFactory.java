@@ -21,7 +21,9 @@ import java.util.Collections;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 
 import com.ericsson.bss.cassandra.ecaudit.facade.Auditor;
@@ -33,8 +35,11 @@ import com.ericsson.bss.cassandra.ecaudit.filter.yaml.AuditConfig;
 import com.ericsson.bss.cassandra.ecaudit.filter.yaml.AuditYamlConfigurationLoader;
 import com.ericsson.bss.cassandra.ecaudit.filter.yaml.YamlAuditFilter;
 import com.ericsson.bss.cassandra.ecaudit.filter.yamlandrole.YamlAndRoleAuditFilter;
+import com.ericsson.bss.cassandra.ecaudit.logger.AsyncAuditLogger;
 import com.ericsson.bss.cassandra.ecaudit.logger.AuditLogger;
 import com.ericsson.bss.cassandra.ecaudit.logger.Slf4jAuditLogger;
+import com.ericsson.bss.cassandra.ecaudit.logger.binary.BinaryAuditLogger;
+import com.ericsson.bss.cassandra.ecaudit.logger.binary.ShardedAuditLogger;
 import com.ericsson.bss.cassandra.ecaudit.obfuscator.AuditObfuscator;
 import com.ericsson.bss.cassandra.ecaudit.obfuscator.PasswordObfuscator;
 import org.apache.cassandra.exceptions.ConfigurationException;
@@ -45,6 +50,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 @RunWith(MockitoJUnitRunner.StrictStubs.class)
 public class TestAuditAdapterFactory
 {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private AuditAdapterFactory factory;
 
     @Before
@@ -57,6 +65,18 @@ public class TestAuditAdapterFactory
     public void after()
     {
         System.clearProperty(AuditAdapterFactory.FILTER_TYPE_PROPERTY_NAME);
+        System.clearProperty(AuditAdapterFactory.ASYNC_LOGGER_PROPERTY_NAME);
+        System.clearProperty(AuditAdapterFactory.ASYNC_LOGGER_OVERFLOW_POLICY_PROPERTY_NAME);
+        System.clearProperty(AuditAdapterFactory.ASYNC_LOGGER_SPILL_DIRECTORY_PROPERTY_NAME);
+        System.clearProperty(AuditAdapterFactory.LOGGER_TYPE_PROPERTY_NAME);
+        System.clearProperty(AuditAdapterFactory.BINARY_LOGGER_DIRECTORY_PROPERTY_NAME);
+        System.clearProperty(AuditAdapterFactory.BINARY_LOGGER_FSYNC_PROPERTY_NAME);
+        System.clearProperty(AuditAdapterFactory.BINARY_LOGGER_COMPRESSION_PROPERTY_NAME);
+        System.clearProperty(AuditAdapterFactory.BINARY_LOGGER_SHARDS_PROPERTY_NAME);
+        System.clearProperty(AuditAdapterFactory.CLASSIFICATION_CACHE_SIZE_PROPERTY_NAME);
+        System.clearProperty(AuditAdapterFactory.PREPARED_CACHE_SIZE_PROPERTY_NAME);
+        System.clearProperty(AuditAdapterFactory.YAML_RELOAD_INTERVAL_PROPERTY_NAME);
+        System.clearProperty(AuditYamlConfigurationLoader.PROPERTY_CONFIG_FILE);
 
     }
 
@@ -148,6 +168,211 @@ public class TestAuditAdapterFactory
         assertThat(obfuscatorIn(defaultAuditor)).isInstanceOf(PasswordObfuscator.class);
     }
 
+    @Test
+    public void testLoadAsyncLoggerWithoutErrorHasExpectedTypes() throws Exception
+    {
+        System.setProperty(AuditAdapterFactory.ASYNC_LOGGER_PROPERTY_NAME, "true");
+
+        AuditAdapter adapter = factory.getInstance();
+
+        Auditor auditor = auditorIn(adapter);
+        assertThat(auditor).isInstanceOf(DefaultAuditor.class);
+
+        DefaultAuditor defaultAuditor = (DefaultAuditor) auditor;
+        assertThat(loggerIn(defaultAuditor)).isInstanceOf(AsyncAuditLogger.class);
+        assertThat(filterIn(defaultAuditor)).isInstanceOf(RoleAuditFilter.class);
+        assertThat(obfuscatorIn(defaultAuditor)).isInstanceOf(PasswordObfuscator.class);
+
+        ((AsyncAuditLogger) loggerIn(defaultAuditor)).close();
+    }
+
+    @Test
+    public void testLoadAsyncLoggerWithSpillWithoutError() throws Exception
+    {
+        System.setProperty(AuditAdapterFactory.ASYNC_LOGGER_PROPERTY_NAME, "true");
+        System.setProperty(AuditAdapterFactory.ASYNC_LOGGER_OVERFLOW_POLICY_PROPERTY_NAME, "SPILL");
+        System.setProperty(AuditAdapterFactory.ASYNC_LOGGER_SPILL_DIRECTORY_PROPERTY_NAME, temporaryFolder.getRoot().getPath());
+
+        AuditAdapter adapter = factory.getInstance();
+
+        DefaultAuditor defaultAuditor = (DefaultAuditor) auditorIn(adapter);
+        assertThat(loggerIn(defaultAuditor)).isInstanceOf(AsyncAuditLogger.class);
+
+        ((AsyncAuditLogger) loggerIn(defaultAuditor)).close();
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testLoadUnknownOverflowPolicyFails() throws Exception
+    {
+        System.setProperty(AuditAdapterFactory.ASYNC_LOGGER_PROPERTY_NAME, "true");
+        System.setProperty(AuditAdapterFactory.ASYNC_LOGGER_OVERFLOW_POLICY_PROPERTY_NAME, "DISCARD");
+
+        factory.getInstance();
+    }
+
+    @Test
+    public void testLoadYamlWithoutReloadWithoutError() throws Exception
+    {
+        System.setProperty(AuditAdapterFactory.FILTER_TYPE_PROPERTY_NAME, AuditAdapterFactory.FILTER_TYPE_YAML);
+        System.setProperty(AuditYamlConfigurationLoader.PROPERTY_CONFIG_FILE, getPathToTestResourceFile("mock_configuration.yaml"));
+        System.setProperty(AuditAdapterFactory.YAML_RELOAD_INTERVAL_PROPERTY_NAME, "0");
+
+        assertThat(factory.getInstance()).isNotNull();
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testLoadYamlNegativeReloadIntervalFails() throws Exception
+    {
+        System.setProperty(AuditAdapterFactory.FILTER_TYPE_PROPERTY_NAME, AuditAdapterFactory.FILTER_TYPE_YAML);
+        System.setProperty(AuditYamlConfigurationLoader.PROPERTY_CONFIG_FILE, getPathToTestResourceFile("mock_configuration.yaml"));
+        System.setProperty(AuditAdapterFactory.YAML_RELOAD_INTERVAL_PROPERTY_NAME, "-1");
+
+        factory.getInstance();
+    }
+
+    @Test
+    public void testLoadWithoutClassificationCacheWithoutError() throws Exception
+    {
+        System.setProperty(AuditAdapterFactory.CLASSIFICATION_CACHE_SIZE_PROPERTY_NAME, "0");
+
+        assertThat(factory.getInstance()).isNotNull();
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testLoadNegativeClassificationCacheSizeFails() throws Exception
+    {
+        System.setProperty(AuditAdapterFactory.CLASSIFICATION_CACHE_SIZE_PROPERTY_NAME, "-1");
+
+        factory.getInstance();
+    }
+
+    @Test
+    public void testLoadWithPreparedCacheSizeWithoutError() throws Exception
+    {
+        System.setProperty(AuditAdapterFactory.PREPARED_CACHE_SIZE_PROPERTY_NAME, "16");
+
+        assertThat(factory.getInstance()).isNotNull();
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testLoadZeroPreparedCacheSizeFails() throws Exception
+    {
+        System.setProperty(AuditAdapterFactory.PREPARED_CACHE_SIZE_PROPERTY_NAME, "0");
+
+        factory.getInstance();
+    }
+
+    @Test
+    public void testLoadBinaryLoggerWithoutErrorHasExpectedTypes() throws Exception
+    {
+        System.setProperty(AuditAdapterFactory.LOGGER_TYPE_PROPERTY_NAME, AuditAdapterFactory.LOGGER_TYPE_BINARY);
+        System.setProperty(AuditAdapterFactory.BINARY_LOGGER_DIRECTORY_PROPERTY_NAME, temporaryFolder.getRoot().getPath());
+
+        AuditAdapter adapter = factory.getInstance();
+
+        Auditor auditor = auditorIn(adapter);
+        assertThat(auditor).isInstanceOf(DefaultAuditor.class);
+
+        DefaultAuditor defaultAuditor = (DefaultAuditor) auditor;
+        assertThat(loggerIn(defaultAuditor)).isInstanceOf(BinaryAuditLogger.class);
+        assertThat(filterIn(defaultAuditor)).isInstanceOf(RoleAuditFilter.class);
+        assertThat(obfuscatorIn(defaultAuditor)).isInstanceOf(PasswordObfuscator.class);
+    }
+
+    @Test
+    public void testLoadCustomLogFormatWithoutError() throws Exception
+    {
+        System.setProperty(AuditYamlConfigurationLoader.PROPERTY_CONFIG_FILE, getPathToTestResourceFile("log_format_configuration.yaml"));
+
+        AuditAdapter adapter = factory.getInstance();
+
+        Auditor auditor = auditorIn(adapter);
+        assertThat(loggerIn((DefaultAuditor) auditor)).isInstanceOf(Slf4jAuditLogger.class);
+        assertThat(filterIn((DefaultAuditor) auditor)).isInstanceOf(RoleAuditFilter.class);
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testLoadInvalidLogFormatFails() throws Exception
+    {
+        System.setProperty(AuditYamlConfigurationLoader.PROPERTY_CONFIG_FILE, getPathToTestResourceFile("invalid_log_format_configuration.yaml"));
+
+        factory.getInstance();
+    }
+
+    @Test
+    public void testLoadBinaryLoggerWithFsyncWithoutError() throws Exception
+    {
+        System.setProperty(AuditAdapterFactory.LOGGER_TYPE_PROPERTY_NAME, AuditAdapterFactory.LOGGER_TYPE_BINARY);
+        System.setProperty(AuditAdapterFactory.BINARY_LOGGER_DIRECTORY_PROPERTY_NAME, temporaryFolder.getRoot().getPath());
+        System.setProperty(AuditAdapterFactory.BINARY_LOGGER_FSYNC_PROPERTY_NAME, "BATCH");
+
+        AuditAdapter adapter = factory.getInstance();
+
+        assertThat(loggerIn((DefaultAuditor) auditorIn(adapter))).isInstanceOf(BinaryAuditLogger.class);
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testLoadUnknownFsyncPolicyFails() throws Exception
+    {
+        System.setProperty(AuditAdapterFactory.LOGGER_TYPE_PROPERTY_NAME, AuditAdapterFactory.LOGGER_TYPE_BINARY);
+        System.setProperty(AuditAdapterFactory.BINARY_LOGGER_DIRECTORY_PROPERTY_NAME, temporaryFolder.getRoot().getPath());
+        System.setProperty(AuditAdapterFactory.BINARY_LOGGER_FSYNC_PROPERTY_NAME, "ALWAYS");
+
+        factory.getInstance();
+    }
+
+    @Test
+    public void testLoadBinaryLoggerWithCompressionWithoutError() throws Exception
+    {
+        System.setProperty(AuditAdapterFactory.LOGGER_TYPE_PROPERTY_NAME, AuditAdapterFactory.LOGGER_TYPE_BINARY);
+        System.setProperty(AuditAdapterFactory.BINARY_LOGGER_DIRECTORY_PROPERTY_NAME, temporaryFolder.getRoot().getPath());
+        System.setProperty(AuditAdapterFactory.BINARY_LOGGER_COMPRESSION_PROPERTY_NAME, "LZ4");
+
+        AuditAdapter adapter = factory.getInstance();
+
+        assertThat(loggerIn((DefaultAuditor) auditorIn(adapter))).isInstanceOf(BinaryAuditLogger.class);
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testLoadUnknownCompressionFails() throws Exception
+    {
+        System.setProperty(AuditAdapterFactory.LOGGER_TYPE_PROPERTY_NAME, AuditAdapterFactory.LOGGER_TYPE_BINARY);
+        System.setProperty(AuditAdapterFactory.BINARY_LOGGER_DIRECTORY_PROPERTY_NAME, temporaryFolder.getRoot().getPath());
+        System.setProperty(AuditAdapterFactory.BINARY_LOGGER_COMPRESSION_PROPERTY_NAME, "SNAPPY");
+
+        factory.getInstance();
+    }
+
+    @Test
+    public void testLoadShardedBinaryLoggerWithoutError() throws Exception
+    {
+        System.setProperty(AuditAdapterFactory.LOGGER_TYPE_PROPERTY_NAME, AuditAdapterFactory.LOGGER_TYPE_BINARY);
+        System.setProperty(AuditAdapterFactory.BINARY_LOGGER_DIRECTORY_PROPERTY_NAME, temporaryFolder.getRoot().getPath());
+        System.setProperty(AuditAdapterFactory.BINARY_LOGGER_SHARDS_PROPERTY_NAME, "4");
+
+        AuditAdapter adapter = factory.getInstance();
+
+        assertThat(loggerIn((DefaultAuditor) auditorIn(adapter))).isInstanceOf(ShardedAuditLogger.class);
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testLoadZeroShardsFails() throws Exception
+    {
+        System.setProperty(AuditAdapterFactory.LOGGER_TYPE_PROPERTY_NAME, AuditAdapterFactory.LOGGER_TYPE_BINARY);
+        System.setProperty(AuditAdapterFactory.BINARY_LOGGER_DIRECTORY_PROPERTY_NAME, temporaryFolder.getRoot().getPath());
+        System.setProperty(AuditAdapterFactory.BINARY_LOGGER_SHARDS_PROPERTY_NAME, "0");
+
+        factory.getInstance();
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testLoadUnknownLoggerFails() throws Exception
+    {
+        System.setProperty(AuditAdapterFactory.LOGGER_TYPE_PROPERTY_NAME, "UNKNOWN");
+
+        factory.getInstance();
+    }
+
     @Test(expected = ConfigurationException.class)
     public void testLoadUnknownFails() throws Exception
     {
@@ -0,0 +1,193 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import com.codahale.metrics.Gauge;
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.entry.SimpleAuditOperation;
+import org.apache.cassandra.auth.DataResource;
+import org.apache.cassandra.auth.IResource;
+import org.apache.cassandra.auth.Permission;
+import org.apache.cassandra.auth.RoleResource;
+import org.apache.cassandra.metrics.CassandraMetricsRegistry;
+import org.apache.cassandra.utils.MD5Digest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestPreparedStatementCache
+{
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroSizeIsRejected()
+    {
+        new PreparedStatementCache(0);
+    }
+
+    @Test
+    public void testPutAndGet()
+    {
+        PreparedStatementCache cache = new PreparedStatementCache(1024 * 1024);
+        AuditEntry template = template("SELECT * FROM ks.tbl", DataResource.table("ks", "tbl"));
+
+        cache.put(id("SELECT * FROM ks.tbl"), template);
+
+        assertThat(cache.get(id("SELECT * FROM ks.tbl"))).isSameAs(template);
+        assertThat(cache.get(id("SELECT * FROM ks.other"))).isNull();
+    }
+
+    @Test
+    public void testMemoryUsageFollowsEntries()
+    {
+        PreparedStatementCache cache = new PreparedStatementCache(1024 * 1024);
+
+        cache.put(id("a"), template("SELECT * FROM ks.tbl", DataResource.table("ks", "tbl")));
+        long single = cache.memoryUsage();
+        cache.put(id("a"), template("SELECT * FROM ks.tbl", DataResource.table("ks", "tbl")));
+        assertThat(cache.memoryUsage()).isEqualTo(single);
+
+        cache.put(id("b"), template("SELECT * FROM ks.tbl WHERE k IN (?, ?, ?)", DataResource.table("ks", "tbl")));
+        assertThat(cache.memoryUsage()).isGreaterThan(2 * single);
+
+        cache.remove(id("a"));
+        cache.remove(id("b"));
+        assertThat(cache.memoryUsage()).isEqualTo(0);
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testEvictedStatementsAreRemovedWhenFull()
+    {
+        Set<MD5Digest> prepared = new HashSet<>();
+        PreparedStatementCache cache = new PreparedStatementCache(64 * 1024, prepared::contains);
+
+        for (int i = 0; i < 1000; i++)
+        {
+            String query = "SELECT * FROM ks.tbl WHERE k = " + i;
+            if (i % 10 == 0)
+            {
+                prepared.add(id(query));
+            }
+            cache.put(id(query), template(query, DataResource.table("ks", "tbl")));
+        }
+
+        assertThat(cache.size()).isLessThan(1000);
+        assertThat(cache.memoryUsage()).isLessThanOrEqualTo(64 * 1024);
+        for (MD5Digest id : prepared)
+        {
+            assertThat(cache.get(id)).isNotNull();
+        }
+    }
+
+    @Test
+    public void testMemoryIsBoundedWhenAllStatementsArePrepared()
+    {
+        PreparedStatementCache cache = new PreparedStatementCache(4 * 1024, id -> true);
+
+        for (int i = 0; i < 100; i++)
+        {
+            String query = "SELECT * FROM ks.tbl WHERE k = " + i;
+            cache.put(id(query), template(query, DataResource.table("ks", "tbl")));
+            assertThat(cache.memoryUsage()).isLessThanOrEqualTo(4 * 1024);
+        }
+
+        assertThat(cache.size()).isLessThan(100);
+        assertThat(cache.get(id("SELECT * FROM ks.tbl WHERE k = 99")).getOperation().getOperationString())
+        .isEqualTo("SELECT * FROM ks.tbl WHERE k = 99");
+    }
+
+    @Test
+    public void testDropKeyspaceRemovesTemplates()
+    {
+        PreparedStatementCache cache = new PreparedStatementCache(1024 * 1024);
+        PreparedStatementCache.SchemaChangeListener listener = cache.new SchemaChangeListener();
+        cache.put(id("a"), template("a", DataResource.table("ks", "tbl")));
+        cache.put(id("b"), template("b", DataResource.keyspace("ks")));
+        cache.put(id("c"), template("c", DataResource.table("other", "tbl")));
+        cache.put(id("d"), template("d", RoleResource.role("bob")));
+
+        listener.onDropKeyspace("ks");
+
+        assertThat(cache.get(id("a"))).isNull();
+        assertThat(cache.get(id("b"))).isNull();
+        assertThat(cache.get(id("c"))).isNotNull();
+        assertThat(cache.get(id("d"))).isNotNull();
+    }
+
+    @Test
+    public void testDropTableRemovesTemplates()
+    {
+        PreparedStatementCache cache = new PreparedStatementCache(1024 * 1024);
+        PreparedStatementCache.SchemaChangeListener listener = cache.new SchemaChangeListener();
+        cache.put(id("a"), template("a", DataResource.table("ks", "tbl")));
+        cache.put(id("b"), template("b", DataResource.table("ks", "other")));
+        cache.put(id("c"), template("c", DataResource.table("ks", "view")));
+        cache.put(id("d"), template("d", DataResource.keyspace("ks")));
+
+        listener.onDropColumnFamily("ks", "tbl");
+        listener.onDropView("ks", "view");
+
+        assertThat(cache.get(id("a"))).isNull();
+        assertThat(cache.get(id("b"))).isNotNull();
+        assertThat(cache.get(id("c"))).isNull();
+        assertThat(cache.get(id("d"))).isNotNull();
+    }
+
+    @Test
+    public void testUnresolvedTemplateIsKeptOnSchemaChange()
+    {
+        PreparedStatementCache cache = new PreparedStatementCache(1024 * 1024);
+        cache.put(id("a"), AuditEntry.newBuilder().operation(new SimpleAuditOperation("a")).build());
+
+        cache.removeKeyspace("ks");
+
+        assertThat(cache.get(id("a"))).isNotNull();
+    }
+
+    @Test
+    public void testMetrics()
+    {
+        PreparedStatementCache cache = PreparedStatementCache.create(1024 * 1024);
+        cache.put(id("a"), template("a", DataResource.table("ks", "tbl")));
+
+        assertThat(gauge(PreparedStatementCache.ENTRIES).getValue()).isEqualTo(1L);
+        assertThat(gauge(PreparedStatementCache.MEMORY_USAGE).getValue()).isEqualTo(cache.memoryUsage());
+    }
+
+    private static AuditEntry template(String query, IResource resource)
+    {
+        return AuditEntry.newBuilder()
+                         .permissions(ImmutableSet.of(Permission.SELECT))
+                         .resource(resource)
+                         .operation(new SimpleAuditOperation(query))
+                         .build();
+    }
+
+    private static MD5Digest id(String query)
+    {
+        return MD5Digest.compute(query);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Gauge<Long> gauge(CassandraMetricsRegistry.MetricName name)
+    {
+        return (Gauge<Long>) CassandraMetricsRegistry.Metrics.getMetrics().get(name.getMetricName());
+    }
+}
@@ -20,18 +20,23 @@ import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import com.ericsson.bss.cassandra.ecaudit.AuditAdapter;
 import com.ericsson.bss.cassandra.ecaudit.entry.Status;
+import org.apache.cassandra.auth.AuthenticatedUser;
 import org.apache.cassandra.auth.IAuthenticator;
 import org.apache.cassandra.auth.IAuthenticator.SaslNegotiator;
+import org.apache.cassandra.config.Config;
 import org.apache.cassandra.exceptions.AuthenticationException;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
@@ -42,6 +47,8 @@ import static org.mockito.Mockito.when;
 @RunWith(MockitoJUnitRunner.StrictStubs.class)
 public class TestAuditPasswordAuthenticator
 {
+    private static CredentialsCache credentialsCache;
+
     @Mock
     IAuthenticator mockAuthenticator;
 
@@ -51,9 +58,28 @@ public class TestAuditPasswordAuthenticator
     @Mock
     SaslNegotiator mockNegotiator;
 
-    @InjectMocks
     AuditPasswordAuthenticator authenticator;
 
+    @BeforeClass
+    public static void beforeClass()
+    {
+        Config.setClientMode(true);
+        credentialsCache = new CredentialsCache("TestAuditPasswordAuthenticatorCredentialsCache", () -> 60000, () -> 60000, () -> 100);
+    }
+
+    @AfterClass
+    public static void afterClass()
+    {
+        Config.setClientMode(false);
+    }
+
+    @Before
+    public void before()
+    {
+        credentialsCache.invalidate();
+        authenticator = new AuditPasswordAuthenticator(mockAuthenticator, mockAdapter, () -> credentialsCache);
+    }
+
     @After
     public void after()
     {
@@ -121,6 +147,89 @@ public class TestAuditPasswordAuthenticator
         verify(mockAdapter, times(1)).auditAuth(eq("username"), eq(clientAddress), eq(Status.ATTEMPT));
     }
 
+    @Test
+    public void testRepeatedLoginIsCached() throws Exception
+    {
+        InetAddress clientAddress = InetAddress.getLocalHost();
+        when(mockAuthenticator.newSaslNegotiator(any(InetAddress.class))).thenReturn(mockNegotiator);
+        when(mockNegotiator.getAuthenticatedUser()).thenReturn(new AuthenticatedUser("username"));
+
+        assertThat(login(clientAddress, "username", "secretpassword").getName()).isEqualTo("username");
+        assertThat(login(clientAddress, "username", "secretpassword").getName()).isEqualTo("username");
+
+        verify(mockNegotiator, times(1)).getAuthenticatedUser();
+        verify(mockAdapter, times(2)).auditAuth(eq("username"), eq(clientAddress), eq(Status.ATTEMPT));
+    }
+
+    @Test
+    public void testLoginWithOtherPasswordIsNotCached() throws Exception
+    {
+        InetAddress clientAddress = InetAddress.getLocalHost();
+        when(mockAuthenticator.newSaslNegotiator(any(InetAddress.class))).thenReturn(mockNegotiator);
+        when(mockNegotiator.getAuthenticatedUser()).thenReturn(new AuthenticatedUser("username"))
+                                                   .thenThrow(new AuthenticationException("Bad credentials"));
+
+        login(clientAddress, "username", "secretpassword");
+        try
+        {
+            login(clientAddress, "username", "otherpassword");
+        }
+        catch (AuthenticationException e)
+        {
+            // Expected
+        }
+
+        verify(mockNegotiator, times(2)).getAuthenticatedUser();
+        verify(mockAdapter, times(2)).auditAuth(eq("username"), eq(clientAddress), eq(Status.ATTEMPT));
+        verify(mockAdapter, times(1)).auditAuth(eq("username"), eq(clientAddress), eq(Status.FAILED));
+    }
+
+    @Test
+    public void testLoginAfterInvalidationIsVerified() throws Exception
+    {
+        InetAddress clientAddress = InetAddress.getLocalHost();
+        when(mockAuthenticator.newSaslNegotiator(any(InetAddress.class))).thenReturn(mockNegotiator);
+        when(mockNegotiator.getAuthenticatedUser()).thenReturn(new AuthenticatedUser("username"));
+
+        login(clientAddress, "username", "secretpassword");
+        credentialsCache.invalidate("username");
+        login(clientAddress, "username", "secretpassword");
+
+        verify(mockNegotiator, times(2)).getAuthenticatedUser();
+        verify(mockAdapter, times(2)).auditAuth(eq("username"), eq(clientAddress), eq(Status.ATTEMPT));
+    }
+
+    @Test
+    public void testFailedLoginIsNotCached() throws Exception
+    {
+        InetAddress clientAddress = InetAddress.getLocalHost();
+        when(mockAuthenticator.newSaslNegotiator(any(InetAddress.class))).thenReturn(mockNegotiator);
+        when(mockNegotiator.getAuthenticatedUser()).thenThrow(new AuthenticationException("Bad credentials"))
+                                                   .thenReturn(new AuthenticatedUser("username"));
+
+        try
+        {
+            login(clientAddress, "username", "secretpassword");
+        }
+        catch (AuthenticationException e)
+        {
+            // Expected
+        }
+        assertThat(credentialsCache.getSize()).isEqualTo(0);
+        login(clientAddress, "username", "secretpassword");
+
+        verify(mockNegotiator, times(2)).getAuthenticatedUser();
+        verify(mockAdapter, times(2)).auditAuth(eq("username"), eq(clientAddress), eq(Status.ATTEMPT));
+        verify(mockAdapter, times(1)).auditAuth(eq("username"), eq(clientAddress), eq(Status.FAILED));
+    }
+
+    private AuthenticatedUser login(InetAddress clientAddress, String username, String password)
+    {
+        SaslNegotiator negotiator = authenticator.newSaslNegotiator(clientAddress);
+        negotiator.evaluateResponse(createClientResponse(username, password));
+        return negotiator.getAuthenticatedUser();
+    }
+
     @SuppressWarnings("unchecked")
     private void whenGetAuthUserThrowRuntimeException() {
         when(mockNegotiator.getAuthenticatedUser()).thenThrow(RuntimeException.class);
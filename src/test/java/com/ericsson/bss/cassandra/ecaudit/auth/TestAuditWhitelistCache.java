@@ -0,0 +1,101 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.auth;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.auth.DataResource;
+import org.apache.cassandra.auth.Permission;
+import org.apache.cassandra.auth.RoleResource;
+import org.apache.cassandra.config.Config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestAuditWhitelistCache
+{
+    private static final RoleResource PARENT = RoleResource.role("parent");
+    private static final RoleResource CHILD = RoleResource.role("child");
+    private static final RoleResource OTHER = RoleResource.role("other");
+
+    private static final Map<RoleResource, Set<RoleResource>> GRANTED_ROLES = ImmutableMap.of(
+            PARENT, ImmutableSet.of(PARENT),
+            CHILD, ImmutableSet.of(CHILD, PARENT),
+            OTHER, ImmutableSet.of(OTHER));
+
+    private static final Map<RoleResource, Map<String, String>> ROLE_OPTIONS = ImmutableMap.of(
+            PARENT, Collections.singletonMap("audit_whitelist_for_all", "data/ks"));
+
+    private static final Set<Permission> SELECT = ImmutableSet.of(Permission.SELECT);
+
+    @BeforeClass
+    public static void beforeClass()
+    {
+        Config.setClientMode(true);
+    }
+
+    @AfterClass
+    public static void afterClass()
+    {
+        Config.setClientMode(false);
+    }
+
+    @Test
+    public void testLoadAllRoles()
+    {
+        Map<RoleResource, WhitelistIndex> whitelists = AuditWhitelistCache.loadWhitelists(GRANTED_ROLES.keySet(), GRANTED_ROLES::get, ROLE_OPTIONS);
+
+        assertThat(whitelists).containsOnlyKeys(PARENT, CHILD, OTHER);
+    }
+
+    @Test
+    public void testRoleWithOwnWhitelist()
+    {
+        Map<RoleResource, WhitelistIndex> whitelists = AuditWhitelistCache.loadWhitelists(GRANTED_ROLES.keySet(), GRANTED_ROLES::get, ROLE_OPTIONS);
+
+        assertThat(whitelists.get(PARENT).isWhitelisted(DataResource.table("ks", "tbl"), SELECT)).isTrue();
+        assertThat(whitelists.get(PARENT).isBasedOn(PARENT)).isTrue();
+    }
+
+    @Test
+    public void testRoleWhichOnlyInheritsWhitelist()
+    {
+        Map<RoleResource, WhitelistIndex> whitelists = AuditWhitelistCache.loadWhitelists(GRANTED_ROLES.keySet(), GRANTED_ROLES::get, ROLE_OPTIONS);
+
+        WhitelistIndex whitelist = whitelists.get(CHILD);
+        assertThat(whitelist.isWhitelisted(DataResource.table("ks", "tbl"), SELECT)).isTrue();
+        assertThat(whitelist.isWhitelisted(DataResource.table("other_ks", "tbl"), SELECT)).isFalse();
+        assertThat(whitelist.isBasedOn(CHILD)).isTrue();
+        assertThat(whitelist.isBasedOn(PARENT)).isTrue();
+    }
+
+    @Test
+    public void testRoleWithoutWhitelist()
+    {
+        Map<RoleResource, WhitelistIndex> whitelists = AuditWhitelistCache.loadWhitelists(GRANTED_ROLES.keySet(), GRANTED_ROLES::get, ROLE_OPTIONS);
+
+        WhitelistIndex whitelist = whitelists.get(OTHER);
+        assertThat(whitelist.isWhitelisted(DataResource.table("ks", "tbl"), SELECT)).isFalse();
+        assertThat(whitelist.isBasedOn(OTHER)).isTrue();
+    }
+}
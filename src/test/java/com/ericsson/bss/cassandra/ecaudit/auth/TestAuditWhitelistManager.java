@@ -21,6 +21,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.After;
@@ -99,8 +100,8 @@ public class TestAuditWhitelistManager
 
         whitelistManager.createRoleWhitelist(performer, role, options);
 
-        verify(mockWhitelistDataAccess, times(1)).addToWhitelist(eq("hans"), eq("ALL"),
-                eq(ImmutableSet.of("data", "connections")));
+        verify(mockWhitelistDataAccess, times(1)).updateWhitelists(eq("hans"), eq(ImmutableMap.of("ALL", ImmutableSet.of("data", "connections"))),
+                eq(Collections.emptyMap()));
     }
 
     @Test
@@ -113,8 +114,8 @@ public class TestAuditWhitelistManager
 
         whitelistManager.createRoleWhitelist(performer, role, options);
 
-        verify(mockWhitelistDataAccess, times(1)).addToWhitelist(eq("hans"), eq("ALL"),
-                eq(ImmutableSet.of("data/myks")));
+        verify(mockWhitelistDataAccess, times(1)).updateWhitelists(eq("hans"), eq(ImmutableMap.of("ALL", ImmutableSet.of("data/myks"))),
+                eq(Collections.emptyMap()));
     }
 
     @Test(expected = UnauthorizedException.class)
@@ -138,7 +139,7 @@ public class TestAuditWhitelistManager
     @Test(expected = InvalidRequestException.class)
     public void testUnsupportedOperationAtCreate()
     {
-        RoleOptions options = createRoleOptions(Collections.singletonMap("grant_audit_whitelist_for_execute", "data"));
+        RoleOptions options = createRoleOptions(Collections.singletonMap("grant_audit_whitelist_for_guck", "data"));
 
         whitelistManager.createRoleWhitelist(performer, role, options);
     }
@@ -177,8 +178,8 @@ public class TestAuditWhitelistManager
 
         whitelistManager.alterRoleWhitelist(performer, role, options);
 
-        verify(mockWhitelistDataAccess, times(1)).addToWhitelist(eq("hans"), eq("ALL"),
-                eq(ImmutableSet.of("data")));
+        verify(mockWhitelistDataAccess, times(1)).updateWhitelists(eq("hans"), eq(ImmutableMap.of("ALL", ImmutableSet.of("data"))),
+                eq(Collections.emptyMap()));
     }
 
     @Test
@@ -190,8 +191,8 @@ public class TestAuditWhitelistManager
 
         whitelistManager.alterRoleWhitelist(performer, role, options);
 
-        verify(mockWhitelistDataAccess, times(1)).addToWhitelist(eq("hans"), eq("ALL"),
-                eq(ImmutableSet.of("data/myks")));
+        verify(mockWhitelistDataAccess, times(1)).updateWhitelists(eq("hans"), eq(ImmutableMap.of("ALL", ImmutableSet.of("data/myks"))),
+                eq(Collections.emptyMap()));
     }
 
     @Test(expected = UnauthorizedException.class)
@@ -213,8 +214,24 @@ public class TestAuditWhitelistManager
 
         whitelistManager.alterRoleWhitelist(performer, role, options);
 
-        verify(mockWhitelistDataAccess, times(1)).removeFromWhitelist(eq("hans"), eq("ALL"),
-                eq(ImmutableSet.of("connections")));
+        verify(mockWhitelistDataAccess, times(1)).updateWhitelists(eq("hans"), eq(Collections.emptyMap()),
+                eq(ImmutableMap.of("ALL", ImmutableSet.of("connections"))));
+    }
+
+    @Test
+    public void testGrantAndRevokeAtAlterInOneUpdate()
+    {
+        when(performer.getPermissions(any())).thenReturn(ImmutableSet.of(Permission.AUTHORIZE));
+        RoleOptions options = createRoleOptions(
+                ImmutableMap.of("grant_audit_whitelist_for_all", "data/myks",
+                                "grant_audit_whitelist_for_select", "data/otherks",
+                                "revoke_audit_whitelist_for_all", "connections"));
+
+        whitelistManager.alterRoleWhitelist(performer, role, options);
+
+        verify(mockWhitelistDataAccess, times(1)).updateWhitelists(eq("hans"),
+                eq(ImmutableMap.of("ALL", ImmutableSet.of("data/myks"), "SELECT", ImmutableSet.of("data/otherks"))),
+                eq(ImmutableMap.of("ALL", ImmutableSet.of("connections"))));
     }
 
     @Test(expected = UnauthorizedException.class)
@@ -239,7 +256,7 @@ public class TestAuditWhitelistManager
     @Test(expected = InvalidRequestException.class)
     public void testUnsupportedOperationAtAlter()
     {
-        RoleOptions options = createRoleOptions(Collections.singletonMap("grant_audit_whitelist_for_execute", "data"));
+        RoleOptions options = createRoleOptions(Collections.singletonMap("grant_audit_whitelist_for_guck", "data"));
 
         whitelistManager.alterRoleWhitelist(performer, role, options);
     }
@@ -261,22 +278,71 @@ public class TestAuditWhitelistManager
         whitelistManager.alterRoleWhitelist(performer, role, options);
     }
 
+    @Test
+    public void testGrantSelectAtAlter()
+    {
+        when(performer.getPermissions(any())).thenReturn(ImmutableSet.of(Permission.AUTHORIZE));
+        RoleOptions options = createRoleOptions(
+                Collections.singletonMap("grant_audit_whitelist_for_select", "data/myks"));
+
+        whitelistManager.alterRoleWhitelist(performer, role, options);
+
+        verify(mockWhitelistDataAccess, times(1)).updateWhitelists(eq("hans"), eq(ImmutableMap.of("SELECT", ImmutableSet.of("data/myks"))),
+                eq(Collections.emptyMap()));
+    }
+
     @Test
     public void testGetWhitelist()
     {
         String expectedRoleName = "hans";
         Set<String> expectedResources = ImmutableSet.of("data/someks/sometable", "connections");
 
-        when(mockWhitelistDataAccess.getWhitelist(eq(expectedRoleName), any(String.class)))
-                .thenReturn(expectedResources);
+        when(mockWhitelistDataAccess.getWhitelists(eq(expectedRoleName)))
+                .thenReturn(Collections.singletonMap("ALL", expectedResources));
 
         Map<String, String> whitelistOptions = whitelistManager.getRoleWhitelist(expectedRoleName);
 
-        verify(mockWhitelistDataAccess, times(1)).getWhitelist(eq(expectedRoleName), eq("ALL"));
+        verify(mockWhitelistDataAccess, times(1)).getWhitelists(eq(expectedRoleName));
         assertThat(whitelistOptions.keySet()).containsExactly("audit_whitelist_for_all");
         assertThat(toStringSet(whitelistOptions.get("audit_whitelist_for_all"))).isEqualTo(expectedResources);
     }
 
+    @Test
+    public void testGetOperationWhitelist()
+    {
+        String expectedRoleName = "hans";
+        Set<String> expectedResources = ImmutableSet.of("data/someks/sometable", "data/otherks");
+
+        when(mockWhitelistDataAccess.getWhitelists(eq(expectedRoleName)))
+                .thenReturn(ImmutableMap.of("SELECT", expectedResources, "MODIFY", Collections.emptySet()));
+
+        Map<String, String> whitelistOptions = whitelistManager.getRoleWhitelist(expectedRoleName);
+
+        verify(mockWhitelistDataAccess, times(1)).getWhitelists(eq(expectedRoleName));
+        assertThat(whitelistOptions.keySet()).containsExactlyInAnyOrder("audit_whitelist_for_all", "audit_whitelist_for_select");
+        assertThat(whitelistOptions.get("audit_whitelist_for_all")).isEmpty();
+        assertThat(toStringSet(whitelistOptions.get("audit_whitelist_for_select"))).isEqualTo(expectedResources);
+    }
+
+    @Test
+    public void testGetAllWhitelists()
+    {
+        Set<String> expectedResources = ImmutableSet.of("data/someks/sometable", "connections");
+        Set<String> expectedSelectResources = ImmutableSet.of("data/otherks");
+
+        when(mockWhitelistDataAccess.getAllWhitelists())
+                .thenReturn(ImmutableMap.of("hans", Collections.singletonMap("ALL", expectedResources),
+                                            "greta", Collections.singletonMap("SELECT", expectedSelectResources)));
+
+        Map<String, Map<String, String>> roleWhitelists = whitelistManager.getAllRoleWhitelists();
+
+        verify(mockWhitelistDataAccess, times(1)).getAllWhitelists();
+        assertThat(roleWhitelists.keySet()).containsExactlyInAnyOrder("hans", "greta");
+        assertThat(toStringSet(roleWhitelists.get("hans").get("audit_whitelist_for_all"))).isEqualTo(expectedResources);
+        assertThat(roleWhitelists.get("greta").get("audit_whitelist_for_all")).isEmpty();
+        assertThat(toStringSet(roleWhitelists.get("greta").get("audit_whitelist_for_select"))).isEqualTo(expectedSelectResources);
+    }
+
     @Test
     public void testDropWhitelist()
     {
@@ -285,6 +351,13 @@ public class TestAuditWhitelistManager
         verify(mockWhitelistDataAccess, times(1)).deleteWhitelist(eq(expectedRoleName));
     }
 
+    @Test
+    public void testRecordPasswordChange()
+    {
+        whitelistManager.recordPasswordChange(RoleResource.role("hans"));
+        verify(mockWhitelistDataAccess, times(1)).recordRoleChange(eq("hans"));
+    }
+
     @Test
     public void testSetup()
     {
@@ -0,0 +1,108 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.auth;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.config.Config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestCredentialsCache
+{
+    private static CredentialsCache cache;
+    private static CredentialsCache disabledCache;
+
+    @BeforeClass
+    public static void beforeClass()
+    {
+        Config.setClientMode(true);
+        cache = new CredentialsCache("TestCredentialsCache", () -> 60000, () -> 60000, () -> 100);
+        disabledCache = new CredentialsCache("TestDisabledCredentialsCache", () -> 0, () -> 0, () -> 100);
+    }
+
+    @AfterClass
+    public static void afterClass()
+    {
+        Config.setClientMode(false);
+    }
+
+    @Before
+    public void before()
+    {
+        cache.invalidate();
+    }
+
+    @Test
+    public void testNotVerifiedByDefault()
+    {
+        assertThat(cache.isVerified("role", "password")).isFalse();
+        assertThat(cache.getSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void testVerifiedPassword()
+    {
+        cache.markVerified("role", "password", cache.stamp());
+
+        assertThat(cache.isVerified("role", "password")).isTrue();
+        assertThat(cache.isVerified("role", "other")).isFalse();
+        assertThat(cache.isVerified("other", "password")).isFalse();
+    }
+
+    @Test
+    public void testLastVerifiedPassword()
+    {
+        cache.markVerified("role", "password", cache.stamp());
+        cache.markVerified("role", "other", cache.stamp());
+
+        assertThat(cache.isVerified("role", "password")).isFalse();
+        assertThat(cache.isVerified("role", "other")).isTrue();
+    }
+
+    @Test
+    public void testInvalidateRole()
+    {
+        cache.markVerified("role", "password", cache.stamp());
+        cache.markVerified("other", "password", cache.stamp());
+
+        cache.invalidate("role");
+
+        assertThat(cache.isVerified("role", "password")).isFalse();
+        assertThat(cache.isVerified("other", "password")).isTrue();
+    }
+
+    @Test
+    public void testVerifiedBeforeInvalidationIsNotCached()
+    {
+        long stamp = cache.stamp();
+        cache.invalidate("role");
+        cache.markVerified("role", "password", stamp);
+
+        assertThat(cache.isVerified("role", "password")).isFalse();
+    }
+
+    @Test
+    public void testDisabledCache()
+    {
+        disabledCache.markVerified("role", "password", disabledCache.stamp());
+
+        assertThat(disabledCache.isVerified("role", "password")).isFalse();
+    }
+}
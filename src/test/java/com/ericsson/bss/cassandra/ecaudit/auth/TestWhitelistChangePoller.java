@@ -0,0 +1,153 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.auth;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.apache.cassandra.auth.RoleResource;
+import org.apache.cassandra.utils.UUIDGen;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestWhitelistChangePoller
+{
+    private static final long START_TIME = TimeUnit.DAYS.toMillis(365 * 50);
+
+    @Mock
+    private WhitelistDataAccess mockWhitelistDataAccess;
+
+    private final AtomicLong clock = new AtomicLong(START_TIME);
+    private final List<RoleResource> invalidatedRoles = new ArrayList<>();
+
+    private WhitelistChangePoller poller;
+
+    @Before
+    public void before()
+    {
+        poller = new WhitelistChangePoller(mockWhitelistDataAccess, invalidatedRoles::add, clock::get);
+    }
+
+    @Test
+    public void testPollWithLookback()
+    {
+        poller.run();
+
+        verify(mockWhitelistDataAccess).getWhitelistChanges(eq(START_TIME - WhitelistChangePoller.LOOKBACK_MILLIS),
+                                                            eq(START_TIME + WhitelistChangePoller.LOOKBACK_MILLIS));
+    }
+
+    @Test
+    public void testChangedRolesAreInvalidated()
+    {
+        Map<UUID, String> changes = new LinkedHashMap<>();
+        changes.put(UUIDGen.getTimeUUID(START_TIME - 2000), "role1");
+        changes.put(UUIDGen.getTimeUUID(START_TIME - 1000), "role2");
+        changes.put(UUIDGen.getTimeUUID(START_TIME - 500), "role1");
+        when(mockWhitelistDataAccess.getWhitelistChanges(anyLong(), anyLong())).thenReturn(changes);
+
+        poller.run();
+
+        assertThat(invalidatedRoles).containsExactly(RoleResource.role("role1"), RoleResource.role("role2"));
+    }
+
+    @Test
+    public void testChangesAreAppliedOnEverySighting()
+    {
+        Map<UUID, String> changes = new LinkedHashMap<>();
+        changes.put(UUIDGen.getTimeUUID(START_TIME - 1000), "role1");
+        when(mockWhitelistDataAccess.getWhitelistChanges(anyLong(), anyLong())).thenReturn(changes);
+
+        poller.run();
+        changes.put(UUIDGen.getTimeUUID(START_TIME), "role2");
+        poller.run();
+
+        assertThat(invalidatedRoles).containsExactly(RoleResource.role("role1"), RoleResource.role("role1"), RoleResource.role("role2"));
+    }
+
+    @Test
+    public void testExpiredChangesAreDeleted()
+    {
+        long expiredBucket = WhitelistDataAccess.changeBucket(START_TIME - WhitelistChangePoller.RETENTION_MILLIS);
+
+        poller.run();
+        poller.run();
+        verify(mockWhitelistDataAccess).deleteWhitelistChanges(eq(expiredBucket));
+
+        clock.addAndGet(3 * WhitelistDataAccess.CHANGE_BUCKET_MILLIS);
+        poller.run();
+
+        verify(mockWhitelistDataAccess).deleteWhitelistChanges(eq(expiredBucket + 1));
+        verify(mockWhitelistDataAccess).deleteWhitelistChanges(eq(expiredBucket + 2));
+        verify(mockWhitelistDataAccess).deleteWhitelistChanges(eq(expiredBucket + 3));
+        verify(mockWhitelistDataAccess, never()).deleteWhitelistChanges(eq(expiredBucket + 4));
+    }
+
+    @Test
+    public void testFailedPollIsRetried()
+    {
+        Map<UUID, String> changes = new LinkedHashMap<>();
+        changes.put(UUIDGen.getTimeUUID(START_TIME - 1000), "role1");
+        when(mockWhitelistDataAccess.getWhitelistChanges(anyLong(), anyLong())).thenThrow(new IllegalStateException("Expected failure"))
+                                                                     .thenReturn(changes);
+
+        poller.run();
+        assertThat(invalidatedRoles).isEmpty();
+
+        poller.run();
+        assertThat(invalidatedRoles).containsExactly(RoleResource.role("role1"));
+    }
+
+    @Test
+    public void testFailedInvalidationIsRetried()
+    {
+        Map<UUID, String> changes = new LinkedHashMap<>();
+        changes.put(UUIDGen.getTimeUUID(START_TIME - 1000), "role1");
+        when(mockWhitelistDataAccess.getWhitelistChanges(anyLong(), anyLong())).thenReturn(changes);
+
+        List<RoleResource> invalidated = new ArrayList<>();
+        AtomicLong failures = new AtomicLong(1);
+        WhitelistChangePoller failingPoller = new WhitelistChangePoller(mockWhitelistDataAccess, role -> {
+            if (failures.getAndDecrement() > 0)
+            {
+                throw new IllegalStateException("Expected failure");
+            }
+            invalidated.add(role);
+        }, clock::get);
+
+        failingPoller.run();
+        failingPoller.run();
+
+        assertThat(invalidated).containsExactly(RoleResource.role("role1"));
+    }
+}
@@ -0,0 +1,156 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.auth;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.Test;
+
+import org.apache.cassandra.auth.DataResource;
+import org.apache.cassandra.auth.IResource;
+import org.apache.cassandra.auth.Permission;
+import org.apache.cassandra.auth.RoleResource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestWhitelistDecisionCache
+{
+    private static final RoleResource ROLE = RoleResource.role("bob");
+    private static final IResource TABLE = DataResource.table("ks", "tbl");
+    private static final Set<Permission> SELECT = ImmutableSet.of(Permission.SELECT);
+
+    private final AtomicInteger decisions = new AtomicInteger();
+    private final WhitelistDecisionCache.Decision whitelisted = (role, resource, permissions) -> {
+        decisions.incrementAndGet();
+        return true;
+    };
+
+    @Test
+    public void testDecisionIsCached()
+    {
+        WhitelistDecisionCache cache = new WhitelistDecisionCache(() -> 2000, () -> true);
+
+        assertThat(cache.get(ROLE, TABLE, SELECT, whitelisted)).isTrue();
+        assertThat(cache.get(ROLE, TABLE, SELECT, whitelisted)).isTrue();
+
+        assertThat(decisions.get()).isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testNegativeDecisionIsCached()
+    {
+        WhitelistDecisionCache cache = new WhitelistDecisionCache(() -> 2000, () -> true);
+        WhitelistDecisionCache.Decision notWhitelisted = (role, resource, permissions) -> {
+            decisions.incrementAndGet();
+            return false;
+        };
+
+        assertThat(cache.get(ROLE, TABLE, SELECT, notWhitelisted)).isFalse();
+        assertThat(cache.get(ROLE, TABLE, SELECT, whitelisted)).isFalse();
+
+        assertThat(decisions.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testKeyIncludesRoleAndResource()
+    {
+        WhitelistDecisionCache cache = new WhitelistDecisionCache(() -> 2000, () -> true);
+
+        cache.get(ROLE, TABLE, SELECT, whitelisted);
+        cache.get(RoleResource.role("alice"), TABLE, SELECT, whitelisted);
+        cache.get(ROLE, DataResource.table("ks", "other"), SELECT, whitelisted);
+
+        assertThat(decisions.get()).isEqualTo(3);
+        assertThat(cache.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void testKeyIncludesPermissions()
+    {
+        WhitelistDecisionCache cache = new WhitelistDecisionCache(() -> 2000, () -> true);
+
+        cache.get(ROLE, TABLE, SELECT, whitelisted);
+        cache.get(ROLE, TABLE, ImmutableSet.of(Permission.MODIFY), whitelisted);
+
+        assertThat(decisions.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testInvalidate()
+    {
+        WhitelistDecisionCache cache = new WhitelistDecisionCache(() -> 2000, () -> true);
+        cache.get(ROLE, TABLE, SELECT, whitelisted);
+
+        cache.invalidate();
+
+        assertThat(cache.size()).isEqualTo(0);
+        cache.get(ROLE, TABLE, SELECT, whitelisted);
+        assertThat(decisions.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testDecisionExpiresWithValidity() throws InterruptedException
+    {
+        WhitelistDecisionCache cache = new WhitelistDecisionCache(() -> 1, () -> true);
+        cache.get(ROLE, TABLE, SELECT, whitelisted);
+
+        Thread.sleep(10);
+
+        cache.get(ROLE, TABLE, SELECT, whitelisted);
+        assertThat(decisions.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testNotCachedWithZeroValidity()
+    {
+        WhitelistDecisionCache cache = new WhitelistDecisionCache(() -> 0, () -> true);
+
+        cache.get(ROLE, TABLE, SELECT, whitelisted);
+        cache.get(ROLE, TABLE, SELECT, whitelisted);
+
+        assertThat(decisions.get()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testNotCachedWhenDisabled()
+    {
+        WhitelistDecisionCache cache = new WhitelistDecisionCache(() -> 2000, () -> false);
+
+        cache.get(ROLE, TABLE, SELECT, whitelisted);
+        cache.get(ROLE, TABLE, SELECT, whitelisted);
+
+        assertThat(decisions.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testValidityIsReadOnInvalidate()
+    {
+        AtomicInteger validity = new AtomicInteger(0);
+        WhitelistDecisionCache cache = new WhitelistDecisionCache(validity::get, () -> true);
+
+        validity.set(2000);
+        cache.invalidate();
+
+        cache.get(ROLE, TABLE, SELECT, whitelisted);
+        cache.get(ROLE, TABLE, SELECT, whitelisted);
+        assertThat(decisions.get()).isEqualTo(1);
+    }
+}
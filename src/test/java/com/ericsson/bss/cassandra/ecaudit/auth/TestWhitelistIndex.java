@@ -0,0 +1,280 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.auth;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import org.apache.cassandra.auth.DataResource;
+import org.apache.cassandra.auth.FunctionResource;
+import org.apache.cassandra.auth.IResource;
+import org.apache.cassandra.auth.Permission;
+import org.apache.cassandra.auth.RoleResource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestWhitelistIndex
+{
+    private static final Set<Permission> SELECT = ImmutableSet.of(Permission.SELECT);
+    private static final Set<Permission> MODIFY = ImmutableSet.of(Permission.MODIFY);
+    private static final Set<Permission> CAS = ImmutableSet.of(Permission.SELECT, Permission.MODIFY);
+
+    @Test
+    public void testBasedOnRoles()
+    {
+        WhitelistIndex index = WhitelistIndex.newBuilder()
+                                             .addRole(RoleResource.role("role1"), Collections.singletonMap("audit_whitelist_for_all", ImmutableSet.of(DataResource.root())))
+                                             .addRole(RoleResource.role("role2"), Collections.emptyMap())
+                                             .build();
+
+        assertThat(index.isBasedOn(RoleResource.role("role1"))).isTrue();
+        assertThat(index.isBasedOn(RoleResource.role("role2"))).isTrue();
+        assertThat(index.isBasedOn(RoleResource.role("role3"))).isFalse();
+        assertThat(index.isWhitelisted(DataResource.fromName("data/ks/table"), SELECT)).isTrue();
+    }
+
+    @Test
+    public void testAllResourcesWhitelisted()
+    {
+        Map<String, Set<IResource>> optionMap = Collections.singletonMap("audit_whitelist_for_all", ImmutableSet.of(DataResource.root(), ConnectionResource.root()));
+
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data"), SELECT)).isEqualTo(true);
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks/table"), SELECT)).isEqualTo(true);
+        assertThat(index(optionMap).isWhitelisted(ConnectionResource.fromName("connections"), SELECT)).isEqualTo(true);
+    }
+
+    @Test
+    public void testDataResourcesWhitelisted()
+    {
+        Map<String, Set<IResource>> optionMap = Collections.singletonMap("audit_whitelist_for_all", ImmutableSet.of(DataResource.root()));
+
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data"), SELECT)).isEqualTo(true);
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks/table"), SELECT)).isEqualTo(true);
+        assertThat(index(optionMap).isWhitelisted(ConnectionResource.fromName("connections"), SELECT)).isEqualTo(false);
+    }
+
+    @Test
+    public void testKeyspaceResourceWhitelisted()
+    {
+        Map<String, Set<IResource>> optionMap = Collections.singletonMap("audit_whitelist_for_all", ImmutableSet.of(DataResource.fromName("data/ks1"), DataResource.fromName("data/ks2")));
+
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data"), SELECT)).isEqualTo(false);
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks1/table"), SELECT)).isEqualTo(true);
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks2/table"), SELECT)).isEqualTo(true);
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks3/table"), SELECT)).isEqualTo(false);
+        assertThat(index(optionMap).isWhitelisted(ConnectionResource.fromName("connections"), SELECT)).isEqualTo(false);
+    }
+
+    @Test
+    public void testTableResourceWhitelisted()
+    {
+        Map<String, Set<IResource>> optionMap = Collections.singletonMap("audit_whitelist_for_all", ImmutableSet.of(DataResource.fromName("data/ks1/table1"), DataResource.fromName("data/ks2/table2")));
+
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/"), SELECT)).isEqualTo(false);
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks1/table1"), SELECT)).isEqualTo(true);
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks2/table2"), SELECT)).isEqualTo(true);
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks2/table1"), SELECT)).isEqualTo(false);
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks3/table3"), SELECT)).isEqualTo(false);
+        assertThat(index(optionMap).isWhitelisted(ConnectionResource.fromName("connections"), SELECT)).isEqualTo(false);
+    }
+
+    @Test
+    public void testConnectionResourcesWhitelisted()
+    {
+        Map<String, Set<IResource>> optionMap = Collections.singletonMap("audit_whitelist_for_all", ImmutableSet.of(ConnectionResource.root()));
+
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data"), SELECT)).isEqualTo(false);
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks/table"), SELECT)).isEqualTo(false);
+        assertThat(index(optionMap).isWhitelisted(ConnectionResource.fromName("connections"), SELECT)).isEqualTo(true);
+    }
+
+    @Test
+    public void testNoWhitelist()
+    {
+        Map<String, Set<IResource>> optionMap = Collections.emptyMap();
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data"), SELECT)).isEqualTo(false);
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks/table"), SELECT)).isEqualTo(false);
+        assertThat(index(optionMap).isWhitelisted(ConnectionResource.fromName("connections"), SELECT)).isEqualTo(false);
+    }
+
+    @Test
+    public void testEmptyIndex()
+    {
+        WhitelistIndex index = WhitelistIndex.newBuilder().build();
+
+        assertThat(index.isWhitelisted(DataResource.fromName("data"), SELECT)).isEqualTo(false);
+        assertThat(index.isWhitelisted(RoleResource.role("bob"), SELECT)).isEqualTo(false);
+    }
+
+    @Test
+    public void testRolesAreMerged()
+    {
+        WhitelistIndex index = WhitelistIndex.newBuilder()
+                                             .addRoleOptions(Collections.singletonMap("audit_whitelist_for_all", ImmutableSet.of(DataResource.fromName("data/ks1"))))
+                                             .addRoleOptions(Collections.emptyMap())
+                                             .addRoleOptions(Collections.singletonMap("audit_whitelist_for_all", ImmutableSet.of(DataResource.fromName("data/ks2/table"))))
+                                             .build();
+
+        assertThat(index.isWhitelisted(DataResource.fromName("data/ks1/table"), SELECT)).isEqualTo(true);
+        assertThat(index.isWhitelisted(DataResource.fromName("data/ks2/table"), SELECT)).isEqualTo(true);
+        assertThat(index.isWhitelisted(DataResource.fromName("data/ks2/other"), SELECT)).isEqualTo(false);
+    }
+
+    @Test
+    public void testOtherOptionsAreIgnored()
+    {
+        Map<String, Set<IResource>> optionMap = Collections.singletonMap("other_option", ImmutableSet.of(DataResource.root()));
+
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks/table"), SELECT)).isEqualTo(false);
+    }
+
+    @Test
+    public void testChildOfWhitelistedParent()
+    {
+        WhitelistIndex index = WhitelistIndex.newBuilder()
+                                             .addResource(DataResource.fromName("data/ks/table"))
+                                             .addResource(DataResource.fromName("data/ks"))
+                                             .addResource(DataResource.fromName("data/ks/other"))
+                                             .build();
+
+        assertThat(index.isWhitelisted(DataResource.fromName("data"), SELECT)).isEqualTo(false);
+        assertThat(index.isWhitelisted(DataResource.fromName("data/ks"), SELECT)).isEqualTo(true);
+        assertThat(index.isWhitelisted(DataResource.fromName("data/ks/third"), SELECT)).isEqualTo(true);
+    }
+
+    @Test
+    public void testRoleResourcesWhitelisted()
+    {
+        WhitelistIndex index = WhitelistIndex.newBuilder()
+                                             .addResource(RoleResource.role("bob"))
+                                             .build();
+
+        assertThat(index.isWhitelisted(RoleResource.root(), SELECT)).isEqualTo(false);
+        assertThat(index.isWhitelisted(RoleResource.role("bob"), SELECT)).isEqualTo(true);
+        assertThat(index.isWhitelisted(RoleResource.role("bobby"), SELECT)).isEqualTo(false);
+        assertThat(index.isWhitelisted(DataResource.fromName("data/bob"), SELECT)).isEqualTo(false);
+    }
+
+    @Test
+    public void testRoleNameWithSlashIsNotChildOfOtherRole()
+    {
+        WhitelistIndex index = WhitelistIndex.newBuilder()
+                                             .addResource(RoleResource.role("bob"))
+                                             .build();
+
+        assertThat(index.isWhitelisted(RoleResource.role("bob/x"), SELECT)).isEqualTo(false);
+        assertThat(index.isWhitelisted(RoleResource.role("bob"), SELECT)).isEqualTo(true);
+    }
+
+    @Test
+    public void testRoleNameWithSlashWhitelisted()
+    {
+        WhitelistIndex index = WhitelistIndex.newBuilder()
+                                             .addResource(RoleResource.role("bob/x"))
+                                             .build();
+
+        assertThat(index.isWhitelisted(RoleResource.role("bob/x"), SELECT)).isEqualTo(true);
+        assertThat(index.isWhitelisted(RoleResource.role("bob"), SELECT)).isEqualTo(false);
+    }
+
+    @Test
+    public void testFunctionResourcesWhitelisted()
+    {
+        WhitelistIndex index = WhitelistIndex.newBuilder()
+                                             .addResource(FunctionResource.keyspace("ks"))
+                                             .build();
+
+        assertThat(index.isWhitelisted(FunctionResource.root(), SELECT)).isEqualTo(false);
+        assertThat(index.isWhitelisted(FunctionResource.fromName("functions/ks/fn[org.apache.cassandra.db.marshal.Int32Type]"), SELECT)).isEqualTo(true);
+        assertThat(index.isWhitelisted(FunctionResource.fromName("functions/other/fn[org.apache.cassandra.db.marshal.Int32Type]"), SELECT)).isEqualTo(false);
+    }
+
+    @Test
+    public void testAllOperationsWhitelisted()
+    {
+        Map<String, Set<IResource>> optionMap = Collections.singletonMap("audit_whitelist_for_all", ImmutableSet.of(DataResource.fromName("data/ks")));
+
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks/table"), SELECT)).isEqualTo(true);
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks/table"), MODIFY)).isEqualTo(true);
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks/table"), CAS)).isEqualTo(true);
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks/table"), Permission.ALL)).isEqualTo(true);
+    }
+
+    @Test
+    public void testSelectWhitelisted()
+    {
+        Map<String, Set<IResource>> optionMap = Collections.singletonMap("audit_whitelist_for_select", ImmutableSet.of(DataResource.fromName("data/ks")));
+
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks/table"), SELECT)).isEqualTo(true);
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks/table"), MODIFY)).isEqualTo(false);
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks/table"), CAS)).isEqualTo(false);
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/other/table"), SELECT)).isEqualTo(false);
+    }
+
+    @Test
+    public void testPermissionsAreCombinedAlongParents()
+    {
+        Map<String, Set<IResource>> optionMap = ImmutableMap.of("audit_whitelist_for_select", ImmutableSet.of(DataResource.fromName("data/ks")),
+                                                                "audit_whitelist_for_modify", ImmutableSet.of(DataResource.fromName("data/ks/table")));
+
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks/table"), CAS)).isEqualTo(true);
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks/other"), CAS)).isEqualTo(false);
+        assertThat(index(optionMap).isWhitelisted(DataResource.fromName("data/ks/other"), MODIFY)).isEqualTo(false);
+    }
+
+    @Test
+    public void testPermissionsAreMergedAcrossRoles()
+    {
+        WhitelistIndex index = WhitelistIndex.newBuilder()
+                                             .addRoleOptions(Collections.singletonMap("audit_whitelist_for_select", ImmutableSet.of(DataResource.fromName("data/ks"))))
+                                             .addRoleOptions(Collections.singletonMap("audit_whitelist_for_modify", ImmutableSet.of(DataResource.fromName("data/ks"))))
+                                             .build();
+
+        assertThat(index.isWhitelisted(DataResource.fromName("data/ks/table"), CAS)).isEqualTo(true);
+    }
+
+    @Test
+    public void testExecuteWhitelistedOnConnections()
+    {
+        WhitelistIndex index = WhitelistIndex.newBuilder()
+                                             .addResource(ConnectionResource.root(), ImmutableSet.of(Permission.EXECUTE))
+                                             .build();
+
+        assertThat(index.isWhitelisted(ConnectionResource.root(), ImmutableSet.of(Permission.EXECUTE))).isEqualTo(true);
+        assertThat(index.isWhitelisted(ConnectionResource.root(), SELECT)).isEqualTo(false);
+    }
+
+    @Test
+    public void testNarrowerPermissionOnChild()
+    {
+        WhitelistIndex index = WhitelistIndex.newBuilder()
+                                             .addResource(DataResource.fromName("data/ks"))
+                                             .addResource(DataResource.fromName("data/ks/table"), SELECT)
+                                             .build();
+
+        assertThat(index.isWhitelisted(DataResource.fromName("data/ks/table"), MODIFY)).isEqualTo(true);
+    }
+
+    private static WhitelistIndex index(Map<String, Set<IResource>> optionMap)
+    {
+        return WhitelistIndex.newBuilder().addRoleOptions(optionMap).build();
+    }
+}
@@ -22,6 +22,7 @@ import org.junit.Test;
 
 import org.apache.cassandra.auth.DataResource;
 import org.apache.cassandra.auth.IResource;
+import org.apache.cassandra.auth.Permission;
 import org.apache.cassandra.exceptions.InvalidRequestException;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -61,22 +62,22 @@ public class TestWhitelistOptionParser
     @Test
     public void testParseGrantSelect()
     {
-        assertThatExceptionOfType(InvalidRequestException.class)
-        .isThrownBy(() -> parser.parseTargetOperation("grant_audit_whitelist_for_select"));
+        String operation = parser.parseTargetOperation("grant_audit_whitelist_for_select");
+        assertThat(operation).isEqualTo("SELECT");
     }
 
     @Test
     public void testParseRevokeSelect()
     {
-        assertThatExceptionOfType(InvalidRequestException.class)
-        .isThrownBy(() -> parser.parseTargetOperation("revoke_audit_whitelist_for_select"));
+        String operation = parser.parseTargetOperation("revoke_audit_whitelist_for_select");
+        assertThat(operation).isEqualTo("SELECT");
     }
 
     @Test
     public void testParseGrantModify()
     {
-        assertThatExceptionOfType(InvalidRequestException.class)
-        .isThrownBy(() -> parser.parseTargetOperation("grant_audit_whitelist_for_modify"));
+        String operation = parser.parseTargetOperation("grant_audit_whitelist_for_modify");
+        assertThat(operation).isEqualTo("MODIFY");
     }
 
     @Test
@@ -86,6 +87,23 @@ public class TestWhitelistOptionParser
         assertThat(operation).isEqualTo("ALL");
     }
 
+    @Test
+    public void testParseAllPermissions()
+    {
+        for (Permission permission : Permission.ALL)
+        {
+            String operation = parser.parseTargetOperation("grant_audit_whitelist_for_" + permission.name().toLowerCase());
+            assertThat(operation).isEqualTo(permission.name());
+        }
+    }
+
+    @Test
+    public void testParseGrantDeprecatedRead()
+    {
+        assertThatExceptionOfType(InvalidRequestException.class)
+        .isThrownBy(() -> parser.parseTargetOperation("grant_audit_whitelist_for_read"));
+    }
+
     @Test
     public void testParseGrantGuck()
     {
@@ -0,0 +1,405 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.auth.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.config.Config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TestAuthCache
+{
+    private static final AtomicInteger cacheCount = new AtomicInteger();
+
+    private final AtomicLong ticker = new AtomicLong();
+    private final AtomicInteger loadCount = new AtomicInteger();
+    private final List<Runnable> pendingRefreshes = new ArrayList<>();
+
+    private int validity;
+    private int updateInterval;
+    private int maxEntries;
+
+    @BeforeClass
+    public static void beforeClass()
+    {
+        Config.setClientMode(true);
+    }
+
+    @AfterClass
+    public static void afterClass()
+    {
+        Config.setClientMode(false);
+    }
+
+    @Before
+    public void before()
+    {
+        validity = 2000;
+        updateInterval = 1000;
+        maxEntries = 10;
+    }
+
+    @Test
+    public void testHitAndMiss() throws Exception
+    {
+        AuthCache<String, String> cache = newCache(this::load);
+
+        assertThat(cache.get("a")).isEqualTo("a-1");
+        assertThat(cache.get("a")).isEqualTo("a-1");
+        assertThat(cache.get("b")).isEqualTo("b-2");
+
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+        assertThat(cache.getHitRate()).isEqualTo(1.0 / 3);
+        assertThat(cache.getLoadCount()).isEqualTo(2);
+        assertThat(cache.getSize()).isEqualTo(2);
+    }
+
+    @Test
+    public void testGetIfPresentDoesNotLoad()
+    {
+        AuthCache<String, String> cache = newCache(this::load);
+
+        assertThat(cache.getIfPresent("a")).isNull();
+        cache.put("a", "a-0", cache.stamp());
+        assertThat(cache.getIfPresent("a")).isEqualTo("a-0");
+
+        advance(updateInterval);
+
+        assertThat(cache.getIfPresent("a")).isNull();
+        assertThat(cache.getLoadCount()).isEqualTo(0);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+        assertThat(pendingRefreshes).isEmpty();
+    }
+
+    @Test
+    public void testPutAfterInvalidationIsDiscarded()
+    {
+        AuthCache<String, String> cache = newCache(this::load);
+
+        long stamp = cache.stamp();
+        cache.invalidate("a");
+        cache.put("a", "a-0", stamp);
+
+        assertThat(cache.getIfPresent("a")).isNull();
+        assertThat(cache.getSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void testExpiredEntryIsLoaded() throws Exception
+    {
+        AuthCache<String, String> cache = newCache(this::load);
+
+        cache.get("a");
+        advance(validity);
+
+        assertThat(cache.get("a")).isEqualTo("a-2");
+        assertThat(cache.getMissCount()).isEqualTo(2);
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRefreshAfterUpdateInterval() throws Exception
+    {
+        AuthCache<String, String> cache = newCache(this::load);
+
+        cache.get("a");
+        advance(updateInterval);
+
+        assertThat(cache.get("a")).isEqualTo("a-1");
+        assertThat(cache.get("a")).isEqualTo("a-1");
+        assertThat(pendingRefreshes).hasSize(1);
+
+        runPendingRefreshes();
+
+        assertThat(cache.get("a")).isEqualTo("a-2");
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFailedRefreshKeepsValue() throws Exception
+    {
+        AtomicInteger calls = new AtomicInteger();
+        AuthCache<String, String> cache = newCache(k -> {
+            if (calls.incrementAndGet() > 1)
+            {
+                throw new IllegalStateException("Expected failure");
+            }
+            return k;
+        });
+
+        cache.get("a");
+        advance(updateInterval);
+        cache.get("a");
+        runPendingRefreshes();
+
+        assertThat(cache.get("a")).isEqualTo("a");
+        assertThat(cache.getRefreshFailureCount()).isEqualTo(1);
+        assertThat(pendingRefreshes).hasSize(1);
+    }
+
+    @Test
+    public void testRefreshAfterInvalidationIsDiscarded() throws Exception
+    {
+        AuthCache<String, String> cache = newCache(this::load);
+
+        cache.get("a");
+        advance(updateInterval);
+        cache.get("a");
+        cache.invalidate("a");
+        runPendingRefreshes();
+
+        assertThat(cache.getSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void testFailedLoad()
+    {
+        AuthCache<String, String> cache = newCache(k -> {
+            throw new IllegalStateException("Expected failure");
+        });
+
+        assertThatExceptionOfType(ExecutionException.class).isThrownBy(() -> cache.get("a"));
+        assertThat(cache.getLoadFailureCount()).isEqualTo(1);
+        assertThat(cache.getSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void testInvalidate() throws Exception
+    {
+        AuthCache<String, String> cache = newCache(this::load);
+
+        cache.get("a");
+        cache.get("b");
+        cache.invalidate("a");
+
+        assertThat(cache.get("a")).isEqualTo("a-3");
+        assertThat(cache.get("b")).isEqualTo("b-2");
+
+        cache.invalidate();
+
+        assertThat(cache.getSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void testPutAll() throws Exception
+    {
+        AuthCache<String, String> cache = newCache(this::load);
+
+        cache.putAll(ImmutableMap.of("a", "a-warm", "b", "b-warm"));
+
+        assertThat(cache.get("a")).isEqualTo("a-warm");
+        assertThat(cache.get("b")).isEqualTo("b-warm");
+        assertThat(cache.getMissCount()).isEqualTo(0);
+        assertThat(loadCount.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testPutAllWhenDisabled() throws Exception
+    {
+        validity = 0;
+        AuthCache<String, String> cache = newCache(this::load);
+
+        cache.putAll(ImmutableMap.of("a", "a-warm"));
+
+        assertThat(cache.isEnabled()).isFalse();
+        assertThat(cache.getSize()).isEqualTo(0);
+        assertThat(cache.get("a")).isEqualTo("a-1");
+    }
+
+    @Test
+    public void testInvalidateIf() throws Exception
+    {
+        AuthCache<String, String> cache = newCache(this::load);
+
+        cache.get("a");
+        cache.get("b");
+        cache.invalidateIf((key, value) -> value.equals("b-2"));
+
+        assertThat(cache.getSize()).isEqualTo(1);
+        assertThat(cache.get("a")).isEqualTo("a-1");
+        assertThat(cache.get("b")).isEqualTo("b-3");
+    }
+
+    @Test
+    public void testLeastRecentlyUsedAreEvicted() throws Exception
+    {
+        validity = 60000;
+        updateInterval = 60000;
+        AuthCache<String, String> cache = newCache(this::load);
+
+        for (int i = 0; i < maxEntries; i++)
+        {
+            cache.get("key" + i);
+            advance(1);
+        }
+        advance(1000);
+        cache.get("key0");
+        advance(1);
+        cache.get("new");
+
+        assertThat(cache.getSize()).isEqualTo(9);
+        assertThat(cache.getEvictionCount()).isEqualTo(2);
+        assertThat(cache.get("key0")).isEqualTo("key0-1");
+    }
+
+    @Test
+    public void testAccessTimeHasGranularity() throws Exception
+    {
+        validity = 60000;
+        updateInterval = 60000;
+        AuthCache<String, String> cache = newCache(this::load);
+
+        for (int i = 0; i < maxEntries; i++)
+        {
+            cache.get("key" + i);
+            advance(1);
+        }
+        cache.get("key0");
+        advance(1);
+        cache.get("new");
+
+        assertThat(cache.getSize()).isEqualTo(9);
+        assertThat(cache.getEvictionCount()).isEqualTo(2);
+        assertThat(cache.get("key0")).isEqualTo("key0-12");
+    }
+
+    @Test
+    public void testReconfigureInPlace() throws Exception
+    {
+        AuthCache<String, String> cache = newCache(this::load);
+
+        cache.get("a");
+        cache.setValidity(10000);
+        advance(5000);
+
+        assertThat(cache.get("a")).isEqualTo("a-1");
+
+        cache.setMaxEntries(0);
+
+        assertThat(cache.getSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDisable() throws Exception
+    {
+        AuthCache<String, String> cache = newCache(this::load);
+
+        cache.get("a");
+        cache.setValidity(0);
+
+        assertThat(cache.getSize()).isEqualTo(0);
+        assertThat(cache.get("a")).isEqualTo("a-2");
+        assertThat(cache.get("a")).isEqualTo("a-3");
+        assertThat(cache.getSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void testConcurrentLoadsAreCoalesced() throws Exception
+    {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch loadReleased = new CountDownLatch(1);
+        AuthCache<String, String> cache = newCache(k -> {
+            loadStarted.countDown();
+            awaitUninterruptibly(loadReleased);
+            return load(k);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.get("a")));
+            loadStarted.await();
+            for (int i = 0; i < 3; i++)
+            {
+                results.add(executor.submit(() -> cache.get("a")));
+            }
+            Thread.sleep(50);
+            loadReleased.countDown();
+
+            for (Future<String> result : results)
+            {
+                assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo("a-1");
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        assertThat(loadCount.get()).isEqualTo(1);
+    }
+
+    private AuthCache<String, String> newCache(Function<String, String> loadFunction)
+    {
+        return new AuthCache<>("TestAuthCache" + cacheCount.incrementAndGet(),
+                               v -> validity = v, () -> validity,
+                               i -> updateInterval = i, () -> updateInterval,
+                               m -> maxEntries = m, () -> maxEntries,
+                               loadFunction,
+                               () -> true,
+                               ticker::get,
+                               pendingRefreshes::add);
+    }
+
+    private String load(String key)
+    {
+        return key + "-" + loadCount.incrementAndGet();
+    }
+
+    private void advance(long millis)
+    {
+        ticker.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private void runPendingRefreshes()
+    {
+        List<Runnable> refreshes = new ArrayList<>(pendingRefreshes);
+        pendingRefreshes.clear();
+        refreshes.forEach(Runnable::run);
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.entry.factory;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TestFieldReader
+{
+    @Test
+    public void testReadPrivateField()
+    {
+        FieldReader reader = new FieldReader("value");
+
+        assertThat(reader.read(new Base("first"))).isEqualTo("first");
+        assertThat(reader.read(new Base("second"))).isEqualTo("second");
+        assertThat(reader.hasGetter(Base.class)).isTrue();
+    }
+
+    @Test
+    public void testReadFieldOfSuperClass()
+    {
+        FieldReader reader = new FieldReader("value");
+
+        assertThat(reader.read(new Derived("value"))).isEqualTo("value");
+        assertThat(reader.hasGetter(Derived.class)).isTrue();
+    }
+
+    @Test
+    public void testReadNullField()
+    {
+        FieldReader reader = new FieldReader("value");
+
+        assertThat(reader.read(new Base(null))).isNull();
+    }
+
+    @Test
+    public void testReadReflectivelyReadsSameValue()
+    {
+        FieldReader reader = new FieldReader("value");
+
+        assertThat(reader.readReflectively(new Derived("value"))).isEqualTo(reader.read(new Derived("value")));
+    }
+
+    @Test
+    public void testMissingFieldFallsBackAndFails()
+    {
+        FieldReader reader = new FieldReader("missing");
+
+        assertThat(reader.hasGetter(Base.class)).isFalse();
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> reader.read(new Base("value")));
+    }
+
+    private static class Base
+    {
+        private final String value;
+
+        Base(String value)
+        {
+            this.value = value;
+        }
+    }
+
+    private static class Derived extends Base
+    {
+        Derived(String value)
+        {
+            super(value);
+        }
+    }
+}
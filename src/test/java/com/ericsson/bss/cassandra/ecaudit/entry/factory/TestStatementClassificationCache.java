@@ -0,0 +1,183 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.entry.factory;
+
+import java.util.Collections;
+
+import com.google.common.base.Strings;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import com.codahale.metrics.Gauge;
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import org.apache.cassandra.auth.DataResource;
+import org.apache.cassandra.auth.Permission;
+import org.apache.cassandra.auth.RoleResource;
+import org.apache.cassandra.metrics.CassandraMetricsRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestStatementClassificationCache
+{
+    private static final AuditEntry SELECT_TABLE = AuditEntry.newBuilder()
+                                                             .permissions(ImmutableSet.of(Permission.SELECT))
+                                                             .resource(DataResource.table("ks", "tbl"))
+                                                             .build();
+    private static final AuditEntry MODIFY_TABLE = AuditEntry.newBuilder()
+                                                             .permissions(ImmutableSet.of(Permission.MODIFY))
+                                                             .resource(DataResource.table("ks", "tbl"))
+                                                             .build();
+    private static final AuditEntry CAS_TABLE = AuditEntry.newBuilder()
+                                                          .permissions(ImmutableSet.of(Permission.SELECT, Permission.MODIFY))
+                                                          .resource(DataResource.table("ks", "tbl"))
+                                                          .build();
+    private static final AuditEntry CREATE_ROLE = AuditEntry.newBuilder()
+                                                            .permissions(ImmutableSet.of(Permission.CREATE))
+                                                            .resource(RoleResource.root())
+                                                            .build();
+    private static final AuditEntry GRANT_ON_TABLE = AuditEntry.newBuilder()
+                                                               .permissions(ImmutableSet.of(Permission.AUTHORIZE))
+                                                               .resource(DataResource.table("ks", "tbl"))
+                                                               .build();
+
+    private static final long MAX_MEMORY = 1024 * 1024;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroSizeIsRejected()
+    {
+        new StatementClassificationCache(0);
+    }
+
+    @Test
+    public void testMissThenHit()
+    {
+        StatementClassificationCache cache = new StatementClassificationCache(MAX_MEMORY);
+
+        assertThat(cache.get("SELECT * FROM tbl", "ks")).isNull();
+        cache.put("SELECT * FROM tbl", "ks", SELECT_TABLE);
+
+        assertThat(cache.get("SELECT * FROM tbl", "ks")).isSameAs(SELECT_TABLE);
+        assertThat(cache.missCount()).isEqualTo(1);
+        assertThat(cache.hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testKeyIncludesKeyspace()
+    {
+        StatementClassificationCache cache = new StatementClassificationCache(MAX_MEMORY);
+        cache.put("SELECT * FROM tbl", "ks", SELECT_TABLE);
+
+        assertThat(cache.get("SELECT * FROM tbl", "other_ks")).isNull();
+        assertThat(cache.get("SELECT * FROM tbl", null)).isNull();
+    }
+
+    @Test
+    public void testNullKeyspace()
+    {
+        StatementClassificationCache cache = new StatementClassificationCache(MAX_MEMORY);
+        cache.put("SELECT * FROM ks.tbl", null, SELECT_TABLE);
+
+        assertThat(cache.get("SELECT * FROM ks.tbl", null)).isSameAs(SELECT_TABLE);
+    }
+
+    @Test
+    public void testDataStatementsAreCached()
+    {
+        StatementClassificationCache cache = new StatementClassificationCache(MAX_MEMORY);
+        cache.put("INSERT INTO tbl (a) VALUES (1)", "ks", MODIFY_TABLE);
+        cache.put("UPDATE tbl SET b = 1 WHERE a = 1 IF b = 0", "ks", CAS_TABLE);
+
+        assertThat(cache.get("INSERT INTO tbl (a) VALUES (1)", "ks")).isSameAs(MODIFY_TABLE);
+        assertThat(cache.get("UPDATE tbl SET b = 1 WHERE a = 1 IF b = 0", "ks")).isSameAs(CAS_TABLE);
+    }
+
+    @Test
+    public void testRoleStatementsAreNotCached()
+    {
+        StatementClassificationCache cache = new StatementClassificationCache(MAX_MEMORY);
+        cache.put("CREATE ROLE bob WITH PASSWORD = 'secret'", "ks", CREATE_ROLE);
+        cache.put("GRANT SELECT ON TABLE ks.tbl TO bob", "ks", GRANT_ON_TABLE);
+
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.get("CREATE ROLE bob WITH PASSWORD = 'secret'", "ks")).isNull();
+        assertThat(cache.get("GRANT SELECT ON TABLE ks.tbl TO bob", "ks")).isNull();
+    }
+
+    @Test
+    public void testLargeStatementsAreEvicted()
+    {
+        StatementClassificationCache cache = new StatementClassificationCache(MAX_MEMORY);
+        String largeStatement = "INSERT INTO tbl (a) VALUES ('" + Strings.repeat("x", (int) MAX_MEMORY) + "')";
+
+        cache.put("SELECT * FROM tbl", "ks", SELECT_TABLE);
+        cache.put(largeStatement, "ks", MODIFY_TABLE);
+
+        assertThat(cache.get(largeStatement, "ks")).isNull();
+        assertThat(cache.evictionCount()).isEqualTo(1);
+        assertThat(cache.get("SELECT * FROM tbl", "ks")).isSameAs(SELECT_TABLE);
+    }
+
+    @Test
+    public void testMemoryIsBounded()
+    {
+        StatementClassificationCache cache = new StatementClassificationCache(MAX_MEMORY);
+        String padding = Strings.repeat("x", 1000);
+        for (int i = 0; i < 1000; i++)
+        {
+            cache.put("SELECT * FROM tbl WHERE a = '" + padding + i + "'", "ks", SELECT_TABLE);
+        }
+
+        assertThat(cache.size()).isLessThan(MAX_MEMORY / 2000);
+        assertThat(cache.evictionCount()).isEqualTo(1000 - cache.size());
+    }
+
+    @Test
+    public void testSchemaChangeInvalidatesAll()
+    {
+        StatementClassificationCache cache = new StatementClassificationCache(MAX_MEMORY);
+        StatementClassificationCache.SchemaChangeListener listener = cache.new SchemaChangeListener();
+
+        cache.put("SELECT * FROM tbl", "ks", SELECT_TABLE);
+        listener.onUpdateColumnFamily("ks", "tbl", true);
+        assertThat(cache.size()).isEqualTo(0);
+
+        cache.put("SELECT * FROM tbl", "ks", SELECT_TABLE);
+        listener.onDropFunction("ks", "func", Collections.emptyList());
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testMetricsAreReplaced()
+    {
+        StatementClassificationCache first = StatementClassificationCache.create(MAX_MEMORY);
+        first.get("SELECT * FROM tbl", "ks");
+        StatementClassificationCache second = StatementClassificationCache.create(MAX_MEMORY);
+        second.put("SELECT * FROM tbl", "ks", SELECT_TABLE);
+        second.get("SELECT * FROM tbl", "ks");
+        second.get("SELECT * FROM tbl", "ks");
+
+        assertThat(gauge(StatementClassificationCache.HITS).getValue()).isEqualTo(2L);
+        assertThat(gauge(StatementClassificationCache.MISSES).getValue()).isEqualTo(0L);
+        assertThat(gauge(StatementClassificationCache.EVICTIONS).getValue()).isEqualTo(0L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Gauge<Long> gauge(CassandraMetricsRegistry.MetricName name)
+    {
+        return (Gauge<Long>) CassandraMetricsRegistry.Metrics.getMetrics().get(name.getMetricName());
+    }
+}
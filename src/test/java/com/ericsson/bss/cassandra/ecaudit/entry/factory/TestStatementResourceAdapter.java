@@ -0,0 +1,88 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.entry.factory;
+
+import org.junit.Test;
+
+import com.ericsson.bss.cassandra.ecaudit.facade.CassandraAuditException;
+import org.apache.cassandra.auth.DataResource;
+import org.apache.cassandra.auth.FunctionResource;
+import org.apache.cassandra.auth.RoleResource;
+import org.apache.cassandra.cql3.QueryProcessor;
+import org.apache.cassandra.cql3.statements.AuthenticationStatement;
+import org.apache.cassandra.cql3.statements.AuthorizationStatement;
+import org.apache.cassandra.cql3.statements.CreateFunctionStatement;
+import org.apache.cassandra.cql3.statements.ModificationStatement;
+import org.apache.cassandra.cql3.statements.PermissionsManagementStatement;
+import org.apache.cassandra.cql3.statements.UseStatement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.mock;
+
+public class TestStatementResourceAdapter
+{
+    @Test
+    public void testAllFieldsResolvedInCassandraVersion()
+    {
+        assertThat(StatementResourceAdapter.unresolvedFields()).isEmpty();
+    }
+
+    @Test
+    public void testResolveResources()
+    {
+        StatementResourceAdapter adapter = new StatementResourceAdapter();
+
+        assertThat(adapter.resolveRoleResource(parse("CREATE ROLE bob", AuthenticationStatement.class)))
+        .isEqualTo(RoleResource.role("bob"));
+        assertThat(adapter.resolveManagedResource(parse("GRANT SELECT ON TABLE ks.tbl TO bob", PermissionsManagementStatement.class)))
+        .isEqualTo(DataResource.table("ks", "tbl"));
+        assertThat(adapter.resolveGranteeResource(parse("LIST ROLES OF bob", AuthorizationStatement.class)))
+        .isEqualTo(RoleResource.role("bob"));
+        assertThat(adapter.resolveGranteeResource(parse("LIST ROLES", AuthorizationStatement.class)))
+        .isEqualTo(RoleResource.root());
+        assertThat(adapter.resolveKeyspaceResource(parse("USE ks", UseStatement.class)))
+        .isEqualTo(DataResource.keyspace("ks"));
+        assertThat(adapter.resolveFunctionKeyspaceResource(parse("CREATE FUNCTION ks.fn (a int) RETURNS NULL ON NULL INPUT RETURNS int LANGUAGE java AS 'return a;'", CreateFunctionStatement.class)))
+        .isEqualTo(FunctionResource.keyspace("ks"));
+    }
+
+    @Test
+    public void testMissingFieldNamesStatementType()
+    {
+        StatementResourceAdapter adapter = new StatementResourceAdapter();
+        AuthenticationStatement statement = mock(AuthenticationStatement.class);
+
+        assertThatExceptionOfType(CassandraAuditException.class)
+        .isThrownBy(() -> adapter.resolveRoleResource(statement))
+        .withMessageContaining("Failed to resolve role of AuthenticationStatement");
+    }
+
+    @Test
+    public void testHasConditions()
+    {
+        StatementResourceAdapter adapter = new StatementResourceAdapter();
+
+        assertThat(adapter.hasConditions(parse("UPDATE ks.tbl SET a = 1 WHERE k = 1 IF a = 0", ModificationStatement.Parsed.class))).isTrue();
+        assertThat(adapter.hasConditions(parse("UPDATE ks.tbl SET a = 1 WHERE k = 1", ModificationStatement.Parsed.class))).isFalse();
+        assertThat(adapter.hasConditions(parse("DELETE FROM ks.tbl WHERE k = 1", ModificationStatement.Parsed.class))).isFalse();
+    }
+
+    private static <T> T parse(String query, Class<T> type)
+    {
+        return type.cast(QueryProcessor.parseStatement(query));
+    }
+}
@@ -27,6 +27,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -77,4 +78,38 @@ public class TestDefaultAuditor
         verify(mockObfuscator, times(1)).obfuscate(logEntry);
         verify(mockLogger, times(1)).log(logEntry);
     }
+
+    @Test
+    public void testIsAuditRequiredFiltered()
+    {
+        AuditEntry logEntry = AuditEntry.newBuilder().build();
+        when(mockFilter.isFiltered(logEntry)).thenReturn(true);
+
+        assertThat(auditor.isAuditRequired(logEntry)).isFalse();
+        verify(mockFilter, times(1)).isFiltered(logEntry);
+        verifyZeroInteractions(mockLogger, mockObfuscator);
+    }
+
+    @Test
+    public void testIsAuditRequiredNotFiltered()
+    {
+        AuditEntry logEntry = AuditEntry.newBuilder().build();
+        when(mockFilter.isFiltered(logEntry)).thenReturn(false);
+
+        assertThat(auditor.isAuditRequired(logEntry)).isTrue();
+        verify(mockFilter, times(1)).isFiltered(logEntry);
+        verifyZeroInteractions(mockLogger, mockObfuscator);
+    }
+
+    @Test
+    public void testLogDoesNotFilter()
+    {
+        AuditEntry logEntry = AuditEntry.newBuilder().build();
+        when(mockObfuscator.obfuscate(logEntry)).thenReturn(logEntry);
+
+        auditor.log(logEntry);
+        verify(mockObfuscator, times(1)).obfuscate(logEntry);
+        verify(mockLogger, times(1)).log(logEntry);
+        verifyZeroInteractions(mockFilter);
+    }
 }
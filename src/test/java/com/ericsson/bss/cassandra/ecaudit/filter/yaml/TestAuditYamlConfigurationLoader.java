@@ -15,6 +15,7 @@
 //**********************************************************************
 package com.ericsson.bss.cassandra.ecaudit.filter.yaml;
 
+import java.io.File;
 import java.net.URL;
 import java.util.Properties;
 
@@ -67,6 +68,7 @@ public class TestAuditYamlConfigurationLoader
         AuditConfig loadedConfig = loader.loadConfig();
         assertThat(loadedConfig).isNotNull();
         assertThat(loadedConfig.getWhitelist()).isNotNull().isEmpty();
+        assertThat(loadedConfig.getLog_format()).isNull();
     }
 
     @Test
@@ -79,6 +81,44 @@ public class TestAuditYamlConfigurationLoader
         assertThat(loadedConfig.getWhitelist()).containsOnly("User1", "User2");
     }
 
+    @Test
+    public void testLoadLogFormatWithoutWhitelist()
+    {
+        Properties properties = getProperties("log_format_configuration.yaml");
+        AuditYamlConfigurationLoader loader = AuditYamlConfigurationLoader.withProperties(properties);
+
+        AuditConfig loadedConfig = loader.loadConfig();
+        assertThat(loadedConfig.getLog_format()).isEqualTo("${TIMESTAMP}|client:'${CLIENT}'|user:'${USER}'{?|keyspace:'${KEYSPACE}'?}|status:'${STATUS}'|operation:'${OPERATION}'");
+        assertThat(loadedConfig.getWhitelist()).isNotNull().isEmpty();
+    }
+
+    @Test
+    public void testConfigExists()
+    {
+        assertThat(AuditYamlConfigurationLoader.withProperties(getProperties("mock_configuration.yaml")).configExists()).isTrue();
+    }
+
+    @Test
+    public void testConfigDoesNotExist()
+    {
+        Properties properties = new Properties();
+        properties.put(AuditYamlConfigurationLoader.PROPERTY_CONFIG_FILE, "does_not_exist.yaml");
+        assertThat(AuditYamlConfigurationLoader.withProperties(properties).configExists()).isFalse();
+
+        properties.put(AuditYamlConfigurationLoader.PROPERTY_CONFIG_FILE, "");
+        assertThat(AuditYamlConfigurationLoader.withProperties(properties).configExists()).isFalse();
+    }
+
+    @Test
+    public void testGetConfigFile()
+    {
+        Properties properties = new Properties();
+        properties.put(AuditYamlConfigurationLoader.PROPERTY_CONFIG_FILE, "/some/path/audit.yaml");
+
+        assertThat(AuditYamlConfigurationLoader.withProperties(properties).getConfigFile()).isEqualTo(new File("/some/path/audit.yaml"));
+        assertThat(AuditYamlConfigurationLoader.withProperties(new Properties()).getConfigFile()).isEqualTo(new File("/etc/cassandra/conf/audit.yaml"));
+    }
+
     private static Properties getProperties(String fileName)
     {
         URL url = TestAuditYamlConfigurationLoader.class.getResource("/" + fileName);
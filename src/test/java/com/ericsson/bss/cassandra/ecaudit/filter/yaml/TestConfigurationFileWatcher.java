@@ -0,0 +1,111 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.filter.yaml;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestConfigurationFileWatcher
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AtomicInteger changes = new AtomicInteger();
+
+    private File file;
+
+    @Before
+    public void before() throws IOException
+    {
+        file = temporaryFolder.newFile("audit.yaml");
+        write("whitelist:\n  - User1\n");
+    }
+
+    @Test
+    public void testUnchangedFileIsNotReported()
+    {
+        ConfigurationFileWatcher watcher = new ConfigurationFileWatcher(file, changes::incrementAndGet);
+
+        watcher.run();
+
+        assertThat(changes.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testChangedFileIsReportedOnce() throws IOException
+    {
+        ConfigurationFileWatcher watcher = new ConfigurationFileWatcher(file, changes::incrementAndGet);
+
+        write("whitelist:\n  - User1\n  - User2\n");
+        watcher.run();
+        watcher.run();
+
+        assertThat(changes.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testChangeOfModificationTimeIsReported()
+    {
+        ConfigurationFileWatcher watcher = new ConfigurationFileWatcher(file, changes::incrementAndGet);
+
+        assertThat(file.setLastModified(file.lastModified() - 10000)).isTrue();
+        watcher.run();
+
+        assertThat(changes.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFailingListenerIsCalledOnNextChange() throws IOException
+    {
+        ConfigurationFileWatcher watcher = new ConfigurationFileWatcher(file, () -> {
+            changes.incrementAndGet();
+            throw new IllegalStateException("Failed");
+        });
+
+        write("whitelist:\n  - User1\n  - User2\n");
+        watcher.run();
+        write("whitelist:\n  - User1\n  - User2\n  - User3\n");
+        watcher.run();
+
+        assertThat(changes.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testDeletedFileIsReported()
+    {
+        ConfigurationFileWatcher watcher = new ConfigurationFileWatcher(file, changes::incrementAndGet);
+
+        assertThat(file.delete()).isTrue();
+        watcher.run();
+
+        assertThat(changes.get()).isEqualTo(1);
+    }
+
+    private void write(String content) throws IOException
+    {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -30,6 +30,7 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.StrictStubs.class)
@@ -83,6 +84,38 @@ public class TestYamlAuditFilter
         new YamlAuditFilter(configLoaderMock);
     }
 
+    @Test
+    public void testReloadReplacesWhitelist()
+    {
+        AuditConfig config = new AuditConfig();
+        config.setWhitelist(Arrays.asList("User1", "User2"));
+        AuditConfig reloadedConfig = new AuditConfig();
+        reloadedConfig.setWhitelist(Arrays.asList("User2", "User3"));
+
+        when(configLoaderMock.loadConfig()).thenReturn(config, reloadedConfig);
+
+        YamlAuditFilter filter = new YamlAuditFilter(configLoaderMock);
+        filter.reload();
+
+        assertThat(filter.isFiltered(toLogEntry("User1"))).isFalse();
+        assertThat(filter.isFiltered(toLogEntry("User2"))).isTrue();
+        assertThat(filter.isFiltered(toLogEntry("User3"))).isTrue();
+    }
+
+    @Test
+    public void testFailedReloadKeepsWhitelist()
+    {
+        AuditConfig config = new AuditConfig();
+        config.setWhitelist(Arrays.asList("User1", "User2"));
+
+        when(configLoaderMock.loadConfig()).thenReturn(config).thenThrow(new ConfigurationException("something failed"));
+
+        YamlAuditFilter filter = new YamlAuditFilter(configLoaderMock);
+
+        assertThatExceptionOfType(ConfigurationException.class).isThrownBy(filter::reload);
+        assertThat(filter.isFiltered(toLogEntry("User1"))).isTrue();
+    }
+
     private static AuditEntry toLogEntry(String user)
     {
         return AuditEntry.newBuilder()
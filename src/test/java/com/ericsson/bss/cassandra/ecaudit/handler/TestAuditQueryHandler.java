@@ -136,8 +136,8 @@ public class TestAuditQueryHandler
         assertThat(stmt).isSameAs(mockStatement);
 
         verify(mockHandler, times(1)).prepare(eq(query), eq(mockQueryState), eq(customPayload));
-        verify(mockHandler, times(1)).getPrepared(eq(statementId));
-        verify(mockAdapter, times(1)).mapIdToQuery(eq(statementId), eq(query));
+        verify(mockHandler, times(2)).getPrepared(eq(statementId));
+        verify(mockAdapter, times(1)).mapIdToStatement(eq(statementId), eq(query), eq(mockStatement));
     }
 
     @Test
@@ -265,6 +265,7 @@ public class TestAuditQueryHandler
         ParsedStatement.Prepared prepared = queryHandler.getPrepared(statementId);
         assertThat(prepared).isNull();
         verify(mockHandler, times(1)).getPrepared(statementId);
+        verify(mockAdapter, times(1)).unmapId(statementId);
     }
 
     @SuppressWarnings("unchecked")
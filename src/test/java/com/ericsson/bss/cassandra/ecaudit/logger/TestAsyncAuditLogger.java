@@ -0,0 +1,338 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.entry.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.facade.CassandraAuditException;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.StrictStubs.class)
+public class TestAsyncAuditLogger
+{
+    @Mock
+    private AuditOperation mockOperation;
+
+    private List<AuditEntry> loggedEntries;
+
+    private final Counter droppedRecords = new Counter();
+    private final Counter spilledRecords = new Counter();
+    private final Timer blockedTime = new Timer();
+    private AsyncAuditLoggerMetrics metrics;
+
+    private AsyncAuditLogger asyncLogger;
+
+    @Before
+    public void before()
+    {
+        loggedEntries = new CopyOnWriteArrayList<>();
+        metrics = new AsyncAuditLoggerMetrics(droppedRecords, spilledRecords, blockedTime);
+        asyncLogger = newBuilder(loggedEntries::add).build();
+    }
+
+    @After
+    public void after()
+    {
+        asyncLogger.close();
+    }
+
+    @Test
+    public void testEntriesAreWrittenInOrder()
+    {
+        for (int i = 0; i < 100; i++)
+        {
+            asyncLogger.log(entryWithOperation("operation " + i));
+        }
+
+        asyncLogger.close();
+
+        assertThat(loggedEntries).hasSize(100);
+        for (int i = 0; i < 100; i++)
+        {
+            assertThat(loggedEntries.get(i).getOperation().getOperationString()).isEqualTo("operation " + i);
+        }
+        assertThat(asyncLogger.pendingEntries()).isEqualTo(0);
+    }
+
+    @Test
+    public void testOperationIsResolvedOnCallingThread()
+    {
+        when(mockOperation.getOperationString()).thenReturn("operation");
+        AuditEntry logEntry = AuditEntry.newBuilder().operation(mockOperation).build();
+
+        asyncLogger.log(logEntry);
+
+        verify(mockOperation, times(1)).getOperationString();
+    }
+
+    @Test
+    public void testFailingDelegateDoesNotStopConsumer()
+    {
+        asyncLogger.close();
+        asyncLogger = newBuilder(entry -> {
+            if ("fail".equals(entry.getOperation().getOperationString()))
+            {
+                throw new IllegalStateException("Expected failure");
+            }
+            loggedEntries.add(entry);
+        }).build();
+
+        asyncLogger.log(entryWithOperation("fail"));
+        asyncLogger.log(entryWithOperation("success"));
+        asyncLogger.close();
+
+        assertThat(loggedEntries).hasSize(1);
+        assertThat(loggedEntries.get(0).getOperation().getOperationString()).isEqualTo("success");
+    }
+
+    @Test
+    public void testRecordsAfterCloseAreDropped()
+    {
+        asyncLogger.log(entryWithOperation("before close"));
+        asyncLogger.close();
+
+        asyncLogger.log(entryWithOperation("after close"));
+        asyncLogger.log(entryWithOperation("after close"));
+
+        assertThat(loggedEntries).extracting(entry -> entry.getOperation().getOperationString()).containsExactly("before close");
+        assertThat(asyncLogger.pendingEntries()).isEqualTo(0);
+        assertThat(droppedRecords.getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testInterruptedCloseDropsPendingAndClosesDelegate() throws Exception
+    {
+        asyncLogger.close();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch delegateClosed = new CountDownLatch(1);
+        AuditLogger blockingLogger = blockingLogger(release);
+        asyncLogger = newBuilder(new AuditLogger()
+        {
+            @Override
+            public void log(AuditEntry logEntry)
+            {
+                blockingLogger.log(logEntry);
+            }
+
+            @Override
+            public void close()
+            {
+                delegateClosed.countDown();
+            }
+        }).build();
+
+        logUntilFull();
+        Thread.currentThread().interrupt();
+        asyncLogger.close();
+
+        assertThat(Thread.interrupted()).isTrue();
+        assertThat(delegateClosed.getCount()).isEqualTo(0);
+        assertThat(droppedRecords.getCount()).isEqualTo(8);
+        assertThat(asyncLogger.pendingEntries()).isEqualTo(0);
+        release.countDown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroThreadsIsRejected()
+    {
+        newBuilder(loggedEntries::add).threads(0).build();
+    }
+
+    @Test
+    public void testDropNewestDiscardsRecordsWhenFull() throws Exception
+    {
+        asyncLogger.close();
+        CountDownLatch release = new CountDownLatch(1);
+        asyncLogger = newBuilder(blockingLogger(release)).overflowPolicy(OverflowPolicy.DROP_NEWEST).build();
+
+        logUntilFull();
+        asyncLogger.log(entryWithOperation("dropped"));
+        release.countDown();
+        asyncLogger.close();
+
+        assertThat(droppedRecords.getCount()).isGreaterThanOrEqualTo(1);
+        assertThat(operations()).doesNotContain("dropped");
+        assertThat(operations()).contains("operation 0");
+    }
+
+    @Test
+    public void testDropOldestKeepsNewestRecord() throws Exception
+    {
+        asyncLogger.close();
+        CountDownLatch release = new CountDownLatch(1);
+        asyncLogger = newBuilder(blockingLogger(release)).overflowPolicy(OverflowPolicy.DROP_OLDEST).build();
+
+        int logged = logUntilFull();
+        asyncLogger.log(entryWithOperation("newest"));
+        release.countDown();
+        asyncLogger.close();
+
+        assertThat(droppedRecords.getCount()).isEqualTo(1);
+        assertThat(operations()).contains("newest");
+        assertThat(operations()).hasSize(logged);
+    }
+
+    @Test
+    public void testSpillWritesToSpillLoggerWhenFull() throws Exception
+    {
+        asyncLogger.close();
+        CountDownLatch release = new CountDownLatch(1);
+        List<AuditEntry> spilledEntries = new CopyOnWriteArrayList<>();
+        asyncLogger = newBuilder(blockingLogger(release)).overflowPolicy(OverflowPolicy.SPILL)
+                                                         .spillLogger(spilledEntries::add)
+                                                         .build();
+
+        logUntilFull();
+        asyncLogger.log(entryWithOperation("spilled"));
+        release.countDown();
+        asyncLogger.close();
+
+        assertThat(spilledRecords.getCount()).isGreaterThanOrEqualTo(1);
+        assertThat(spilledEntries).extracting(entry -> entry.getOperation().getOperationString()).contains("spilled");
+        assertThat(operations()).doesNotContain("spilled");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSpillWithoutSpillLoggerIsRejected()
+    {
+        newBuilder(loggedEntries::add).overflowPolicy(OverflowPolicy.SPILL).build();
+    }
+
+    @Test
+    public void testBlockTimesOutWhenFull() throws Exception
+    {
+        asyncLogger.close();
+        CountDownLatch release = new CountDownLatch(1);
+        asyncLogger = newBuilder(blockingLogger(release)).overflowPolicy(OverflowPolicy.BLOCK)
+                                                         .blockTimeoutMillis(10)
+                                                         .build();
+
+        logUntilFull();
+        assertThatExceptionOfType(CassandraAuditException.class).isThrownBy(() -> asyncLogger.log(entryWithOperation("timeout")));
+        release.countDown();
+        asyncLogger.close();
+
+        assertThat(droppedRecords.getCount()).isEqualTo(1);
+        assertThat(blockedTime.getCount()).isGreaterThanOrEqualTo(1);
+        assertThat(operations()).doesNotContain("timeout");
+    }
+
+    @Test
+    public void testBlockWaitsForSpace() throws Exception
+    {
+        asyncLogger.close();
+        CountDownLatch release = new CountDownLatch(1);
+        asyncLogger = newBuilder(blockingLogger(release)).overflowPolicy(OverflowPolicy.BLOCK).build();
+
+        logUntilFull();
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        executor.schedule(release::countDown, 50, TimeUnit.MILLISECONDS);
+        asyncLogger.log(entryWithOperation("blocked"));
+        asyncLogger.close();
+        executor.shutdown();
+
+        assertThat(droppedRecords.getCount()).isEqualTo(0);
+        assertThat(blockedTime.getSnapshot().getMax()).isGreaterThan(0);
+        assertThat(operations()).contains("blocked");
+    }
+
+    private AsyncAuditLogger.Builder newBuilder(AuditLogger delegate)
+    {
+        return AsyncAuditLogger.newBuilder(delegate)
+                               .bufferSize(8)
+                               .threadFactory(Executors.defaultThreadFactory())
+                               .metrics(metrics);
+    }
+
+    /**
+     * Create a logger which blocks on the first entry until released, so that the buffer fills up.
+     */
+    private AuditLogger blockingLogger(CountDownLatch release)
+    {
+        return entry -> {
+            awaitUninterruptibly(release);
+            loggedEntries.add(entry);
+        };
+    }
+
+    /**
+     * Log entries until the buffer is full while the consumer is blocked on the first entry.
+     *
+     * @return the number of entries in the buffer and in the consumer
+     */
+    private int logUntilFull() throws InterruptedException
+    {
+        asyncLogger.log(entryWithOperation("operation 0"));
+        while (asyncLogger.pendingEntries() > 0)
+        {
+            Thread.sleep(1);
+        }
+
+        for (int i = 1; i <= 8; i++)
+        {
+            asyncLogger.log(entryWithOperation("operation " + i));
+        }
+        assertThat(droppedRecords.getCount() + spilledRecords.getCount()).isEqualTo(0);
+        return 9;
+    }
+
+    private List<String> operations()
+    {
+        return loggedEntries.stream().map(entry -> entry.getOperation().getOperationString()).collect(Collectors.toList());
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static AuditEntry entryWithOperation(String operation)
+    {
+        return AuditEntry.newBuilder()
+                         .operation(new SimpleAuditOperation(operation))
+                         .build();
+    }
+}
@@ -0,0 +1,57 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import org.junit.Test;
+
+import com.codahale.metrics.Gauge;
+import org.apache.cassandra.metrics.CassandraMetricsRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestAsyncAuditLoggerMetrics
+{
+    @Test
+    public void testPendingRecordsGaugeIsReplaced()
+    {
+        AsyncAuditLoggerMetrics.register(() -> 1);
+        AsyncAuditLoggerMetrics.register(() -> 2);
+
+        assertThat(pendingRecordsGauge().getValue()).isEqualTo(2);
+    }
+
+    @Test
+    public void testCountersAreShared()
+    {
+        AsyncAuditLoggerMetrics first = AsyncAuditLoggerMetrics.register(() -> 0);
+        AsyncAuditLoggerMetrics second = AsyncAuditLoggerMetrics.register(() -> 0);
+        long dropped = CassandraMetricsRegistry.Metrics.counter(AsyncAuditLoggerMetrics.DROPPED_RECORDS).getCount();
+        long spilled = CassandraMetricsRegistry.Metrics.counter(AsyncAuditLoggerMetrics.SPILLED_RECORDS).getCount();
+
+        first.markDropped();
+        second.markDropped();
+        second.markSpilled();
+
+        assertThat(CassandraMetricsRegistry.Metrics.counter(AsyncAuditLoggerMetrics.DROPPED_RECORDS).getCount()).isEqualTo(dropped + 2);
+        assertThat(CassandraMetricsRegistry.Metrics.counter(AsyncAuditLoggerMetrics.SPILLED_RECORDS).getCount()).isEqualTo(spilled + 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Gauge<Integer> pendingRecordsGauge()
+    {
+        return (Gauge<Integer>) CassandraMetricsRegistry.Metrics.getMetrics().get(AsyncAuditLoggerMetrics.PENDING_RECORDS.getMetricName());
+    }
+}
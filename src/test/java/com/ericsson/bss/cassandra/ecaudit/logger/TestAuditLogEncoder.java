@@ -0,0 +1,111 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.LoggingEvent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestAuditLogEncoder
+{
+    private ByteArrayOutputStream outputStream;
+    private AuditLogEncoder encoder;
+
+    @Before
+    public void before() throws Exception
+    {
+        outputStream = new ByteArrayOutputStream();
+        encoder = new AuditLogEncoder();
+        encoder.init(outputStream);
+        encoder.start();
+    }
+
+    @Test
+    public void testEncodeMatchesPattern() throws Exception
+    {
+        long timestamp = timestamp(LocalDateTime.of(2018, 11, 5, 9, 8, 7, 6_000_000));
+
+        encoder.doEncode(event(timestamp, "client:'127.0.0.1'|user:'user'|status:'ATTEMPT'|operation:'SELECT * FROM ks.tbl'"));
+
+        assertThat(output()).isEqualTo("09:08:07.006 - client:'127.0.0.1'|user:'user'|status:'ATTEMPT'|operation:'SELECT * FROM ks.tbl'\n");
+    }
+
+    @Test
+    public void testEncodeMultipleEvents() throws Exception
+    {
+        long timestamp = timestamp(LocalDateTime.of(2018, 11, 5, 23, 59, 59, 999_000_000));
+
+        encoder.doEncode(event(timestamp, "first"));
+        encoder.doEncode(event(timestamp + 1, "second"));
+
+        assertThat(output()).isEqualTo("23:59:59.999 - first\n00:00:00.000 - second\n");
+    }
+
+    @Test
+    public void testEncodeMultiByteCharacters() throws Exception
+    {
+        long timestamp = timestamp(LocalDateTime.of(2018, 11, 5, 12, 0, 0, 0));
+        String message = "operation:'SELECT * FROM ks.tbl WHERE key = 'åäö € 😀''";
+
+        encoder.doEncode(event(timestamp, message));
+
+        assertThat(output()).isEqualTo("12:00:00.000 - " + message + "\n");
+    }
+
+    @Test
+    public void testEncodeLargeMessage() throws Exception
+    {
+        long timestamp = timestamp(LocalDateTime.of(2018, 11, 5, 12, 0, 0, 0));
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100_000; i++)
+        {
+            builder.append('x');
+        }
+
+        encoder.doEncode(event(timestamp, builder.toString()));
+        encoder.doEncode(event(timestamp, "small"));
+
+        assertThat(output()).isEqualTo("12:00:00.000 - " + builder + "\n12:00:00.000 - small\n");
+    }
+
+    private String output()
+    {
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static long timestamp(LocalDateTime dateTime)
+    {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LoggingEvent event(long timestamp, String message)
+    {
+        LoggingEvent event = new LoggingEvent();
+        event.setLevel(Level.INFO);
+        event.setTimeStamp(timestamp);
+        event.setMessage(message);
+        return event;
+    }
+}
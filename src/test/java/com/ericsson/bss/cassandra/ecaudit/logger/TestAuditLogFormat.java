@@ -0,0 +1,155 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.net.InetAddress;
+import java.util.EnumSet;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.entry.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.entry.Status;
+import org.apache.cassandra.auth.DataResource;
+import org.apache.cassandra.auth.Permission;
+import org.apache.cassandra.exceptions.ConfigurationException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestAuditLogFormat
+{
+    private static final UUID BATCH_ID = UUID.fromString("12345678-aaaa-bbbb-cccc-123456789abc");
+
+    @Test
+    public void testDefaultFormatWithoutBatch() throws Exception
+    {
+        AuditEntry logEntry = entryBuilder().build();
+
+        assertThat(format(AuditLogFormat.getDefault(), logEntry))
+        .isEqualTo("client:'127.0.0.1'|user:'user'|status:'ATTEMPT'|operation:'SELECT * FROM ks.tbl'");
+    }
+
+    @Test
+    public void testDefaultFormatWithBatch() throws Exception
+    {
+        AuditEntry logEntry = entryBuilder().batch(BATCH_ID).build();
+
+        assertThat(format(AuditLogFormat.getDefault(), logEntry))
+        .isEqualTo("client:'127.0.0.1'|user:'user'|batchId:'12345678-aaaa-bbbb-cccc-123456789abc'|status:'ATTEMPT'|operation:'SELECT * FROM ks.tbl'");
+    }
+
+    @Test
+    public void testBatchIdMatchesUuidToString() throws Exception
+    {
+        UUID batchId = UUID.randomUUID();
+        AuditEntry logEntry = entryBuilder().batch(batchId).build();
+
+        assertThat(format(AuditLogFormat.parse("${BATCH_ID}"), logEntry)).isEqualTo(batchId.toString());
+    }
+
+    @Test
+    public void testTimestampAndReducedFields() throws Exception
+    {
+        AuditEntry logEntry = entryBuilder().timestamp(1541408887006L).build();
+
+        assertThat(format(AuditLogFormat.parse("${TIMESTAMP} ${USER} ${OPERATION}"), logEntry))
+        .isEqualTo("1541408887006 user SELECT * FROM ks.tbl");
+    }
+
+    @Test
+    public void testTableResource() throws Exception
+    {
+        AuditLogFormat format = AuditLogFormat.parse("${USER}{? ks:${KEYSPACE}?}{? tbl:${TABLE}?}");
+
+        assertThat(format(format, entryBuilder().resource(DataResource.table("ks", "tbl")).build())).isEqualTo("user ks:ks tbl:tbl");
+        assertThat(format(format, entryBuilder().resource(DataResource.keyspace("ks")).build())).isEqualTo("user ks:ks");
+        assertThat(format(format, entryBuilder().resource(DataResource.root()).build())).isEqualTo("user");
+    }
+
+    @Test
+    public void testMissingFieldOutsideSectionIsEmpty() throws Exception
+    {
+        AuditEntry logEntry = entryBuilder().build();
+
+        assertThat(format(AuditLogFormat.parse("keyspace:'${KEYSPACE}'"), logEntry)).isEqualTo("keyspace:''");
+    }
+
+    @Test
+    public void testPermissions() throws Exception
+    {
+        AuditLogFormat format = AuditLogFormat.parse("${USER}{?|permissions:'${PERMISSIONS}'?}");
+
+        assertThat(format(format, entryBuilder().permissions(EnumSet.of(Permission.SELECT, Permission.MODIFY)).build()))
+        .isEqualTo("user|permissions:'SELECT,MODIFY'");
+        assertThat(format(format, entryBuilder().permissions(EnumSet.noneOf(Permission.class)).build())).isEqualTo("user");
+    }
+
+    @Test
+    public void testCoordinator() throws Exception
+    {
+        InetAddress coordinator = InetAddress.getByName("10.0.0.1");
+        AuditLogFormat format = AuditLogFormat.parse("${COORDINATOR}|${CLIENT}", () -> coordinator);
+
+        assertThat(format(format, entryBuilder().build())).isEqualTo("10.0.0.1|127.0.0.1");
+    }
+
+    @Test
+    public void testLiteralOnly() throws Exception
+    {
+        assertThat(format(AuditLogFormat.parse("audit ? record {"), entryBuilder().build())).isEqualTo("audit ? record {");
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testUnknownFieldFails()
+    {
+        AuditLogFormat.parse("${CLIENT} ${UNKNOWN}");
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testUnterminatedFieldFails()
+    {
+        AuditLogFormat.parse("${CLIENT");
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testUnterminatedSectionFails()
+    {
+        AuditLogFormat.parse("${CLIENT}{? ${BATCH_ID}");
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testNestedSectionFails()
+    {
+        AuditLogFormat.parse("{? ${CLIENT} {? ${BATCH_ID} ?} ?}");
+    }
+
+    private static String format(AuditLogFormat format, AuditEntry logEntry)
+    {
+        StringBuilder builder = new StringBuilder();
+        format.format(logEntry, builder);
+        return builder.toString();
+    }
+
+    private static AuditEntry.Builder entryBuilder() throws Exception
+    {
+        return AuditEntry.newBuilder()
+                         .client(InetAddress.getByName("127.0.0.1"))
+                         .user("user")
+                         .status(Status.ATTEMPT)
+                         .operation(new SimpleAuditOperation("SELECT * FROM ks.tbl"));
+    }
+}
@@ -0,0 +1,65 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import java.net.InetAddress;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestHostAddressCache
+{
+    @After
+    public void after()
+    {
+        HostAddressCache.clear();
+    }
+
+    @Test
+    public void testSameRepresentationAsInetAddress() throws Exception
+    {
+        InetAddress ipv4 = InetAddress.getByName("127.0.0.1");
+        InetAddress ipv6 = InetAddress.getByName("::1");
+
+        assertThat(HostAddressCache.getHostAddress(ipv4)).isEqualTo(ipv4.getHostAddress());
+        assertThat(HostAddressCache.getHostAddress(ipv6)).isEqualTo(ipv6.getHostAddress());
+    }
+
+    @Test
+    public void testAddressIsCached() throws Exception
+    {
+        InetAddress address = InetAddress.getByName("127.0.0.1");
+
+        String first = HostAddressCache.getHostAddress(address);
+        String second = HostAddressCache.getHostAddress(InetAddress.getByName("127.0.0.1"));
+
+        assertThat(second).isSameAs(first);
+        assertThat(HostAddressCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testCacheIsBounded() throws Exception
+    {
+        for (int i = 0; i < HostAddressCache.MAX_SIZE + 10; i++)
+        {
+            HostAddressCache.getHostAddress(InetAddress.getByAddress(new byte[]{ 10, 0, (byte) (i >> 8), (byte) i }));
+        }
+
+        assertThat(HostAddressCache.size()).isLessThanOrEqualTo(HostAddressCache.MAX_SIZE);
+    }
+}
@@ -0,0 +1,111 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestRingBuffer
+{
+    @Test
+    public void testCapacityIsRoundedUpToPowerOfTwo()
+    {
+        assertThat(new RingBuffer<String>(1).capacity()).isEqualTo(1);
+        assertThat(new RingBuffer<String>(5).capacity()).isEqualTo(8);
+        assertThat(new RingBuffer<String>(1024).capacity()).isEqualTo(1024);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroCapacityIsRejected()
+    {
+        new RingBuffer<String>(0);
+    }
+
+    @Test
+    public void testElementsArePolledInOrder()
+    {
+        RingBuffer<String> buffer = new RingBuffer<>(4);
+
+        assertThat(buffer.offer("a")).isTrue();
+        assertThat(buffer.offer("b")).isTrue();
+        assertThat(buffer.size()).isEqualTo(2);
+
+        assertThat(buffer.poll()).isEqualTo("a");
+        assertThat(buffer.poll()).isEqualTo("b");
+        assertThat(buffer.poll()).isNull();
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testOfferFailsWhenFull()
+    {
+        RingBuffer<String> buffer = new RingBuffer<>(2);
+
+        assertThat(buffer.offer("a")).isTrue();
+        assertThat(buffer.offer("b")).isTrue();
+        assertThat(buffer.offer("c")).isFalse();
+
+        assertThat(buffer.poll()).isEqualTo("a");
+        assertThat(buffer.offer("c")).isTrue();
+        assertThat(buffer.poll()).isEqualTo("b");
+        assertThat(buffer.poll()).isEqualTo("c");
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception
+    {
+        int producers = 4;
+        int elementsPerProducer = 10_000;
+        RingBuffer<Integer> buffer = new RingBuffer<>(64);
+
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++)
+        {
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < elementsPerProducer; i++)
+                {
+                    while (!buffer.offer(i))
+                    {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+
+        long sum = 0;
+        int received = 0;
+        while (received < producers * elementsPerProducer)
+        {
+            Integer element = buffer.poll();
+            if (element != null)
+            {
+                sum += element;
+                received++;
+            }
+        }
+
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        long expectedSum = (long) producers * elementsPerProducer * (elementsPerProducer - 1) / 2;
+        assertThat(sum).isEqualTo(expectedSum);
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+}
@@ -19,6 +19,7 @@ import java.net.InetAddress;
 import java.util.UUID;
 
 import org.apache.commons.lang3.StringUtils;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.slf4j.Logger;
@@ -27,7 +28,6 @@ import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
 import com.ericsson.bss.cassandra.ecaudit.entry.SimpleAuditOperation;
 import com.ericsson.bss.cassandra.ecaudit.entry.Status;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
@@ -43,9 +43,14 @@ public class TestSlf4jAuditLogger
     @Mock
     Logger mockLogger;
 
-    @InjectMocks
     Slf4jAuditLogger logger;
 
+    @Before
+    public void before()
+    {
+        logger = new Slf4jAuditLogger(mockLogger, AuditLogFormat.getDefault());
+    }
+
     @Test
     public void testAuditEntryNoBatch() throws Exception
     {
@@ -115,4 +120,61 @@ public class TestSlf4jAuditLogger
         String.format("batchId:'%s'", expectedBatchId.toString()),
         String.format("status:'%s'", expectedStatus.toString()));
     }
+
+    @Test
+    public void testLogStringIsNotAffectedByReuse() throws Exception
+    {
+        AuditEntry longEntry = AuditEntry.newBuilder()
+                                         .user("user")
+                                         .client(InetAddress.getByName("127.0.0.1"))
+                                         .operation(new SimpleAuditOperation(StringUtils.repeat('x', 100_000)))
+                                         .status(Status.ATTEMPT)
+                                         .batch(UUID.randomUUID())
+                                         .build();
+        AuditEntry shortEntry = AuditEntry.newBuilder()
+                                          .user("user")
+                                          .client(InetAddress.getByName("::1"))
+                                          .operation(new SimpleAuditOperation("select * from ks.tbl"))
+                                          .status(Status.FAILED)
+                                          .build();
+
+        String longLogString = Slf4jAuditLogger.getLogString(longEntry);
+        String shortLogString = Slf4jAuditLogger.getLogString(shortEntry);
+
+        assertThat(longLogString).startsWith("client:'127.0.0.1'|user:'user'|batchId:'")
+                                 .endsWith("'|status:'ATTEMPT'|operation:'" + StringUtils.repeat('x', 100_000) + "'");
+        assertThat(shortLogString).isEqualTo("client:'0:0:0:0:0:0:0:1'|user:'user'|status:'FAILED'|operation:'select * from ks.tbl'");
+    }
+
+    @Test
+    public void testAppendLogString() throws Exception
+    {
+        AuditEntry logEntry = AuditEntry.newBuilder()
+                                        .user("user")
+                                        .client(InetAddress.getByName("127.0.0.1"))
+                                        .operation(new SimpleAuditOperation("select * from ks.tbl"))
+                                        .status(Status.ATTEMPT)
+                                        .build();
+
+        StringBuilder builder = new StringBuilder("prefix ");
+        Slf4jAuditLogger.appendLogString(logEntry, builder);
+
+        assertThat(builder.toString()).isEqualTo("prefix " + Slf4jAuditLogger.getLogString(logEntry));
+    }
+
+    @Test
+    public void testCustomLogFormat() throws Exception
+    {
+        logger = new Slf4jAuditLogger(mockLogger, AuditLogFormat.parse("${USER}@${CLIENT} ${STATUS}"));
+        AuditEntry logEntry = AuditEntry.newBuilder()
+                                        .user("user")
+                                        .client(InetAddress.getByName("127.0.0.1"))
+                                        .operation(new SimpleAuditOperation("select * from ks.tbl"))
+                                        .status(Status.ATTEMPT)
+                                        .build();
+
+        logger.log(logEntry);
+
+        verify(mockLogger, times(1)).info("user@127.0.0.1 ATTEMPT");
+    }
 }
@@ -0,0 +1,104 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.net.InetAddress;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.entry.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.entry.Status;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestAuditRecordFilter
+{
+    private static final UUID BATCH_ID = UUID.randomUUID();
+
+    @Test
+    public void testEmptyFilterMatchesAll() throws Exception
+    {
+        AuditRecordFilter filter = AuditRecordFilter.newBuilder().build();
+
+        assertThat(filter.test(entry("user", "127.0.0.1", Status.ATTEMPT, null, 1000L))).isTrue();
+        assertThat(filter.test(entry("other", "::1", Status.FAILED, BATCH_ID, 0L))).isTrue();
+    }
+
+    @Test
+    public void testFilterOnUser() throws Exception
+    {
+        AuditRecordFilter filter = AuditRecordFilter.newBuilder().user("user").build();
+
+        assertThat(filter.test(entry("user", "127.0.0.1", Status.ATTEMPT, null, 1000L))).isTrue();
+        assertThat(filter.test(entry("other", "127.0.0.1", Status.ATTEMPT, null, 1000L))).isFalse();
+    }
+
+    @Test
+    public void testFilterOnClient() throws Exception
+    {
+        AuditRecordFilter filter = AuditRecordFilter.newBuilder().client(InetAddress.getByName("127.0.0.1")).build();
+
+        assertThat(filter.test(entry("user", "127.0.0.1", Status.ATTEMPT, null, 1000L))).isTrue();
+        assertThat(filter.test(entry("user", "127.0.0.2", Status.ATTEMPT, null, 1000L))).isFalse();
+    }
+
+    @Test
+    public void testFilterOnStatus() throws Exception
+    {
+        AuditRecordFilter filter = AuditRecordFilter.newBuilder().status(Status.FAILED).build();
+
+        assertThat(filter.test(entry("user", "127.0.0.1", Status.FAILED, null, 1000L))).isTrue();
+        assertThat(filter.test(entry("user", "127.0.0.1", Status.ATTEMPT, null, 1000L))).isFalse();
+    }
+
+    @Test
+    public void testFilterOnBatchId() throws Exception
+    {
+        AuditRecordFilter filter = AuditRecordFilter.newBuilder().batch(BATCH_ID).build();
+
+        assertThat(filter.test(entry("user", "127.0.0.1", Status.ATTEMPT, BATCH_ID, 1000L))).isTrue();
+        assertThat(filter.test(entry("user", "127.0.0.1", Status.ATTEMPT, UUID.randomUUID(), 1000L))).isFalse();
+        assertThat(filter.test(entry("user", "127.0.0.1", Status.ATTEMPT, null, 1000L))).isFalse();
+    }
+
+    @Test
+    public void testFilterOnTimeRange() throws Exception
+    {
+        AuditRecordFilter filter = AuditRecordFilter.newBuilder().from(1000L).to(2000L).build();
+
+        assertThat(filter.test(entry("user", "127.0.0.1", Status.ATTEMPT, null, 999L))).isFalse();
+        assertThat(filter.test(entry("user", "127.0.0.1", Status.ATTEMPT, null, 1000L))).isTrue();
+        assertThat(filter.test(entry("user", "127.0.0.1", Status.ATTEMPT, null, 1999L))).isTrue();
+        assertThat(filter.test(entry("user", "127.0.0.1", Status.ATTEMPT, null, 2000L))).isFalse();
+    }
+
+    private static AuditEntry entry(String user, String client, Status status, UUID batchId, long timestamp) throws Exception
+    {
+        AuditEntry.Builder builder = AuditEntry.newBuilder()
+                                               .user(user)
+                                               .client(InetAddress.getByName(client))
+                                               .status(status)
+                                               .timestamp(timestamp)
+                                               .operation(new SimpleAuditOperation("SELECT * FROM ks.tbl"));
+        if (batchId != null)
+        {
+            builder.batch(batchId);
+        }
+        return builder.build();
+    }
+}
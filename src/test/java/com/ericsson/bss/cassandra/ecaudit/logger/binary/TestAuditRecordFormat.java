@@ -0,0 +1,64 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.net.InetAddress;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.entry.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.entry.Status;
+import com.ericsson.bss.cassandra.ecaudit.logger.Slf4jAuditLogger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestAuditRecordFormat
+{
+    @Test
+    public void testTextMatchesSlf4jLogString() throws Exception
+    {
+        AuditEntry logEntry = AuditEntry.newBuilder()
+                                        .timestamp(1000L)
+                                        .client(InetAddress.getByName("127.0.0.1"))
+                                        .user("user")
+                                        .status(Status.ATTEMPT)
+                                        .operation(new SimpleAuditOperation("SELECT * FROM ks.tbl"))
+                                        .build();
+
+        assertThat(AuditRecordFormat.TEXT.format(logEntry))
+        .isEqualTo("1970-01-01T00:00:01Z - " + Slf4jAuditLogger.getLogString(logEntry));
+    }
+
+    @Test
+    public void testJson() throws Exception
+    {
+        UUID batchId = UUID.fromString("12345678-aaaa-bbbb-cccc-123456789abc");
+        AuditEntry logEntry = AuditEntry.newBuilder()
+                                        .timestamp(1000L)
+                                        .client(InetAddress.getByName("127.0.0.1"))
+                                        .user("user")
+                                        .batch(batchId)
+                                        .status(Status.FAILED)
+                                        .operation(new SimpleAuditOperation("INSERT INTO ks.tbl (key, value) VALUES (1, 'a \"quoted\" value')"))
+                                        .build();
+
+        assertThat(AuditRecordFormat.JSON.format(logEntry))
+        .isEqualTo("{\"timestamp\":1000,\"client\":\"127.0.0.1\",\"user\":\"user\",\"batchId\":\"12345678-aaaa-bbbb-cccc-123456789abc\","
+                   + "\"status\":\"FAILED\",\"operation\":\"INSERT INTO ks.tbl (key, value) VALUES (1, 'a \\\"quoted\\\" value')\"}");
+    }
+}
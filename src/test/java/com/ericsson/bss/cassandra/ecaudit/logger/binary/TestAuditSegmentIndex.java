@@ -0,0 +1,108 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestAuditSegmentIndex
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testEntriesAreWrittenPerInterval() throws Exception
+    {
+        File segment = temporaryFolder.newFile();
+        try (AuditSegmentIndex.Writer writer = new AuditSegmentIndex.Writer(AuditSegmentIndex.file(segment)))
+        {
+            writer.add(1, 1000);
+            writer.add(2, 900);
+            writer.add(3, 1100);
+            writer.endInterval(100);
+            writer.endInterval(100);
+            writer.add(4, 1200);
+            writer.endInterval(150);
+        }
+
+        List<AuditSegmentIndex.Entry> entries = AuditSegmentIndex.read(segment, 150);
+
+        assertThat(entries).hasSize(2);
+        assertEntry(entries.get(0), AuditSegment.HEADER_SIZE, 100 - AuditSegment.HEADER_SIZE, 1, 3, 900, 1100);
+        assertEntry(entries.get(1), 100, 50, 4, 4, 1200, 1200);
+    }
+
+    @Test
+    public void testMissingIndexGivesNoEntries() throws Exception
+    {
+        assertThat(AuditSegmentIndex.read(temporaryFolder.newFile(), 100)).isEmpty();
+    }
+
+    @Test
+    public void testIndexBeyondSegmentIsIgnored() throws Exception
+    {
+        File segment = temporaryFolder.newFile();
+        try (AuditSegmentIndex.Writer writer = new AuditSegmentIndex.Writer(AuditSegmentIndex.file(segment)))
+        {
+            writer.add(1, 1000);
+            writer.endInterval(100);
+        }
+
+        assertThat(AuditSegmentIndex.read(segment, 99)).isEmpty();
+    }
+
+    @Test
+    public void testInvalidIndexIsIgnored() throws Exception
+    {
+        File segment = temporaryFolder.newFile();
+        try (RandomAccessFile raf = new RandomAccessFile(AuditSegmentIndex.file(segment), "rw"))
+        {
+            raf.writeInt(0x12345678);
+            raf.setLength(AuditSegmentIndex.HEADER_SIZE + AuditSegmentIndex.ENTRY_SIZE);
+        }
+
+        assertThat(AuditSegmentIndex.read(segment, 1000)).isEmpty();
+    }
+
+    @Test
+    public void testOverlaps()
+    {
+        AuditSegmentIndex.Entry entry = new AuditSegmentIndex.Entry(8, 100, 1, 10, 1000, 2000);
+
+        assertThat(entry.overlaps(Long.MIN_VALUE, Long.MAX_VALUE)).isTrue();
+        assertThat(entry.overlaps(2000, 3000)).isTrue();
+        assertThat(entry.overlaps(500, 1001)).isTrue();
+        assertThat(entry.overlaps(2001, 3000)).isFalse();
+        assertThat(entry.overlaps(500, 1000)).isFalse();
+    }
+
+    private static void assertEntry(AuditSegmentIndex.Entry entry, long offset, int length, long firstSequence, long lastSequence, long minTimestamp, long maxTimestamp)
+    {
+        assertThat(entry.getOffset()).isEqualTo(offset);
+        assertThat(entry.getLength()).isEqualTo(length);
+        assertThat(entry.getFirstSequence()).isEqualTo(firstSequence);
+        assertThat(entry.getLastSequence()).isEqualTo(lastSequence);
+        assertThat(entry.getMinTimestamp()).isEqualTo(minTimestamp);
+        assertThat(entry.getMaxTimestamp()).isEqualTo(maxTimestamp);
+    }
+}
@@ -0,0 +1,391 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.UniformReservoir;
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.entry.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.entry.Status;
+import com.ericsson.bss.cassandra.ecaudit.facade.CassandraAuditException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestBinaryAuditLogger
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRecordsAreWrittenAndSegmentIsTruncated() throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        BinaryAuditLogger logger = new BinaryAuditLogger(directory, 4096);
+
+        logger.log(entryWithOperation("operation 1"));
+        logger.log(entryWithOperation("operation 2"));
+        logger.close();
+
+        List<File> segments = AuditSegment.list(directory);
+        assertThat(segments).hasSize(1);
+        assertThat(segments.get(0).length()).isLessThan(4096);
+        assertThat(readOperations(segments.get(0))).containsExactly("operation 1", "operation 2");
+    }
+
+    @Test
+    public void testSegmentsAreRolled() throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        BinaryAuditLogger logger = new BinaryAuditLogger(directory, 128);
+
+        for (int i = 0; i < 10; i++)
+        {
+            logger.log(entryWithOperation("operation " + i));
+        }
+        logger.close();
+
+        List<File> segments = AuditSegment.list(directory);
+        assertThat(segments.size()).isGreaterThan(1);
+
+        List<String> operations = new ArrayList<>();
+        for (File segment : segments)
+        {
+            operations.addAll(readOperations(segment));
+        }
+        assertThat(operations).hasSize(10);
+        assertThat(operations.get(0)).isEqualTo("operation 0");
+        assertThat(operations.get(9)).isEqualTo("operation 9");
+    }
+
+    @Test
+    public void testSegmentIdContinuesAfterRestart() throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        BinaryAuditLogger logger = new BinaryAuditLogger(directory, 4096);
+        logger.log(entryWithOperation("before restart"));
+        logger.close();
+
+        logger = new BinaryAuditLogger(directory, 4096);
+        logger.log(entryWithOperation("after restart"));
+        logger.close();
+
+        List<File> segments = AuditSegment.list(directory);
+        assertThat(segments).hasSize(2);
+        assertThat(AuditSegment.id(segments.get(0))).isEqualTo(0L);
+        assertThat(AuditSegment.id(segments.get(1))).isEqualTo(1L);
+        assertThat(readOperations(segments.get(1))).containsExactly("after restart");
+    }
+
+    @Test
+    public void testSequenceContinuesAfterRestart() throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        BinaryAuditLogger logger = new BinaryAuditLogger(directory, 128);
+        for (int i = 0; i < 5; i++)
+        {
+            logger.log(entryWithOperation("before restart"));
+        }
+        logger.close();
+
+        logger = new BinaryAuditLogger(directory, 128);
+        logger.log(entryWithOperation("after restart"));
+        logger.close();
+
+        List<Long> sequences = new ArrayList<>();
+        for (File segment : AuditSegment.list(directory))
+        {
+            AuditSegment.forEachRecord(segment, (logEntry, sequence) -> sequences.add(sequence));
+        }
+        assertThat(sequences).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+    }
+
+    @Test
+    public void testIndexSkipsIntervalsOutsideTimeRange() throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        BinaryAuditLogger logger = BinaryAuditLogger.newBuilder(directory)
+                                                    .segmentSize(1024 * 1024)
+                                                    .indexInterval(10)
+                                                    .build();
+        for (int i = 0; i < 105; i++)
+        {
+            logger.log(entryWithTimestamp(i * 1000L));
+        }
+        logger.close();
+
+        File segment = AuditSegment.list(directory).get(0);
+        assertThat(AuditSegmentIndex.read(segment, segment.length())).hasSize(11);
+
+        List<Long> timestamps = new ArrayList<>();
+        AuditSegment.forEachRecord(segment, 42_000, 55_000, (logEntry, sequence) -> timestamps.add(logEntry.getTimestamp()));
+
+        assertThat(timestamps).hasSize(20);
+        assertThat(timestamps.get(0)).isEqualTo(40_000L);
+        assertThat(timestamps.get(19)).isEqualTo(59_000L);
+    }
+
+    @Test
+    public void testUnindexedRecordsAreRead() throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        BinaryAuditLogger logger = BinaryAuditLogger.newBuilder(directory)
+                                                    .segmentSize(1024 * 1024)
+                                                    .indexInterval(10)
+                                                    .build();
+        for (int i = 0; i < 25; i++)
+        {
+            logger.log(entryWithTimestamp(i * 1000L));
+        }
+
+        // The last interval is indexed when the segment is closed
+        File segment = AuditSegment.list(directory).get(0);
+        List<Long> timestamps = new ArrayList<>();
+        AuditSegment.forEachRecord(segment, 22_000, Long.MAX_VALUE, (logEntry, sequence) -> timestamps.add(logEntry.getTimestamp()));
+        logger.close();
+
+        assertThat(timestamps).containsExactly(20_000L, 21_000L, 22_000L, 23_000L, 24_000L);
+    }
+
+    @Test(expected = CassandraAuditException.class)
+    public void testTooLargeRecordFails() throws Exception
+    {
+        BinaryAuditLogger logger = new BinaryAuditLogger(temporaryFolder.newFolder(), 64);
+        logger.log(entryWithOperation("this operation is too large to fit in a segment of only sixty four bytes"));
+    }
+
+    @Test
+    public void testBatchFsyncCommitsAllRecords() throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        Histogram recordsPerCommit = new Histogram(new UniformReservoir(10_000));
+        BinaryAuditLogger logger = BinaryAuditLogger.newBuilder(directory)
+                                                    .segmentSize(1024 * 1024)
+                                                    .fsyncPolicy(FsyncPolicy.BATCH)
+                                                    .fsyncPeriodMillis(0)
+                                                    .recordsPerCommit(recordsPerCommit)
+                                                    .build();
+
+        int threads = 8;
+        int recordsPerThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            futures.add(executor.submit(() ->
+            {
+                for (int i = 0; i < recordsPerThread; i++)
+                {
+                    logger.log(entryWithOperation("operation"));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures)
+        {
+            future.get();
+        }
+        executor.shutdown();
+        logger.close();
+
+        assertThat(sum(recordsPerCommit)).isEqualTo(threads * recordsPerThread);
+        assertThat(recordsPerCommit.getCount()).isLessThanOrEqualTo(threads * recordsPerThread);
+        assertThat(readOperations(AuditSegment.list(directory).get(0))).hasSize(threads * recordsPerThread);
+    }
+
+    @Test
+    public void testBatchFsyncCommitsEachSequentialRecord() throws Exception
+    {
+        Histogram recordsPerCommit = new Histogram(new UniformReservoir(10_000));
+        BinaryAuditLogger logger = BinaryAuditLogger.newBuilder(temporaryFolder.newFolder())
+                                                    .segmentSize(1024)
+                                                    .fsyncPolicy(FsyncPolicy.BATCH)
+                                                    .fsyncPeriodMillis(0)
+                                                    .recordsPerCommit(recordsPerCommit)
+                                                    .build();
+
+        for (int i = 0; i < 10; i++)
+        {
+            logger.log(entryWithOperation("operation " + i));
+        }
+        logger.close();
+
+        assertThat(recordsPerCommit.getCount()).isEqualTo(10);
+        assertThat(recordsPerCommit.getSnapshot().getMax()).isEqualTo(1);
+    }
+
+    @Test
+    public void testPeriodicFsyncCommitsRecords() throws Exception
+    {
+        Histogram recordsPerCommit = new Histogram(new UniformReservoir(10_000));
+        BinaryAuditLogger logger = BinaryAuditLogger.newBuilder(temporaryFolder.newFolder())
+                                                    .segmentSize(1024)
+                                                    .fsyncPolicy(FsyncPolicy.PERIODIC)
+                                                    .fsyncPeriodMillis(10)
+                                                    .recordsPerCommit(recordsPerCommit)
+                                                    .build();
+
+        for (int i = 0; i < 10; i++)
+        {
+            logger.log(entryWithOperation("operation " + i));
+        }
+
+        await(() -> sum(recordsPerCommit) == 10);
+        logger.close();
+
+        assertThat(sum(recordsPerCommit)).isEqualTo(10);
+    }
+
+    @Test
+    public void testNoFsyncHasNoCommits() throws Exception
+    {
+        Histogram recordsPerCommit = new Histogram(new UniformReservoir(10_000));
+        BinaryAuditLogger logger = BinaryAuditLogger.newBuilder(temporaryFolder.newFolder())
+                                                    .segmentSize(1024)
+                                                    .fsyncPolicy(FsyncPolicy.NONE)
+                                                    .fsyncPeriodMillis(0)
+                                                    .recordsPerCommit(recordsPerCommit)
+                                                    .build();
+
+        logger.log(entryWithOperation("operation"));
+        logger.close();
+
+        assertThat(recordsPerCommit.getCount()).isEqualTo(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPeriodicFsyncWithoutPeriodFails() throws Exception
+    {
+        BinaryAuditLogger.newBuilder(temporaryFolder.newFolder())
+                         .segmentSize(1024)
+                         .fsyncPolicy(FsyncPolicy.PERIODIC)
+                         .fsyncPeriodMillis(0)
+                         .build();
+    }
+
+    @Test
+    public void testRolledSegmentsAreCompressed() throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        BinaryAuditLogger logger = BinaryAuditLogger.newBuilder(directory)
+                                                    .segmentSize(128)
+                                                    .compression(SegmentCompression.LZ4)
+                                                    .build();
+
+        for (int i = 0; i < 10; i++)
+        {
+            logger.log(entryWithOperation("operation " + i));
+        }
+        logger.compressor().awaitTermination(10, TimeUnit.SECONDS);
+        logger.close();
+
+        List<File> segments = AuditSegment.list(directory);
+        assertThat(segments.size()).isGreaterThan(1);
+        assertThat(segments.subList(0, segments.size() - 1)).allMatch(AuditSegment::isCompressed);
+        assertThat(AuditSegment.isCompressed(segments.get(segments.size() - 1))).isFalse();
+
+        List<String> operations = new ArrayList<>();
+        for (File segment : segments)
+        {
+            operations.addAll(readOperations(segment));
+        }
+        assertThat(operations).hasSize(10);
+        assertThat(operations.get(0)).isEqualTo("operation 0");
+        assertThat(operations.get(9)).isEqualTo("operation 9");
+    }
+
+    @Test
+    public void testUncompressedSegmentsAreCompressedAtStartup() throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        BinaryAuditLogger logger = new BinaryAuditLogger(directory, 4096);
+        logger.log(entryWithOperation("before restart"));
+        logger.close();
+
+        logger = BinaryAuditLogger.newBuilder(directory)
+                                  .segmentSize(4096)
+                                  .compression(SegmentCompression.DEFLATE)
+                                  .build();
+        logger.compressor().awaitTermination(10, TimeUnit.SECONDS);
+        logger.close();
+
+        List<File> segments = AuditSegment.list(directory);
+        assertThat(segments).hasSize(1);
+        assertThat(AuditSegment.isCompressed(segments.get(0))).isTrue();
+        assertThat(readOperations(segments.get(0))).containsExactly("before restart");
+    }
+
+    private static long sum(Histogram histogram)
+    {
+        long sum = 0;
+        for (long value : histogram.getSnapshot().getValues())
+        {
+            sum += value;
+        }
+        return sum;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+    }
+
+    private static List<String> readOperations(File segment) throws IOException
+    {
+        List<String> operations = new ArrayList<>();
+        AuditSegment.forEachRecord(segment, entry -> operations.add(entry.getOperation().getOperationString()));
+        return operations;
+    }
+
+    private static AuditEntry entryWithTimestamp(long timestamp) throws Exception
+    {
+        return AuditEntry.newBuilder()
+                         .client(InetAddress.getByName("127.0.0.1"))
+                         .user("user")
+                         .status(Status.ATTEMPT)
+                         .operation(new SimpleAuditOperation("operation"))
+                         .timestamp(timestamp)
+                         .build();
+    }
+
+    private static AuditEntry entryWithOperation(String operation) throws Exception
+    {
+        return AuditEntry.newBuilder()
+                         .client(InetAddress.getByName("127.0.0.1"))
+                         .user("user")
+                         .status(Status.ATTEMPT)
+                         .operation(new SimpleAuditOperation(operation))
+                         .build();
+    }
+}
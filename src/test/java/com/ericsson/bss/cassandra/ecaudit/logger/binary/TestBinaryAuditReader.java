@@ -0,0 +1,246 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.entry.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.entry.Status;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestBinaryAuditReader
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRecordsArePrintedInSegmentOrder() throws Exception
+    {
+        File directory = writeSegments(1000, 256);
+        assertThat(AuditSegment.list(directory).size()).isGreaterThan(4);
+
+        BinaryAuditReader reader = new BinaryAuditReader(AuditRecordFilter.newBuilder().build(), AuditRecordFormat.TEXT, 4);
+        List<String> lines = read(reader, AuditSegment.list(directory));
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+        {
+            expected.add(AuditRecordFormat.TEXT.format(entry(i)));
+        }
+        assertThat(lines).isEqualTo(expected);
+    }
+
+    @Test
+    public void testCompressedSegmentsAreRead() throws Exception
+    {
+        File directory = writeSegments(1000, 4096);
+        SegmentCompressor compressor = new SegmentCompressor(SegmentCompression.DEFLATE, 1);
+        List<File> segments = AuditSegment.list(directory);
+        for (File segment : segments.subList(0, segments.size() / 2))
+        {
+            compressor.compress(segment);
+        }
+        compressor.close();
+
+        BinaryAuditReader reader = new BinaryAuditReader(AuditRecordFilter.newBuilder().build(), AuditRecordFormat.TEXT, 2);
+        List<String> lines = read(reader, AuditSegment.list(directory));
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+        {
+            expected.add(AuditRecordFormat.TEXT.format(entry(i)));
+        }
+        assertThat(lines).isEqualTo(expected);
+    }
+
+    @Test
+    public void testShardsAreMergedInSequenceOrder() throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        ShardedAuditLogger logger = new ShardedAuditLogger(BinaryAuditLogger.newBuilder(directory).segmentSize(1024), 3);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 3; t++)
+        {
+            Thread writer = new Thread(() -> logEntries(logger, 300));
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers)
+        {
+            writer.join();
+        }
+        logger.close();
+
+        List<File> segments = BinaryAuditReader.segments(Collections.singletonList(directory.getPath()));
+        assertThat(BinaryAuditReader.shards(segments).size()).isGreaterThan(1);
+
+        BinaryAuditReader reader = new BinaryAuditReader(AuditRecordFilter.newBuilder().build(), AuditRecordFormat.TEXT, 1);
+        List<String> lines = read(reader, segments);
+
+        SortedMap<Long, String> expected = new TreeMap<>();
+        for (File segment : segments)
+        {
+            AuditSegment.forEachRecord(segment, (logEntry, sequence) -> expected.put(sequence, AuditRecordFormat.TEXT.format(logEntry)));
+        }
+        assertThat(lines).hasSize(900);
+        assertThat(lines).isEqualTo(new ArrayList<>(expected.values()));
+    }
+
+    @Test(timeout = 60000)
+    public void testShardsLargerThanQueueAreMergedWithOneThread() throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        ShardedAuditLogger logger = new ShardedAuditLogger(BinaryAuditLogger.newBuilder(directory).segmentSize(1024 * 1024), 3);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 3; t++)
+        {
+            Thread writer = new Thread(() -> logEntries(logger, 5000));
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers)
+        {
+            writer.join();
+        }
+        logger.close();
+
+        List<File> segments = BinaryAuditReader.segments(Collections.singletonList(directory.getPath()));
+        BinaryAuditReader reader = new BinaryAuditReader(AuditRecordFilter.newBuilder().build(), AuditRecordFormat.TEXT, 1);
+        List<String> lines = read(reader, segments);
+
+        assertThat(lines).hasSize(15000);
+    }
+
+    @Test
+    public void testSegmentsOutsideShardsAreNotMerged() throws Exception
+    {
+        File directory = writeSegments(100, 512);
+        List<File> segments = AuditSegment.list(directory);
+
+        assertThat(BinaryAuditReader.shards(segments)).containsExactly(segments);
+    }
+
+    @Test
+    public void testFilterIsApplied() throws Exception
+    {
+        File directory = writeSegments(100, 1024);
+
+        AuditRecordFilter filter = AuditRecordFilter.newBuilder().status(Status.FAILED).from(10).to(20).build();
+        BinaryAuditReader reader = new BinaryAuditReader(filter, AuditRecordFormat.JSON, 2);
+        List<String> lines = read(reader, AuditSegment.list(directory));
+
+        assertThat(lines).containsExactly(AuditRecordFormat.JSON.format(entry(11)),
+                                          AuditRecordFormat.JSON.format(entry(13)),
+                                          AuditRecordFormat.JSON.format(entry(15)),
+                                          AuditRecordFormat.JSON.format(entry(17)),
+                                          AuditRecordFormat.JSON.format(entry(19)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidSegmentFails() throws Exception
+    {
+        File invalid = temporaryFolder.newFile();
+
+        BinaryAuditReader reader = new BinaryAuditReader(AuditRecordFilter.newBuilder().build(), AuditRecordFormat.TEXT, 1);
+        read(reader, Collections.singletonList(invalid));
+    }
+
+    @Test
+    public void testSegmentsFromDirectoriesAndFiles() throws Exception
+    {
+        File directory = writeSegments(100, 512);
+        List<File> segments = AuditSegment.list(directory);
+
+        List<File> result = BinaryAuditReader.segments(Arrays.asList(segments.get(0).getPath(), directory.getPath()));
+
+        assertThat(result.get(0)).isEqualTo(segments.get(0));
+        assertThat(result.subList(1, result.size())).isEqualTo(segments);
+    }
+
+    @Test
+    public void testParseTimestamp()
+    {
+        assertThat(BinaryAuditReader.parseTimestamp("1000")).isEqualTo(1000L);
+        assertThat(BinaryAuditReader.parseTimestamp("1970-01-01T00:00:01Z")).isEqualTo(1000L);
+    }
+
+    private File writeSegments(int records, int segmentSize) throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        BinaryAuditLogger logger = new BinaryAuditLogger(directory, segmentSize);
+        for (int i = 0; i < records; i++)
+        {
+            logger.log(entry(i));
+        }
+        logger.close();
+        return directory;
+    }
+
+    private static void logEntries(ShardedAuditLogger logger, int records)
+    {
+        try
+        {
+            for (int i = 0; i < records; i++)
+            {
+                logger.log(entry(i));
+            }
+        }
+        catch (Exception e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> read(BinaryAuditReader reader, List<File> segments) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8.name()))
+        {
+            reader.read(segments, out);
+        }
+
+        String output = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        return output.isEmpty() ? Collections.emptyList() : Arrays.asList(output.split(System.lineSeparator()));
+    }
+
+    private static AuditEntry entry(int i) throws Exception
+    {
+        return AuditEntry.newBuilder()
+                         .timestamp(i)
+                         .client(InetAddress.getByName("127.0.0.1"))
+                         .user("user" + (i % 3))
+                         .status(i % 2 == 0 ? Status.ATTEMPT : Status.FAILED)
+                         .operation(new SimpleAuditOperation("SELECT * FROM ks.tbl WHERE key = " + i))
+                         .build();
+    }
+}
@@ -0,0 +1,163 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.entry.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.entry.Status;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestBinaryRecordCodec
+{
+    @Test
+    public void testEncodeDecodeWithoutBatch() throws Exception
+    {
+        AuditEntry expected = AuditEntry.newBuilder()
+                                        .timestamp(1234567890L)
+                                        .client(InetAddress.getByName("127.0.0.1"))
+                                        .user("user")
+                                        .status(Status.ATTEMPT)
+                                        .operation(new SimpleAuditOperation("SELECT * FROM ks.tbl"))
+                                        .build();
+
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        assertThat(BinaryRecordCodec.encode(expected, 1L, buffer)).isTrue();
+        buffer.flip();
+
+        assertEntry(BinaryRecordCodec.decode(buffer), expected);
+        assertThat(BinaryRecordCodec.decode(buffer)).isNull();
+    }
+
+    @Test
+    public void testEncodeDecodeWithBatchAndIpv6() throws Exception
+    {
+        AuditEntry expected = AuditEntry.newBuilder()
+                                        .timestamp(42L)
+                                        .client(InetAddress.getByName("::1"))
+                                        .user("user")
+                                        .batch(UUID.randomUUID())
+                                        .status(Status.FAILED)
+                                        .operation(new SimpleAuditOperation("INSERT INTO ks.tbl (key, value) VALUES (1, 'v')"))
+                                        .build();
+
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        assertThat(BinaryRecordCodec.encode(expected, 1L, buffer)).isTrue();
+        buffer.flip();
+
+        assertEntry(BinaryRecordCodec.decode(buffer), expected);
+    }
+
+    @Test
+    public void testEncodeDecodeMultiByteCharacters() throws Exception
+    {
+        String operation = "SELECT * FROM ks.tbl WHERE key = 'åäö € 😀' " + repeat('x', 200);
+        AuditEntry expected = AuditEntry.newBuilder()
+                                        .client(InetAddress.getByName("127.0.0.1"))
+                                        .user("üser")
+                                        .status(Status.ATTEMPT)
+                                        .operation(new SimpleAuditOperation(operation))
+                                        .build();
+
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        assertThat(BinaryRecordCodec.encode(expected, 1L, buffer)).isTrue();
+        buffer.flip();
+
+        assertEntry(BinaryRecordCodec.decode(buffer), expected);
+    }
+
+    @Test
+    public void testEncodeWithoutSpaceLeavesBufferUnchanged() throws Exception
+    {
+        AuditEntry entry = AuditEntry.newBuilder()
+                                     .client(InetAddress.getByName("127.0.0.1"))
+                                     .user("user")
+                                     .status(Status.ATTEMPT)
+                                     .operation(new SimpleAuditOperation("SELECT * FROM ks.tbl"))
+                                     .build();
+
+        ByteBuffer buffer = ByteBuffer.allocate(20);
+        assertThat(BinaryRecordCodec.encode(entry, 1L, buffer)).isFalse();
+        assertThat(buffer.position()).isEqualTo(0);
+    }
+
+    @Test
+    public void testSequenceIsReadWithoutDecoding() throws Exception
+    {
+        AuditEntry entry = AuditEntry.newBuilder()
+                                     .client(InetAddress.getByName("127.0.0.1"))
+                                     .user("user")
+                                     .status(Status.ATTEMPT)
+                                     .operation(new SimpleAuditOperation("SELECT * FROM ks.tbl"))
+                                     .build();
+
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        assertThat(BinaryRecordCodec.encode(entry, 17L, buffer)).isTrue();
+        assertThat(BinaryRecordCodec.encode(entry, 18L, buffer)).isTrue();
+        buffer.flip();
+
+        assertThat(BinaryRecordCodec.sequence(buffer)).isEqualTo(17L);
+        BinaryRecordCodec.decode(buffer);
+        assertThat(BinaryRecordCodec.sequence(buffer)).isEqualTo(18L);
+    }
+
+    @Test
+    public void testDecodeEmptyBufferGivesNull()
+    {
+        assertThat(BinaryRecordCodec.decode(ByteBuffer.allocate(0))).isNull();
+        assertThat(BinaryRecordCodec.decode(ByteBuffer.allocate(64))).isNull();
+    }
+
+    @Test
+    public void testVarInt()
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        for (int value : new int[]{ 0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE })
+        {
+            buffer.clear();
+            BinaryRecordCodec.writeVarInt(value, buffer);
+            assertThat(buffer.position()).isEqualTo(BinaryRecordCodec.varIntSize(value));
+            buffer.flip();
+            assertThat(BinaryRecordCodec.readVarInt(buffer)).isEqualTo(value);
+        }
+    }
+
+    private static void assertEntry(AuditEntry actual, AuditEntry expected)
+    {
+        assertThat(actual.getTimestamp()).isEqualTo(expected.getTimestamp());
+        assertThat(actual.getClientAddress()).isEqualTo(expected.getClientAddress());
+        assertThat(actual.getUser()).isEqualTo(expected.getUser());
+        assertThat(actual.getBatchId()).isEqualTo(expected.getBatchId());
+        assertThat(actual.getStatus()).isEqualTo(expected.getStatus());
+        assertThat(actual.getOperation().getOperationString()).isEqualTo(expected.getOperation().getOperationString());
+    }
+
+    private static String repeat(char c, int times)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++)
+        {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
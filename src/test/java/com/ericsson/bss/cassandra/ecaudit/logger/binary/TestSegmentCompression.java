@@ -0,0 +1,107 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TestSegmentCompression
+{
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        for (SegmentCompression compression : SegmentCompression.values())
+        {
+            assertRoundTrip(compression);
+        }
+    }
+
+    @Test
+    public void testRepetitiveDataIsCompressed()
+    {
+        assertCompressed(SegmentCompression.LZ4);
+        assertCompressed(SegmentCompression.DEFLATE);
+    }
+
+    @Test
+    public void testCorruptBlockFails()
+    {
+        assertCorruptBlockFails(SegmentCompression.LZ4);
+        assertCorruptBlockFails(SegmentCompression.DEFLATE);
+    }
+
+    @Test
+    public void testFromId() throws Exception
+    {
+        for (SegmentCompression compression : SegmentCompression.values())
+        {
+            assertThat(SegmentCompression.fromId(compression.id())).isEqualTo(compression);
+        }
+    }
+
+    @Test
+    public void testUnknownIdFails()
+    {
+        assertThatExceptionOfType(IOException.class).isThrownBy(() -> SegmentCompression.fromId((byte) 42));
+    }
+
+    private static void assertRoundTrip(SegmentCompression compression) throws IOException
+    {
+        byte[] source = repeat("client:'127.0.0.1'|user:'user'|status:'ATTEMPT'|operation:'SELECT * FROM ks.tbl'", 100);
+        byte[] compressed = new byte[compression.maxCompressedLength(source.length)];
+
+        int compressedLength = compression.compress(source, source.length, compressed);
+        byte[] decompressed = new byte[source.length];
+        compression.decompress(compressed, compressedLength, decompressed, source.length);
+
+        assertThat(decompressed).as(compression.name()).isEqualTo(source);
+    }
+
+    private static void assertCompressed(SegmentCompression compression)
+    {
+        byte[] source = repeat("user:'user'|status:'ATTEMPT'", 100);
+        byte[] compressed = new byte[compression.maxCompressedLength(source.length)];
+
+        assertThat(compression.compress(source, source.length, compressed)).as(compression.name()).isLessThan(source.length / 2);
+    }
+
+    private static void assertCorruptBlockFails(SegmentCompression compression)
+    {
+        byte[] source = repeat("user:'user'", 100);
+        byte[] compressed = new byte[compression.maxCompressedLength(source.length)];
+        int compressedLength = compression.compress(source, source.length, compressed);
+        Arrays.fill(compressed, 0, compressedLength, (byte) 0x7F);
+
+        assertThatExceptionOfType(IOException.class)
+            .isThrownBy(() -> compression.decompress(compressed, compressedLength, new byte[source.length], source.length));
+    }
+
+    private static byte[] repeat(String value, int times)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++)
+        {
+            builder.append(value);
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
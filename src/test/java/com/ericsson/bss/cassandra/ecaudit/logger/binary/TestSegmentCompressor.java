@@ -0,0 +1,191 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.entry.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.entry.Status;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestSegmentCompressor
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File directory;
+    private SegmentCompressor compressor;
+
+    @Before
+    public void before() throws IOException
+    {
+        directory = temporaryFolder.newFolder();
+        compressor = new SegmentCompressor(SegmentCompression.LZ4, 2);
+    }
+
+    @After
+    public void after()
+    {
+        compressor.close();
+    }
+
+    @Test
+    public void testSegmentIsCompressedAndReplaced() throws Exception
+    {
+        File segment = writeSegment(0, 1000, "SELECT * FROM ks.tbl WHERE key = ");
+        long uncompressedLength = segment.length();
+
+        compressor.compress(segment);
+
+        File compressed = AuditSegment.compressedFile(directory, 0);
+        assertThat(segment).doesNotExist();
+        assertThat(compressed).exists();
+        assertThat(compressed.length()).isLessThan(uncompressedLength);
+        assertThat(AuditSegment.list(directory)).containsExactly(compressed);
+        assertThat(AuditSegmentIndex.file(segment)).doesNotExist();
+        assertThat(AuditSegmentIndex.read(compressed, compressed.length())).isNotEmpty();
+
+        List<String> operations = readOperations(compressed);
+        assertThat(operations).hasSize(1000);
+        assertThat(operations.get(0)).isEqualTo("SELECT * FROM ks.tbl WHERE key = 0");
+        assertThat(operations.get(999)).isEqualTo("SELECT * FROM ks.tbl WHERE key = 999");
+    }
+
+    @Test
+    public void testRecordsLargerThanBlockAreCompressed() throws Exception
+    {
+        StringBuilder largeOperation = new StringBuilder();
+        while (largeOperation.length() < 2 * SegmentCompressor.BLOCK_SIZE)
+        {
+            largeOperation.append("INSERT INTO ks.tbl (key, value) VALUES (1, 'value');");
+        }
+        File segment = writeSegment(0, 3, largeOperation.toString());
+
+        compressor.compress(segment);
+
+        List<String> operations = readOperations(AuditSegment.compressedFile(directory, 0));
+        assertThat(operations).hasSize(3);
+        assertThat(operations.get(2)).isEqualTo(largeOperation + "2");
+    }
+
+    @Test
+    public void testCompressedIndexHasOneEntryPerBlock() throws Exception
+    {
+        File segment = writeSegment(0, 10_000, "SELECT * FROM ks.tbl WHERE key = ");
+
+        compressor.compress(segment);
+
+        File compressed = AuditSegment.compressedFile(directory, 0);
+        List<AuditSegmentIndex.Entry> index = AuditSegmentIndex.read(compressed, compressed.length());
+        assertThat(index.size()).isGreaterThan(1);
+        assertThat(index.get(0).getFirstSequence()).isEqualTo(1L);
+        assertThat(index.get(index.size() - 1).getLastSequence()).isEqualTo(10_000L);
+        assertThat(index.get(index.size() - 1).getOffset() + index.get(index.size() - 1).getLength()).isEqualTo(compressed.length());
+
+        List<String> operations = new ArrayList<>();
+        AuditSegment.forEachRecord(compressed, Long.MIN_VALUE, 0, (logEntry, sequence) -> operations.add(logEntry.getOperation().getOperationString()));
+        assertThat(operations).isEmpty();
+    }
+
+    @Test
+    public void testAlreadyCompressedSegmentIsDeleted() throws Exception
+    {
+        File segment = writeSegment(0, 10, "first ");
+        compressor.compress(segment);
+
+        File leftover = writeSegment(0, 10, "second ");
+        compressor.compress(leftover);
+
+        assertThat(leftover).doesNotExist();
+        assertThat(readOperations(AuditSegment.compressedFile(directory, 0))).startsWith("first 0");
+    }
+
+    @Test
+    public void testSubmittedSegmentsAreCompressedInBackground() throws Exception
+    {
+        List<File> segments = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+        {
+            segments.add(writeSegment(i, 100, "operation "));
+        }
+
+        segments.forEach(compressor::submit);
+        assertThat(compressor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        List<File> listed = AuditSegment.list(directory);
+        assertThat(listed).hasSize(4);
+        assertThat(listed).allMatch(AuditSegment::isCompressed);
+    }
+
+    @Test
+    public void testSubmitAfterCloseLeavesSegmentUncompressed() throws Exception
+    {
+        File segment = writeSegment(0, 10, "operation ");
+
+        compressor.close();
+        compressor.submit(segment);
+
+        assertThat(AuditSegment.list(directory)).containsExactly(segment);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoCompressionFails()
+    {
+        new SegmentCompressor(SegmentCompression.NONE, 1);
+    }
+
+    private File writeSegment(long id, int records, String operationPrefix) throws Exception
+    {
+        File file = AuditSegment.file(directory, id);
+        SegmentWriter writer = new SegmentWriter(file, 8 * 1024 * 1024, 64);
+        for (int i = 0; i < records; i++)
+        {
+            assertThat(writer.append(entryWithOperation(operationPrefix + i), i + 1)).isTrue();
+        }
+        writer.close();
+        return file;
+    }
+
+    private static List<String> readOperations(File segment) throws IOException
+    {
+        List<String> operations = new ArrayList<>();
+        AuditSegment.forEachRecord(segment, entry -> operations.add(entry.getOperation().getOperationString()));
+        return operations;
+    }
+
+    private static AuditEntry entryWithOperation(String operation) throws Exception
+    {
+        return AuditEntry.newBuilder()
+                         .client(InetAddress.getByName("127.0.0.1"))
+                         .user("user")
+                         .status(Status.ATTEMPT)
+                         .operation(new SimpleAuditOperation(operation))
+                         .build();
+    }
+}
@@ -0,0 +1,137 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.logger.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.entry.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.entry.Status;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestShardedAuditLogger
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testConcurrentRecordsGetUniqueSequenceNumbers() throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        ShardedAuditLogger logger = new ShardedAuditLogger(BinaryAuditLogger.newBuilder(directory).segmentSize(4096), 4);
+
+        int threads = 8;
+        int recordsPerThread = 250;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            futures.add(executor.submit(() ->
+            {
+                for (int i = 0; i < recordsPerThread; i++)
+                {
+                    logger.log(entryWithOperation("operation"));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures)
+        {
+            future.get();
+        }
+        executor.shutdown();
+        logger.close();
+
+        List<File> shards = AuditSegment.listShards(directory);
+        assertThat(shards).hasSize(4);
+
+        List<Long> allSequences = new ArrayList<>();
+        for (File shard : shards)
+        {
+            List<Long> shardSequences = readSequences(shard);
+            assertThat(shardSequences).isSorted();
+            allSequences.addAll(shardSequences);
+        }
+
+        assertThat(allSequences).hasSize(threads * recordsPerThread);
+        assertThat(allSequences).doesNotHaveDuplicates();
+        assertThat(allSequences).allMatch(sequence -> sequence >= 1 && sequence <= threads * recordsPerThread);
+    }
+
+    @Test
+    public void testSequenceContinuesAfterRestartWithFewerShards() throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        ShardedAuditLogger logger = new ShardedAuditLogger(BinaryAuditLogger.newBuilder(directory).segmentSize(4096), 4);
+        for (int i = 0; i < 10; i++)
+        {
+            logger.log(entryWithOperation("before restart"));
+        }
+        logger.close();
+
+        logger = new ShardedAuditLogger(BinaryAuditLogger.newBuilder(directory).segmentSize(4096), 2);
+        logger.log(entryWithOperation("after restart"));
+        logger.close();
+
+        long maxSequence = 0;
+        for (File shard : AuditSegment.listShards(directory))
+        {
+            for (long sequence : readSequences(shard))
+            {
+                maxSequence = Math.max(maxSequence, sequence);
+            }
+        }
+        assertThat(maxSequence).isEqualTo(11L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroShardsIsRejected() throws Exception
+    {
+        new ShardedAuditLogger(BinaryAuditLogger.newBuilder(temporaryFolder.newFolder()), 0);
+    }
+
+    private static List<Long> readSequences(File directory) throws IOException
+    {
+        List<Long> sequences = new ArrayList<>();
+        for (File segment : AuditSegment.list(directory))
+        {
+            AuditSegment.forEachRecord(segment, (logEntry, sequence) -> sequences.add(sequence));
+        }
+        return sequences;
+    }
+
+    private static AuditEntry entryWithOperation(String operation) throws Exception
+    {
+        return AuditEntry.newBuilder()
+                         .client(InetAddress.getByName("127.0.0.1"))
+                         .user("user")
+                         .status(Status.ATTEMPT)
+                         .operation(new SimpleAuditOperation(operation))
+                         .build();
+    }
+}
@@ -0,0 +1,117 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.microbench;
+
+import java.util.concurrent.TimeUnit;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.factory.FieldReader;
+import org.apache.cassandra.cql3.QueryProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares reading private fields of statements with cached method handles and with reflection, for each statement
+ * type that the audit entry builder factory resolves resources of.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class BenchmarkFieldReader
+{
+    @Param({ "CREATE_ROLE", "ALTER_ROLE", "DROP_ROLE", "GRANT_ROLE", "REVOKE_ROLE",
+             "GRANT_PERMISSION", "REVOKE_PERMISSION", "LIST_PERMISSIONS", "LIST_ROLES",
+             "USE", "CREATE_VIEW", "CREATE_FUNCTION", "DROP_FUNCTION", "CREATE_AGGREGATE", "DROP_AGGREGATE",
+             "INSERT", "UPDATE", "DELETE" })
+    private StatementType statementType;
+
+    private Object statement;
+    private FieldReader reader;
+
+    @Setup
+    public void setup()
+    {
+        statement = QueryProcessor.parseStatement(statementType.query);
+        reader = new FieldReader(statementType.fieldName);
+    }
+
+    @Benchmark
+    public Object benchmarkMethodHandle()
+    {
+        return reader.read(statement);
+    }
+
+    @Benchmark
+    public Object benchmarkReflection()
+    {
+        return reader.readReflectively(statement);
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(BenchmarkFieldReader.class.getSimpleName())
+                                       .addProfiler(GCProfiler.class)
+                                       .build()).run();
+    }
+
+    public enum StatementType
+    {
+        CREATE_ROLE("CREATE ROLE bob", "role"),
+        ALTER_ROLE("ALTER ROLE bob WITH LOGIN = true", "role"),
+        DROP_ROLE("DROP ROLE bob", "role"),
+        GRANT_ROLE("GRANT alice TO bob", "role"),
+        REVOKE_ROLE("REVOKE alice FROM bob", "role"),
+        GRANT_PERMISSION("GRANT SELECT ON TABLE ks.tbl TO bob", "resource"),
+        REVOKE_PERMISSION("REVOKE SELECT ON TABLE ks.tbl FROM bob", "resource"),
+        LIST_PERMISSIONS("LIST ALL PERMISSIONS OF bob", "grantee"),
+        LIST_ROLES("LIST ROLES OF bob", "grantee"),
+        USE("USE ks", "keyspace"),
+        CREATE_VIEW("CREATE MATERIALIZED VIEW ks.mv AS SELECT * FROM ks.tbl WHERE a IS NOT NULL AND k IS NOT NULL PRIMARY KEY (a, k)", "baseName"),
+        CREATE_FUNCTION("CREATE FUNCTION ks.fn (a int) RETURNS NULL ON NULL INPUT RETURNS int LANGUAGE java AS 'return a;'", "functionName"),
+        DROP_FUNCTION("DROP FUNCTION ks.fn (int)", "argRawTypes"),
+        CREATE_AGGREGATE("CREATE AGGREGATE ks.agg (int) SFUNC fn STYPE int", "functionName"),
+        DROP_AGGREGATE("DROP AGGREGATE ks.agg (int)", "argRawTypes"),
+        INSERT("INSERT INTO ks.tbl (k, a) VALUES (1, 1)", "conditions"),
+        UPDATE("UPDATE ks.tbl SET a = 1 WHERE k = 1 IF a = 0", "conditions"),
+        DELETE("DELETE FROM ks.tbl WHERE k = 1", "conditions");
+
+        private final String query;
+        private final String fieldName;
+
+        StatementType(String query, String fieldName)
+        {
+            this.query = query;
+            this.fieldName = fieldName;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.microbench;
+
+import java.util.concurrent.TimeUnit;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.entry.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.obfuscator.PasswordObfuscator;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
+import org.apache.cassandra.auth.Permission;
+import org.apache.cassandra.auth.RoleResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures password obfuscation of role statements, including adversarial statements which caused excessive
+ * backtracking with the previous regular expressions.
+ *
+ * The time per operation is expected to grow linearly with the length of the statement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class BenchmarkPasswordObfuscator
+{
+    public enum Statement
+    {
+        PLAIN
+        {
+            @Override
+            String create(int length)
+            {
+                return "ALTER ROLE r WITH PASSWORD = '" + Strings.repeat("a", length) + "' AND LOGIN = true";
+            }
+        },
+        REPEATED_KEYWORD
+        {
+            @Override
+            String create(int length)
+            {
+                return "ALTER ROLE r WITH " + Strings.repeat("password ", length / 9);
+            }
+        },
+        UNTERMINATED_PASSWORD
+        {
+            @Override
+            String create(int length)
+            {
+                return "ALTER ROLE r WITH PASSWORD = '" + Strings.repeat("a' ", length / 3);
+            }
+        },
+        WHITESPACE
+        {
+            @Override
+            String create(int length)
+            {
+                return "ALTER ROLE r WITH PASSWORD" + Strings.repeat(" ", length) + "=";
+            }
+        },
+        OPTIONS
+        {
+            @Override
+            String create(int length)
+            {
+                return "ALTER ROLE r WITH OPTIONS = {" + Strings.repeat("'password':'a',", length / 15) + "}";
+            }
+        };
+
+        abstract String create(int length);
+    }
+
+    @Param({ "1000", "10000", "100000" })
+    private int length;
+
+    @Param
+    private Statement statement;
+
+    private PasswordObfuscator obfuscator;
+    private AuditEntry logEntry;
+
+    @Setup
+    public void setup()
+    {
+        obfuscator = new PasswordObfuscator();
+        logEntry = AuditEntry.newBuilder()
+                             .permissions(ImmutableSet.of(Permission.ALTER))
+                             .resource(RoleResource.role("r"))
+                             .operation(new SimpleAuditOperation(statement.create(length)))
+                             .build();
+    }
+
+    @Benchmark
+    public AuditEntry benchmarkObfuscate()
+    {
+        return obfuscator.obfuscate(logEntry);
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(BenchmarkPasswordObfuscator.class.getSimpleName())
+                                       .addProfiler(GCProfiler.class)
+                                       .build()).run();
+    }
+}
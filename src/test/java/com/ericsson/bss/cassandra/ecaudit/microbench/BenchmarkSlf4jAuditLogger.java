@@ -1,5 +1,7 @@
 package com.ericsson.bss.cassandra.ecaudit.microbench;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.InetAddress;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
@@ -7,11 +9,13 @@ import java.util.concurrent.TimeUnit;
 import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
 import com.ericsson.bss.cassandra.ecaudit.entry.SimpleAuditOperation;
 import com.ericsson.bss.cassandra.ecaudit.entry.Status;
+import com.ericsson.bss.cassandra.ecaudit.logger.AuditLogEncoder;
 import com.ericsson.bss.cassandra.ecaudit.logger.Slf4jAuditLogger;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.LoggingEvent;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
-import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.Scope;
@@ -19,7 +23,17 @@ import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+/**
+ * Measures throughput and allocation rate of audit log formatting.
+ *
+ * Run with {@link #main(String[])} to get the allocation rate per operation from the GC profiler,
+ * equivalent to {@code -prof gc} on the JMH command line.
+ */
 @BenchmarkMode(Mode.Throughput)
 @Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
 @Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
@@ -29,8 +43,11 @@ import org.openjdk.jmh.annotations.Warmup;
 public class BenchmarkSlf4jAuditLogger
 {
     private AuditEntry auditEntry;
+    private StringBuilder builder;
+    private LoggingEvent loggingEvent;
+    private AuditLogEncoder encoder;
 
-    @Setup(Level.Invocation)
+    @Setup
     public void setup() throws Exception
     {
         auditEntry = AuditEntry.newBuilder()
@@ -40,11 +57,59 @@ public class BenchmarkSlf4jAuditLogger
                                .status(Status.ATTEMPT)
                                .operation(new SimpleAuditOperation("SELECT * from dummy.table"))
                                .build();
+
+        builder = new StringBuilder();
+
+        loggingEvent = new LoggingEvent();
+        loggingEvent.setLevel(Level.INFO);
+        loggingEvent.setTimeStamp(System.currentTimeMillis());
+        loggingEvent.setMessage(Slf4jAuditLogger.getLogString(auditEntry));
+
+        encoder = new AuditLogEncoder();
+        encoder.setImmediateFlush(false);
+        encoder.init(new NullOutputStream());
+        encoder.start();
+    }
+
+    @Benchmark
+    public String benchmarkGetLogString()
+    {
+        return Slf4jAuditLogger.getLogString(auditEntry);
+    }
+
+    @Benchmark
+    public StringBuilder benchmarkAppendLogString()
+    {
+        builder.setLength(0);
+        Slf4jAuditLogger.appendLogString(auditEntry, builder);
+        return builder;
     }
 
     @Benchmark
-    public void benchmarkGetLogString()
+    public void benchmarkEncode() throws IOException
+    {
+        encoder.doEncode(loggingEvent);
+    }
+
+    public static void main(String[] args) throws RunnerException
     {
-        Slf4jAuditLogger.getLogString(auditEntry);
+        new Runner(new OptionsBuilder().include(BenchmarkSlf4jAuditLogger.class.getSimpleName())
+                                       .addProfiler(GCProfiler.class)
+                                       .build()).run();
+    }
+
+    private static class NullOutputStream extends OutputStream
+    {
+        @Override
+        public void write(int b)
+        {
+            // Discard
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+        {
+            // Discard
+        }
     }
 }
@@ -0,0 +1,108 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.microbench;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+
+import com.ericsson.bss.cassandra.ecaudit.entry.AuditEntry;
+import com.ericsson.bss.cassandra.ecaudit.entry.PreparedAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.entry.SimpleAuditOperation;
+import com.ericsson.bss.cassandra.ecaudit.entry.Status;
+import com.ericsson.bss.cassandra.ecaudit.facade.Auditor;
+import com.ericsson.bss.cassandra.ecaudit.facade.DefaultAuditor;
+import org.apache.cassandra.auth.DataResource;
+import org.apache.cassandra.auth.Permission;
+import org.apache.cassandra.cql3.QueryOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the cost of a whitelisted prepared request when the whole audit entry is built before the whitelist is
+ * checked and when the whitelist is checked on a partial entry before the rest is built.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class BenchmarkWhitelistedRequest
+{
+    private static final String WHITELISTED_USER = "whitelisted";
+
+    private Auditor auditor;
+    private AuditEntry template;
+    private InetAddress client;
+
+    @Setup
+    public void setup() throws UnknownHostException
+    {
+        auditor = new DefaultAuditor(logEntry -> {}, logEntry -> WHITELISTED_USER.equals(logEntry.getUser()), logEntry -> logEntry);
+        template = AuditEntry.newBuilder()
+                             .permissions(Permission.ALL)
+                             .resource(DataResource.table("ks", "tbl"))
+                             .operation(new SimpleAuditOperation("SELECT * FROM ks.tbl WHERE k = ?"))
+                             .build();
+        client = InetAddress.getByName("127.0.0.1");
+    }
+
+    @Benchmark
+    public void benchmarkFilterAfterBuild()
+    {
+        AuditEntry logEntry = AuditEntry.newBuilder()
+                                        .basedOn(template)
+                                        .client(client)
+                                        .user(WHITELISTED_USER)
+                                        .operation(new PreparedAuditOperation(template.getOperation().getOperationString(), QueryOptions.DEFAULT))
+                                        .status(Status.ATTEMPT)
+                                        .timestamp(System.currentTimeMillis())
+                                        .build();
+        auditor.audit(logEntry);
+    }
+
+    @Benchmark
+    public boolean benchmarkFilterBeforeBuild()
+    {
+        AuditEntry.Builder builder = AuditEntry.newBuilder()
+                                               .basedOn(template)
+                                               .client(client)
+                                               .user(WHITELISTED_USER);
+        return auditor.isAuditRequired(builder.build());
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(BenchmarkWhitelistedRequest.class.getSimpleName())
+                                       .addProfiler(GCProfiler.class)
+                                       .build()).run();
+    }
+}
@@ -0,0 +1,105 @@
+//**********************************************************************
+// Copyright 2018 Telefonaktiebolaget LM Ericsson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//**********************************************************************
+package com.ericsson.bss.cassandra.ecaudit.obfuscator;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestPasswordScanner
+{
+    private static final String MASK = "*****";
+
+    @Test
+    public void testPasswordForms()
+    {
+        assertObfuscated("CREATE ROLE r WITH PASSWORD = 'secret' AND LOGIN = true",
+                         "CREATE ROLE r WITH PASSWORD = '*****' AND LOGIN = true");
+        assertObfuscated("CREATE USER u WITH PASSWORD 'secret' SUPERUSER",
+                         "CREATE USER u WITH PASSWORD '*****' SUPERUSER");
+        assertObfuscated("alter role r with password='secret'",
+                         "alter role r with password='*****'");
+    }
+
+    @Test
+    public void testPasswordWithWhitespaceAndEscapedQuotes()
+    {
+        assertObfuscated("ALTER ROLE r WITH PASSWORD = 'it''s a secret' AND LOGIN = true",
+                         "ALTER ROLE r WITH PASSWORD = '*****' AND LOGIN = true");
+    }
+
+    @Test
+    public void testDollarQuotedPassword()
+    {
+        assertObfuscated("ALTER ROLE r WITH PASSWORD = $$it's a secret$$",
+                         "ALTER ROLE r WITH PASSWORD = $$*****$$");
+    }
+
+    @Test
+    public void testUnterminatedPassword()
+    {
+        assertObfuscated("ALTER ROLE r WITH PASSWORD = 'secret",
+                         "ALTER ROLE r WITH PASSWORD = '*****");
+    }
+
+    @Test
+    public void testSensitiveOptions()
+    {
+        assertObfuscated("ALTER ROLE r WITH OPTIONS = { 'ldap_password' : 'secret', 'client_secret': 'other', 'grant_audit_whitelist_for_all' : 'data' }",
+                         "ALTER ROLE r WITH OPTIONS = { 'ldap_password' : '*****', 'client_secret': '*****', 'grant_audit_whitelist_for_all' : 'data' }");
+    }
+
+    @Test
+    public void testPasswordAndOptions()
+    {
+        assertObfuscated("CREATE ROLE r WITH PASSWORD = 'secret' AND OPTIONS = { 'Password' : 'other' }",
+                         "CREATE ROLE r WITH PASSWORD = '*****' AND OPTIONS = { 'Password' : '*****' }");
+    }
+
+    @Test
+    public void testPasswordLikeTextIsNotMasked()
+    {
+        assertUnmodified("ALTER ROLE \"password\" WITH LOGIN = true");
+        assertUnmodified("ALTER ROLE passwords WITH OPTIONS = { 'grant_audit_whitelist_for_all' : 'data/password' }");
+        assertUnmodified("ALTER ROLE r WITH OPTIONS = { 'grant_audit_whitelist_for_all' : 'data/ks/password' }");
+        assertUnmodified("ALTER ROLE r WITH LOGIN = true -- PASSWORD 'comment'");
+        assertUnmodified("ALTER ROLE r /* PASSWORD = 'comment' */ WITH LOGIN = true");
+    }
+
+    @Test
+    public void testNoPassword()
+    {
+        assertUnmodified("ALTER ROLE r WITH LOGIN = true");
+        assertUnmodified("");
+    }
+
+    @Test
+    public void testPasswordKeywordWithoutValue()
+    {
+        assertUnmodified("ALTER ROLE r WITH PASSWORD");
+        assertUnmodified("ALTER ROLE r WITH PASSWORD = ");
+    }
+
+    private static void assertObfuscated(String statement, String expected)
+    {
+        assertThat(PasswordScanner.obfuscate(statement, MASK)).isEqualTo(expected);
+    }
+
+    private static void assertUnmodified(String statement)
+    {
+        assertThat(PasswordScanner.obfuscate(statement, MASK)).isSameAs(statement);
+    }
+}